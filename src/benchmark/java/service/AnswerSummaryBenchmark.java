@@ -0,0 +1,45 @@
+package service;
+
+import model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks summarizing the answers of a synthetic survey of 50 questions, split across threads with a merge of the
+ * partial counts at the end, against counting every row on one thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class AnswerSummaryBenchmark {
+
+  private static final int COLUMNS = 50;
+
+  @Param({"10000", "100000"})
+  private int rows;
+
+  private List<Person> people;
+
+  @Setup
+  public void setUp() {
+    List<List<Object>> data = new SyntheticSurvey(rows, COLUMNS, rows).getData();
+    people = new DataParser(new DelimitedFileSource()).parseData(data, SyntheticSurvey.IMAGE_INDEX);
+  }
+
+  @Benchmark
+  public AnswerSummary summarize() {
+    return AnswerSummary.summarize(people);
+  }
+
+  @Benchmark
+  public AnswerSummary sequential() {
+    AnswerSummary summary = new AnswerSummary();
+    people.forEach(summary::add);
+    return summary;
+  }
+}
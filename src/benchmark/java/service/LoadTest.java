@@ -0,0 +1,303 @@
+package service;
+
+import model.Person;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the whole survey parser on a synthetic survey of a given size and reports how long each stage took, the rows
+ * parsed per second, the peak heap and the bytes written. The survey is written as a CSV file first so the run reads,
+ * parses and renders it exactly as it would a downloaded export. Run with:
+ *
+ * mvn -P benchmark test-compile exec:exec -Dexec.args="-classpath %classpath service.LoadTest &lt;rows&gt; [options]"
+ *
+ * Options are --columns=N, --seed=N, --page-size=N, --parallelism=N, --archive=true, --channel-output=true,
+ * --sync=&lt;none|batch|end&gt;, --directory-page-size=N, --search=true, --answer-summary=true and
+ * --output=&lt;folder&gt;. Pages are written to a temporary folder that is deleted afterwards unless an output folder is given.
+ */
+public class LoadTest {
+
+  private static final int DEFAULT_COLUMNS = 40;
+  private static final long DEFAULT_SEED = 1;
+  private static final String OPTION_PREFIX = "--";
+  private static final String OPTION_SEPARATOR = "=";
+  private static final String SURVEY_FILE_NAME = "survey.csv";
+  private static final String ARCHIVE_FILE_NAME = "studentPages.zip";
+  private static final String RETRIEVE_STAGE = "retrieve";
+  private static final String PARSE_STAGE = "parse";
+  private static final String RETRIEVE_AND_PARSE_STAGE = "retrieve and parse";
+  private static final String GENERATE_STAGE = "generate files";
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+  private final int rows;
+  private final int columns;
+  private final long seed;
+  private final RunOptions options;
+  private final Path output;
+
+  /**
+   * Constructor that takes in the size of the survey and how to run on it.
+   *
+   * @param rows    number of responses to generate
+   * @param columns number of columns to generate
+   * @param seed    seed of the generated answers
+   * @param options non-null RunOptions to run the survey parser with
+   * @param output  non-null folder to write the survey and pages in
+   */
+  LoadTest(int rows, int columns, long seed, RunOptions options, Path output) {
+    this.rows = rows;
+    this.columns = columns;
+    this.seed = seed;
+    this.options = options;
+    this.output = output;
+  }
+
+  /**
+   * Generates the survey, runs on it and prints the report.
+   *
+   * @param args number of rows followed by --name=value options
+   * @throws IOException if the survey or pages can't be written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      throw new IllegalArgumentException("Must give the number of rows to generate");
+    }
+    int columns = DEFAULT_COLUMNS;
+    long seed = DEFAULT_SEED;
+    Path output = null;
+    boolean archive = false;
+    RunOptions options = new RunOptions();
+    for (int i = 1; i < args.length; i++) {
+      String option = args[i];
+      int separatorIndex = option.indexOf(OPTION_SEPARATOR);
+      if (!option.startsWith(OPTION_PREFIX) || separatorIndex == -1) {
+        throw new IllegalArgumentException(String.format("Options must look like --name=value. Option given was=%s",
+                option));
+      }
+      String name = option.substring(OPTION_PREFIX.length(), separatorIndex);
+      String value = option.substring(separatorIndex + 1);
+      switch (name) {
+        case "columns":
+          columns = Integer.parseInt(value);
+          break;
+        case "seed":
+          seed = Long.parseLong(value);
+          break;
+        case "page-size":
+          options.setPageSize(Integer.parseInt(value));
+          break;
+        case "parallelism":
+          options.setParallelism(Integer.parseInt(value));
+          break;
+        case "archive":
+          archive = Boolean.parseBoolean(value);
+          break;
+        case "channel-output":
+          options.setChannelOutput(Boolean.parseBoolean(value));
+          break;
+        case "sync":
+          options.setSyncPolicy(SyncPolicy.valueOf(value.toUpperCase(Locale.ROOT)));
+          break;
+        case "directory-page-size":
+          options.setDirectoryPageSize(Integer.parseInt(value));
+          break;
+        case "search":
+          options.setSearch(Boolean.parseBoolean(value));
+          break;
+        case "answer-summary":
+          options.setAnswerSummary(Boolean.parseBoolean(value));
+          break;
+        case "output":
+          output = Paths.get(value);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown option. Option given was=%s", option));
+      }
+    }
+
+    boolean temporary = output == null;
+    if (temporary) {
+      output = Files.createTempDirectory("surveyParser-load");
+    }
+    if (archive) {
+      options.setArchive(new File(ARCHIVE_FILE_NAME));
+    }
+    try {
+      new LoadTest(Integer.parseInt(args[0]), columns, seed, options, output).run();
+    }
+    finally {
+      if (temporary) {
+        delete(output);
+      }
+    }
+  }
+
+  /**
+   * Generates the survey as a CSV file, runs the survey parser on it and prints the report.
+   *
+   * @throws IOException if the survey or pages can't be written
+   */
+  void run() throws IOException {
+    Files.createDirectories(output);
+    SyntheticSurvey survey = new SyntheticSurvey(rows, columns, seed);
+    Path surveyFile = output.resolve(SURVEY_FILE_NAME);
+    long start = System.nanoTime();
+    long inputBytes = survey.writeCsv(surveyFile);
+    System.out.printf("Generated %,d rows of %d columns (%,d bytes) in %.3f s%n", rows, columns, inputBytes,
+            (System.nanoTime() - start) / NANOS_PER_SECOND);
+
+    List<MemoryPoolMXBean> heapPools = getHeapPools();
+    System.gc();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    start = System.nanoTime();
+    new SurveyParser(new TimedDataParser(), new TimedFileGenerator(), options)
+            .run(surveyFile.toString(), survey.getRange(), SyntheticSurvey.IMAGE_COLUMN);
+    long totalNanos = System.nanoTime() - start;
+    long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+    for (Map.Entry<String, Long> stage : stageNanos.entrySet()) {
+      System.out.printf("%-20s %10.3f s%n", stage.getKey(), stage.getValue() / NANOS_PER_SECOND);
+    }
+    System.out.printf("%-20s %10.3f s%n", "total", totalNanos / NANOS_PER_SECOND);
+    System.out.printf("%-20s %,10.0f%n", "rows/sec", rows / (totalNanos / NANOS_PER_SECOND));
+    System.out.printf("%-20s %,10d MB%n", "peak heap", peakHeap / BYTES_PER_MEGABYTE);
+    Path pages = options.getArchive() == null ? output.resolve(FileGenerator.STUDENT_PAGES_FOLDER)
+            : output.resolve(options.getArchive().getPath());
+    System.out.printf("%-20s %,10d bytes%n", "output", size(pages));
+    Path searchIndex = pages.resolve(SearchIndex.SEARCH_FOLDER);
+    if (options.isSearch() && options.getArchive() == null) {
+      long indexBytes = size(searchIndex) - searchIndex.resolve(SearchIndex.SCRIPT_FILE_NAME).toFile().length();
+      System.out.printf("%-20s %,10d bytes (%,d per person)%n", "search index", indexBytes, indexBytes / rows);
+    }
+  }
+
+  private static List<MemoryPoolMXBean> getHeapPools() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+  }
+
+  private static long size(Path folder) throws IOException {
+    try (Stream<Path> files = Files.walk(folder)) {
+      return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+    }
+  }
+
+  private static void delete(Path folder) throws IOException {
+    try (Stream<Path> files = Files.walk(folder)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  private void record(String stage, long start) {
+    stageNanos.merge(stage, System.nanoTime() - start, Long::sum);
+  }
+
+  /**
+   * DataParser that records how long retrieving and parsing take.
+   */
+  private class TimedDataParser extends DataParser {
+
+    TimedDataParser() {
+      super(new DelimitedFileSource());
+      setNormalizationPolicy(options.getNormalizationPolicy());
+    }
+
+    @Override
+    List<List<Object>> retrieveData(String url, String range) throws IOException {
+      long start = System.nanoTime();
+      try {
+        return super.retrieveData(url, range);
+      }
+      finally {
+        record(RETRIEVE_STAGE, start);
+      }
+    }
+
+    @Override
+    List<Person> parseData(List<List<Object>> data, int imageIndex) {
+      long start = System.nanoTime();
+      try {
+        return super.parseData(data, imageIndex);
+      }
+      finally {
+        record(PARSE_STAGE, start);
+      }
+    }
+
+    @Override
+    List<Person> retrieveAndParseData(String url, String range, int imageIndex, int pageSize,
+                                      int maxConcurrentRequests) throws IOException {
+      long start = System.nanoTime();
+      try {
+        return super.retrieveAndParseData(url, range, imageIndex, pageSize, maxConcurrentRequests);
+      }
+      finally {
+        record(RETRIEVE_AND_PARSE_STAGE, start);
+      }
+    }
+  }
+
+  /**
+   * FileGenerator that writes into the output folder and records how long generating the files takes.
+   */
+  private class TimedFileGenerator extends FileGenerator {
+
+    TimedFileGenerator() {
+      super(new PageTemplates(), output.toFile());
+      if (options.getArchive() != null) {
+        setArchive(output.resolve(options.getArchive().getPath()).toFile());
+      }
+      if (options.isChannelOutput()) {
+        setChannelWriter(new ChannelPageWriter(Charset.defaultCharset(), options.getSyncPolicy()));
+      }
+      if (options.getDirectoryPageSize() != RunOptions.SINGLE_DIRECTORY_PAGE) {
+        setDirectorySharding(DirectorySharding.bySize(options.getDirectoryPageSize()));
+      }
+      if (options.isSearch()) {
+        setSearchColumns(options.getSearchColumns());
+      }
+      setAnswerSummary(options.isAnswerSummary());
+    }
+
+    @Override
+    void generateFiles(List<Person> people) throws IOException {
+      long start = System.nanoTime();
+      try {
+        super.generateFiles(people);
+      }
+      finally {
+        record(GENERATE_STAGE, start);
+      }
+    }
+
+    @Override
+    void generateFiles(List<Person> people, int parallelism) throws IOException {
+      long start = System.nanoTime();
+      try {
+        super.generateFiles(people, parallelism);
+      }
+      finally {
+        record(GENERATE_STAGE, start);
+      }
+    }
+  }
+}
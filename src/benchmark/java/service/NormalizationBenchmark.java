@@ -0,0 +1,58 @@
+package service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.Normalizer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the TextNormalizer policies against the NFD decomposition and regex it replaced, over cells that are
+ * mostly ASCII with the occasional accented name, as survey responses usually are.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NormalizationBenchmark {
+
+  private static final int CELLS = 1000;
+  private static final String[] ACCENTED = {"José", "Zoë Ødegård", "Ñúñez", "Straße", "“Quoted” answer"};
+
+  private String[] cells;
+  private TextNormalizer strip;
+  private TextNormalizer transliterate;
+
+  @Setup
+  public void setUp() {
+    cells = new String[CELLS];
+    for (int i = 0; i < CELLS; i++) {
+      cells[i] = i % 20 == 0 ? ACCENTED[i / 20 % ACCENTED.length] : "Answer " + i + " to a survey question";
+    }
+    strip = new TextNormalizer(NormalizationPolicy.STRIP);
+    transliterate = new TextNormalizer(NormalizationPolicy.TRANSLITERATE);
+  }
+
+  @Benchmark
+  public void regex(Blackhole blackhole) {
+    for (String cell : cells) {
+      blackhole.consume(Normalizer.normalize(cell, Normalizer.Form.NFD).replaceAll("[^\\p{ASCII}]", ""));
+    }
+  }
+
+  @Benchmark
+  public void strip(Blackhole blackhole) {
+    for (String cell : cells) {
+      blackhole.consume(strip.normalize(cell));
+    }
+  }
+
+  @Benchmark
+  public void transliterate(Blackhole blackhole) {
+    for (String cell : cells) {
+      blackhole.consume(transliterate.normalize(cell));
+    }
+  }
+}
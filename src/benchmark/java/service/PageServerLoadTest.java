@@ -0,0 +1,300 @@
+package service;
+
+import model.Person;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the pages of a synthetic survey from memory and loads the server with clients on keep-alive connections for a
+ * fixed time, then reports the requests per second, the median and 99th percentile latency and the bytes sent. Each
+ * client starts from the directory page and requests its links at random, revalidating a share of the pages it already
+ * has with If-None-Match as a browser would. Run with:
+ *
+ * mvn -P benchmark test-compile exec:exec -Dexec.args="-classpath %classpath service.PageServerLoadTest &lt;rows&gt;
+ * [options]"
+ *
+ * Options are --columns=N, --seed=N, --clients=N, --threads=N, --seconds=N, --revalidate=&lt;share from 0 to 1&gt; and
+ * --gzip=&lt;true|false&gt;.
+ */
+public class PageServerLoadTest {
+
+  private static final int DEFAULT_COLUMNS = 40;
+  private static final long DEFAULT_SEED = 1;
+  private static final int DEFAULT_CLIENTS = 8;
+  private static final int DEFAULT_THREADS = 8;
+  private static final int DEFAULT_SECONDS = 10;
+  private static final double DEFAULT_REVALIDATE = 0.5;
+  private static final String OPTION_PREFIX = "--";
+  private static final String OPTION_SEPARATOR = "=";
+  private static final Pattern LINK = Pattern.compile("<a href=\"([^\"]+)\">");
+  private static final int NOT_MODIFIED = 304;
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  private final int rows;
+  private final int columns;
+  private final long seed;
+  private final int clients;
+  private final int threads;
+  private final int seconds;
+  private final double revalidate;
+  private final boolean gzip;
+
+  /**
+   * Constructor that takes in the size of the survey and how to load the server.
+   *
+   * @param rows       number of responses to generate
+   * @param columns    number of columns to generate
+   * @param seed       seed of the generated answers and of the requests
+   * @param clients    number of clients requesting pages at once
+   * @param threads    number of threads of the server
+   * @param seconds    number of seconds to request pages for
+   * @param revalidate share of the requests for a page the client already has that send its entity tag
+   * @param gzip       if the clients accept gzip
+   */
+  PageServerLoadTest(int rows, int columns, long seed, int clients, int threads, int seconds, double revalidate,
+                     boolean gzip) {
+    this.rows = rows;
+    this.columns = columns;
+    this.seed = seed;
+    this.clients = clients;
+    this.threads = threads;
+    this.seconds = seconds;
+    this.revalidate = revalidate;
+    this.gzip = gzip;
+  }
+
+  /**
+   * Generates the survey, serves its pages, loads the server and prints the report.
+   *
+   * @param args number of rows followed by --name=value options
+   * @throws Exception if the pages can't be served or a request fails
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      throw new IllegalArgumentException("Must give the number of rows to generate");
+    }
+    int columns = DEFAULT_COLUMNS;
+    long seed = DEFAULT_SEED;
+    int clients = DEFAULT_CLIENTS;
+    int threads = DEFAULT_THREADS;
+    int seconds = DEFAULT_SECONDS;
+    double revalidate = DEFAULT_REVALIDATE;
+    boolean gzip = true;
+    for (int i = 1; i < args.length; i++) {
+      String option = args[i];
+      int separatorIndex = option.indexOf(OPTION_SEPARATOR);
+      if (!option.startsWith(OPTION_PREFIX) || separatorIndex == -1) {
+        throw new IllegalArgumentException(String.format("Options must look like --name=value. Option given was=%s",
+                option));
+      }
+      String name = option.substring(OPTION_PREFIX.length(), separatorIndex);
+      String value = option.substring(separatorIndex + 1);
+      switch (name) {
+        case "columns":
+          columns = Integer.parseInt(value);
+          break;
+        case "seed":
+          seed = Long.parseLong(value);
+          break;
+        case "clients":
+          clients = Integer.parseInt(value);
+          break;
+        case "threads":
+          threads = Integer.parseInt(value);
+          break;
+        case "seconds":
+          seconds = Integer.parseInt(value);
+          break;
+        case "revalidate":
+          revalidate = Double.parseDouble(value);
+          break;
+        case "gzip":
+          gzip = Boolean.parseBoolean(value);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown option. Option given was=%s", option));
+      }
+    }
+    new PageServerLoadTest(Integer.parseInt(args[0]), columns, seed, clients, threads, seconds, revalidate, gzip)
+            .run();
+  }
+
+  /**
+   * Renders the survey into memory, serves it and prints the report of the clients.
+   *
+   * @throws Exception if the pages can't be served or a request fails
+   */
+  void run() throws Exception {
+    SyntheticSurvey survey = new SyntheticSurvey(rows, columns, seed);
+    List<Person> people = new DataParser(new DelimitedFileSource()).parseData(survey.getData(),
+            SyntheticSurvey.IMAGE_INDEX);
+    PageStore store = new PageStore();
+    PageStore.Snapshot snapshot = new PageStore.Snapshot();
+    FileGenerator fileGenerator = new FileGenerator(new PageTemplates());
+    fileGenerator.setPageSnapshot(snapshot);
+    long start = System.nanoTime();
+    fileGenerator.generateFiles(people);
+    store.publish(snapshot);
+    System.out.printf("Stored %,d files in %.3f s%n", store.size(), (System.nanoTime() - start) / NANOS_PER_SECOND);
+
+    try (PageServer server = new PageServer(store, 0, threads, 0)) {
+      String root = "http://localhost:" + server.getPort();
+      List<URL> pages = getLinks(root);
+      ExecutorService executor = Executors.newFixedThreadPool(clients);
+      List<Future<Client>> futures = new ArrayList<>();
+      long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+      start = System.nanoTime();
+      for (int i = 0; i < clients; i++) {
+        Client client = new Client(pages, new Random(seed + i), end);
+        futures.add(executor.submit(client::call));
+      }
+      List<Client> results = new ArrayList<>();
+      try {
+        for (Future<Client> future : futures) {
+          results.add(future.get());
+        }
+      }
+      catch (ExecutionException executionException) {
+        throw new IOException("A client failed", executionException.getCause());
+      }
+      finally {
+        executor.shutdownNow();
+      }
+      report(results, System.nanoTime() - start);
+    }
+  }
+
+  private void report(List<Client> results, long elapsedNanos) {
+    long requests = 0;
+    long notModified = 0;
+    long bytes = 0;
+    for (Client client : results) {
+      requests += client.requests;
+      notModified += client.notModified;
+      bytes += client.bytes;
+    }
+    long[] latencies = new long[(int) requests];
+    int next = 0;
+    for (Client client : results) {
+      System.arraycopy(client.latencies, 0, latencies, next, client.requests);
+      next += client.requests;
+    }
+    Arrays.sort(latencies);
+    double elapsedSeconds = elapsedNanos / NANOS_PER_SECOND;
+
+    System.out.printf("%-20s %,10d (%,d not modified)%n", "requests", requests, notModified);
+    System.out.printf("%-20s %,10.0f%n", "requests/sec", requests / elapsedSeconds);
+    System.out.printf("%-20s %10.3f ms%n", "p50 latency", percentile(latencies, 0.5) / NANOS_PER_MILLI);
+    System.out.printf("%-20s %10.3f ms%n", "p99 latency", percentile(latencies, 0.99) / NANOS_PER_MILLI);
+    System.out.printf("%-20s %,10.1f MB/sec%n", "sent", bytes / elapsedSeconds / BYTES_PER_MEGABYTE);
+  }
+
+  private static long percentile(long[] sorted, double share) {
+    return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * share))];
+  }
+
+  private static List<URL> getLinks(String root) throws IOException, URISyntaxException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(root + "/").openConnection();
+    String directory;
+    try (InputStream input = connection.getInputStream()) {
+      directory = new String(readFully(input), StandardCharsets.UTF_8);
+    }
+    List<URL> links = new ArrayList<>();
+    Matcher matcher = LINK.matcher(directory);
+    while (matcher.find()) {
+      links.add(new URI("http", null, "localhost", new URL(root).getPort(), "/" + matcher.group(1), null, null)
+              .toURL());
+    }
+    if (links.isEmpty()) {
+      throw new IOException("The directory page has no links");
+    }
+    return links;
+  }
+
+  private static byte[] readFully(InputStream input) throws IOException {
+    byte[] buffer = new byte[8192];
+    int length = 0;
+    for (int read = input.read(buffer); read != -1; read = input.read(buffer, length, buffer.length - length)) {
+      length += read;
+      if (length == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+
+  /**
+   * One client requesting pages on its own keep-alive connection until the end of the run.
+   */
+  private class Client {
+
+    private final List<URL> pages;
+    private final Random random;
+    private final long end;
+    private final Map<URL, String> entityTags = new HashMap<>();
+    private final byte[] buffer = new byte[8192];
+    private long[] latencies = new long[1024];
+    private int requests;
+    private long notModified;
+    private long bytes;
+
+    Client(List<URL> pages, Random random, long end) {
+      this.pages = pages;
+      this.random = random;
+      this.end = end;
+    }
+
+    Client call() throws IOException {
+      while (System.nanoTime() < end) {
+        URL page = pages.get(random.nextInt(pages.size()));
+        String entityTag = entityTags.get(page);
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) page.openConnection();
+        if (gzip) {
+          connection.setRequestProperty("Accept-Encoding", "gzip");
+        }
+        if (entityTag != null && random.nextDouble() < revalidate) {
+          connection.setRequestProperty("If-None-Match", entityTag);
+        }
+        if (connection.getResponseCode() == NOT_MODIFIED) {
+          notModified++;
+        }
+        else {
+          // Reading to the end and closing returns the connection to the keep-alive cache
+          try (InputStream input = connection.getInputStream()) {
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+              bytes += read;
+            }
+          }
+          entityTags.put(page, connection.getHeaderField("ETag"));
+        }
+        if (requests == latencies.length) {
+          latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[requests++] = System.nanoTime() - start;
+      }
+      return this;
+    }
+  }
+}
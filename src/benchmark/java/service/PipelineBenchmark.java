@@ -0,0 +1,115 @@
+package service;
+
+import model.Person;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks each step of turning a synthetic roster into pages, for rosters of 100 to 100,000 people: parsing the
+ * spreadsheet rows, normalizing the responses, building names and file names, sorting with RosterOrder and writing
+ * every page to a temporary directory. Run with -prof gc (the default for the benchmark profile); gc.alloc.rate.norm
+ * of generateFiles divided by the number of people gives the bytes allocated per page. The heap retained per parsed
+ * person is printed at the end of each trial. RosterOrderBenchmark compares RosterOrder with the comparators it
+ * replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+  private static final int COLUMNS = 30;
+  private static final int IMAGE_INDEX = SyntheticSurvey.IMAGE_INDEX;
+
+  @Param({"100", "1000", "10000", "100000"})
+  private int rows;
+
+  private List<List<Object>> data;
+  private List<String> cells;
+  private DataParser dataParser;
+  private TextNormalizer normalizer;
+  private List<Person> people;
+  private List<Person> shuffled;
+  private RosterOrder rosterOrder;
+  private Path directory;
+  private FileGenerator fileGenerator;
+
+  @Setup
+  public void setUp() throws IOException {
+    data = new SyntheticSurvey(rows, COLUMNS, rows).getData();
+    cells = new ArrayList<>();
+    data.subList(1, data.size()).forEach(row -> row.forEach(cell -> cells.add(cell.toString())));
+    dataParser = new DataParser(new DelimitedFileSource());
+    normalizer = new TextNormalizer(NormalizationPolicy.STRIP);
+    people = dataParser.parseData(data, IMAGE_INDEX);
+    shuffled = new ArrayList<>(people);
+    Collections.shuffle(shuffled, new Random(rows));
+    rosterOrder = new RosterOrder();
+
+    directory = Files.createTempDirectory("surveyParser-benchmark");
+    fileGenerator = new FileGenerator(directory.resolve(FileGenerator.STUDENT_PAGES_FOLDER).toFile()) {
+      @Override
+      Writer getFileWriter(String fileName) throws IOException {
+        return new FileWriter(directory.resolve(fileName).toFile());
+      }
+    };
+  }
+
+  @Benchmark
+  public List<Person> parseData() {
+    return dataParser.parseData(data, IMAGE_INDEX);
+  }
+
+  @Benchmark
+  public void normalize(Blackhole blackhole) {
+    for (String cell : cells) {
+      blackhole.consume(normalizer.normalize(cell));
+    }
+  }
+
+  @Benchmark
+  public void getNameAndFileName(Blackhole blackhole) {
+    for (Person person : people) {
+      blackhole.consume(person.getName());
+      blackhole.consume(person.getFileName());
+    }
+  }
+
+  @Benchmark
+  public List<Person> sort() {
+    // Sorting a copy keeps every invocation sorting the same unsorted order; copying is small next to the sort
+    List<Person> result = new ArrayList<>(shuffled);
+    rosterOrder.sort(result);
+    return result;
+  }
+
+  @Benchmark
+  public void generateFiles() throws IOException {
+    fileGenerator.generateFiles(people);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    System.out.printf("%nRetained per parsed person: %,d bytes%n", GraphLayout.parseInstance(people).totalSize() / rows);
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package service;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares retrieval strategies against a local SheetsStandIn that delays every response, so the cost of each round
+ * trip can be measured without a network: one request for the whole range against pages fetched one or several at a
+ * time. A small fraction of requests is rejected with 429 to include the cost of retrying.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RetrievalBenchmark {
+
+  private static final String SPREADSHEET_ID = "benchmark";
+  private static final String URL = "https://docs.google.com/spreadsheets/d/" + SPREADSHEET_ID;
+  private static final int COLUMNS = 40;
+  private static final int CELL_LENGTH = 30;
+  private static final long FAILURE_SEED = 1;
+  private static final int PAGE_SIZE = 1000;
+  private static final int MAX_CONCURRENT_REQUESTS = 4;
+  private static final int INITIAL_BACK_OFF_MILLIS = 10;
+  private static final int MAX_BACK_OFF_ELAPSED_MILLIS = 10000;
+
+  @Param({"1000", "10000"})
+  private int rows;
+
+  @Param({"20"})
+  private long latencyMillis;
+
+  @Param({"0", "0.02"})
+  private double failureRate;
+
+  private SheetsStandIn standIn;
+  private SheetsDataSource source;
+  private String range;
+
+  @Setup
+  public void setUp() throws IOException {
+    standIn = new SheetsStandIn();
+    standIn.addSpreadsheet(SPREADSHEET_ID, SheetsStandIn.fixture(rows, COLUMNS, CELL_LENGTH));
+    standIn.setLatency(latencyMillis);
+    standIn.setFailureRate(failureRate, SheetsStandIn.TOO_MANY_REQUESTS, FAILURE_SEED);
+    source = new SheetsDataSource(new NetHttpTransport(), JacksonFactory.getDefaultInstance(), standIn.getRootUrl());
+    source.setBackOff(INITIAL_BACK_OFF_MILLIS, MAX_BACK_OFF_ELAPSED_MILLIS);
+    range = "A1:AN" + (rows + 1);
+  }
+
+  @TearDown
+  public void tearDown() {
+    standIn.close();
+  }
+
+  @Benchmark
+  public void singleRequest(Blackhole blackhole) throws IOException {
+    source.retrieveData(URL, range, RunOptions.SINGLE_REQUEST, 1, blackhole::consume);
+  }
+
+  @Benchmark
+  public void sequentialPages(Blackhole blackhole) throws IOException {
+    source.retrieveData(URL, range, PAGE_SIZE, 1, blackhole::consume);
+  }
+
+  @Benchmark
+  public void concurrentPages(Blackhole blackhole) throws IOException {
+    source.retrieveData(URL, range, PAGE_SIZE, MAX_CONCURRENT_REQUESTS, blackhole::consume);
+  }
+}
@@ -0,0 +1,111 @@
+package service;
+
+import model.Person;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares parsing a large roster into column-backed Person views against the map per Person it replaced. Half of the
+ * questions are multiple choice, which the roster dictionary encodes. The memory retained by the parsed people is
+ * measured with JOL and printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RosterBenchmark {
+
+  private static final int QUESTIONS = 40;
+  private static final int IMAGE_INDEX = 2;
+  private static final String[] CHOICES = {"Fall", "Winter", "Spring", "0-3", "4 or more", "N/A"};
+
+  @Param({"50000"})
+  private int people;
+
+  private List<List<Object>> data;
+  private DataParser dataParser;
+  private List<Person> parsed;
+
+  @Setup
+  public void setUp() {
+    data = new ArrayList<>();
+    List<Object> headers = new ArrayList<>();
+    headers.add(Person.GIVEN_FIRST_NAME_KEY);
+    headers.add(Person.LAST_NAME_KEY);
+    headers.add("Link to Picture");
+    for (int question = headers.size(); question < QUESTIONS; question++) {
+      headers.add("Question " + question);
+    }
+    data.add(headers);
+    for (int i = 0; i < people; i++) {
+      List<Object> row = new ArrayList<>();
+      row.add("First" + i);
+      row.add("Last" + i);
+      row.add("https://example.org/image" + i + ".png");
+      for (int question = row.size(); question < QUESTIONS; question++) {
+        // Half the questions are multiple choice; each cell is its own String, as it is when parsed from a response
+        row.add(question % 2 == 0 ? new String(CHOICES[(i + question) % CHOICES.length])
+                : "Answer " + question + " of respondent " + i);
+      }
+      data.add(row);
+    }
+    dataParser = new DataParser(new DelimitedFileSource());
+  }
+
+  @Benchmark
+  public List<Person> columnarRoster() {
+    parsed = dataParser.parseData(data, IMAGE_INDEX);
+    return parsed;
+  }
+
+  @Benchmark
+  public List<Person> mapPerPerson() {
+    List<String> headers = new ArrayList<>();
+    for (Object header : data.get(0)) {
+      headers.add(header.toString());
+    }
+    List<Person> result = new ArrayList<>();
+    for (int row = 1; row < data.size(); row++) {
+      List<Object> cells = data.get(row);
+      Map<String, String> values = new LinkedHashMap<>();
+      String imageLink = "";
+      for (int i = 0; i < cells.size(); i++) {
+        if (i != IMAGE_INDEX) {
+          String normalized = Normalizer.normalize(cells.get(i).toString(), Normalizer.Form.NFD);
+          values.put(headers.get(i), normalized.replaceAll("[^\\p{ASCII}]", ""));
+        }
+        else {
+          imageLink = cells.get(i).toString();
+        }
+      }
+      result.add(new Person(values, imageLink));
+    }
+    result.sort((Person p1, Person p2) -> p1.getLastName().compareTo(p2.getLastName()));
+    parsed = result;
+    return parsed;
+  }
+
+  @TearDown
+  public void reportRetainedMemory() {
+    long bytes = GraphLayout.parseInstance(parsed).totalSize();
+
+    // The cell Strings are the same in both layouts, so report the bytes spent on the structure around them separately
+    Object[] cells = parsed.stream()
+            .flatMap(person -> Stream.concat(person.getData().values().stream(), Stream.of(person.getImageLink())))
+            .toArray();
+    long cellBytes = GraphLayout.parseInstance(cells).totalSize() - ClassLayout.parseInstance(cells).instanceSize();
+    System.out.printf("%nRetained by %d people: %,d bytes, of which %,d bytes per person outside the cell Strings%n",
+            people, bytes, (bytes - cellBytes) / people);
+  }
+}
@@ -0,0 +1,76 @@
+package service;
+
+import model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sorting a roster with RosterOrder, which computes the collation keys of each person once and sorts large
+ * rosters on several threads, against collating the names on every comparison and against the raw comparison of last
+ * names it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RosterOrderBenchmark {
+
+  private static final String[] LAST_NAMES = {"Smith", "de Vries", "Garcia", "O'Neil", "Nguyen", "Müller", "Ødegaard",
+      "van der Berg", "Kim", "Johnson"};
+  private static final String[] FIRST_NAMES = {"Amy", "Bob", "Chloé", "Dan", "Émile", "Fatima", "Grace", "Hiro"};
+
+  @Param({"1000", "100000"})
+  private int people;
+
+  private List<Person> roster;
+  private RosterOrder rosterOrder;
+  private Comparator<Person> collatingComparator;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(1);
+    roster = new ArrayList<>(people);
+    for (int i = 0; i < people; i++) {
+      Map<String, String> data = new HashMap<>();
+      data.put(Person.GIVEN_FIRST_NAME_KEY, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+      data.put(Person.LAST_NAME_KEY, LAST_NAMES[random.nextInt(LAST_NAMES.length)] + random.nextInt(people));
+      roster.add(new Person(data, ""));
+    }
+    rosterOrder = new RosterOrder();
+    Collator collator = Collator.getInstance(Locale.ROOT);
+    collatingComparator = Comparator.comparing(Person::getLastName, collator)
+            .thenComparing(Person::getFirstName, collator);
+  }
+
+  @Benchmark
+  public List<Person> precomputedKeys() {
+    List<Person> sorted = new ArrayList<>(roster);
+    rosterOrder.sort(sorted);
+    return sorted;
+  }
+
+  @Benchmark
+  public List<Person> collateEveryComparison() {
+    List<Person> sorted = new ArrayList<>(roster);
+    sorted.sort(collatingComparator);
+    return sorted;
+  }
+
+  @Benchmark
+  public List<Person> rawLastName() {
+    List<Person> sorted = new ArrayList<>(roster);
+    sorted.sort((p1, p2) -> p1.getLastName().compareTo(p2.getLastName()));
+    return sorted;
+  }
+}
@@ -0,0 +1,70 @@
+package service;
+
+import model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares answering a query with a RosterIndex against scanning the responses of every person, for the question
+ * "who is attending in the fall, has 0-3 siblings and isn't a math major".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RosterQueryBenchmark {
+
+  private static final String[] TERMS = {"Fall", "Winter", "Spring", "Summer"};
+  private static final String[] SIBLINGS = {"0-3", "4+", "N/A"};
+  private static final String[] MAJORS = {"Math", "History", "Biology", "Art", "Physics", "Economics", "Music"};
+
+  @Param({"1000", "100000"})
+  private int people;
+
+  private List<Person> roster;
+  private RosterIndex rosterIndex;
+  private RosterQuery query;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(1);
+    roster = new ArrayList<>(people);
+    for (int i = 0; i < people; i++) {
+      Map<String, String> data = new HashMap<>();
+      data.put(Person.GIVEN_FIRST_NAME_KEY, "Person" + i);
+      data.put(Person.LAST_NAME_KEY, "Last" + random.nextInt(people));
+      data.put("Attending", TERMS[random.nextInt(TERMS.length)]);
+      data.put("Siblings", SIBLINGS[random.nextInt(SIBLINGS.length)]);
+      data.put("Major", MAJORS[random.nextInt(MAJORS.length)]);
+      roster.add(new Person(data, ""));
+    }
+    rosterIndex = new RosterIndex(roster);
+    query = RosterQuery.parse("Attending=Fall AND Siblings=0-3 AND NOT Major=Math");
+  }
+
+  @Benchmark
+  public List<Person> index() {
+    return rosterIndex.find(query);
+  }
+
+  @Benchmark
+  public List<Person> scan() {
+    List<Person> found = new ArrayList<>();
+    for (Person person : roster) {
+      Map<String, String> data = person.getData();
+      if ("Fall".equals(data.get("Attending")) && "0-3".equals(data.get("Siblings"))
+              && !"Math".equals(data.get("Major"))) {
+        found.add(person);
+      }
+    }
+    return found;
+  }
+}
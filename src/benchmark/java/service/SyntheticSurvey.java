@@ -0,0 +1,194 @@
+package service;
+
+import model.Person;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates survey data shaped like a Google Forms response sheet: a Timestamp, the name columns, a picture link and
+ * answers to the remaining questions. Names include accented characters and every form of Preferred First Name the
+ * parser handles ("Same", "A/B", "A or B", blank), and answers include empty and "N/A" cells. The same size and seed
+ * always give the same data.
+ */
+class SyntheticSurvey {
+
+  static final int IMAGE_INDEX = 4;
+  static final String IMAGE_COLUMN = "E";
+  static final int MIN_COLUMNS = IMAGE_INDEX + 2;
+
+  private static final String TIMESTAMP_KEY = "Timestamp";
+  private static final String PREFERRED_NAME_KEY = "Preferred First Name";
+  private static final String PICTURE_KEY = "Link to Picture";
+  private static final String[] FIRST_NAMES = {"Ana", "José", "Zoë", "Liam", "Mary", "Noah", "Ólafur", "Wei", "Chloé",
+          "Søren", "Amélie", "Björn", "Priya", "Tomás"};
+  private static final String[] LAST_NAMES = {"Smith", "Núñez", "Ødegård", "Johnson", "Brown", "Müller", "Nguyen",
+          "García", "Kowalski", "Lefèvre", "O'Brien", "Šimić"};
+  private static final String[] CHOICES = {"Fall", "Winter", "Spring", "Summer", "Yes", "No"};
+  private static final String NOT_APPLICABLE = "N/A";
+  private static final String TIMESTAMP_FORMAT = "%d/%d/2017 %d:%02d:%02d";
+  private static final char SEPARATOR = ',';
+  private static final char QUOTE = '"';
+  private static final int ALPHABET_LENGTH = 26;
+
+  private final int rows;
+  private final int columns;
+  private final long seed;
+
+  /**
+   * Constructor that takes in the size of the survey.
+   *
+   * @param rows    number of responses, not counting the header row
+   * @param columns number of columns, at least MIN_COLUMNS
+   * @param seed    seed of the random answers
+   */
+  SyntheticSurvey(int rows, int columns, long seed) {
+    if (rows < 0) {
+      throw new IllegalArgumentException(String.format("Rows can't be negative. Rows given was=%d", rows));
+    }
+    if (columns < MIN_COLUMNS) {
+      throw new IllegalArgumentException(String.format("Columns must be at least %d. Columns given was=%d",
+              MIN_COLUMNS, columns));
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.seed = seed;
+  }
+
+  /**
+   * Gets the range that covers the header row and every response, such as "A1:J101".
+   *
+   * @return range in A1 notation
+   */
+  String getRange() {
+    return "A1:" + toColumnName(columns - 1) + (rows + 1);
+  }
+
+  /**
+   * Generates the header row and every response in memory.
+   *
+   * @return rows of the survey, starting with the headers
+   */
+  List<List<Object>> getData() {
+    List<List<Object>> data = new ArrayList<>(rows + 1);
+    data.add(new ArrayList<>(getHeaders()));
+    Random random = new Random(seed);
+    for (int row = 0; row < rows; row++) {
+      data.add(new ArrayList<>(getResponse(random, row)));
+    }
+    return data;
+  }
+
+  /**
+   * Writes the header row and every response as a CSV file, one response at a time.
+   *
+   * @param file non-null path of the CSV file to write
+   * @return number of bytes written
+   * @throws IOException if the file can't be written
+   */
+  long writeCsv(Path file) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writeCsvRow(writer, getHeaders());
+      Random random = new Random(seed);
+      for (int row = 0; row < rows; row++) {
+        writeCsvRow(writer, getResponse(random, row));
+      }
+    }
+    return Files.size(file);
+  }
+
+  private List<String> getHeaders() {
+    List<String> headers = new ArrayList<>(columns);
+    headers.add(TIMESTAMP_KEY);
+    headers.add(Person.GIVEN_FIRST_NAME_KEY);
+    headers.add(PREFERRED_NAME_KEY);
+    headers.add(Person.LAST_NAME_KEY);
+    headers.add(PICTURE_KEY);
+    for (int question = headers.size(); question < columns; question++) {
+      // Headers ending with a colon are rendered differently
+      headers.add("Question " + question + (question % 3 == 0 ? ":" : ""));
+    }
+    return headers;
+  }
+
+  private List<String> getResponse(Random random, int row) {
+    List<String> response = new ArrayList<>(columns);
+    String firstName = pick(random, FIRST_NAMES);
+    response.add(String.format(TIMESTAMP_FORMAT, random.nextInt(12) + 1, random.nextInt(28) + 1, random.nextInt(24),
+            random.nextInt(60), random.nextInt(60)));
+    response.add(firstName);
+    response.add(getPreferredName(random, firstName));
+    // Numbered so every person gets their own page
+    response.add(pick(random, LAST_NAMES) + " " + toColumnName(row));
+    response.add("https://drive.google.com/open?id=picture" + row);
+    for (int question = response.size(); question < columns; question++) {
+      response.add(getAnswer(random, question, row));
+    }
+    return response;
+  }
+
+  private String getPreferredName(Random random, String firstName) {
+    switch (random.nextInt(6)) {
+      case 0:
+        return "Same";
+      case 1:
+        return pick(random, FIRST_NAMES) + "/" + firstName;
+      case 2:
+        return pick(random, FIRST_NAMES) + " or " + firstName;
+      case 3:
+        return firstName;
+      default:
+        return "";
+    }
+  }
+
+  private String getAnswer(Random random, int question, int row) {
+    int kind = random.nextInt(10);
+    if (kind == 0) {
+      return "";
+    }
+    if (kind == 1) {
+      return NOT_APPLICABLE;
+    }
+    if (question % 2 == 0) {
+      return pick(random, CHOICES);
+    }
+    return "Answer to question " + question + " from respondent " + row + ", with a comma and \"quotes\"";
+  }
+
+  private String pick(Random random, String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private void writeCsvRow(Writer writer, List<String> cells) throws IOException {
+    for (int i = 0; i < cells.size(); i++) {
+      if (i > 0) {
+        writer.write(SEPARATOR);
+      }
+      String cell = cells.get(i);
+      if (cell.indexOf(SEPARATOR) == -1 && cell.indexOf(QUOTE) == -1) {
+        writer.write(cell);
+      }
+      else {
+        writer.write(QUOTE);
+        writer.write(cell.replace("\"", "\"\""));
+        writer.write(QUOTE);
+      }
+    }
+    writer.write('\n');
+  }
+
+  private static String toColumnName(int index) {
+    StringBuilder name = new StringBuilder();
+    for (int i = index + 1; i > 0; i = (i - 1) / ALPHABET_LENGTH) {
+      name.insert(0, (char) ('A' + (i - 1) % ALPHABET_LENGTH));
+    }
+    return name.toString();
+  }
+}
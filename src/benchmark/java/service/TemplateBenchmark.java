@@ -0,0 +1,126 @@
+package service;
+
+import model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rendering profile pages with the compiled templates against the String.format rendering they replaced.
+ * Run with -prof gc (the default for the benchmark profile) to compare bytes allocated per roster.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+  private static final String TOP_HTML_ENTRIES = "<!DOCTYPE html><html>";
+  private static final String HEAD_FORMAT = "<head><title>%s Profile</title>" +
+          "<link rel=\"stylesheet\"type=\"text/css\" href=\"%s\"></head>";
+  private static final String BODY_AND_TABLE = "<body><table>";
+  private static final String TABLE_FORMAT = BODY_AND_TABLE + "<tr><td><img src=\"%s\"></td>" +
+          "<td><h1>%s</h1>%s</td></tr></table>";
+  private static final String LINK = "<a href=\"%s\">%s</a>";
+  private static final String LINK_TO_NEXT_PAGE = "<br><b>Next Student: </b>" + LINK;
+  private static final String LINK_FORMAT = "<tr>" + LINK + "</tr><br>";
+  private static final String ENTRY_FORMAT = "<b>%s: </b>%s<br>";
+  private static final String COLON_ENTRY_FORMAT = "<b>%s </b>%s<br>";
+  private static final String BOTTOM_HTML_ENTRIES = "</body></html>";
+
+  private static final int PEOPLE = 1000;
+  private static final int QUESTIONS = 30;
+
+  private List<Person> people;
+  private FileGenerator fileGenerator;
+  private Writer sink;
+
+  @Setup
+  public void setUp() {
+    people = new ArrayList<>();
+    for (int i = 0; i < PEOPLE; i++) {
+      Map<String, String> data = new LinkedHashMap<>();
+      data.put(Person.GIVEN_FIRST_NAME_KEY, "First" + i);
+      data.put(Person.LAST_NAME_KEY, "Last" + i);
+      for (int question = 0; question < QUESTIONS; question++) {
+        data.put("Question " + question + (question % 3 == 0 ? ":" : ""), question % 5 == 0 ? "N/A" : "Answer " + i);
+      }
+      people.add(new Person(data, "https://example.org/image" + i + ".png"));
+    }
+
+    sink = new Writer() {
+      @Override
+      public void write(char[] chars, int offset, int length) {
+      }
+
+      @Override
+      public void write(String string) {
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    fileGenerator = new FileGenerator(new File(System.getProperty("java.io.tmpdir"))) {
+      @Override
+      Writer getFileWriter(String fileName) {
+        return sink;
+      }
+    };
+  }
+
+  @Benchmark
+  public void compiledTemplates() throws IOException {
+    fileGenerator.generateFiles(people);
+  }
+
+  @Benchmark
+  public void stringFormat() throws IOException {
+    for (int i = 0; i < people.size(); i++) {
+      Person person = people.get(i);
+      sink.write(String.format(LINK_FORMAT, person.getFileName(), person.getName()));
+      writeWithStringFormat(people.get(i), i < people.size() - 1 ? people.get(i + 1) : null);
+    }
+  }
+
+  private void writeWithStringFormat(Person person, Person nextPerson) throws IOException {
+    String name = person.getName();
+    sink.write(TOP_HTML_ENTRIES);
+    sink.write(String.format(HEAD_FORMAT, name, "style.css"));
+    if (nextPerson == null) {
+      sink.write(String.format(TABLE_FORMAT, person.getImageLink(), name, ""));
+    }
+    else {
+      String link = String.format(LINK_TO_NEXT_PAGE, nextPerson.getFileName(), nextPerson.getName());
+      sink.write(String.format(TABLE_FORMAT, person.getImageLink(), name, link));
+    }
+
+    Map<String, String> data = person.getData();
+    for (String header : data.keySet()) {
+      String entry = data.get(header);
+      if (entry.isEmpty() || entry.equalsIgnoreCase("N/A")) {
+        continue;
+      }
+      if (header.endsWith(":")) {
+        sink.write(String.format(COLON_ENTRY_FORMAT, header, entry));
+      }
+      else {
+        sink.write(String.format(ENTRY_FORMAT, header, entry));
+      }
+    }
+    sink.write(BOTTOM_HTML_ENTRIES);
+  }
+}
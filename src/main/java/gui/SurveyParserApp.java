@@ -1,13 +1,30 @@
 package gui;
 
+import model.Person;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import service.BatchRunner;
+import service.NormalizationPolicy;
+import service.PageArchiveReader;
+import service.RosterIndex;
+import service.RosterQuery;
+import service.RunOptions;
+import service.SortKey;
 import service.SurveyParser;
+import service.SyncPolicy;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Client class for application. User interacts with this class to input data to download and parse spreadsheet data.
@@ -19,6 +36,18 @@ public class SurveyParserApp extends JFrame {
   private static final Color BACKGROUND_COLOR = new Color(178, 178, 178);
   private static final Point WINDOW_LOCATION = new Point(300, 350);
   private static final String TITLE = "Survey Parser Application";
+  private static final int FIRST_OPTION_INDEX = 3;
+  private static final String BATCH_ARGUMENT = "--batch";
+  private static final int FIRST_BATCH_OPTION_INDEX = 2;
+  private static final String EXTRACT_ARGUMENT = "--extract";
+  private static final int EXTRACT_ARGUMENTS = 3;
+  private static final String QUERY_ARGUMENT = "--query";
+  private static final int QUERY_EXPRESSION_INDEX = 4;
+  private static final int FIRST_QUERY_OPTION_INDEX = QUERY_EXPRESSION_INDEX + 1;
+  private static final String STANDARD_INPUT = "-";
+  private static final String QUERY_HEADER_FORMAT = "# %s (%d matches in %d us)%n";
+  private static final String OPTION_PREFIX = "--";
+  private static final String OPTION_SEPARATOR = "=";
   private static SurveyParserApp frame;
 
   private SurveyParserApp() {
@@ -34,19 +63,56 @@ public class SurveyParserApp extends JFrame {
   }
 
   /**
-   * Main method for application. Launches the user interface and prompts the user for input.
+   * Main method for application. Launches the user interface and prompts the user for input. Given
+   * "--batch &lt;manifest&gt;", runs every job of the batch manifest instead, given
+   * "--extract &lt;archive&gt; &lt;folder&gt;", extracts the files of an archived run, and given
+   * "--query &lt;url&gt; &lt;range&gt; &lt;image column&gt; &lt;query&gt;", prints the names of the people a RosterQuery
+   * matches, or of each query read from standard input when the query is "-".
    *
    * @param args command line arguments
    * @throws IOException if files aren't found properly (only when run from CLI)
    * @throws GeneralSecurityException if there is a security error (only when run from CLI)
    */
   public static void main(String args[]) throws IOException, GeneralSecurityException {
-    if (args.length > 0) {
+    if (args.length > 0 && BATCH_ARGUMENT.equals(args[0])) {
+      LOGGER.info("Batch arguments found: {}", (Object[]) args);
+      if (args.length < FIRST_BATCH_OPTION_INDEX) {
+        throw new IllegalArgumentException("Must give the batch manifest after --batch");
+      }
+      new BatchRunner(parseOptions(args, FIRST_BATCH_OPTION_INDEX)).run(new File(args[1]));
+    }
+    else if (args.length > 0 && EXTRACT_ARGUMENT.equals(args[0])) {
+      if (args.length != EXTRACT_ARGUMENTS) {
+        throw new IllegalArgumentException("Must give the archive and the folder to extract it to after --extract");
+      }
+      try (PageArchiveReader reader = new PageArchiveReader(new File(args[1]))) {
+        LOGGER.info("Extracted {} files of archive {} to {}", reader.extractTo(new File(args[2])), args[1], args[2]);
+      }
+    }
+    else if (args.length > 0 && QUERY_ARGUMENT.equals(args[0])) {
+      if (args.length < FIRST_QUERY_OPTION_INDEX) {
+        throw new IllegalArgumentException("Must give the url, range, image column and query after --query");
+      }
+      RosterIndex rosterIndex = new SurveyParser(parseOptions(args, FIRST_QUERY_OPTION_INDEX))
+              .index(args[1], args[2], args[3]);
+      if (STANDARD_INPUT.equals(args[QUERY_EXPRESSION_INDEX])) {
+        BufferedReader queries = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        for (String query = queries.readLine(); query != null; query = queries.readLine()) {
+          if (!query.trim().isEmpty()) {
+            printQuery(rosterIndex, query);
+          }
+        }
+      }
+      else {
+        printQuery(rosterIndex, args[QUERY_EXPRESSION_INDEX]);
+      }
+    }
+    else if (args.length > 0) {
       LOGGER.info("Command line arguments found: {}", (Object[]) args);
       String url = args[0];
       String range = args[1];
       String imageColumn = args[2];
-      new SurveyParser().run(url, range, imageColumn);
+      new SurveyParser(parseOptions(args, FIRST_OPTION_INDEX)).run(url, range, imageColumn);
     }
     else {
       LOGGER.info("No command line arguments found. Opening up User Input Dialog Window.");
@@ -54,6 +120,150 @@ public class SurveyParserApp extends JFrame {
     }
   }
 
+  private static void printQuery(RosterIndex rosterIndex, String expression) {
+    long start = System.nanoTime();
+    List<Person> found = rosterIndex.find(RosterQuery.parse(expression));
+    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    System.out.printf(QUERY_HEADER_FORMAT, expression, found.size(), micros);
+    for (Person person : found) {
+      System.out.println(person.getName());
+    }
+  }
+
+  private static RunOptions parseOptions(String[] args, int firstOptionIndex) {
+    RunOptions options = new RunOptions();
+    for (int i = firstOptionIndex; i < args.length; i++) {
+      String option = args[i];
+      int separatorIndex = option.indexOf(OPTION_SEPARATOR);
+      if (!option.startsWith(OPTION_PREFIX) || separatorIndex == -1) {
+        throw new IllegalArgumentException(String.format("Options must look like --name=value. Option given was=%s",
+                option));
+      }
+      String name = option.substring(OPTION_PREFIX.length(), separatorIndex);
+      String value = option.substring(separatorIndex + 1);
+      switch (name) {
+        case "page-size":
+          options.setPageSize(Integer.parseInt(value));
+          break;
+        case "max-requests":
+          options.setMaxConcurrentRequests(Integer.parseInt(value));
+          break;
+        case "streaming":
+          options.setStreaming(Boolean.parseBoolean(value));
+          break;
+        case "queue-capacity":
+          options.setQueueCapacity(Integer.parseInt(value));
+          break;
+        case "parallelism":
+          options.setParallelism(Integer.parseInt(value));
+          break;
+        case "templates":
+          options.setTemplateDirectory(new File(value));
+          break;
+        case "incremental":
+          options.setIncremental(Boolean.parseBoolean(value));
+          break;
+        case "cache":
+          options.setCacheDirectory(new File(value));
+          break;
+        case "cache-probe":
+          options.setCacheProbe(Boolean.parseBoolean(value));
+          break;
+        case "offline":
+          options.setOffline(Boolean.parseBoolean(value));
+          break;
+        case "normalization":
+          options.setNormalizationPolicy(NormalizationPolicy.valueOf(value.toUpperCase(Locale.ROOT)));
+          break;
+        case "watch":
+          options.setWatch(Boolean.parseBoolean(value));
+          break;
+        case "poll-interval":
+          options.setPollIntervalSeconds(Integer.parseInt(value));
+          break;
+        case "max-poll-interval":
+          options.setMaxPollIntervalSeconds(Integer.parseInt(value));
+          break;
+        case "channel-output":
+          options.setChannelOutput(Boolean.parseBoolean(value));
+          break;
+        case "sync":
+          options.setSyncPolicy(SyncPolicy.valueOf(value.toUpperCase(Locale.ROOT)));
+          break;
+        case "images":
+          options.setImages(Boolean.parseBoolean(value));
+          break;
+        case "image-threads":
+          options.setImageThreads(Integer.parseInt(value));
+          break;
+        case "images-per-host":
+          options.setImagesPerHost(Integer.parseInt(value));
+          break;
+        case "sort":
+          options.setSortKeys(parseSortKeys(value));
+          break;
+        case "sort-locale":
+          options.setSortLocale(Locale.forLanguageTag(value));
+          break;
+        case "search":
+          options.setSearch(Boolean.parseBoolean(value));
+          break;
+        case "search-columns":
+          options.setSearch(true);
+          options.setSearchColumns(parseColumns(value));
+          break;
+        case "serve":
+          options.setServePort(Integer.parseInt(value));
+          break;
+        case "serve-threads":
+          options.setServeThreads(Integer.parseInt(value));
+          break;
+        case "reload-interval":
+          options.setReloadIntervalSeconds(Integer.parseInt(value));
+          break;
+        case "max-age":
+          options.setMaxAgeSeconds(Integer.parseInt(value));
+          break;
+        case "answer-summary":
+          options.setAnswerSummary(Boolean.parseBoolean(value));
+          break;
+        case "directory-by-initial":
+          options.setDirectoryByInitial(Boolean.parseBoolean(value));
+          break;
+        case "directory-page-size":
+          options.setDirectoryPageSize(Integer.parseInt(value));
+          break;
+        case "archive":
+          options.setArchive(new File(value));
+          break;
+        case "jobs":
+          options.setJobs(Integer.parseInt(value));
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown option. Option given was=%s", option));
+      }
+    }
+    return options;
+  }
+
+  private static List<String> parseColumns(String value) {
+    List<String> columns = new ArrayList<>();
+    for (String column : value.split(",")) {
+      if (!column.trim().isEmpty()) {
+        columns.add(column.trim());
+      }
+    }
+    return columns;
+  }
+
+  private static List<SortKey> parseSortKeys(String value) {
+    List<SortKey> sortKeys = new ArrayList<>();
+    for (String key : value.split(",")) {
+      sortKeys.add(SortKey.valueOf(key.trim().replace('-', '_').toUpperCase(Locale.ROOT)));
+    }
+    return sortKeys;
+  }
+
   /**
    * Gets the JFrame. Used when creating JOptionPane windows for errors and information.
    *
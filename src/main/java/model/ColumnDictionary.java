@@ -0,0 +1,77 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The distinct values of one dictionary encoded roster column. Each value is stored once and rows of the column hold
+ * its code, the position of the value in the dictionary.
+ */
+class ColumnDictionary {
+
+  /**
+   * Code of a value that is not in the dictionary, and of unanswered cells.
+   */
+  static final int NO_CODE = -1;
+
+  private final List<String> values = new ArrayList<>();
+  private final Map<String, Integer> codes = new HashMap<>();
+
+  /**
+   * Adds a value to the dictionary if it is not already in it.
+   *
+   * @param value non-null value to add
+   * @return code of the value
+   */
+  int add(String value) {
+    Integer code = codes.get(value);
+    if (code == null) {
+      code = values.size();
+      values.add(value);
+      codes.put(value, code);
+    }
+    return code;
+  }
+
+  /**
+   * Gets the code of a value.
+   *
+   * @param value value to look up
+   * @return code of the value, or NO_CODE if the value is not in the dictionary
+   */
+  int getCode(String value) {
+    Integer code = codes.get(value);
+    return code == null ? NO_CODE : code;
+  }
+
+  /**
+   * Gets the value a code stands for.
+   *
+   * @param code code of the value, between 0 and the size of the dictionary
+   * @return the value
+   */
+  String getValue(int code) {
+    return values.get(code);
+  }
+
+  /**
+   * Gets the number of distinct values in the dictionary.
+   *
+   * @return number of values
+   */
+  int size() {
+    return values.size();
+  }
+
+  /**
+   * Gets every value of the dictionary, in code order.
+   *
+   * @return unmodifiable list of values
+   */
+  List<String> getValues() {
+    return Collections.unmodifiableList(values);
+  }
+}
@@ -3,7 +3,8 @@ package model;
 import java.util.Map;
 
 /**
- * Model class that holds the survey data responses for one person.
+ * Model class that holds the survey data responses for one person. The responses are either a map of their own or a
+ * view of one row of a {@link Roster}.
  */
 public class Person {
 
@@ -42,18 +43,20 @@ public class Person {
    * @return name of person
    */
   public String getName() {
-    StringBuilder result = new StringBuilder();
+    return String.format(NAME_FORMAT, getFirstName(), getLastName());
+  }
 
+  /**
+   * Gets the first name the person is shown with, which is their preferred first name if they gave one.
+   *
+   * @return first name of person
+   */
+  public String getFirstName() {
     String firstName = data.get(GIVEN_FIRST_NAME_KEY);
     if (firstName == null) {
       firstName = data.get(FIRST_NAME_KEY);
     }
-    String lastName = data.get(LAST_NAME_KEY);
-    String preferredName = data.get(PREFERRED_NAME_KEY);
-
-    result.append(String.format(NAME_FORMAT, getFirstName(firstName, preferredName), lastName));
-
-    return result.toString();
+    return getFirstName(firstName, data.get(PREFERRED_NAME_KEY));
   }
 
   /**
@@ -0,0 +1,309 @@
+package model;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Survey responses of many people stored by column. The headers are kept once for the whole roster and each column
+ * keeps the responses of every person in a single array, so a Person taken from the roster is only a view of one row
+ * instead of a map of its own. Not safe for use by several threads while rows are being added.
+ * <p>
+ * Every column starts out dictionary encoded: each distinct answer is stored once in a {@link ColumnDictionary} and
+ * rows hold a 16-bit code. Columns with more than {@value #MAX_DICTIONARY_SIZE} distinct answers, such as names or
+ * free text, are decoded into plain arrays of Strings once the limit is passed.
+ */
+public class Roster {
+
+  static final int MAX_DICTIONARY_SIZE = 1024;
+  private static final int INITIAL_CAPACITY = 16;
+  private static final char UNANSWERED = 0;
+
+  private final List<String> headers;
+  private final int imageIndex;
+  private final Map<String, Integer> columnsByHeader = new HashMap<>();
+  private final int[] keyColumns;
+  private final String[][] values;
+  private final char[][] codes;
+  private final ColumnDictionary[] dictionaries;
+  private int capacity;
+  private int size;
+
+  /**
+   * Constructor that takes in the header row.
+   *
+   * @param headers    non-null headers of every column, including the image column
+   * @param imageIndex index of the column that contains the url of each person's image
+   */
+  public Roster(List<String> headers, int imageIndex) {
+    this.headers = Collections.unmodifiableList(new ArrayList<>(headers));
+    this.imageIndex = imageIndex;
+
+    // A header that appears twice keeps the position of its first column and the value of its last, as a map would
+    List<Integer> keys = new ArrayList<>();
+    for (int column = 0; column < headers.size(); column++) {
+      if (column == imageIndex) {
+        continue;
+      }
+      Integer previous = columnsByHeader.put(headers.get(column), column);
+      if (previous == null) {
+        keys.add(column);
+      }
+      else {
+        keys.set(keys.indexOf(previous), column);
+      }
+    }
+    keyColumns = keys.stream().mapToInt(Integer::intValue).toArray();
+    values = new String[headers.size()][];
+    codes = new char[headers.size()][];
+    dictionaries = new ColumnDictionary[headers.size()];
+    for (int column = 0; column < dictionaries.length; column++) {
+      dictionaries[column] = new ColumnDictionary();
+    }
+  }
+
+  /**
+   * Adds one person to the roster.
+   *
+   * @param cells non-null responses of the person by column, including the image link; missing trailing cells are
+   *              treated as unanswered
+   * @return view of the added person
+   */
+  public Person add(String[] cells) {
+    checkRowLength(cells);
+    if (size == capacity) {
+      grow();
+    }
+    for (int column = 0; column < cells.length; column++) {
+      store(column, cells[column]);
+    }
+    return get(size++);
+  }
+
+  private void store(int column, String cell) {
+    ColumnDictionary dictionary = dictionaries[column];
+    if (dictionary == null) {
+      values[column][size] = cell;
+    }
+    else if (cell == null) {
+      codes[column][size] = UNANSWERED;
+    }
+    else if (dictionary.size() < MAX_DICTIONARY_SIZE || dictionary.getCode(cell) != ColumnDictionary.NO_CODE) {
+      // Code 0 marks an unanswered cell, so stored codes are shifted by one
+      codes[column][size] = (char) (dictionary.add(cell) + 1);
+    }
+    else {
+      decode(column);
+      values[column][size] = cell;
+    }
+  }
+
+  private void decode(int column) {
+    String[] decoded = new String[capacity];
+    for (int row = 0; row < size; row++) {
+      decoded[row] = cell(column, row);
+    }
+    values[column] = decoded;
+    codes[column] = null;
+    dictionaries[column] = null;
+  }
+
+  private String cell(int column, int row) {
+    ColumnDictionary dictionary = dictionaries[column];
+    if (dictionary == null) {
+      return values[column][row];
+    }
+    char code = codes[column][row];
+    return code == UNANSWERED ? null : dictionary.getValue(code - 1);
+  }
+
+  /**
+   * Creates a person that shares the headers of the roster without adding it to the roster.
+   *
+   * @param cells non-null responses of the person by column, including the image link
+   * @return the person
+   */
+  public Person wrap(String[] cells) {
+    checkRowLength(cells);
+    String imageLink = imageIndex < cells.length ? cells[imageIndex] : null;
+    return new Person(new ArrayRow(cells), imageLink == null ? "" : imageLink);
+  }
+
+  /**
+   * Gets a person of the roster.
+   *
+   * @param row index of the person, in the order they were added
+   * @return view of the person
+   */
+  public Person get(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException(String.format("Row must be within the roster. Row given was=%d", row));
+    }
+    String imageLink = imageIndex >= 0 && imageIndex < dictionaries.length ? cell(imageIndex, row) : null;
+    return new Person(new ColumnRow(row), imageLink == null ? "" : imageLink);
+  }
+
+  /**
+   * Gets the dictionary of a column.
+   *
+   * @param column index of the column
+   * @return dictionary of the column, or null if the column has too many distinct answers to be encoded
+   */
+  ColumnDictionary getDictionary(int column) {
+    return dictionaries[column];
+  }
+
+  /**
+   * Gets the number of people in the roster.
+   *
+   * @return number of people
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the header row, including the header of the image column.
+   *
+   * @return unmodifiable list of headers
+   */
+  public List<String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Gets the headers responses are keyed by: every header but that of the image column, each once, in column order.
+   *
+   * @return list of headers
+   */
+  public List<String> getResponseHeaders() {
+    List<String> responseHeaders = new ArrayList<>(keyColumns.length);
+    for (int column : keyColumns) {
+      responseHeaders.add(headers.get(column));
+    }
+    return responseHeaders;
+  }
+
+  private void checkRowLength(String[] cells) {
+    if (cells.length > headers.size()) {
+      throw new IllegalArgumentException(String.format("Row must not have more cells than there are headers. "
+              + "Headers=%d. Cells given was=%d", headers.size(), cells.length));
+    }
+  }
+
+  private void grow() {
+    capacity = capacity == 0 ? INITIAL_CAPACITY : capacity * 2;
+    for (int column = 0; column < dictionaries.length; column++) {
+      if (dictionaries[column] != null) {
+        codes[column] = codes[column] == null ? new char[capacity] : Arrays.copyOf(codes[column], capacity);
+      }
+      else {
+        values[column] = Arrays.copyOf(values[column], capacity);
+      }
+    }
+  }
+
+  /**
+   * Read-only map of the responses of one row, keyed by header in column order. Unanswered cells are left out.
+   */
+  private abstract class Row extends AbstractMap<String, String> {
+
+    abstract String cell(int column);
+
+    @Override
+    public String get(Object header) {
+      Integer column = columnsByHeader.get(header);
+      return column == null ? null : cell(column);
+    }
+
+    @Override
+    public boolean containsKey(Object header) {
+      return get(header) != null;
+    }
+
+    /**
+     * Goes through the answered cells in column order without creating an entry for each of them, as entrySet does.
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+      for (int column : keyColumns) {
+        String cell = cell(column);
+        if (cell != null) {
+          action.accept(headers.get(column), cell);
+        }
+      }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      return new AbstractSet<Entry<String, String>>() {
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+          return new Iterator<Entry<String, String>>() {
+            private int next = advance(0);
+
+            private int advance(int key) {
+              while (key < keyColumns.length && cell(keyColumns[key]) == null) {
+                key++;
+              }
+              return key;
+            }
+
+            @Override
+            public boolean hasNext() {
+              return next < keyColumns.length;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              int column = keyColumns[next];
+              next = advance(next + 1);
+              return new SimpleImmutableEntry<>(headers.get(column), cell(column));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          int size = 0;
+          for (int column : keyColumns) {
+            if (cell(column) != null) {
+              size++;
+            }
+          }
+          return size;
+        }
+      };
+    }
+  }
+
+  private class ColumnRow extends Row {
+
+    private final int row;
+
+    private ColumnRow(int row) {
+      this.row = row;
+    }
+
+    @Override
+    String cell(int column) {
+      return Roster.this.cell(column, row);
+    }
+  }
+
+  private class ArrayRow extends Row {
+
+    private final String[] cells;
+
+    private ArrayRow(String[] cells) {
+      this.cells = cells;
+    }
+
+    @Override
+    String cell(int column) {
+      return column < cells.length ? cells[column] : null;
+    }
+  }
+}
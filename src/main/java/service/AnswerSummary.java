@@ -0,0 +1,419 @@
+package service;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import model.Person;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Distribution of the responses to every question of a roster: how often each answer was given, how many people left
+ * the question empty or answered N/A, and how many distinct answers there were. Large rosters are summarized in one
+ * pass split across threads, each counting its own slice of the roster into its own maps, which are merged once at
+ * the end. Questions keep the order of the columns, and only the most frequent answers of each question are listed.
+ */
+class AnswerSummary {
+
+  static final String PAGE_FILE_NAME = "Answer Summary.html";
+  static final String PAGE_TITLE = "Answer Summary";
+  static final String REPORT_FILE_NAME = "answer-summary.json";
+  static final int PARALLEL_THRESHOLD = 8192;
+  static final int LISTED_ANSWERS = 50;
+
+  private static final String NOT_APPLICABLE = "N/A";
+  private static final String PAGE_HEAD = "<!DOCTYPE html><html><head><title>" + PAGE_TITLE + "</title>" +
+          "<link rel=\"stylesheet\"type=\"text/css\" href=\"%s\"></head><body><h1>" + PAGE_TITLE + "</h1>" +
+          "<p>%d responses</p>";
+  private static final String QUESTION_HEAD = "<h2>%s</h2><p>%d answered, %d empty, %d N/A (%.1f%% not answered), " +
+          "%d distinct answers</p><table>";
+  private static final String ANSWER_ROW = "<tr><td>%s</td><td>%d</td><td>%.1f%%</td></tr>";
+  private static final String OTHER_ANSWERS_ROW = "<tr><td><i>%d other answers</i></td><td>%d</td><td>%.1f%%</td></tr>";
+  private static final String QUESTION_END = "</table>";
+  private static final String PAGE_END = "</body></html>";
+  private static final double PERCENT = 100.0;
+
+  private final Map<String, Question> questions = new LinkedHashMap<>();
+  // Rows almost always hold the questions in the same order, so the question of a column is first looked up by position
+  private final List<Question> columns = new ArrayList<>();
+  private final BiConsumer<String, String> addResponse = this::addResponse;
+  private long rows;
+  private int column;
+
+  /**
+   * Summarizes the responses of a roster, on several threads when it is large.
+   *
+   * @param people non-null list of Person objects to summarize
+   * @return the summary
+   */
+  static AnswerSummary summarize(List<Person> people) {
+    if (people.size() < PARALLEL_THRESHOLD) {
+      AnswerSummary summary = new AnswerSummary();
+      people.forEach(summary::add);
+      return summary;
+    }
+    int slices = Math.min(Runtime.getRuntime().availableProcessors(), people.size() / (PARALLEL_THRESHOLD / 2));
+    int sliceLength = (people.size() + slices - 1) / slices;
+    List<AnswerSummary> partials = IntStream.range(0, slices).parallel()
+            .mapToObj(slice -> {
+              AnswerSummary partial = new AnswerSummary();
+              people.subList(slice * sliceLength, Math.min(people.size(), (slice + 1) * sliceLength))
+                      .forEach(partial::add);
+              return partial;
+            })
+            .collect(Collectors.toList());
+    AnswerSummary summary = partials.get(0);
+    for (int i = 1; i < partials.size(); i++) {
+      summary.merge(partials.get(i));
+    }
+    return summary;
+  }
+
+  /**
+   * Counts the responses of one more person.
+   *
+   * @param person non-null Person to count
+   */
+  void add(Person person) {
+    rows++;
+    column = 0;
+    // forEach rather than entrySet, which creates an entry for each cell of a roster row
+    person.getData().forEach(addResponse);
+  }
+
+  private void addResponse(String header, String response) {
+    Question question = column < columns.size() ? columns.get(column) : null;
+    if (question == null || !question.header.equals(header)) {
+      question = questions.computeIfAbsent(header, Question::new);
+      if (column == columns.size()) {
+        columns.add(question);
+      }
+    }
+    question.add(response);
+    column++;
+  }
+
+  /**
+   * Adds the counts of another summary, whose questions not yet in this one are added after its own.
+   *
+   * @param other non-null summary to add
+   */
+  void merge(AnswerSummary other) {
+    rows += other.rows;
+    for (Question otherQuestion : other.questions.values()) {
+      Question question = questions.get(otherQuestion.header);
+      if (question == null) {
+        question = new Question(otherQuestion.header);
+        questions.put(question.header, question);
+      }
+      question.merge(otherQuestion);
+    }
+  }
+
+  /**
+   * Gets the number of people counted.
+   *
+   * @return rows summarized
+   */
+  long getRows() {
+    return rows;
+  }
+
+  /**
+   * Gets the summary of each question.
+   *
+   * @return the questions, in the order of the columns
+   */
+  List<Question> getQuestions() {
+    return Collections.unmodifiableList(new ArrayList<>(questions.values()));
+  }
+
+  /**
+   * Renders the summary as a page.
+   *
+   * @param out        non-null buffer to append the page to
+   * @param styleSheet non-null name of the style sheet of the page
+   */
+  void renderPage(StringBuilder out, String styleSheet) {
+    out.append(String.format(PAGE_HEAD, escape(styleSheet), rows));
+    for (Question question : questions.values()) {
+      out.append(String.format(Locale.ROOT, QUESTION_HEAD, escape(question.header), question.getAnswered(),
+              question.getEmpty(), question.notApplicable, percent(question.getEmpty() + question.notApplicable),
+              question.getDistinctAnswers()));
+      long listed = 0;
+      List<Map.Entry<String, Long>> answers = question.getTopAnswers();
+      for (Map.Entry<String, Long> answer : answers) {
+        out.append(String.format(Locale.ROOT, ANSWER_ROW, escape(answer.getKey()), answer.getValue(),
+                percent(answer.getValue())));
+        listed += answer.getValue();
+      }
+      if (answers.size() < question.getDistinctAnswers()) {
+        long others = question.getAnswered() - listed;
+        out.append(String.format(Locale.ROOT, OTHER_ANSWERS_ROW, question.getDistinctAnswers() - answers.size(), others,
+                percent(others)));
+      }
+      out.append(QUESTION_END);
+    }
+    out.append(PAGE_END);
+  }
+
+  /**
+   * Writes the summary as a JSON object.
+   *
+   * @param writer non-null Writer to write the report to, which is left open
+   * @throws IOException if the report can't be written
+   */
+  void writeReport(Writer writer) throws IOException {
+    JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+    JsonGenerator generator = jsonFactory.createJsonGenerator(writer);
+    generator.enablePrettyPrint();
+    generator.writeStartObject();
+    generator.writeFieldName("rows");
+    generator.writeNumber(rows);
+    generator.writeFieldName("questions");
+    generator.writeStartArray();
+    for (Question question : questions.values()) {
+      generator.writeStartObject();
+      generator.writeFieldName("header");
+      generator.writeString(question.header);
+      generator.writeFieldName("answered");
+      generator.writeNumber(question.getAnswered());
+      generator.writeFieldName("empty");
+      generator.writeNumber(question.getEmpty());
+      generator.writeFieldName("notApplicable");
+      generator.writeNumber(question.notApplicable);
+      generator.writeFieldName("notAnsweredRate");
+      generator.writeNumber(rows == 0 ? 0 : (double) (question.getEmpty() + question.notApplicable) / rows);
+      generator.writeFieldName("distinctAnswers");
+      generator.writeNumber(question.getDistinctAnswers());
+      generator.writeFieldName("answers");
+      generator.writeStartObject();
+      for (Map.Entry<String, Long> answer : question.getTopAnswers()) {
+        generator.writeFieldName(answer.getKey());
+        generator.writeNumber(answer.getValue());
+      }
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.flush();
+  }
+
+  private double percent(long count) {
+    return rows == 0 ? 0 : count * PERCENT / rows;
+  }
+
+  private static String escape(String text) {
+    StringBuilder escaped = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '<':
+          escaped.append("&lt;");
+          break;
+        case '>':
+          escaped.append("&gt;");
+          break;
+        case '&':
+          escaped.append("&amp;");
+          break;
+        case '"':
+          escaped.append("&quot;");
+          break;
+        default:
+          escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  /**
+   * Counts of the responses to one question. People whose row has no cell for the question count as empty, so the
+   * empty responses are whatever the rows of the summary hold besides answers and N/A.
+   */
+  class Question {
+
+    private final String header;
+    private final AnswerCounts answers = new AnswerCounts();
+    private long answered;
+    private long notApplicable;
+
+    private Question(String header) {
+      this.header = header;
+    }
+
+    private void add(String response) {
+      if (response == null || response.isEmpty()) {
+        return;
+      }
+      if (response.equalsIgnoreCase(NOT_APPLICABLE)) {
+        notApplicable++;
+      }
+      else {
+        answers.add(response, 1);
+        answered++;
+      }
+    }
+
+    private void merge(Question other) {
+      answered += other.answered;
+      notApplicable += other.notApplicable;
+      for (int slot = 0; slot < other.answers.keys.length; slot++) {
+        if (other.answers.keys[slot] != null) {
+          answers.add(other.answers.keys[slot], other.answers.counts[slot]);
+        }
+      }
+    }
+
+    String getHeader() {
+      return header;
+    }
+
+    long getEmpty() {
+      return rows - answered - notApplicable;
+    }
+
+    long getNotApplicable() {
+      return notApplicable;
+    }
+
+    long getAnswered() {
+      return answered;
+    }
+
+    int getDistinctAnswers() {
+      return answers.size;
+    }
+
+    /**
+     * Gets how often an answer was given.
+     *
+     * @param answer non-null answer
+     * @return the number of people who gave it
+     */
+    long getCount(String answer) {
+      return answers.get(answer);
+    }
+
+    /**
+     * Gets the {@value AnswerSummary#LISTED_ANSWERS} most frequent answers, most frequent first and then in the order
+     * of their text. Only those are kept while going through the answers, so free text answers are not all sorted.
+     */
+    private List<Map.Entry<String, Long>> getTopAnswers() {
+      Comparator<Map.Entry<String, Long>> order = Comparator.<Map.Entry<String, Long>>comparingLong(
+              answer -> -answer.getValue()).thenComparing(Map.Entry::getKey);
+      PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(LISTED_ANSWERS + 1, order.reversed());
+      for (int slot = 0; slot < answers.keys.length; slot++) {
+        String answer = answers.keys[slot];
+        if (answer == null) {
+          continue;
+        }
+        long count = answers.counts[slot];
+        if (top.size() == LISTED_ANSWERS) {
+          Map.Entry<String, Long> last = top.peek();
+          if (count < last.getValue() || (count == last.getValue() && answer.compareTo(last.getKey()) > 0)) {
+            continue;
+          }
+        }
+        top.add(new AbstractMap.SimpleImmutableEntry<>(answer, count));
+        if (top.size() > LISTED_ANSWERS) {
+          top.poll();
+        }
+      }
+      List<Map.Entry<String, Long>> sorted = new ArrayList<>(top);
+      sorted.sort(order);
+      return sorted;
+    }
+  }
+
+  /**
+   * How often each answer to a question was given, as a hash table with open addressing rather than a HashMap of
+   * boxed counts. Free text questions get an answer per person, and an entry object plus a count object for each of
+   * them made garbage collection take most of the time of summarizing a large roster. The hash of each answer is kept
+   * so that free text answers, which often only differ after a long common beginning, are rarely compared.
+   */
+  private static class AnswerCounts {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private void add(String answer, int count) {
+      int hash = answer.hashCode();
+      int slot = find(answer, hash);
+      if (keys[slot] != null) {
+        counts[slot] += count;
+        return;
+      }
+      keys[slot] = answer;
+      hashes[slot] = hash;
+      counts[slot] = count;
+      // At most half full, so probes stay short
+      if (++size * 2 > keys.length) {
+        grow();
+      }
+    }
+
+    private int get(String answer) {
+      int slot = find(answer, answer.hashCode());
+      return keys[slot] == null ? 0 : counts[slot];
+    }
+
+    private void grow() {
+      String[] oldKeys = keys;
+      int[] oldHashes = hashes;
+      int[] oldCounts = counts;
+      keys = new String[oldKeys.length * 2];
+      hashes = new int[oldKeys.length * 2];
+      counts = new int[oldKeys.length * 2];
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != null) {
+          int slot = spread(oldHashes[i]) & mask;
+          while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          keys[slot] = oldKeys[i];
+          hashes[slot] = oldHashes[i];
+          counts[slot] = oldCounts[i];
+        }
+      }
+    }
+
+    /**
+     * Finds the slot holding an answer, or the empty slot it would be added in.
+     */
+    private int find(String answer, int hash) {
+      int mask = keys.length - 1;
+      int slot = spread(hash) & mask;
+      for (String key = keys[slot]; key != null; key = keys[slot]) {
+        if (hashes[slot] == hash && key.equals(answer)) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private static int spread(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
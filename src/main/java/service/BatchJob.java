@@ -0,0 +1,110 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One spreadsheet of a batch: the same url, range and image column a single run takes, and the folder its pages are
+ * written in.
+ */
+class BatchJob {
+
+  private static final String COMMENT_PREFIX = "#";
+  private static final String FIELD_SEPARATOR = "\\s+";
+  private static final int FIELDS = 4;
+
+  private final String url;
+  private final String range;
+  private final String imageColumn;
+  private final File outputFolder;
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param url          non-null string which is the full url path of the Google Spreadsheet, or the path of a CSV or
+   *                     TSV export of it
+   * @param range        non-null string which is range of cells to extract from the spreadsheet
+   * @param imageColumn  non-null string which is column in the spreadsheet that contains the url of the person's image
+   * @param outputFolder non-null File which is the folder the studentPages folder of the job is created in
+   */
+  BatchJob(String url, String range, String imageColumn, File outputFolder) {
+    this.url = url;
+    this.range = range;
+    this.imageColumn = imageColumn;
+    this.outputFolder = outputFolder;
+  }
+
+  /**
+   * Reads the jobs of a batch manifest. Each line holds the url, range, image column and output folder of one job,
+   * separated by spaces or tabs; the output folder is the rest of the line, so it may contain spaces. Blank lines and
+   * lines starting with # are ignored.
+   *
+   * @param reader non-null Reader of the manifest, which is left open
+   * @return the jobs in the order they are listed
+   * @throws IOException if the manifest can't be read
+   */
+  static List<BatchJob> read(Reader reader) throws IOException {
+    List<BatchJob> jobs = new ArrayList<>();
+    BufferedReader lines = new BufferedReader(reader);
+    int lineNumber = 0;
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      lineNumber++;
+      String job = line.trim();
+      if (job.isEmpty() || job.startsWith(COMMENT_PREFIX)) {
+        continue;
+      }
+      String[] fields = job.split(FIELD_SEPARATOR, FIELDS);
+      if (fields.length < FIELDS) {
+        throw new IllegalArgumentException(String.format("Line %d of the batch manifest must give a url, range, "
+                + "image column and output folder. Line given was=%s", lineNumber, line));
+      }
+      jobs.add(new BatchJob(fields[0], fields[1], fields[2], new File(fields[3])));
+    }
+    return jobs;
+  }
+
+  /**
+   * Gets the url of the spreadsheet.
+   *
+   * @return the url, or the path of a CSV or TSV file
+   */
+  String getUrl() {
+    return url;
+  }
+
+  /**
+   * Gets the range of cells to extract from the spreadsheet.
+   *
+   * @return the range
+   */
+  String getRange() {
+    return range;
+  }
+
+  /**
+   * Gets the column that contains the url of each person's image.
+   *
+   * @return the image column
+   */
+  String getImageColumn() {
+    return imageColumn;
+  }
+
+  /**
+   * Gets the folder the studentPages folder of the job is created in.
+   *
+   * @return the output folder
+   */
+  File getOutputFolder() {
+    return outputFolder;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %s %s -> %s", url, range, imageColumn, outputFolder);
+  }
+}
@@ -0,0 +1,264 @@
+package service;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the Survey Parser on every spreadsheet listed in a batch manifest within one process. Jobs run concurrently on
+ * a bounded pool and share one Sheets client, HTTP transport and set of credentials, so signing in and starting up
+ * are paid once per batch instead of once per spreadsheet. Each job writes its pages and run report to its own output
+ * folder, and a summary of every job is written next to the manifest.
+ */
+public class BatchRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchRunner.class);
+
+  static final String REPORT_FILE_NAME = "batch-report.json";
+  private static final String SUCCEEDED = "succeeded";
+  private static final String FAILED = "failed";
+
+  private final RunOptions options;
+  private final PageTemplates templates;
+  private final DataSource[] sources;
+
+  /**
+   * Constructor that takes in the settings to run every job with.
+   *
+   * @param options non-null RunOptions to use for every job
+   * @throws IOException if files aren't found properly
+   * @throws GeneralSecurityException if there is a security error
+   * @throws IllegalArgumentException if the options watch for new responses or serve the pages, as such jobs never
+   *                                  end
+   */
+  public BatchRunner(RunOptions options) throws IOException, GeneralSecurityException {
+    this(options, SurveyParser.loadTemplates(options), SurveyParser.createSheetsDataSource(options),
+            new DelimitedFileSource());
+  }
+
+  /**
+   * Constructor used only for unit testing.
+   *
+   * @param options   non-null RunOptions to use for every job
+   * @param templates non-null PageTemplates to render every page with
+   * @param sources   non-null sources shared by every job
+   * @throws IllegalArgumentException if the options watch for new responses or serve the pages, as such jobs never
+   *                                  end
+   */
+  BatchRunner(RunOptions options, PageTemplates templates, DataSource... sources) {
+    if (options.isWatch() || options.getServePort() != RunOptions.NOT_SERVED) {
+      throw new IllegalArgumentException("Batch jobs can't watch for new responses or serve pages");
+    }
+    this.options = options;
+    this.templates = templates;
+    this.sources = sources;
+  }
+
+  /**
+   * Runs every job of a batch manifest and writes the summary report next to it. A job that fails does not stop the
+   * others.
+   *
+   * @param manifest non-null File which is the batch manifest, as read by {@link BatchJob#read(Reader)}
+   * @throws IOException if the manifest or report can't be read or written, or any job fails
+   */
+  public void run(File manifest) throws IOException {
+    LOGGER.info("Reading batch manifest {}", manifest);
+    List<BatchJob> jobs;
+    try (Reader reader = new FileReader(manifest)) {
+      jobs = BatchJob.read(reader);
+    }
+
+    List<JobResult> results = run(jobs);
+
+    File report = new File(manifest.getAbsoluteFile().getParentFile(), REPORT_FILE_NAME);
+    LOGGER.info("Writing batch report to file {}", report);
+    try (Writer writer = new FileWriter(report)) {
+      writeReport(results, writer);
+    }
+
+    long failed = results.stream().filter(JobResult::isFailed).count();
+    if (failed > 0) {
+      throw new IOException(String.format("%d of %d batch jobs failed. See %s for details", failed, results.size(),
+              report));
+    }
+  }
+
+  /**
+   * Runs jobs on a pool of at most RunOptions.getJobs() threads and waits for all of them.
+   *
+   * @param jobs non-null list of jobs to run
+   * @return the result of each job, in the order of the jobs
+   * @throws IOException if interrupted while waiting for the jobs
+   */
+  List<JobResult> run(List<BatchJob> jobs) throws IOException {
+    List<JobResult> results = new ArrayList<>(jobs.size());
+    if (jobs.isEmpty()) {
+      return results;
+    }
+
+    LOGGER.info("Running {} batch jobs, {} at a time", jobs.size(), options.getJobs());
+    ExecutorService workers = Executors.newFixedThreadPool(Math.min(options.getJobs(), jobs.size()));
+    try {
+      List<Future<JobResult>> pending = new ArrayList<>(jobs.size());
+      for (BatchJob job : jobs) {
+        pending.add(workers.submit(() -> runJob(job)));
+      }
+      for (Future<JobResult> result : pending) {
+        results.add(awaitJob(result));
+      }
+    }
+    finally {
+      workers.shutdownNow();
+    }
+    return results;
+  }
+
+  private JobResult runJob(BatchJob job) {
+    LOGGER.info("Starting batch job {}", job);
+    long start = System.nanoTime();
+    SurveyParser surveyParser = new SurveyParser(SurveyParser.createDataParser(options, sources),
+            SurveyParser.createFileGenerator(options, templates, job.getOutputFolder()), options);
+    try {
+      surveyParser.run(job.getUrl(), job.getRange(), job.getImageColumn());
+      LOGGER.info("Finished batch job {}", job);
+      return new JobResult(job, surveyParser.getMetrics(), null, System.nanoTime() - start);
+    }
+    catch (IOException | RuntimeException jobFailure) {
+      LOGGER.error("Batch job {} failed", job, jobFailure);
+      return new JobResult(job, surveyParser.getMetrics(), jobFailure, System.nanoTime() - start);
+    }
+  }
+
+  private JobResult awaitJob(Future<JobResult> result) throws IOException {
+    try {
+      return result.get();
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for batch jobs");
+    }
+    catch (ExecutionException executionException) {
+      // runJob catches every failure of the job itself, so this is an Error
+      throw new IOException("Batch job failed unexpectedly", executionException.getCause());
+    }
+  }
+
+  /**
+   * Writes the outcome, counters and elapsed time of every job as a JSON object.
+   *
+   * @param results non-null results of the jobs
+   * @param writer  non-null Writer to write the report to, which is left open
+   * @throws IOException if the report can't be written
+   */
+  void writeReport(List<JobResult> results, Writer writer) throws IOException {
+    JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+    JsonGenerator generator = jsonFactory.createJsonGenerator(writer);
+    generator.enablePrettyPrint();
+    generator.writeStartObject();
+    generator.writeFieldName("jobs");
+    generator.writeNumber(results.size());
+    generator.writeFieldName("failed");
+    generator.writeNumber(results.stream().filter(JobResult::isFailed).count());
+    generator.writeFieldName("results");
+    generator.writeStartArray();
+    for (JobResult result : results) {
+      BatchJob job = result.getJob();
+      generator.writeStartObject();
+      generator.writeFieldName("url");
+      generator.writeString(job.getUrl());
+      generator.writeFieldName("range");
+      generator.writeString(job.getRange());
+      generator.writeFieldName("imageColumn");
+      generator.writeString(job.getImageColumn());
+      generator.writeFieldName("outputFolder");
+      generator.writeString(job.getOutputFolder().getPath());
+      generator.writeFieldName("status");
+      generator.writeString(result.isFailed() ? FAILED : SUCCEEDED);
+      if (result.isFailed()) {
+        generator.writeFieldName("error");
+        generator.writeString(String.valueOf(result.getFailure()));
+      }
+      RunMetrics metrics = result.getMetrics();
+      if (metrics != null) {
+        generator.writeFieldName("rows");
+        generator.writeNumber(metrics.getRows());
+        generator.writeFieldName("filesWritten");
+        generator.writeNumber(metrics.getFilesWritten());
+        generator.writeFieldName("bytesWritten");
+        generator.writeNumber(metrics.getBytesWritten());
+      }
+      generator.writeFieldName("elapsedMillis");
+      generator.writeNumber(result.getElapsedMillis());
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.flush();
+  }
+
+  /**
+   * Outcome of one job of a batch.
+   */
+  static class JobResult {
+
+    private final BatchJob job;
+    private final RunMetrics metrics;
+    private final Throwable failure;
+    private final long elapsedNanos;
+
+    private JobResult(BatchJob job, RunMetrics metrics, Throwable failure, long elapsedNanos) {
+      this.job = job;
+      this.metrics = metrics;
+      this.failure = failure;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    BatchJob getJob() {
+      return job;
+    }
+
+    /**
+     * Gets the metrics of the job.
+     *
+     * @return the RunMetrics of the job, or null if it failed before the run started
+     */
+    RunMetrics getMetrics() {
+      return metrics;
+    }
+
+    /**
+     * Gets the reason the job failed.
+     *
+     * @return the failure, or null if the job succeeded
+     */
+    Throwable getFailure() {
+      return failure;
+    }
+
+    boolean isFailed() {
+      return failure != null;
+    }
+
+    long getElapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
+/**
+ * An OutputStreamWriter that counts the bytes it encodes, so the size of what was written is known in bytes rather
+ * than characters. Like any Writer, it must only be used by one thread at a time.
+ */
+class ByteCountingWriter extends OutputStreamWriter {
+
+  private final CountingStream counter;
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param out     non-null OutputStream to write the encoded bytes to
+   * @param charset non-null Charset to encode text with
+   */
+  ByteCountingWriter(OutputStream out, Charset charset) {
+    this(new CountingStream(out), charset);
+  }
+
+  private ByteCountingWriter(CountingStream counter, Charset charset) {
+    super(counter, charset);
+    this.counter = counter;
+  }
+
+  /**
+   * Gets the number of bytes passed to the stream. Text still buffered in the Writer is only counted once it is
+   * flushed or closed.
+   *
+   * @return number of bytes written
+   */
+  long getByteCount() {
+    return counter.count;
+  }
+
+  private static class CountingStream extends FilterOutputStream {
+
+    private long count;
+
+    private CountingStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      count += length;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A1-notation cell range (such as "A1:I300" or "Responses!B1:K5000") that can be split into blocks of rows.
+ */
+class CellRange {
+
+  private static final Pattern RANGE_PATTERN = Pattern.compile("^(?:(.+)!)?([A-Za-z]+)(\\d*):([A-Za-z]+)(\\d*)$");
+  private static final String SHEET_FORMAT = "%s!%s";
+  private static final String RANGE_FORMAT = "%s%d:%s%d";
+  private static final int NO_ROW = -1;
+  private static final int ALPHABET_LENGTH = 26;
+
+  private final String sheet;
+  private final String startColumn;
+  private final int startRow;
+  private final String endColumn;
+  private final int endRow;
+
+  private CellRange(String sheet, String startColumn, int startRow, String endColumn, int endRow) {
+    this.sheet = sheet;
+    this.startColumn = startColumn;
+    this.startRow = startRow;
+    this.endColumn = endColumn;
+    this.endRow = endRow;
+  }
+
+  /**
+   * Parses a range given in A1 notation.
+   *
+   * @param range non-null string which is the range of cells (optionally prefixed with a sheet name)
+   * @return the parsed range, or null if the range is not in a form that can be split
+   */
+  static CellRange parse(String range) {
+    Matcher matcher = RANGE_PATTERN.matcher(range.trim());
+    if (!matcher.matches()) {
+      return null;
+    }
+    return new CellRange(matcher.group(1), matcher.group(2).toUpperCase(), toRow(matcher.group(3)),
+            matcher.group(4).toUpperCase(), toRow(matcher.group(5)));
+  }
+
+  private static int toRow(String row) {
+    return row.isEmpty() ? NO_ROW : Integer.parseInt(row);
+  }
+
+  /**
+   * Whether both the first and last row of the range are known (ranges such as "A:I" or "A2:I" are open ended).
+   *
+   * @return if the range has explicit row bounds
+   */
+  boolean hasRowBounds() {
+    return startRow != NO_ROW && endRow != NO_ROW && startRow <= endRow;
+  }
+
+  /**
+   * Gets the first row of the range.
+   *
+   * @return 1-based first row, or 1 if the range has no start row
+   */
+  int getFirstRow() {
+    return startRow == NO_ROW ? 1 : startRow;
+  }
+
+  /**
+   * Gets the last row of the range.
+   *
+   * @return 1-based last row, or Integer.MAX_VALUE if the range has no end row
+   */
+  int getLastRow() {
+    return endRow == NO_ROW ? Integer.MAX_VALUE : endRow;
+  }
+
+  /**
+   * Gets the index of the first column of the range, counting column A as 0.
+   *
+   * @return 0-based index of the first column
+   */
+  int getFirstColumnIndex() {
+    return toColumnIndex(startColumn);
+  }
+
+  /**
+   * Gets the index of the last column of the range, counting column A as 0.
+   *
+   * @return 0-based index of the last column
+   */
+  int getLastColumnIndex() {
+    return toColumnIndex(endColumn);
+  }
+
+  private static int toColumnIndex(String column) {
+    int index = 0;
+    for (int i = 0; i < column.length(); i++) {
+      index = index * ALPHABET_LENGTH + column.charAt(i) - 'A' + 1;
+    }
+    return index - 1;
+  }
+
+  /**
+   * Gets the number of rows covered by the range.
+   *
+   * @return number of rows, or 0 if the range has no row bounds
+   */
+  int getRowCount() {
+    return hasRowBounds() ? endRow - startRow + 1 : 0;
+  }
+
+  /**
+   * Splits the range into consecutive blocks of at most blockSize rows, covering the same columns.
+   *
+   * @param blockSize positive number of rows per block
+   * @return blocks in spreadsheet order
+   */
+  List<CellRange> split(int blockSize) {
+    List<CellRange> blocks = new ArrayList<>();
+    for (int row = startRow; row <= endRow; row += blockSize) {
+      int lastRow = (int) Math.min((long) row + blockSize - 1, endRow);
+      blocks.add(new CellRange(sheet, startColumn, row, endColumn, lastRow));
+    }
+    return blocks;
+  }
+
+  /**
+   * Gets the range covering only the first column of this range, over the same rows.
+   *
+   * @return first column of the range
+   */
+  CellRange firstColumn() {
+    return new CellRange(sheet, startColumn, startRow, startColumn, endRow);
+  }
+
+  /**
+   * Gets the open ended range covering the same columns from the given row onwards, such as "A301:I".
+   *
+   * @param firstRow 1-based first row of the result
+   * @return range from the given row to the end of the sheet
+   */
+  CellRange rowsFrom(int firstRow) {
+    return new CellRange(sheet, startColumn, firstRow, endColumn, NO_ROW);
+  }
+
+  /**
+   * Formats the range back into A1 notation.
+   *
+   * @return range in A1 notation
+   */
+  @Override
+  public String toString() {
+    String cells;
+    if (hasRowBounds()) {
+      cells = String.format(RANGE_FORMAT, startColumn, startRow, endColumn, endRow);
+    }
+    else {
+      cells = startColumn + (startRow == NO_ROW ? "" : startRow) + ":" + endColumn + (endRow == NO_ROW ? "" : endRow);
+    }
+    return sheet == null ? cells : String.format(SHEET_FORMAT, sheet, cells);
+  }
+}
@@ -0,0 +1,177 @@
+package service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Writes rendered pages through FileChannels instead of Writers. A page is encoded into direct ByteBuffers taken from a
+ * pool, so pages don't allocate buffers and the channel doesn't copy them again, and is written with one gathering
+ * write however many buffers it takes. When files are forced to the device is set by a SyncPolicy. Safe to
+ * use from several threads.
+ */
+class ChannelPageWriter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChannelPageWriter.class);
+
+  static final int BUFFER_SIZE = 16 * 1024;
+  static final int SYNC_BATCH_SIZE = 256;
+
+  private final SyncPolicy syncPolicy;
+  private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<CharsetEncoder> encoders;
+  private final ThreadLocal<ByteBuffer> encodeBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+  private final List<Path> unsynced = new ArrayList<>();
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param charset    non-null Charset to encode pages with
+   * @param syncPolicy non-null SyncPolicy which sets when written files are forced to the device
+   */
+  ChannelPageWriter(Charset charset, SyncPolicy syncPolicy) {
+    this.syncPolicy = syncPolicy;
+    this.encoders = ThreadLocal.withInitial(() -> charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE));
+  }
+
+  /**
+   * Writes one page, replacing the file if it exists.
+   *
+   * @param file   non-null Path of the file to write
+   * @param chars  non-null characters of the page
+   * @param length number of characters of the page, from the start of chars
+   * @return number of bytes written
+   * @throws IOException if the file can't be written or synced
+   */
+  long write(Path file, char[] chars, int length) throws IOException {
+    List<ByteBuffer> buffers = encode(CharBuffer.wrap(chars, 0, length));
+    long size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    long written = 0;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer[] page = buffers.toArray(new ByteBuffer[0]);
+      // A gathering write may write only part of the page
+      while (written < size) {
+        written += channel.write(page);
+      }
+    }
+    finally {
+      release(buffers);
+    }
+    afterWrite(file);
+    return written;
+  }
+
+  private List<ByteBuffer> encode(CharBuffer page) {
+    CharsetEncoder encoder = encoders.get();
+    ByteBuffer encoded = encodeBuffers.get();
+    encoder.reset();
+    List<ByteBuffer> buffers = new ArrayList<>();
+    // Encoders only take their fast path between array backed buffers, so each chunk is encoded on the heap and then
+    // copied into a direct buffer in bulk. Malformed and unmappable characters are replaced, so encoding only stops
+    // when the chunk is full or it is done
+    boolean overflow = encoder.encode(page, encoded, true).isOverflow();
+    while (overflow) {
+      buffers.add(drain(encoded));
+      overflow = encoder.encode(page, encoded, true).isOverflow();
+    }
+    while (encoder.flush(encoded).isOverflow()) {
+      buffers.add(drain(encoded));
+    }
+    buffers.add(drain(encoded));
+    // flip and clear are called through Buffer so this still links on Java 8, where ByteBuffer doesn't override them
+    for (ByteBuffer filled : buffers) {
+      ((Buffer) filled).flip();
+    }
+    return buffers;
+  }
+
+  private ByteBuffer drain(ByteBuffer encoded) {
+    ((Buffer) encoded).flip();
+    ByteBuffer buffer = acquire();
+    buffer.put(encoded);
+    ((Buffer) encoded).clear();
+    return buffer;
+  }
+
+  private ByteBuffer acquire() {
+    ByteBuffer buffer = pool.poll();
+    return buffer == null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : buffer;
+  }
+
+  private void release(List<ByteBuffer> buffers) {
+    for (ByteBuffer buffer : buffers) {
+      ((Buffer) buffer).clear();
+      pool.offer(buffer);
+    }
+  }
+
+  private void afterWrite(Path file) throws IOException {
+    if (syncPolicy == SyncPolicy.NONE) {
+      return;
+    }
+    List<Path> batch = null;
+    synchronized (unsynced) {
+      unsynced.add(file);
+      if (syncPolicy == SyncPolicy.BATCH && unsynced.size() >= SYNC_BATCH_SIZE) {
+        batch = new ArrayList<>(unsynced);
+        unsynced.clear();
+      }
+    }
+    if (batch != null) {
+      sync(batch);
+    }
+  }
+
+  /**
+   * Syncs every file written since the last sync, unless the SyncPolicy is NONE. Called once the run has written
+   * every file.
+   *
+   * @throws IOException if a file can't be synced
+   */
+  void finish() throws IOException {
+    List<Path> remaining;
+    synchronized (unsynced) {
+      remaining = new ArrayList<>(unsynced);
+      unsynced.clear();
+    }
+    if (!remaining.isEmpty()) {
+      sync(remaining);
+    }
+  }
+
+  private void sync(List<Path> files) throws IOException {
+    LOGGER.debug("Syncing {} files", files.size());
+    for (Path file : files) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.force(false);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of buffers waiting in the pool. Every buffer returns to the pool once its page is written.
+   *
+   * @return number of pooled buffers
+   */
+  int getPooledBufferCount() {
+    return pool.size();
+  }
+}
@@ -1,120 +1,146 @@
 package service;
 
-import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
-import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
-import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
-import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.jackson2.JacksonFactory;
-import com.google.api.client.util.store.FileDataStoreFactory;
-import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.sheets.v4.SheetsScopes;
 import model.Person;
+import model.Roster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.security.GeneralSecurityException;
-import java.text.Normalizer;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * Extracts data from Google Spreadsheets and parses it into headers and individual Person objects.
+ * Extracts data from a DataSource, such as a Google Spreadsheet, and parses it into headers and individual Person
+ * objects.
  */
 class DataParser {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DataParser.class);
 
-  private static final List<String> SCOPES = Collections.singletonList(SheetsScopes.SPREADSHEETS_READONLY);
-  private static final String APPLICATION_NAME = "Survey Parser";
-  private static final String SECRET_LOCATION = "/client_secret.json";
-  private static final String CREDENTIALS_LOCATION = ".credentials/sheets.googleapis.com-java-quickstart.json";
-  private static final String EDIT_URL = "/edit";
-
-  private final Sheets retriever;
+  private final List<DataSource> sources;
   private List<String> headers;
+  private Roster roster;
+  private TextNormalizer normalizer = new TextNormalizer(NormalizationPolicy.STRIP);
+  private RosterOrder rosterOrder = new RosterOrder();
+  private RunMetrics metrics = new RunMetrics();
 
   /**
-   * Default Constructor.
+   * Default Constructor. Reads Google Spreadsheets and local CSV or TSV files.
    *
    * @throws IOException if files aren't found properly
    * @throws GeneralSecurityException if there is a security error
    */
   DataParser() throws IOException, GeneralSecurityException {
-    this(GoogleNetHttpTransport.newTrustedTransport(), JacksonFactory.getDefaultInstance(),
-            new FileDataStoreFactory(new java.io.File(System.getProperty("user.home"), CREDENTIALS_LOCATION)));
+    this(new SheetsDataSource(), new DelimitedFileSource());
   }
 
   /**
-   * Constructor used only for unit testing.
+   * Constructor that takes in the sources to read from. Each location is read by the first source that supports it.
    *
-   * @param httpTransport    HttpTransport used by the Sheet object
-   * @param jsonFactory      JsonFactory used by the Sheet object
-   * @param dataStoreFactory FileDataStoreFactory used by the Sheet object
-   * @throws IOException if files aren't found properly
+   * @param sources non-null sources to read from
    */
-  DataParser(HttpTransport httpTransport, JsonFactory jsonFactory,
-             FileDataStoreFactory dataStoreFactory) throws IOException {
-    retriever = getSheets(httpTransport, jsonFactory, dataStoreFactory);
+  DataParser(DataSource... sources) {
+    this.sources = Arrays.asList(sources);
   }
 
   /**
-   * Gets an authorized Google Spreadsheets API Client. Package protected to override and mock in unit tests.
+   * Sets how responses with characters outside of ASCII are normalized. Defaults to NormalizationPolicy.STRIP.
    *
-   * @param httpTransport    HttpTransport used by the Sheet object
-   * @param jsonFactory      JsonFactory used by the Sheet object
-   * @param dataStoreFactory FileDataStoreFactory used by the Sheet object
-   * @return an authorized Sheets API client service
-   * @throws IOException when unable to create sheets object
+   * @param policy non-null NormalizationPolicy to apply to every response except image links
    */
-  Sheets getSheets(HttpTransport httpTransport, JsonFactory jsonFactory,
-                   FileDataStoreFactory dataStoreFactory) throws IOException {
-    Credential credential = getCredentials(httpTransport, jsonFactory, dataStoreFactory);
-    LOGGER.info("Creating sheets object for application={}", APPLICATION_NAME);
-    return new Sheets.Builder(httpTransport, jsonFactory, credential).setApplicationName(APPLICATION_NAME).build();
+  void setNormalizationPolicy(NormalizationPolicy policy) {
+    normalizer = new TextNormalizer(policy);
   }
 
-  private Credential getCredentials(HttpTransport httpTransport, JsonFactory jsonFactory,
-                                    FileDataStoreFactory dataStoreFactory) throws IOException {
-    LOGGER.info("Retrieving client_secret.json");
-    InputStream inputStream = DataParser.class.getResourceAsStream(SECRET_LOCATION);
+  /**
+   * Sets the order people are sorted in. Defaults to last name and then first name, with the root collation rules.
+   *
+   * @param rosterOrder non-null RosterOrder to sort people with
+   */
+  void setRosterOrder(RosterOrder rosterOrder) {
+    this.rosterOrder = rosterOrder;
+  }
 
-    LOGGER.info("Loading client_secret.json");
-    GoogleClientSecrets clientSecrets = GoogleClientSecrets.load(jsonFactory, new InputStreamReader(inputStream));
+  /**
+   * Gets the order people are sorted in.
+   *
+   * @return the RosterOrder
+   */
+  RosterOrder getRosterOrder() {
+    return rosterOrder;
+  }
 
-    LOGGER.info("Building credentials");
-    GoogleAuthorizationCodeFlow codeFlow = new GoogleAuthorizationCodeFlow.Builder(httpTransport, jsonFactory,
-            clientSecrets, SCOPES).setDataStoreFactory(dataStoreFactory).setAccessType("offline").build();
-    return new AuthorizationCodeInstalledApp(codeFlow, new LocalServerReceiver()).authorize("user");
+  /**
+   * Sets the metrics that retrieving and parsing are recorded in.
+   *
+   * @param metrics non-null RunMetrics of the current run
+   */
+  void setMetrics(RunMetrics metrics) {
+    this.metrics = metrics;
   }
 
   /**
-   * Retrieves the data in the given range from the Google Spreadsheet associated with the url.
+   * Retrieves the data in the given range from the source associated with the url.
    *
-   * @param url   a non-null string which is the full url path of the Google Spreadsheet
+   * @param url   a non-null string which is the full url path of the Google Spreadsheet or the path of a local file
    * @param range a non-null string which is range of cells to extract from the spreadsheet
    * @return values from the spreadsheet in the given range
    * @throws IOException if unable to retrieve data from spreadsheet
    */
   List<List<Object>> retrieveData(String url, String range) throws IOException {
-    String spreadsheetId = getSpreadsheetId(url);
-    LOGGER.info("Now attempting to retrieve data from spreadsheet with spreadsheetId={}", spreadsheetId);
-    return retriever.spreadsheets().values().get(spreadsheetId, range).execute().getValues();
+    return retrieveData(url, range, RunOptions.SINGLE_REQUEST, 1);
+  }
+
+  /**
+   * Retrieves the data in the given range in blocks of rows. The result is identical to a single call to
+   * {@link #retrieveData(String, String)}.
+   *
+   * @param url                   a non-null string which is the full url path of the Google Spreadsheet or the path
+   *                              of a local file
+   * @param range                 a non-null string which is range of cells to extract from the spreadsheet
+   * @param pageSize              number of rows to retrieve per request
+   * @param maxConcurrentRequests maximum number of requests in flight at once
+   * @return values from the spreadsheet in the given range
+   * @throws IOException if unable to retrieve data from spreadsheet
+   */
+  List<List<Object>> retrieveData(String url, String range, int pageSize, int maxConcurrentRequests)
+          throws IOException {
+    List<List<Object>> result = new ArrayList<>();
+    retrieveData(url, range, pageSize, maxConcurrentRequests, result::addAll);
+    return result.isEmpty() ? null : result;
   }
 
-  private String getSpreadsheetId(String url) {
-    String result = url;
-    int editIndex = result.indexOf(EDIT_URL);
-    if (editIndex != -1) {
-      result = result.substring(0, editIndex);
+  /**
+   * Retrieves the data in the given range in blocks of rows and hands each block to the handler in order.
+   *
+   * @param url                   a non-null string which is the full url path of the Google Spreadsheet or the path
+   *                              of a local file
+   * @param range                 a non-null string which is range of cells to extract from the spreadsheet
+   * @param pageSize              number of rows to retrieve per request
+   * @param maxConcurrentRequests maximum number of requests in flight at once
+   * @param handler               non-null RowHandler which receives the rows in spreadsheet order
+   * @throws IOException if unable to retrieve data from spreadsheet or the handler fails
+   */
+  void retrieveData(String url, String range, int pageSize, int maxConcurrentRequests, RowHandler handler)
+          throws IOException {
+    // Only the time spent waiting for each block is retrieval; the time the handler takes is recorded by its stages
+    long[] blockStart = {System.nanoTime()};
+    getSource(url).retrieveData(url, range, pageSize, maxConcurrentRequests, rows -> {
+      metrics.record(Stage.RETRIEVE, blockStart[0]);
+      handler.handleRows(rows);
+      blockStart[0] = System.nanoTime();
+    });
+  }
+
+  private DataSource getSource(String location) {
+    for (DataSource source : sources) {
+      if (source.supports(location)) {
+        return source;
+      }
     }
-    return result.replace(SurveyParser.EXPECTED_URL_PREFIX, "").replace("/", "");
+    throw new IllegalArgumentException(String.format("No data source can read the location. Location given was=%s",
+            location));
   }
 
   /**
@@ -131,33 +157,132 @@ class DataParser {
 
     LOGGER.info("Retrieving and parsing data for each person");
     for (int i = 1; i < data.size(); i++) {
-      people.add(parseOnePerson(data.get(i), imageIndex));
+      people.add(addPerson(data.get(i), imageIndex));
+    }
+    sortPeople(people);
+    return people;
+  }
+
+  /**
+   * Retrieves the data in the given range in blocks of rows and parses each block as it arrives, so the full
+   * spreadsheet is never held in memory at once. The result is identical to parsing the result of a single call.
+   *
+   * @param url                   a non-null string which is the full url path of the Google Spreadsheet
+   * @param range                 a non-null string which is range of cells to extract from the spreadsheet
+   * @param imageIndex            an index which is column in the spreadsheet that contains the url of the person's image
+   * @param pageSize              number of rows to retrieve per request
+   * @param maxConcurrentRequests maximum number of requests in flight at once
+   * @return list of Person objects
+   * @throws IOException if unable to retrieve data from spreadsheet
+   */
+  List<Person> retrieveAndParseData(String url, String range, int imageIndex, int pageSize,
+                                    int maxConcurrentRequests) throws IOException {
+    List<Person> people = new ArrayList<>();
+    headers = null;
+
+    retrieveData(url, range, pageSize, maxConcurrentRequests, rows -> {
+      int start = 0;
+      if (headers == null) {
+        getHeaders(rows.get(0));
+        LOGGER.info("Retrieving and parsing data for each person");
+        start = 1;
+      }
+      for (int i = start; i < rows.size(); i++) {
+        people.add(addPerson(rows.get(i), imageIndex));
+      }
+    });
+    sortPeople(people);
+    return people;
+  }
+
+  /**
+   * Parses rows that follow the rows parsed last, such as responses added to a Form since, using the headers parsed
+   * last. Unlike {@link #parseData(List, int)} the rows hold no header row and the result is not sorted.
+   *
+   * @param rows       non-null rows of the spreadsheet data that follow the rows parsed so far
+   * @param imageIndex an index which is column in the spreadsheet that contains the url of the person's image
+   * @return list of Person objects in the order of the rows
+   */
+  List<Person> parseMoreData(List<List<Object>> rows, int imageIndex) {
+    if (headers == null) {
+      throw new IllegalStateException("Headers must be parsed before more rows can be parsed");
+    }
+    List<Person> people = new ArrayList<>(rows.size());
+    for (List<Object> row : rows) {
+      people.add(addPerson(row, imageIndex));
     }
-    Collections.sort(people, (Person p1, Person p2) -> p1.getLastName().compareTo(p2.getLastName()));
     return people;
   }
 
-  private void getHeaders(List<Object> dataToParse) {
+  private Person addPerson(List<Object> dataToParse, int imageIndex) {
+    // Normalizing is recorded as a stage of its own, so it is kept out of the row's time
+    String[] cells = toCells(dataToParse, imageIndex);
+    long start = System.nanoTime();
+    Person person = getRoster(imageIndex).add(cells);
+    metrics.record(Stage.PARSE_ROW, start);
+    return person;
+  }
+
+  private void sortPeople(List<Person> people) {
+    long start = System.nanoTime();
+    rosterOrder.sort(people);
+    metrics.record(Stage.SORT, start);
+  }
+
+  /**
+   * Parses the header row. Must be called before any person is parsed.
+   *
+   * @param dataToParse non-null first row of the spreadsheet data
+   */
+  void getHeaders(List<Object> dataToParse) {
     LOGGER.info("Retrieving and parsing headers");
+    long start = System.nanoTime();
     headers = dataToParse.stream().map(Object::toString).collect(Collectors.toList());
+    roster = null;
+    metrics.record(Stage.PARSE_HEADERS, start);
   }
 
-  private Person parseOnePerson(List<Object> dataToParse, int imageIndex) {
-    Map<String, String> data = new LinkedHashMap<>();
-    String imageLink = "";
-    for (int i = 0; i < dataToParse.size(); i++) {
-      if (i != imageIndex) {
-        data.put(headers.get(i), normalizeData(dataToParse.get(i).toString()));
-      }
-      else {
-        imageLink = dataToParse.get(i).toString();
-      }
+  /**
+   * Gets the headers the responses of the people parsed last are keyed by, whether or not anybody answered them.
+   *
+   * @param imageIndex an index which is column in the spreadsheet that contains the url of the person's image
+   * @return list of headers, which is empty if no headers were parsed
+   */
+  List<String> getResponseHeaders(int imageIndex) {
+    return headers == null ? new ArrayList<>() : getRoster(imageIndex).getResponseHeaders();
+  }
+
+  private Roster getRoster(int imageIndex) {
+    if (roster == null) {
+      roster = new Roster(headers, imageIndex);
     }
-    return new Person(data, imageLink);
+    return roster;
+  }
+
+  /**
+   * Parses one row of the spreadsheet data into a Person, using the headers parsed last. The Person is not kept by the
+   * parser, so rows parsed one at a time can be discarded as soon as they are used.
+   *
+   * @param dataToParse non-null row of the spreadsheet data
+   * @param imageIndex  an index which is column in the spreadsheet that contains the url of the person's image
+   * @return Person the row describes
+   */
+  Person parseOnePerson(List<Object> dataToParse, int imageIndex) {
+    String[] cells = toCells(dataToParse, imageIndex);
+    long start = System.nanoTime();
+    Person person = getRoster(imageIndex).wrap(cells);
+    metrics.record(Stage.PARSE_ROW, start);
+    return person;
   }
 
-  private String normalizeData(String input) {
-    String result = Normalizer.normalize(input, Normalizer.Form.NFD);
-    return result.replaceAll("[^\\p{ASCII}]", "");
+  private String[] toCells(List<Object> dataToParse, int imageIndex) {
+    long start = System.nanoTime();
+    String[] cells = new String[dataToParse.size()];
+    for (int i = 0; i < cells.length; i++) {
+      String cell = dataToParse.get(i).toString();
+      cells[i] = i == imageIndex ? cell : normalizer.normalize(cell);
+    }
+    metrics.record(Stage.NORMALIZE, start);
+    return cells;
   }
 }
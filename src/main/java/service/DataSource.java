@@ -0,0 +1,31 @@
+package service;
+
+import java.io.IOException;
+
+/**
+ * A place survey responses can be read from. The first row handed out is the header row, followed by one row per
+ * response.
+ */
+interface DataSource {
+
+  /**
+   * Whether this source can read the given location.
+   *
+   * @param location non-null location given by the user, such as the url of a Google Spreadsheet
+   * @return if the location can be read by this source
+   */
+  boolean supports(String location);
+
+  /**
+   * Retrieves the data in the given range in blocks of rows and hands each block to the handler in order.
+   *
+   * @param location              non-null location of the responses
+   * @param range                 non-null string which is range of cells to extract from the responses
+   * @param pageSize              number of rows to retrieve at once, 0 to let the source decide
+   * @param maxConcurrentRequests maximum number of requests in flight at once, for sources that make requests
+   * @param handler               non-null RowHandler which receives the rows in order
+   * @throws IOException if unable to retrieve data from the source or the handler fails
+   */
+  void retrieveData(String location, String range, int pageSize, int maxConcurrentRequests, RowHandler handler)
+          throws IOException;
+}
@@ -0,0 +1,268 @@
+package service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads survey responses from a local CSV or TSV export, such as the one Google Forms downloads. The file is memory
+ * mapped and tokenized in place, so only the cells inside the requested range are ever turned into Strings. Fields may
+ * be quoted, with doubled quotes inside them, and quoted fields may span several lines.
+ */
+class DelimitedFileSource implements DataSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DelimitedFileSource.class);
+
+  private static final String CSV_EXTENSION = ".csv";
+  private static final String TSV_EXTENSION = ".tsv";
+  private static final byte COMMA = ',';
+  private static final byte TAB = '\t';
+  private static final byte QUOTE = '"';
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+  private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+  private static final int DEFAULT_BLOCK_SIZE = 1000;
+  private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+  private final long mappingSize;
+
+  /**
+   * Default Constructor.
+   */
+  DelimitedFileSource() {
+    this(MAX_MAPPING_SIZE);
+  }
+
+  /**
+   * Constructor used only for unit testing.
+   *
+   * @param mappingSize positive maximum number of bytes of the file mapped at once
+   */
+  DelimitedFileSource(long mappingSize) {
+    this.mappingSize = mappingSize;
+  }
+
+  /**
+   * Whether the location is the path of a CSV or TSV file.
+   *
+   * @param location non-null location given by the user
+   * @return if the location names a CSV or TSV file
+   */
+  static boolean isDelimitedFile(String location) {
+    String lowerCaseLocation = location.toLowerCase(Locale.ROOT);
+    return lowerCaseLocation.endsWith(CSV_EXTENSION) || lowerCaseLocation.endsWith(TSV_EXTENSION);
+  }
+
+  @Override
+  public boolean supports(String location) {
+    return isDelimitedFile(location);
+  }
+
+  /**
+   * Reads the cells of the file inside the given range, in blocks of pageSize rows. As with the Sheets API, empty
+   * cells at the end of a row and empty rows at the end of the range are left out. The sheet name of the range, if
+   * any, is ignored.
+   *
+   * @param location              non-null path of the CSV or TSV file
+   * @param range                 non-null string which is range of cells to read from the file
+   * @param pageSize              number of rows to hand to the handler at once, 0 for the default
+   * @param maxConcurrentRequests ignored, the file is read by the calling thread
+   * @param handler               non-null RowHandler which receives the rows in file order
+   * @throws IOException if unable to read the file or the handler fails
+   */
+  @Override
+  public void retrieveData(String location, String range, int pageSize, int maxConcurrentRequests,
+                           RowHandler handler) throws IOException {
+    CellRange cellRange = CellRange.parse(range);
+    int firstRow = cellRange == null ? 1 : cellRange.getFirstRow();
+    int lastRow = cellRange == null ? Integer.MAX_VALUE : cellRange.getLastRow();
+    int firstColumn = cellRange == null ? 0 : cellRange.getFirstColumnIndex();
+    int lastColumn = cellRange == null ? Integer.MAX_VALUE : cellRange.getLastColumnIndex();
+    int blockSize = pageSize > 0 ? pageSize : DEFAULT_BLOCK_SIZE;
+    byte delimiter = location.toLowerCase(Locale.ROOT).endsWith(TSV_EXTENSION) ? TAB : COMMA;
+
+    LOGGER.info("Now attempting to read data from file={}", location);
+    try (FileChannel channel = FileChannel.open(Paths.get(location), StandardOpenOption.READ)) {
+      Tokenizer tokenizer = new Tokenizer(channel, delimiter, mappingSize);
+      List<List<Object>> block = new ArrayList<>();
+      int emptyRows = 0;
+      for (int row = 1; row <= lastRow && tokenizer.hasNext(); row++) {
+        List<Object> cells = tokenizer.nextRow(row < firstRow ? Integer.MAX_VALUE : firstColumn, lastColumn);
+        if (row < firstRow) {
+          continue;
+        }
+        if (cells.isEmpty()) {
+          emptyRows++;
+          continue;
+        }
+        for (; emptyRows > 0; emptyRows--) {
+          block = addRow(block, new ArrayList<>(), blockSize, handler);
+        }
+        block = addRow(block, cells, blockSize, handler);
+      }
+      if (!block.isEmpty()) {
+        handler.handleRows(block);
+      }
+    }
+  }
+
+  private List<List<Object>> addRow(List<List<Object>> block, List<Object> row, int blockSize, RowHandler handler)
+          throws IOException {
+    block.add(row);
+    if (block.size() < blockSize) {
+      return block;
+    }
+    handler.handleRows(block);
+    return new ArrayList<>();
+  }
+
+  /**
+   * Splits a memory mapped file into rows of fields. Files larger than the mapping size are mapped one window at a
+   * time; a field may span two windows since its bytes are gathered before being decoded.
+   */
+  private static class Tokenizer {
+
+    private static final int INITIAL_FIELD_CAPACITY = 256;
+
+    private final FileChannel channel;
+    private final byte delimiter;
+    private final long mappingSize;
+    private final long fileSize;
+    private MappedByteBuffer buffer;
+    private long mappedEnd;
+    private byte[] field = new byte[INITIAL_FIELD_CAPACITY];
+    private int fieldLength;
+
+    private Tokenizer(FileChannel channel, byte delimiter, long mappingSize) throws IOException {
+      this.channel = channel;
+      this.delimiter = delimiter;
+      this.mappingSize = mappingSize;
+      fileSize = channel.size();
+      map(0);
+      skipByteOrderMark();
+    }
+
+    private void map(long position) throws IOException {
+      long size = Math.min(mappingSize, fileSize - position);
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      mappedEnd = position + size;
+    }
+
+    private void skipByteOrderMark() {
+      if (buffer.remaining() < BYTE_ORDER_MARK.length) {
+        return;
+      }
+      for (int i = 0; i < BYTE_ORDER_MARK.length; i++) {
+        if (buffer.get(i) != BYTE_ORDER_MARK[i]) {
+          return;
+        }
+      }
+      // Called through Buffer so this still links on Java 8, where MappedByteBuffer doesn't override position
+      ((Buffer) buffer).position(BYTE_ORDER_MARK.length);
+    }
+
+    private boolean hasNext() throws IOException {
+      if (buffer.hasRemaining()) {
+        return true;
+      }
+      if (mappedEnd >= fileSize) {
+        return false;
+      }
+      map(mappedEnd);
+      return buffer.hasRemaining();
+    }
+
+    private byte peek() {
+      return buffer.get(buffer.position());
+    }
+
+    /**
+     * Reads the next row, keeping only the fields between the given columns.
+     *
+     * @param firstColumn 0-based index of the first field to keep
+     * @param lastColumn  0-based index of the last field to keep
+     * @return kept fields without the empty fields at the end of the row
+     * @throws IOException if the file can't be mapped
+     */
+    private List<Object> nextRow(int firstColumn, int lastColumn) throws IOException {
+      List<Object> cells = new ArrayList<>();
+      boolean endOfRow = false;
+      for (int column = 0; !endOfRow; column++) {
+        endOfRow = readField();
+        if (column >= firstColumn && column <= lastColumn) {
+          cells.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+        }
+      }
+      while (!cells.isEmpty() && cells.get(cells.size() - 1).toString().isEmpty()) {
+        cells.remove(cells.size() - 1);
+      }
+      return cells;
+    }
+
+    /**
+     * Reads the next field into the field buffer. Delimiters, quotes and line breaks are ASCII, so they can be found
+     * in UTF-8 content one byte at a time.
+     *
+     * @return if the field was the last one of its row
+     * @throws IOException if the file can't be mapped
+     */
+    private boolean readField() throws IOException {
+      fieldLength = 0;
+      boolean quoted = false;
+      boolean start = true;
+      while (hasNext()) {
+        byte current = buffer.get();
+        if (quoted) {
+          if (current != QUOTE) {
+            append(current);
+          }
+          else if (hasNext() && peek() == QUOTE) {
+            append(buffer.get());
+          }
+          else {
+            quoted = false;
+          }
+        }
+        else if (current == QUOTE && start) {
+          quoted = true;
+        }
+        else if (current == delimiter) {
+          return false;
+        }
+        else if (current == LINE_FEED) {
+          return true;
+        }
+        else if (current == CARRIAGE_RETURN) {
+          if (hasNext() && peek() == LINE_FEED) {
+            buffer.get();
+          }
+          return true;
+        }
+        else {
+          append(current);
+        }
+        start = false;
+      }
+      return true;
+    }
+
+    private void append(byte value) {
+      if (fieldLength == field.length) {
+        byte[] larger = new byte[field.length * 2];
+        System.arraycopy(field, 0, larger, 0, fieldLength);
+        field = larger;
+      }
+      field[fieldLength++] = value;
+    }
+  }
+}
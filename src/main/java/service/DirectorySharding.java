@@ -0,0 +1,154 @@
+package service;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Splits the directory of a large roster into pages of its own, so no page has to list every person. People are split
+ * either by the first letter of their last name or into pages of a fixed number of people, in the order of the
+ * directory. The directory page then only links to the pages it was split into, and each profile links back to the
+ * page that lists it.
+ */
+class DirectorySharding {
+
+  static final String SHARD_FILE_FORMAT = "Directory %s.html";
+  static final String OTHER_LABEL = "#";
+  private static final String OTHER_FILE_LABEL = "Other";
+  private static final String RANGE_FORMAT = "%s - %s";
+
+  private final int pageSize;
+  private final Collator collator;
+
+  private DirectorySharding(int pageSize, Collator collator) {
+    this.pageSize = pageSize;
+    this.collator = collator;
+  }
+
+  /**
+   * Splits the directory by the first letter or digit of each last name. Letters that the collation rules of the
+   * locale consider the same letter, such as "O" and "Ö" in English, share a page. Last names without any letter or
+   * digit share a page labelled #.
+   *
+   * @param locale non-null Locale whose collation rules decide which letters are the same
+   * @return the sharding
+   */
+  static DirectorySharding byInitial(Locale locale) {
+    Collator collator = Collator.getInstance(locale);
+    collator.setStrength(Collator.PRIMARY);
+    return new DirectorySharding(0, collator);
+  }
+
+  /**
+   * Splits the directory into pages of a fixed number of people, labelled by the first and last last name they hold.
+   *
+   * @param pageSize positive number of people listed on each page
+   * @return the sharding
+   */
+  static DirectorySharding bySize(int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException(String.format("Directory page size must be at least 1. Value given was=%d",
+              pageSize));
+    }
+    return new DirectorySharding(pageSize, null);
+  }
+
+  /**
+   * Splits the people of the directory into shards.
+   *
+   * @param lastNames non-null last names of every person, in the order of the directory; a name may be null
+   * @return the shards, which cover every person in order
+   */
+  List<Shard> split(List<String> lastNames) {
+    List<Shard> shards = new ArrayList<>();
+    if (pageSize > 0) {
+      for (int start = 0; start < lastNames.size(); start += pageSize) {
+        int end = Math.min(start + pageSize, lastNames.size());
+        String label = String.format(RANGE_FORMAT, labelOf(lastNames.get(start)), labelOf(lastNames.get(end - 1)));
+        shards.add(new Shard(String.format(SHARD_FILE_FORMAT, shards.size() + 1), label, start, end));
+      }
+      return shards;
+    }
+
+    // Collators are not safe to share between threads, and a sharding may be used by several batch jobs at once
+    Collator initials = (Collator) collator.clone();
+    Map<String, Integer> fileLabels = new HashMap<>();
+    int start = 0;
+    String label = null;
+    for (int i = 0; i <= lastNames.size(); i++) {
+      String initial = i < lastNames.size() ? initialOf(lastNames.get(i)) : null;
+      if (label != null && (initial == null || initials.compare(label, initial) != 0)) {
+        shards.add(new Shard(getFileName(label, fileLabels), label, start, i));
+        start = i;
+        label = null;
+      }
+      if (label == null) {
+        label = initial;
+      }
+    }
+    return shards;
+  }
+
+  /**
+   * Names the page of an initial. An initial can come back after others when the directory isn't ordered by last name
+   * first, in which case each of its pages is numbered.
+   */
+  private String getFileName(String label, Map<String, Integer> fileLabels) {
+    String fileLabel = OTHER_LABEL.equals(label) ? OTHER_FILE_LABEL : label;
+    int count = fileLabels.merge(fileLabel, 1, Integer::sum);
+    return String.format(SHARD_FILE_FORMAT, count == 1 ? fileLabel : fileLabel + " " + count);
+  }
+
+  private String initialOf(String lastName) {
+    if (lastName != null) {
+      for (int i = 0; i < lastName.length(); i = lastName.offsetByCodePoints(i, 1)) {
+        int codePoint = lastName.codePointAt(i);
+        if (Character.isLetterOrDigit(codePoint)) {
+          return new String(Character.toChars(Character.toUpperCase(codePoint)));
+        }
+      }
+    }
+    return OTHER_LABEL;
+  }
+
+  private String labelOf(String lastName) {
+    return lastName == null || lastName.trim().isEmpty() ? OTHER_LABEL : lastName.trim();
+  }
+
+  /**
+   * One page of the directory: the people from a start index up to, but not including, an end index.
+   */
+  static class Shard {
+
+    private final String fileName;
+    private final String label;
+    private final int start;
+    private final int end;
+
+    private Shard(String fileName, String label, int start, int end) {
+      this.fileName = fileName;
+      this.label = label;
+      this.start = start;
+      this.end = end;
+    }
+
+    String getFileName() {
+      return fileName;
+    }
+
+    String getLabel() {
+      return label;
+    }
+
+    int getStart() {
+      return start;
+    }
+
+    int getEnd() {
+      return end;
+    }
+  }
+}
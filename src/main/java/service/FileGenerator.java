@@ -6,10 +6,29 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Uses the headers generated and a given list of Person objects to create one-page views of each person.
@@ -19,41 +38,42 @@ class FileGenerator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FileGenerator.class);
 
-  private static final String STUDENT_PAGES_FOLDER = "studentPages";
+  static final String STUDENT_PAGES_FOLDER = "studentPages";
   private static final String CSS_FILE_NAME = "style.css";
-  private static final String DIRECTORY_FILE_NAME = "Student Directory.html";
-  private static final String FILE_NAME_FORMAT = "%s/%s";
-  private static final String DIRECTORY_LOCATION = String.format(FILE_NAME_FORMAT,
-          STUDENT_PAGES_FOLDER, DIRECTORY_FILE_NAME);
-  private static final String CSS_LOCATION = String.format(FILE_NAME_FORMAT, STUDENT_PAGES_FOLDER, CSS_FILE_NAME);
-
-  private static final String CSS_DATA = "body {\n" +
-          "  background: lightyellow;\n" +
-          "}\n" +
-          "\n" +
-          "img {\n" +
-          "  max-height: 200px;\n" +
-          "  max-width: 200px;\n" +
-          "  padding:0px;\n" +
-          "  border-width:0px;\n" +
-          "  margin:0px;\n" +
-          "}\n";
-
-  private static final String TOP_HTML_ENTRIES = "<!DOCTYPE html><html>";
-  private static final String HEAD_FORMAT = "<head><title>%s Profile</title>" +
-          "<link rel=\"stylesheet\"type=\"text/css\" href=\"%s\"></head>";
-  private static final String BODY_AND_TABLE = "<body><table>";
-  private static final String TABLE_FORMAT = BODY_AND_TABLE + "<tr><td><img src=\"%s\"></td>" +
-          "<td><h1>%s</h1>%s</td></tr></table>";
-  private static final String LINK = "<a href=\"%s\">%s</a>";
-  private static final String LINK_TO_NEXT_PAGE = "<br><b>Next Student: </b>" + LINK;
-  private static final String LINK_FORMAT = "<tr>" + LINK + "</tr><br>";
-  private static final String ENTRY_FORMAT = "<b>%s: </b>%s<br>";
-  private static final String COLON_ENTRY_FORMAT = "<b>%s </b>%s<br>";
-  private static final String END_TABLE = "</table>";
-  private static final String BOTTOM_HTML_ENTRIES = "</body></html>";
+  static final String DIRECTORY_FILE_NAME = "Student Directory.html";
+  private static final String FOLDER_SEPARATOR = "/";
+  private static final String DIRECTORY_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR + DIRECTORY_FILE_NAME;
+  private static final String CSS_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR + CSS_FILE_NAME;
+  static final String IMAGE_FOLDER = "images";
+  private static final String IMAGE_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR + IMAGE_FOLDER;
+  private static final String NOT_APPLICABLE = "N/A";
+  private static final String COLON = ":";
 
+  private static final String MANIFEST_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR +
+          PageManifest.MANIFEST_FILE_NAME;
+  private static final String SEARCH_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR +
+          SearchIndex.SEARCH_FOLDER;
+  static final String REPORT_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR + "run-report.json";
+  private static final String ANSWER_SUMMARY_PAGE_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR +
+          AnswerSummary.PAGE_FILE_NAME;
+  private static final String ANSWER_SUMMARY_REPORT_LOCATION = STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR +
+          AnswerSummary.REPORT_FILE_NAME;
+
+  private final File outputFolder;
   private final File directory;
+  private final PageTemplates templates;
+  private final ThreadLocal<RenderBuffer> buffers = ThreadLocal.withInitial(RenderBuffer::new);
+  private boolean incremental;
+  private PageManifest manifest;
+  private File archiveFile;
+  private PageArchive archive;
+  private ChannelPageWriter channelWriter;
+  private PageStore.Snapshot pageSnapshot;
+  private Map<String, String> imageNames = Collections.emptyMap();
+  private DirectorySharding directorySharding;
+  private List<String> searchColumns;
+  private boolean answerSummary;
+  private RunMetrics metrics = new RunMetrics();
 
   /**
    * Default Constructor.
@@ -61,7 +81,27 @@ class FileGenerator {
    * @throws FileNotFoundException if directory can't be found
    */
   FileGenerator() throws FileNotFoundException {
-    this(new File(STUDENT_PAGES_FOLDER));
+    this(new PageTemplates());
+  }
+
+  /**
+   * Constructor that takes in the templates to render pages with.
+   *
+   * @param templates non-null PageTemplates to render every page with
+   */
+  FileGenerator(PageTemplates templates) {
+    this(null, new File(STUDENT_PAGES_FOLDER), templates);
+  }
+
+  /**
+   * Constructor that takes in the templates to render pages with and the folder to write them in. Files are written
+   * to a studentPages folder inside the output folder instead of the working directory.
+   *
+   * @param templates    non-null PageTemplates to render every page with
+   * @param outputFolder non-null File which is the folder the studentPages folder is created in
+   */
+  FileGenerator(PageTemplates templates, File outputFolder) {
+    this(outputFolder, new File(outputFolder, STUDENT_PAGES_FOLDER), templates);
   }
 
   /**
@@ -70,7 +110,204 @@ class FileGenerator {
    * @param directory non-null File which is the directory the student files should be placed in
    */
   FileGenerator(File directory) {
+    this(directory, new PageTemplates());
+  }
+
+  /**
+   * Constructor used only for unit testing.
+   *
+   * @param directory non-null File which is the directory the student files should be placed in
+   * @param templates non-null PageTemplates to render every page with
+   */
+  FileGenerator(File directory, PageTemplates templates) {
+    this(null, directory, templates);
+  }
+
+  private FileGenerator(File outputFolder, File directory, PageTemplates templates) {
+    this.outputFolder = outputFolder;
     this.directory = directory;
+    this.templates = templates;
+  }
+
+  /**
+   * Sets whether files are only written when their content changed since the previous run. A manifest of content
+   * hashes is kept in the output folder, and the pages of people who were removed are deleted.
+   *
+   * @param incremental if only changed files should be written
+   */
+  void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
+
+  /**
+   * Sets the zip archive every file is streamed into instead of being written into the studentPages folder. The
+   * archive is created when files are first generated and finished by {@link #finishOutput()}. Can't be combined
+   * with incremental runs, which compare against the files of the previous run.
+   *
+   * @param archiveFile zip archive to write, or null to write loose files
+   */
+  void setArchive(File archiveFile) {
+    this.archiveFile = archiveFile;
+  }
+
+  /**
+   * Sets the writer that pages, the style sheet and the directory are written through with FileChannels, instead of
+   * the Writers of {@link #getFileWriter(String)}. Ignored while writing into an archive.
+   *
+   * @param channelWriter ChannelPageWriter to write pages with, or null to write them with getFileWriter
+   */
+  void setChannelWriter(ChannelPageWriter channelWriter) {
+    this.channelWriter = channelWriter;
+  }
+
+  /**
+   * Sets the snapshot of a PageStore that every file is stored in to be served, instead of being written to disk.
+   * Images can't be stored, and a run can't be incremental while files are stored.
+   *
+   * @param pageSnapshot PageStore.Snapshot to store files in, or null to write them to disk
+   */
+  void setPageSnapshot(PageStore.Snapshot pageSnapshot) {
+    this.pageSnapshot = pageSnapshot;
+  }
+
+  /**
+   * Sets how the directory is split into several pages. The directory page then only links to those pages, and each
+   * profile links back to the page that lists it.
+   *
+   * @param directorySharding DirectorySharding to split the directory with, or null to list everyone on one page
+   */
+  void setDirectorySharding(DirectorySharding directorySharding) {
+    this.directorySharding = directorySharding;
+  }
+
+  /**
+   * Sets whether a search index is written next to the pages, and which responses it holds besides the names. The
+   * directory page then gets a search box that loads the index.
+   *
+   * @param searchColumns headers of the columns whose responses are indexed along with the names, or null to write no
+   *                      index
+   */
+  void setSearchColumns(List<String> searchColumns) {
+    this.searchColumns = searchColumns == null ? null : Collections.unmodifiableList(new ArrayList<>(searchColumns));
+  }
+
+  /**
+   * Finds the terms the search index holds for a person, for pages rendered before the order of the directory is
+   * known.
+   *
+   * @param person non-null Person to find the terms of
+   * @return the terms, or null if no search index is written
+   */
+  String[] getSearchTerms(Person person) {
+    return searchColumns == null ? null : SearchIndex.getTerms(person, searchColumns);
+  }
+
+  /**
+   * Sets whether a summary of the responses to every question is written next to the pages, as a page linked from the
+   * directory and as JSON.
+   *
+   * @param answerSummary if the answer summary should be written
+   */
+  void setAnswerSummary(boolean answerSummary) {
+    this.answerSummary = answerSummary;
+  }
+
+  /**
+   * Starts the answer summary of pages rendered before the order of the directory is known, which the people are
+   * added to as they are rendered.
+   *
+   * @return a new empty AnswerSummary, or null if no answer summary is written
+   */
+  AnswerSummary newAnswerSummary() {
+    return answerSummary ? new AnswerSummary() : null;
+  }
+
+  /**
+   * Sets the images stored by an ImagePrefetcher, which pages show instead of the original image links.
+   *
+   * @param imageNames non-null name of the stored image of each link, as given to {@link #writeImage(String, byte[])}
+   */
+  void setImageNames(Map<String, String> imageNames) {
+    this.imageNames = imageNames;
+  }
+
+  /**
+   * Checks whether an image was stored by this or a previous run.
+   *
+   * @param imageName non-null name of the image in the images folder
+   * @return if the image exists
+   */
+  boolean imageExists(String imageName) {
+    return fileExists(IMAGE_LOCATION + FOLDER_SEPARATOR + imageName);
+  }
+
+  /**
+   * Stores an image in the images folder next to the pages, replacing an image of the same name.
+   *
+   * @param imageName non-null name of the image in the images folder
+   * @param image     non-null encoded image
+   * @throws IOException if the image can't be written
+   */
+  void writeImage(String imageName, byte[] image) throws IOException {
+    long start = System.nanoTime();
+    OutputStream imageStream = getFileOutputStream(IMAGE_LOCATION + FOLDER_SEPARATOR + imageName);
+    try {
+      imageStream.write(image);
+    }
+    finally {
+      imageStream.close();
+    }
+    metrics.record(Stage.WRITE, start);
+    metrics.addBytesWritten(image.length);
+  }
+
+  /**
+   * Finishes the output of a run. Closes the archive, if files are written into one, after which no more files can
+   * be written to it, and syncs the files written through FileChannels as their SyncPolicy requires. Does nothing
+   * otherwise.
+   *
+   * @throws IOException if the archive can't be finished or a file can't be synced
+   */
+  void finishOutput() throws IOException {
+    if (channelWriter != null) {
+      channelWriter.finish();
+    }
+    if (archive == null) {
+      return;
+    }
+    LOGGER.info("Finishing archive {} with {} files", archive.getFile(), archive.getEntryCount());
+    try {
+      archive.close();
+    }
+    finally {
+      archive = null;
+    }
+  }
+
+  /**
+   * Sets the metrics that rendering and writing files are recorded in.
+   *
+   * @param metrics non-null RunMetrics of the current run
+   */
+  void setMetrics(RunMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Writes the report of a run next to the generated files, as JSON.
+   *
+   * @param runMetrics non-null RunMetrics of the run to report on
+   * @throws IOException if the report can't be written
+   */
+  void writeRunReport(RunMetrics runMetrics) throws IOException {
+    LOGGER.info("Writing run report to file {}", REPORT_LOCATION);
+    Writer reportWriter = getFileWriter(REPORT_LOCATION);
+    try {
+      runMetrics.writeReport(reportWriter);
+    }
+    finally {
+      reportWriter.close();
+    }
   }
 
   /**
@@ -80,84 +317,744 @@ class FileGenerator {
    * @throws IOException if one of the files is not created properly
    */
   void generateFiles(List<Person> people) throws IOException {
-    LOGGER.info("Creating root file directoy {}", STUDENT_PAGES_FOLDER);
-    if (!directory.mkdir() && !directory.exists()) {
-      throw new IOException(String.format("Directory %s was not created successfully", STUDENT_PAGES_FOLDER));
-    }
-    writeStyleCssFile();
+    createDirectory();
+    List<DirectorySharding.Shard> shards = splitDirectory(getLastNames(people));
 
     LOGGER.info("Creating directory page.");
-    FileWriter directoryFileWriter = getFileWriter(DIRECTORY_LOCATION);
-    directoryFileWriter.write(TOP_HTML_ENTRIES);
-    directoryFileWriter.write(String.format(HEAD_FORMAT, "Directory Page", CSS_FILE_NAME));
-    directoryFileWriter.write(BODY_AND_TABLE);
+    DirectoryPages directoryPages = new DirectoryPages(shards, summarize(people));
+    try {
+      for (int i = 0; i < people.size(); i++) {
+        Person person = people.get(i);
+        templates.getDirectoryLink().render(directoryPages.getLinks(), person.getFileName(), person.getName());
+        directoryPages.index(person);
+        if (i < people.size() - 1) {
+          generateFile(person, people.get(i + 1), getShard(shards, i));
+        }
+        else {
+          generateFile(person, null, getShard(shards, i));
+        }
+        directoryPages.endEntry(i);
+      }
+      directoryPages.finish();
+    }
+    finally {
+      directoryPages.close();
+    }
+    finishManifest();
+  }
 
+  /**
+   * Generates an html file for each person in the list given, rendering and writing the profile pages on a pool of
+   * worker threads while the directory page is written. The files are the same as those of
+   * {@link #generateFiles(List)}. A page that fails does not stop the others from being written; every failure is
+   * reported together once all pages are done.
+   *
+   * @param people      a non-null list of Person objects
+   * @param parallelism positive number of worker threads to write profile pages with
+   * @throws IOException if the directory or style sheet can't be created, or any profile page fails
+   */
+  void generateFiles(List<Person> people, int parallelism) throws IOException {
+    createDirectory();
+    List<DirectorySharding.Shard> shards = splitDirectory(getLastNames(people));
+
+    LOGGER.info("Writing {} profile pages on {} threads", people.size(), parallelism);
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<?>> pages = new ArrayList<>(people.size());
+      for (int i = 0; i < people.size(); i++) {
+        Person person = people.get(i);
+        Person nextPerson = i < people.size() - 1 ? people.get(i + 1) : null;
+        DirectorySharding.Shard shard = getShard(shards, i);
+        pages.add(workers.submit(() -> {
+          generateFile(person, nextPerson, shard);
+          return null;
+        }));
+      }
+
+      Map<Integer, Throwable> failures = new TreeMap<>();
+      writeDirectoryPage(people, shards, failures);
+      for (int i = 0; i < pages.size(); i++) {
+        awaitPage(pages.get(i), i, failures);
+      }
+      finishManifest();
+      if (!failures.isEmpty()) {
+        throw new PageGenerationException(failures, people);
+      }
+    }
+    finally {
+      workers.shutdownNow();
+    }
+  }
+
+  /**
+   * Updates the files of a run after people were added to it: the pages of the added people, the pages whose
+   * "Next Student" link now points to one of them, the pages whose link back to a split directory changed, and the
+   * directory. The other pages are left as they are.
+   * Must be called after {@link #generateFiles(List)} has written the files of the people before the additions.
+   *
+   * @param people non-null list of every Person, including the added ones, in the order of the directory
+   * @param added  non-null Person objects of the list that were added since the files were last written
+   * @throws IOException if any of the files can't be written
+   */
+  void updateFiles(List<Person> people, Collection<Person> added) throws IOException {
+    Set<Person> addedPeople = Collections.newSetFromMap(new IdentityHashMap<>());
+    addedPeople.addAll(added);
+    SortedSet<Integer> changed = new TreeSet<>();
     for (int i = 0; i < people.size(); i++) {
-      Person person = people.get(i);
-      directoryFileWriter.write(String.format(LINK_FORMAT, person.getFileName(), person.getName()));
-      if (i < people.size() - 1) {
-        generateFile(person, people.get(i + 1));
+      if (addedPeople.contains(people.get(i))) {
+        changed.add(i);
+        if (i > 0) {
+          changed.add(i - 1);
+        }
+      }
+    }
+
+    List<DirectorySharding.Shard> shards = splitDirectory(getLastNames(people));
+    if (shards != null) {
+      addMovedPages(people, addedPeople, shards, changed);
+    }
+
+    LOGGER.info("Updating {} profile pages for {} added people", changed.size(), addedPeople.size());
+    for (int i : changed) {
+      generateFile(people.get(i), i < people.size() - 1 ? people.get(i + 1) : null, getShard(shards, i));
+    }
+    Map<Integer, Throwable> failures = new TreeMap<>();
+    writeDirectoryPage(people, shards, failures);
+    if (manifest != null) {
+      writeManifest();
+    }
+    if (!failures.isEmpty()) {
+      throw new PageGenerationException(failures, people);
+    }
+  }
+
+  /**
+   * Adds the pages of the people whose link back to the directory changed with the additions: those now listed on
+   * another page, and those whose page got another label. When the directory is split into pages of a fixed size,
+   * that is usually everyone after the first addition.
+   */
+  private void addMovedPages(List<Person> people, Set<Person> addedPeople, List<DirectorySharding.Shard> shards,
+                             SortedSet<Integer> changed) {
+    List<String> previousLastNames = new ArrayList<>(people.size());
+    for (Person person : people) {
+      if (!addedPeople.contains(person)) {
+        previousLastNames.add(person.getLastName());
+      }
+    }
+    List<DirectorySharding.Shard> previousShards = splitDirectory(previousLastNames);
+    int previousIndex = 0;
+    for (int i = 0; i < people.size(); i++) {
+      if (addedPeople.contains(people.get(i))) {
+        continue;
+      }
+      DirectorySharding.Shard previous = getShard(previousShards, previousIndex++);
+      DirectorySharding.Shard current = getShard(shards, i);
+      if (!previous.getFileName().equals(current.getFileName()) || !previous.getLabel().equals(current.getLabel())) {
+        changed.add(i);
+      }
+    }
+  }
+
+  private void writeDirectoryPage(List<Person> people, List<DirectorySharding.Shard> shards,
+                                  Map<Integer, Throwable> failures) throws IOException {
+    LOGGER.info("Creating directory page.");
+    DirectoryPages directoryPages = new DirectoryPages(shards, summarize(people));
+    try {
+      StringBuilder links = directoryPages.getLinks();
+      for (int i = 0; i < people.size(); i++) {
+        Person person = people.get(i);
+        int linkStart = links.length();
+        try {
+          templates.getDirectoryLink().render(links, person.getFileName(), person.getName());
+          directoryPages.index(person);
+        }
+        catch (RuntimeException invalidPerson) {
+          links.setLength(linkStart);
+          failures.put(i, invalidPerson);
+        }
+        directoryPages.endEntry(i);
+      }
+      directoryPages.finish();
+    }
+    finally {
+      directoryPages.close();
+    }
+  }
+
+  /**
+   * Summarizes the responses of everyone in one pass, if an answer summary is written.
+   *
+   * @return the summary, or null if no answer summary is written
+   */
+  private AnswerSummary summarize(List<Person> people) {
+    if (!answerSummary) {
+      return null;
+    }
+    long start = System.nanoTime();
+    AnswerSummary summary = AnswerSummary.summarize(people);
+    metrics.record(Stage.SUMMARIZE, start);
+    return summary;
+  }
+
+  private void writeAnswerSummary(AnswerSummary summary) throws IOException {
+    LOGGER.info("Writing answer summary of {} questions", summary.getQuestions().size());
+    RenderBuffer buffer = buffers.get();
+    summary.renderPage(buffer.startPage(), CSS_FILE_NAME);
+    writeFile(ANSWER_SUMMARY_PAGE_LOCATION, buffer);
+
+    StringWriter report = new StringWriter();
+    summary.writeReport(report);
+    buffer.startPage().append(report.getBuffer());
+    writeFile(ANSWER_SUMMARY_REPORT_LOCATION, buffer);
+  }
+
+  private void writeSearchIndex(SearchIndex searchIndex) throws IOException {
+    if (archive == null && pageSnapshot == null) {
+      File searchFolder = resolve(SEARCH_LOCATION);
+      if (!searchFolder.mkdirs() && !searchFolder.isDirectory()) {
+        throw new IOException(String.format("Directory %s was not created successfully", searchFolder));
+      }
+    }
+    RenderBuffer buffer = buffers.get();
+    buffer.startPage().append(SearchIndex.getScript());
+    writeFile(SEARCH_LOCATION + FOLDER_SEPARATOR + SearchIndex.SCRIPT_FILE_NAME, buffer);
+
+    long indexLength = 0;
+    for (String shard : searchIndex.getShards()) {
+      searchIndex.renderShard(shard, buffer.startPage());
+      indexLength += writeFile(SEARCH_LOCATION + FOLDER_SEPARATOR + String.format(SearchIndex.SHARD_FILE_FORMAT, shard),
+              buffer);
+    }
+    metrics.setSearchIndexSize(indexLength, searchIndex.size());
+    LOGGER.info("Search index of {} people takes {} bytes, {} per person", searchIndex.size(), indexLength,
+            searchIndex.size() == 0 ? 0 : indexLength / searchIndex.size());
+  }
+
+  private List<DirectorySharding.Shard> splitDirectory(List<String> lastNames) {
+    return directorySharding == null ? null : directorySharding.split(lastNames);
+  }
+
+  private static List<String> getLastNames(List<Person> people) {
+    List<String> lastNames = new ArrayList<>(people.size());
+    for (Person person : people) {
+      lastNames.add(person.getLastName());
+    }
+    return lastNames;
+  }
+
+  /**
+   * Finds the shard that lists the person at an index of the directory.
+   *
+   * @return the shard, or null if the directory is not split
+   */
+  private static DirectorySharding.Shard getShard(List<DirectorySharding.Shard> shards, int index) {
+    if (shards == null) {
+      return null;
+    }
+    int low = 0;
+    int high = shards.size() - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (shards.get(middle).getStart() <= index) {
+        low = middle;
       }
       else {
-        generateFile(person, null);
+        high = middle - 1;
       }
     }
-    directoryFileWriter.write(END_TABLE);
-    directoryFileWriter.write(BOTTOM_HTML_ENTRIES);
-    directoryFileWriter.close();
+    return shards.get(low);
   }
 
-  private void writeStyleCssFile() throws IOException {
-    FileWriter fileWriter = getFileWriter(CSS_LOCATION);
-    LOGGER.info("Writing css file data to file {}", CSS_LOCATION);
-    fileWriter.write(CSS_DATA);
-    fileWriter.close();
+  private void renderDirectoryBackLink(StringBuilder link, DirectorySharding.Shard shard) {
+    if (shard != null) {
+      templates.getDirectoryBackLink().render(link, shard.getFileName(), shard.getLabel());
+    }
   }
 
-  private void generateFile(Person person, Person nextPerson) throws IOException {
-    String name = person.getName();
-    LOGGER.info("Creating and writing file for {}", name);
-    FileWriter fileWriter = getFileWriter(String.format(FILE_NAME_FORMAT, STUDENT_PAGES_FOLDER, person.getFileName()));
+  /**
+   * Opens the directory page before the profile pages are written. In incremental mode the directory page may not
+   * need to be written at all, an archive can only write one entry at a time, and FileChannels write whole pages, so
+   * in those cases it is only opened once its content is known.
+   */
+  private Writer openDirectoryPage() throws IOException {
+    return manifest == null && archive == null && channelWriter == null && pageSnapshot == null
+            ? getFileWriter(DIRECTORY_LOCATION) : null;
+  }
+
+  private void closeDirectoryPage(Writer directoryFileWriter) throws IOException {
+    if (directoryFileWriter != null) {
+      directoryFileWriter.close();
+    }
+  }
 
-    fileWriter.write(TOP_HTML_ENTRIES);
-    fileWriter.write(String.format(HEAD_FORMAT, name, CSS_FILE_NAME));
-    if (nextPerson == null) {
-      fileWriter.write(String.format(TABLE_FORMAT, person.getImageLink(), name, ""));
+  private void writeDirectoryPage(Writer directoryFileWriter, CharSequence links, CharSequence search)
+          throws IOException {
+    RenderBuffer buffer = buffers.get();
+    StringBuilder page = buffer.startPage();
+    templates.getDirectory().render(page, CSS_FILE_NAME, links, search);
+    if (directoryFileWriter == null) {
+      writeFile(DIRECTORY_LOCATION, buffer);
     }
     else {
-      String link = String.format(LINK_TO_NEXT_PAGE, nextPerson.getFileName(), nextPerson.getName());
-      fileWriter.write(String.format(TABLE_FORMAT, person.getImageLink(), name, link));
+      long start = System.nanoTime();
+      buffer.writeTo(directoryFileWriter);
+      directoryFileWriter.flush();
+      metrics.record(Stage.WRITE, start);
+      metrics.addBytesWritten(getBytesWritten(directoryFileWriter, buffer));
     }
+  }
 
-    Map<String, String> data = person.getData();
-    for (String header : data.keySet()) {
-      String entry = data.get(header);
-      if (entry.isEmpty() || entry.equalsIgnoreCase("N/A")) {
-        continue;
+  /**
+   * Writes the page in a buffer to a file, unless the manifest shows the file already holds it.
+   *
+   * @return number of bytes the file takes, whether or not it was written
+   */
+  private long writeFile(String location, RenderBuffer buffer) throws IOException {
+    String hash = null;
+    if (manifest != null) {
+      hash = buffer.hash();
+      if (manifest.isUnchanged(location, hash) && fileExists(location)) {
+        LOGGER.debug("File {} is unchanged", location);
+        manifest.record(location, hash);
+        return resolve(location).length();
       }
+    }
 
-      if (header.endsWith(":")) {
-        fileWriter.write(String.format(COLON_ENTRY_FORMAT, header, entry));
+    long start = System.nanoTime();
+    long bytes;
+    if (pageSnapshot != null) {
+      bytes = pageSnapshot.put(location, buffer.toChars(), buffer.page.length());
+    }
+    else if (channelWriter != null && archive == null) {
+      bytes = channelWriter.write(resolve(location).toPath(), buffer.toChars(), buffer.page.length());
+    }
+    else {
+      Writer fileWriter = getFileWriter(location);
+      try {
+        buffer.writeTo(fileWriter);
       }
-      else {
-        fileWriter.write(String.format(ENTRY_FORMAT, header, entry));
+      finally {
+        fileWriter.close();
+      }
+      bytes = getBytesWritten(fileWriter, buffer);
+    }
+    metrics.record(Stage.WRITE, start);
+    metrics.addBytesWritten(bytes);
+    if (manifest != null) {
+      manifest.record(location, hash);
+    }
+    return bytes;
+  }
+
+  /**
+   * Gets the number of bytes a page took once written with the given Writer. Writers that don't encode, such as those
+   * of unit tests, hold characters, so the characters are counted.
+   */
+  private static long getBytesWritten(Writer writer, RenderBuffer buffer) {
+    return writer instanceof ByteCountingWriter ? ((ByteCountingWriter) writer).getByteCount() : buffer.page.length();
+  }
+
+  private void startManifest() throws IOException {
+    manifest = incremental ? PageManifest.read(getFileReader(MANIFEST_LOCATION)) : null;
+  }
+
+  private void finishManifest() throws IOException {
+    if (manifest == null) {
+      return;
+    }
+    for (String removedFile : manifest.getRemovedFiles()) {
+      LOGGER.info("Deleting file {} of a person who was removed", removedFile);
+      if (!deleteFile(removedFile)) {
+        LOGGER.warn("Unable to delete file {}", removedFile);
+      }
+    }
+    writeManifest();
+  }
+
+  private void writeManifest() throws IOException {
+    Writer manifestWriter = getFileWriter(MANIFEST_LOCATION);
+    try {
+      manifest.write(manifestWriter);
+    }
+    finally {
+      manifestWriter.close();
+    }
+  }
+
+  private void awaitPage(Future<?> page, int position, Map<Integer, Throwable> failures) throws IOException {
+    try {
+      page.get();
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for profile pages to be written");
+    }
+    catch (ExecutionException executionException) {
+      // A person the directory could not list fails there first, and that is the failure reported
+      failures.putIfAbsent(position, executionException.getCause());
+    }
+  }
+
+  private void createDirectory() throws IOException {
+    if (pageSnapshot != null) {
+      if (incremental || archiveFile != null) {
+        throw new IllegalStateException("Files stored to be served can't be written incrementally or into an archive");
+      }
+      writeStyleCssFile();
+      return;
+    }
+    if (archiveFile != null) {
+      if (incremental) {
+        throw new IllegalStateException("Incremental runs can't write into an archive");
+      }
+      if (archive == null) {
+        LOGGER.info("Creating archive {}", archiveFile);
+        archive = new PageArchive(archiveFile);
       }
+      writeStyleCssFile();
+      return;
     }
 
-    fileWriter.write(BOTTOM_HTML_ENTRIES);
-    fileWriter.close();
+    LOGGER.info("Creating root file directoy {}", STUDENT_PAGES_FOLDER);
+    if (outputFolder != null && !outputFolder.mkdirs() && !outputFolder.isDirectory()) {
+      throw new IOException(String.format("Directory %s was not created successfully", outputFolder));
+    }
+    if (!directory.mkdir() && !directory.exists()) {
+      throw new IOException(String.format("Directory %s was not created successfully", STUDENT_PAGES_FOLDER));
+    }
+    startManifest();
+    writeStyleCssFile();
   }
 
+  private void writeStyleCssFile() throws IOException {
+    LOGGER.info("Writing css file data to file {}", CSS_LOCATION);
+    RenderBuffer buffer = buffers.get();
+    buffer.startPage().append(templates.getStyleSheet());
+    writeFile(CSS_LOCATION, buffer);
+  }
+
+  private void generateFile(Person person, Person nextPerson, DirectorySharding.Shard shard) throws IOException {
+    long start = System.nanoTime();
+    String name = person.getName();
+    LOGGER.debug("Creating and writing file for {}", name);
+    RenderBuffer buffer = buffers.get();
+    StringBuilder nextLink = buffer.startNextLink();
+    if (nextPerson != null) {
+      templates.getNextLink().render(nextLink, nextPerson.getFileName(), nextPerson.getName());
+    }
+    renderDirectoryBackLink(nextLink, shard);
+    renderPage(person, name, buffer, -1);
+    metrics.record(Stage.RENDER, start);
+    writeFile(STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR + person.getFileName(), buffer);
+  }
+
+  private int renderPage(Person person, String name, RenderBuffer buffer, int markedSlot) {
+    StringBuilder entries = buffer.startEntries();
+    Map<String, String> data = person.getData();
+    for (Map.Entry<String, String> response : data.entrySet()) {
+      renderEntry(entries, response.getKey(), response.getValue());
+    }
+
+    CharSequence[] values = buffer.profileValues;
+    values[PageTemplates.PROFILE_NAME] = name;
+    values[PageTemplates.PROFILE_STYLE_SHEET] = CSS_FILE_NAME;
+    String imageName = imageNames.get(person.getImageLink());
+    values[PageTemplates.PROFILE_IMAGE] = imageName == null ? person.getImageLink()
+            : IMAGE_FOLDER + FOLDER_SEPARATOR + imageName;
+    values[PageTemplates.PROFILE_NEXT] = buffer.nextLink;
+    values[PageTemplates.PROFILE_ENTRIES] = entries;
+    return templates.getProfile().render(buffer.startPage(), markedSlot, values);
+  }
+
+  private void renderEntry(StringBuilder entries, String header, String entry) {
+    if (entry.isEmpty() || entry.equalsIgnoreCase(NOT_APPLICABLE)) {
+      return;
+    }
+
+    if (header.endsWith(COLON)) {
+      templates.getColonEntry().render(entries, header, entry);
+    }
+    else {
+      templates.getEntry().render(entries, header, entry);
+    }
+  }
 
   /**
-   * Creates a FileWriter to use to write an individual file. Package protected so unit tests can override and mock.
+   * Renders the page of a person without the "Next Student" link, which can only be known once the people are
+   * sorted. The page is split into the part before the link and the part after it.
+   *
+   * @param person non-null Person to render the page of
+   * @return the part of the page before the link and the part of the page after the link
+   */
+  String[] renderPageParts(Person person) {
+    long start = System.nanoTime();
+    RenderBuffer buffer = buffers.get();
+    buffer.startNextLink();
+    int linkStart = renderPage(person, person.getName(), buffer, PageTemplates.PROFILE_NEXT);
+    if (linkStart == -1) {
+      linkStart = buffer.page.length();
+    }
+    String[] parts = {buffer.page.substring(0, linkStart), buffer.page.substring(linkStart)};
+    metrics.record(Stage.RENDER, start);
+    return parts;
+  }
+
+  /**
+   * Generates an html file for each page held in the spool, in the order given. Produces the same files as
+   * {@link #generateFiles(List)} does for the people the pages were rendered from.
+   *
+   * @param pages         non-null list of pages in the order they should appear in the directory
+   * @param spool         non-null PageSpool which holds the rendered pages
+   * @param answerSummary AnswerSummary of the people the pages were rendered from, as started by
+   *                      {@link #newAnswerSummary()}, or null if no answer summary is written
+   * @throws IOException if one of the files is not created properly
+   */
+  void generateFiles(List<PageSpool.Page> pages, PageSpool spool, AnswerSummary answerSummary) throws IOException {
+    createDirectory();
+    List<String> lastNames = new ArrayList<>(pages.size());
+    for (PageSpool.Page page : pages) {
+      lastNames.add(page.getLastName());
+    }
+    List<DirectorySharding.Shard> shards = splitDirectory(lastNames);
+
+    LOGGER.info("Creating directory page.");
+    DirectoryPages directoryPages = new DirectoryPages(shards, answerSummary);
+    try {
+      RenderBuffer buffer = buffers.get();
+      for (int i = 0; i < pages.size(); i++) {
+        PageSpool.Page page = pages.get(i);
+        templates.getDirectoryLink().render(directoryPages.getLinks(), page.getFileName(), page.getName());
+        directoryPages.index(page.getName(), page.getSearchTerms());
+
+        LOGGER.debug("Writing spooled file for {}", page.getName());
+        String[] parts = spool.read(page);
+        StringBuilder content = buffer.startPage();
+        content.append(parts[0]);
+        if (i < pages.size() - 1) {
+          PageSpool.Page nextPage = pages.get(i + 1);
+          templates.getNextLink().render(content, nextPage.getFileName(), nextPage.getName());
+        }
+        renderDirectoryBackLink(content, getShard(shards, i));
+        content.append(parts[1]);
+        writeFile(STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR + page.getFileName(), buffer);
+        directoryPages.endEntry(i);
+      }
+      directoryPages.finish();
+    }
+    finally {
+      directoryPages.close();
+    }
+    finishManifest();
+  }
+
+  /**
+   * Creates a Writer to use to write an individual file, an entry of the archive once one is being written, or a
+   * file of the PageStore snapshot files are stored in. Package protected so unit tests can override and mock.
    *
    * @param fileName name of file to be created
-   * @return FileWriter to use to write to file
+   * @return Writer to use to write to file
    * @throws IOException if file isn't successfully created
    */
-  FileWriter getFileWriter(String fileName) throws IOException {
-    return new FileWriter(fileName);
+  Writer getFileWriter(String fileName) throws IOException {
+    if (pageSnapshot != null) {
+      return pageSnapshot.openPage(fileName);
+    }
+    if (archive != null) {
+      return archive.openEntry(fileName);
+    }
+    // Encodes like a FileWriter, but counts the bytes written
+    return new ByteCountingWriter(new FileOutputStream(resolve(fileName)), Charset.defaultCharset());
   }
 
+  /**
+   * Creates an OutputStream to use to write a binary file, creating its folder if needed. Package protected so unit
+   * tests can override and mock.
+   *
+   * @param fileName name of file to be created
+   * @return OutputStream to use to write to file
+   * @throws IOException if file isn't successfully created
+   */
+  OutputStream getFileOutputStream(String fileName) throws IOException {
+    File file = resolve(fileName);
+    File folder = file.getParentFile();
+    if (folder != null && !folder.mkdirs() && !folder.isDirectory()) {
+      throw new IOException(String.format("Directory %s was not created successfully", folder));
+    }
+    return new FileOutputStream(file);
+  }
+
+  /**
+   * Creates a Reader to read a file written by a previous run. Package protected so unit tests can override and mock.
+   *
+   * @param fileName name of file to be read
+   * @return Reader to use to read the file, or null if the file doesn't exist
+   * @throws IOException if file can't be opened
+   */
+  Reader getFileReader(String fileName) throws IOException {
+    File file = resolve(fileName);
+    return file.isFile() ? new FileReader(file) : null;
+  }
+
+  /**
+   * Checks whether a file written by a previous run still exists. Package protected so unit tests can override.
+   *
+   * @param fileName name of file to check
+   * @return if the file exists
+   */
+  boolean fileExists(String fileName) {
+    return resolve(fileName).isFile();
+  }
+
+  /**
+   * Deletes a file written by a previous run. Package protected so unit tests can override.
+   *
+   * @param fileName name of file to delete
+   * @return if the file was deleted
+   */
+  boolean deleteFile(String fileName) {
+    return resolve(fileName).delete();
+  }
+
+  private File resolve(String fileName) {
+    return outputFolder == null ? new File(fileName) : new File(outputFolder, fileName);
+  }
+
+  /**
+   * The directory as its links are added in order. Without sharding it is one page, opened before the links are added
+   * when it can be. With sharding, each shard is written as soon as its last link is added, and the directory page
+   * that links to every shard is written at the end. The answer summary, if one is written, is linked first from the
+   * directory page.
+   */
+  private class DirectoryPages {
+
+    private final List<DirectorySharding.Shard> shards;
+    private final SearchIndex searchIndex;
+    private final AnswerSummary answerSummary;
+    private final Writer directoryFileWriter;
+    private final StringBuilder links = new StringBuilder();
+    private final StringBuilder shardLinks = new StringBuilder();
+    private int shardIndex;
+
+    private DirectoryPages(List<DirectorySharding.Shard> shards, AnswerSummary answerSummary) throws IOException {
+      this.shards = shards;
+      this.searchIndex = searchColumns == null ? null : new SearchIndex();
+      this.answerSummary = answerSummary;
+      this.directoryFileWriter = shards == null ? openDirectoryPage() : null;
+      if (answerSummary != null) {
+        templates.getDirectoryLink().render(shards == null ? links : shardLinks, AnswerSummary.PAGE_FILE_NAME,
+                AnswerSummary.PAGE_TITLE);
+      }
+    }
+
+    /**
+     * Gets the links of the page being filled, which the link of the next person is rendered into.
+     */
+    private StringBuilder getLinks() {
+      return links;
+    }
+
+    /**
+     * Adds the person whose link was just added to the search index, if one is written.
+     */
+    private void index(Person person) {
+      if (searchIndex != null) {
+        long start = System.nanoTime();
+        searchIndex.add(person.getName(), SearchIndex.getTerms(person, searchColumns));
+        metrics.record(Stage.INDEX, start);
+      }
+    }
+
+    /**
+     * Adds the person whose link was just added to the search index, if one is written, with terms found earlier.
+     */
+    private void index(String name, String[] searchTerms) {
+      if (searchIndex != null) {
+        long start = System.nanoTime();
+        searchIndex.add(name, searchTerms);
+        metrics.record(Stage.INDEX, start);
+      }
+    }
+
+    /**
+     * Ends the link of the person at an index of the directory, which writes their shard if they are its last person.
+     */
+    private void endEntry(int index) throws IOException {
+      if (shards == null) {
+        return;
+      }
+      DirectorySharding.Shard shard = shards.get(shardIndex);
+      if (index < shard.getEnd() - 1) {
+        return;
+      }
+      LOGGER.debug("Writing directory page {}", shard.getFileName());
+      templates.getDirectoryLink().render(shardLinks, shard.getFileName(), shard.getLabel());
+      RenderBuffer buffer = buffers.get();
+      templates.getDirectory().render(buffer.startPage(), CSS_FILE_NAME, links, "");
+      writeFile(STUDENT_PAGES_FOLDER + FOLDER_SEPARATOR + shard.getFileName(), buffer);
+      links.setLength(0);
+      shardIndex++;
+    }
+
+    private void finish() throws IOException {
+      if (shards != null) {
+        LOGGER.info("Linking {} directory pages", shards.size());
+      }
+      if (searchIndex != null) {
+        writeSearchIndex(searchIndex);
+      }
+      if (answerSummary != null) {
+        writeAnswerSummary(answerSummary);
+      }
+      writeDirectoryPage(directoryFileWriter, shards == null ? links : shardLinks,
+              searchIndex == null ? "" : SearchIndex.SEARCH_BOX);
+    }
+
+    private void close() throws IOException {
+      closeDirectoryPage(directoryFileWriter);
+    }
+  }
+
+  /**
+   * Buffers reused for every page rendered on one thread, so rendering a page doesn't allocate new ones.
+   */
+  private static class RenderBuffer {
+
+    private final StringBuilder page = new StringBuilder();
+    private final StringBuilder entries = new StringBuilder();
+    private final StringBuilder nextLink = new StringBuilder();
+    private final CharSequence[] profileValues = new CharSequence[PageTemplates.PROFILE_ENTRIES + 1];
+    private char[] chars = new char[0];
+
+    private StringBuilder startPage() {
+      page.setLength(0);
+      return page;
+    }
+
+    private StringBuilder startEntries() {
+      entries.setLength(0);
+      return entries;
+    }
+
+    private StringBuilder startNextLink() {
+      nextLink.setLength(0);
+      return nextLink;
+    }
+
+    private void writeTo(Writer writer) throws IOException {
+      writer.write(toChars(), 0, page.length());
+    }
+
+    private String hash() {
+      return PageManifest.hash(toChars(), page.length());
+    }
+
+    private char[] toChars() {
+      int length = page.length();
+      if (chars.length < length) {
+        chars = new char[Math.max(length, chars.length * 2)];
+      }
+      page.getChars(0, length, chars, 0);
+      return chars;
+    }
+  }
 }
@@ -0,0 +1,264 @@
+package service;
+
+import model.Person;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads the image of every person before the pages are rendered, so the pages can show small local copies instead
+ * of full-size originals from other hosts. Links are fetched concurrently on a bounded pool, with at most a few requests
+ * to any one host at a time. Each image is downscaled to fit the size the style sheet displays it at and stored under
+ * the hash of its content, so an image shared by many people, such as a default avatar, is stored once, and an image
+ * stored by a previous run is not stored again. Images that can't be fetched or read keep their original link.
+ */
+class ImagePrefetcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImagePrefetcher.class);
+
+  static final int THUMBNAIL_SIZE = 200;
+  static final String JPEG_FORMAT = "jpg";
+  static final String PNG_FORMAT = "png";
+  private static final int CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(10);
+  private static final int READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
+  private static final int MAX_IMAGE_BYTES = 20 * 1024 * 1024;
+  private static final int READ_BUFFER_SIZE = 8192;
+
+  private final int threads;
+  private final int perHostLimit;
+  private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+  private final Map<String, String> storedImages = new ConcurrentHashMap<>();
+  private RunMetrics metrics = new RunMetrics();
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param threads      positive number of images to fetch at once
+   * @param perHostLimit positive number of images to fetch at once from any one host
+   */
+  ImagePrefetcher(int threads, int perHostLimit) {
+    this.threads = threads;
+    this.perHostLimit = perHostLimit;
+  }
+
+  /**
+   * Sets the metrics that fetching and downscaling images are recorded in.
+   *
+   * @param metrics non-null RunMetrics of the current run
+   */
+  void setMetrics(RunMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Fetches, downscales and stores the image of every person. Each distinct link is fetched once.
+   *
+   * @param people        non-null list of Person objects whose images to fetch
+   * @param fileGenerator non-null FileGenerator to store the images with
+   * @return the name of the stored image of each link that was fetched, by link
+   * @throws IOException if interrupted while waiting for the images
+   */
+  Map<String, String> prefetch(List<Person> people, FileGenerator fileGenerator) throws IOException {
+    Set<String> links = new LinkedHashSet<>();
+    for (Person person : people) {
+      if (isFetchable(person.getImageLink())) {
+        links.add(person.getImageLink());
+      }
+    }
+    return prefetch(links, fileGenerator);
+  }
+
+  private Map<String, String> prefetch(Collection<String> links, FileGenerator fileGenerator) throws IOException {
+    Map<String, String> images = new LinkedHashMap<>();
+    if (links.isEmpty()) {
+      return images;
+    }
+
+    LOGGER.info("Fetching {} images on {} threads, {} per host", links.size(), threads, perHostLimit);
+    ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, links.size()));
+    try {
+      Map<String, Future<String>> pending = new LinkedHashMap<>();
+      for (String link : links) {
+        pending.put(link, workers.submit(() -> fetchAndStore(link, fileGenerator)));
+      }
+      for (Map.Entry<String, Future<String>> image : pending.entrySet()) {
+        String imageName = awaitImage(image.getKey(), image.getValue());
+        if (imageName != null) {
+          images.put(image.getKey(), imageName);
+        }
+      }
+    }
+    finally {
+      workers.shutdownNow();
+    }
+    LOGGER.info("Stored images for {} of {} links", images.size(), links.size());
+    return images;
+  }
+
+  private String awaitImage(String link, Future<String> image) throws IOException {
+    try {
+      return image.get();
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for images to be fetched");
+    }
+    catch (ExecutionException executionException) {
+      LOGGER.warn("Unable to fetch image {}, keeping the original link", link, executionException.getCause());
+      return null;
+    }
+  }
+
+  private String fetchAndStore(String link, FileGenerator fileGenerator) throws IOException {
+    long start = System.nanoTime();
+    byte[] original = fetch(new URL(link));
+    metrics.record(Stage.FETCH_IMAGE, start);
+
+    String hash = PageManifest.hash(original);
+    String storedName = storedImages.get(hash);
+    if (storedName != null) {
+      return storedName;
+    }
+    for (String format : new String[] {JPEG_FORMAT, PNG_FORMAT}) {
+      String imageName = hash + "." + format;
+      if (fileGenerator.imageExists(imageName)) {
+        LOGGER.debug("Image {} was stored by a previous run", link);
+        storedImages.putIfAbsent(hash, imageName);
+        return imageName;
+      }
+    }
+
+    start = System.nanoTime();
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(original));
+    if (image == null) {
+      throw new IOException(String.format("Link is not an image in a readable format. Link given was=%s", link));
+    }
+    boolean transparent = image.getColorModel().hasAlpha();
+    String format = transparent ? PNG_FORMAT : JPEG_FORMAT;
+    ByteArrayOutputStream thumbnail = new ByteArrayOutputStream();
+    ImageIO.write(downscale(image, transparent), format, thumbnail);
+    metrics.record(Stage.THUMBNAIL, start);
+
+    String imageName = hash + "." + format;
+    // Links with the same content are fetched concurrently, so only the first one to finish stores the image
+    String existingName = storedImages.putIfAbsent(hash, imageName);
+    if (existingName != null) {
+      return existingName;
+    }
+    try {
+      fileGenerator.writeImage(imageName, thumbnail.toByteArray());
+    }
+    catch (IOException | RuntimeException writeFailure) {
+      storedImages.remove(hash, imageName);
+      throw writeFailure;
+    }
+    return imageName;
+  }
+
+  private byte[] fetch(URL url) throws IOException {
+    Semaphore host = hosts.computeIfAbsent(url.getHost().toLowerCase(), name -> new Semaphore(perHostLimit));
+    try {
+      host.acquire();
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to fetch an image");
+    }
+    try {
+      URLConnection connection = url.openConnection();
+      connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+      connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+      if (connection instanceof HttpURLConnection) {
+        int status = ((HttpURLConnection) connection).getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+          throw new IOException(String.format("Image request failed with status %d. Link given was=%s", status, url));
+        }
+      }
+      try (InputStream input = connection.getInputStream()) {
+        return read(input, url);
+      }
+    }
+    finally {
+      host.release();
+    }
+  }
+
+  private byte[] read(InputStream input, URL url) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[READ_BUFFER_SIZE];
+    for (int length = input.read(buffer); length != -1; length = input.read(buffer)) {
+      bytes.write(buffer, 0, length);
+      if (bytes.size() > MAX_IMAGE_BYTES) {
+        throw new IOException(String.format("Image is larger than %d bytes. Link given was=%s", MAX_IMAGE_BYTES, url));
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Scales an image down to fit within THUMBNAIL_SIZE on both sides, keeping its proportions. The size is halved
+   * step by step, since one bilinear step from a much larger image skips most of its pixels. Smaller images keep
+   * their size.
+   */
+  private BufferedImage downscale(BufferedImage image, boolean transparent) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    double scale = Math.min(1, (double) THUMBNAIL_SIZE / Math.max(width, height));
+    int targetWidth = Math.max(1, (int) Math.round(width * scale));
+    int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+    BufferedImage result = image;
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+      result = draw(result, width, height, transparent);
+    }
+    while (width > targetWidth || height > targetHeight);
+    return result;
+  }
+
+  private BufferedImage draw(BufferedImage image, int width, int height, boolean transparent) {
+    // JPEG has no alpha channel, so opaque images are redrawn without one
+    BufferedImage result = new BufferedImage(width, height,
+            transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = result.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(image, 0, 0, width, height, null);
+    }
+    finally {
+      graphics.dispose();
+    }
+    return result;
+  }
+
+  private static boolean isFetchable(String link) {
+    String lowerCaseLink = link.toLowerCase();
+    return lowerCaseLink.startsWith("http://") || lowerCaseLink.startsWith("https://");
+  }
+}
@@ -0,0 +1,23 @@
+package service;
+
+/**
+ * How responses containing characters outside of ASCII are written to the generated pages.
+ */
+public enum NormalizationPolicy {
+
+  /**
+   * Removes accents from letters and drops every other character outside of ASCII (the original behavior).
+   */
+  STRIP,
+
+  /**
+   * Like STRIP, but spells out letters and punctuation that have no accent to remove, such as "ß" as "ss" or curly
+   * quotes as straight quotes, instead of dropping them.
+   */
+  TRANSLITERATE,
+
+  /**
+   * Keeps responses exactly as they were entered.
+   */
+  KEEP
+}
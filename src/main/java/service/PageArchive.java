@@ -0,0 +1,125 @@
+package service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zip archive that the files of a run are streamed into, one entry per file, instead of being written as loose
+ * files. Entries are named like the files they replace (such as "studentPages/style.css"), so extracting the archive
+ * gives the same folder. Nothing is buffered on disk. Entries can be written from several threads, but only one at a
+ * time: opening an entry waits until the entry being written is closed.
+ */
+class PageArchive implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File file;
+  private final ZipOutputStream zip;
+  private final ReentrantLock entryLock = new ReentrantLock();
+  private int entries;
+
+  /**
+   * Creates the archive, replacing any file of the same name.
+   *
+   * @param file non-null File which is the zip archive to create
+   * @throws IOException if the archive can't be created
+   */
+  PageArchive(File file) throws IOException {
+    File folder = file.getAbsoluteFile().getParentFile();
+    if (folder != null && !folder.isDirectory() && !folder.mkdirs()) {
+      throw new IOException(String.format("Directory %s was not created successfully", folder));
+    }
+    this.file = file;
+    this.zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE),
+            StandardCharsets.UTF_8);
+    // Pages are small and repetitive, so the fastest level compresses nearly as well at a fraction of the time
+    zip.setLevel(Deflater.BEST_SPEED);
+  }
+
+  /**
+   * Starts a new entry. The entry is finished when the returned Writer is closed, which must happen on the thread
+   * that opened it. Text is encoded as UTF-8, and the Writer is a ByteCountingWriter.
+   *
+   * @param name non-null name of the entry, with folders separated by "/"
+   * @return Writer to write the content of the entry with
+   * @throws IOException if the entry can't be started
+   */
+  Writer openEntry(String name) throws IOException {
+    entryLock.lock();
+    try {
+      zip.putNextEntry(new ZipEntry(name));
+      entries++;
+    }
+    catch (IOException | RuntimeException entryFailure) {
+      entryLock.unlock();
+      throw entryFailure;
+    }
+    return new ByteCountingWriter(new FilterOutputStream(zip) {
+      private boolean closed;
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        try {
+          zip.closeEntry();
+        }
+        finally {
+          entryLock.unlock();
+        }
+      }
+    }, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the number of entries written so far.
+   *
+   * @return number of entries
+   */
+  int getEntryCount() {
+    return entries;
+  }
+
+  /**
+   * Gets the file the archive is written to.
+   *
+   * @return the zip archive
+   */
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * Writes the central directory of the archive and closes it.
+   *
+   * @throws IOException if the archive can't be finished
+   */
+  @Override
+  public void close() throws IOException {
+    entryLock.lock();
+    try {
+      zip.close();
+    }
+    finally {
+      entryLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the files of a run back out of the zip archive a PageArchive wrote, either one at a time (to serve them) or
+ * all at once (to extract them into a folder).
+ */
+public class PageArchiveReader implements Closeable {
+
+  private final ZipFile zipFile;
+
+  /**
+   * Opens an archive.
+   *
+   * @param archive non-null File which is the zip archive to read
+   * @throws IOException if the archive can't be opened
+   */
+  public PageArchiveReader(File archive) throws IOException {
+    zipFile = new ZipFile(archive, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the names of every file in the archive, in the order they were written.
+   *
+   * @return names of the files, with folders separated by "/"
+   */
+  List<String> getFileNames() {
+    List<String> names = new ArrayList<>();
+    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+    while (entries.hasMoreElements()) {
+      ZipEntry entry = entries.nextElement();
+      if (!entry.isDirectory()) {
+        names.add(entry.getName());
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Whether the archive holds a file of the given name.
+   *
+   * @param name non-null name of the file, with folders separated by "/"
+   * @return if the file is in the archive
+   */
+  boolean contains(String name) {
+    ZipEntry entry = zipFile.getEntry(name);
+    return entry != null && !entry.isDirectory();
+  }
+
+  /**
+   * Opens one file of the archive.
+   *
+   * @param name non-null name of the file, with folders separated by "/"
+   * @return InputStream of the uncompressed content, to be closed by the caller
+   * @throws IOException if the file is not in the archive or can't be read
+   */
+  InputStream open(String name) throws IOException {
+    ZipEntry entry = zipFile.getEntry(name);
+    if (entry == null || entry.isDirectory()) {
+      throw new FileNotFoundException(String.format("No file %s in archive %s", name, zipFile.getName()));
+    }
+    return zipFile.getInputStream(entry);
+  }
+
+  /**
+   * Extracts every file of the archive into a folder, keeping the folders of the archive.
+   *
+   * @param folder non-null File which is the folder to extract into, created if missing
+   * @return number of files extracted
+   * @throws IOException if a file can't be written, or an entry would be written outside of the folder
+   */
+  public int extractTo(File folder) throws IOException {
+    Path root = folder.toPath().toAbsolutePath().normalize();
+    int extracted = 0;
+    for (String name : getFileNames()) {
+      Path target = root.resolve(name).normalize();
+      if (!target.startsWith(root)) {
+        throw new IOException(String.format("Entry %s of archive %s is outside of the folder", name,
+                zipFile.getName()));
+      }
+      Files.createDirectories(target.getParent());
+      try (InputStream content = open(name)) {
+        Files.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      extracted++;
+    }
+    return extracted;
+  }
+
+  @Override
+  public void close() throws IOException {
+    zipFile.close();
+  }
+}
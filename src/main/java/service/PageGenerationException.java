@@ -0,0 +1,66 @@
+package service;
+
+import model.Person;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Thrown when one or more profile pages could not be generated. Every other page has still been written.
+ */
+class PageGenerationException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final SortedMap<Integer, Throwable> failures;
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param failures non-empty map of the position in the directory of each person whose page failed to the reason it
+   *                 failed
+   * @param people   non-null list of every Person, in the order of the directory
+   */
+  PageGenerationException(Map<Integer, Throwable> failures, List<Person> people) {
+    super(String.format("%d profile page(s) failed to generate: %s", failures.size(), describe(failures, people)),
+            failures.values().iterator().next());
+    this.failures = Collections.unmodifiableSortedMap(new TreeMap<>(failures));
+    for (Throwable failure : failures.values()) {
+      if (failure != getCause()) {
+        addSuppressed(failure);
+      }
+    }
+  }
+
+  /**
+   * Gets the reason each failed page failed. People who share a name, and so a file name, are told apart by their
+   * position.
+   *
+   * @return map of the position in the directory of each person whose page failed to the reason it failed
+   */
+  SortedMap<Integer, Throwable> getFailures() {
+    return failures;
+  }
+
+  private static List<String> describe(Map<Integer, Throwable> failures, List<Person> people) {
+    List<String> descriptions = new ArrayList<>(failures.size());
+    for (int position : failures.keySet()) {
+      descriptions.add(describe(people.get(position)));
+    }
+    return descriptions;
+  }
+
+  private static String describe(Person person) {
+    try {
+      return person.getFileName();
+    }
+    catch (RuntimeException invalidPerson) {
+      return String.valueOf(person.getData());
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content hashes of the files written by the previous run, kept in the output folder so a rerun only rewrites the
+ * files whose content changed and deletes the files of people who were removed. Safe to use from several threads.
+ */
+class PageManifest {
+
+  static final String MANIFEST_FILE_NAME = ".manifest";
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String SEPARATOR = "\t";
+  private static final String UNKNOWN = "";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance(HASH_ALGORITHM);
+    }
+    catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+      throw new IllegalStateException(HASH_ALGORITHM + " is not available", noSuchAlgorithmException);
+    }
+  });
+  private static final ThreadLocal<byte[]> BYTES = ThreadLocal.withInitial(() -> new byte[0]);
+
+  private final Map<String, String> previous;
+  private final Map<String, String> current = new ConcurrentHashMap<>();
+
+  private PageManifest(Map<String, String> previous) {
+    this.previous = previous;
+  }
+
+  /**
+   * Reads the manifest written by the previous run.
+   *
+   * @param reader Reader of the previous manifest, or null if there was no previous run
+   * @return the manifest
+   * @throws IOException if the manifest can't be read
+   */
+  static PageManifest read(Reader reader) throws IOException {
+    Map<String, String> previous = new HashMap<>();
+    if (reader != null) {
+      try (BufferedReader lines = new BufferedReader(reader)) {
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+          int separatorIndex = line.indexOf(SEPARATOR);
+          if (separatorIndex != -1) {
+            previous.put(line.substring(separatorIndex + 1), line.substring(0, separatorIndex));
+          }
+        }
+      }
+    }
+    return new PageManifest(previous);
+  }
+
+  /**
+   * Hashes the content of a file.
+   *
+   * @param content non-null characters of the file
+   * @param length  number of characters of the content to hash
+   * @return hex encoded hash of the content
+   */
+  static String hash(char[] content, int length) {
+    byte[] bytes = BYTES.get();
+    if (bytes.length < length * 2) {
+      bytes = new byte[length * 2];
+      BYTES.set(bytes);
+    }
+    for (int i = 0; i < length; i++) {
+      bytes[2 * i] = (byte) (content[i] >> 8);
+      bytes[2 * i + 1] = (byte) content[i];
+    }
+    MessageDigest digest = DIGESTS.get();
+    digest.update(bytes, 0, length * 2);
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Hashes the content of a binary file, such as an image.
+   *
+   * @param content non-null bytes of the file
+   * @return hex encoded hash of the content
+   */
+  static String hash(byte[] content) {
+    return toHex(DIGESTS.get().digest(content));
+  }
+
+  private static String toHex(byte[] hash) {
+    char[] hex = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Marks a file as part of this run and reports whether the previous run wrote the same content.
+   *
+   * @param fileName non-null name of the file
+   * @param hash     non-null hash of the file content
+   * @return if the file content is unchanged since the previous run
+   */
+  boolean isUnchanged(String fileName, String hash) {
+    current.putIfAbsent(fileName, UNKNOWN);
+    return hash.equals(previous.get(fileName));
+  }
+
+  /**
+   * Records that a file has been written (or was already up to date) with the given content.
+   *
+   * @param fileName non-null name of the file
+   * @param hash     non-null hash of the file content
+   */
+  void record(String fileName, String hash) {
+    current.put(fileName, hash);
+  }
+
+  /**
+   * Gets the files that the previous run wrote but this run did not.
+   *
+   * @return names of the removed files
+   */
+  Set<String> getRemovedFiles() {
+    Set<String> removed = new TreeSet<>(previous.keySet());
+    removed.removeAll(current.keySet());
+    return removed;
+  }
+
+  /**
+   * Writes the manifest of this run. Files that failed to write are left out so that the next run writes them again.
+   *
+   * @param writer non-null Writer to write the manifest to
+   * @throws IOException if the manifest can't be written
+   */
+  void write(Writer writer) throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (Map.Entry<String, String> file : new TreeMap<>(current).entrySet()) {
+      if (!file.getValue().equals(UNKNOWN)) {
+        content.append(file.getValue()).append(SEPARATOR).append(file.getKey()).append('\n');
+      }
+    }
+    writer.write(content.toString());
+  }
+}
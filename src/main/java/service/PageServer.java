@@ -0,0 +1,211 @@
+package service;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lightweight HTTP server for the files of a PageStore, built on the HTTP server of the JDK. A path is the name of a
+ * file in the studentPages folder, and "/" is the directory page. Responses are the bytes the store prepared,
+ * compressed with gzip for clients that accept it, with an ETag so that a client that already has the file gets an
+ * empty 304 Not Modified, and with a Cache-Control header saying how long clients may keep the file without asking
+ * again.
+ * Only GET and HEAD are answered.
+ */
+class PageServer implements Closeable {
+
+  private static final int OK = 200;
+  private static final int NOT_MODIFIED = 304;
+  private static final int NOT_FOUND = 404;
+  private static final int METHOD_NOT_ALLOWED = 405;
+  private static final int NO_BODY = -1;
+  private static final String GET = "GET";
+  private static final String HEAD = "HEAD";
+  private static final String GZIP = "gzip";
+  private static final String ANY = "*";
+  private static final String WEAK_PREFIX = "W/";
+  private static final String INDEX_PATH = "/";
+  private static final String NO_CACHE = "no-cache";
+  private static final String MAX_AGE_FORMAT = "public, max-age=%d";
+  private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+  static {
+    // The JDK server sends the headers and the body in separate writes, so with Nagle's algorithm on, every response
+    // waits for the delayed ACK of its headers, about 40 ms. The property is read once, when the first server starts.
+    if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+      System.setProperty(NO_DELAY_PROPERTY, Boolean.TRUE.toString());
+    }
+  }
+
+  private final PageStore store;
+  private final String cacheControl;
+  private final ExecutorService executor;
+  private final HttpServer server;
+
+  /**
+   * Starts serving the files of a store.
+   *
+   * @param store         non-null PageStore whose published files are served
+   * @param port          port to listen on, or 0 for any free port
+   * @param threads       positive number of threads that answer requests
+   * @param maxAgeSeconds non-negative number of seconds clients may use a file without asking whether it changed; 0
+   *                      means they always ask, which costs them an empty 304 response while it is unchanged
+   * @throws IOException if the server can't listen on the port
+   */
+  PageServer(PageStore store, int port, int threads, int maxAgeSeconds) throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException(String.format("Must serve on at least one thread. Value given was=%d",
+              threads));
+    }
+    if (maxAgeSeconds < 0) {
+      throw new IllegalArgumentException(String.format("Max age must not be negative. Value given was=%d",
+              maxAgeSeconds));
+    }
+    this.store = store;
+    this.cacheControl = maxAgeSeconds == 0 ? NO_CACHE : String.format(MAX_AGE_FORMAT, maxAgeSeconds);
+    this.executor = Executors.newFixedThreadPool(threads);
+    try {
+      server = HttpServer.create(new InetSocketAddress(port), 0);
+    }
+    catch (IOException | RuntimeException bindFailure) {
+      executor.shutdownNow();
+      throw bindFailure;
+    }
+    server.createContext(INDEX_PATH, this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Gets the port the server listens on, which is useful when any free port was asked for.
+   *
+   * @return the port
+   */
+  int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stops the server, dropping requests that are still being answered.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      Headers responseHeaders = exchange.getResponseHeaders();
+      if (!GET.equals(method) && !HEAD.equals(method)) {
+        responseHeaders.set("Allow", GET + ", " + HEAD);
+        exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, NO_BODY);
+        return;
+      }
+
+      String path = exchange.getRequestURI().getPath();
+      PageStore.StoredPage page = store.get(FileGenerator.STUDENT_PAGES_FOLDER
+              + (INDEX_PATH.equals(path) ? INDEX_PATH + FileGenerator.DIRECTORY_FILE_NAME : path));
+      if (page == null) {
+        exchange.sendResponseHeaders(NOT_FOUND, NO_BODY);
+        return;
+      }
+
+      Headers requestHeaders = exchange.getRequestHeaders();
+      boolean gzip = acceptsGzip(requestHeaders.get("Accept-Encoding"));
+      responseHeaders.set("Content-Type", page.getContentType());
+      responseHeaders.set("ETag", page.getEntityTag(gzip));
+      responseHeaders.set("Cache-Control", cacheControl);
+      responseHeaders.set("Vary", "Accept-Encoding");
+      if (matches(requestHeaders.get("If-None-Match"), page)) {
+        exchange.sendResponseHeaders(NOT_MODIFIED, NO_BODY);
+        return;
+      }
+
+      if (gzip) {
+        responseHeaders.set("Content-Encoding", GZIP);
+      }
+      byte[] content = page.getContent(gzip);
+      if (HEAD.equals(method)) {
+        responseHeaders.set("Content-Length", String.valueOf(content.length));
+        exchange.sendResponseHeaders(OK, NO_BODY);
+        return;
+      }
+      exchange.sendResponseHeaders(OK, content.length);
+      // The stored bytes are written as they are, without being copied, encoded or compressed again
+      OutputStream body = exchange.getResponseBody();
+      body.write(content);
+      body.close();
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Checks whether an Accept-Encoding header allows gzip, as "gzip" or "*" without a quality of 0.
+   */
+  private static boolean acceptsGzip(List<String> acceptEncodings) {
+    if (acceptEncodings == null) {
+      return false;
+    }
+    for (String acceptEncoding : acceptEncodings) {
+      for (String coding : acceptEncoding.split(",")) {
+        String[] parameters = coding.split(";");
+        String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+        if ((GZIP.equals(name) || ANY.equals(name)) && !isRefused(parameters)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isRefused(String[] parameters) {
+    for (int i = 1; i < parameters.length; i++) {
+      String parameter = parameters[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2)) == 0;
+        }
+        catch (NumberFormatException invalidQuality) {
+          return false;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether an If-None-Match header names the file the client already has. Either encoding of the file counts,
+   * since both are the same content.
+   */
+  private static boolean matches(List<String> ifNoneMatches, PageStore.StoredPage page) {
+    if (ifNoneMatches == null) {
+      return false;
+    }
+    for (String ifNoneMatch : ifNoneMatches) {
+      for (String tag : ifNoneMatch.split(",")) {
+        String entityTag = tag.trim();
+        if (entityTag.startsWith(WEAK_PREFIX)) {
+          entityTag = entityTag.substring(WEAK_PREFIX.length());
+        }
+        if (ANY.equals(entityTag) || entityTag.equals(page.getEntityTag(false))
+                || entityTag.equals(page.getEntityTag(true))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,149 @@
+package service;
+
+import model.Person;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+
+/**
+ * Temporary file that holds rendered pages until the order of the people, and so their "Next Student" links, is
+ * known. Only a small Page key per person is kept in memory.
+ */
+class PageSpool implements Closeable {
+
+  private static final String SPOOL_PREFIX = "surveyParser";
+  private static final String SPOOL_SUFFIX = ".spool";
+
+  private final File file;
+  private final OutputStream output;
+  private RandomAccessFile input;
+  private long length;
+
+  /**
+   * Default Constructor. Creates the spool in the temporary directory.
+   *
+   * @throws IOException if the spool file can't be created
+   */
+  PageSpool() throws IOException {
+    this(File.createTempFile(SPOOL_PREFIX, SPOOL_SUFFIX));
+  }
+
+  /**
+   * Constructor used only for unit testing.
+   *
+   * @param file non-null File to hold the spooled pages
+   * @throws IOException if the spool file can't be opened
+   */
+  PageSpool(File file) throws IOException {
+    this.file = file;
+    this.output = new BufferedOutputStream(new FileOutputStream(file));
+  }
+
+  /**
+   * Appends the rendered page of a person to the spool.
+   *
+   * @param person      non-null Person the page was rendered from
+   * @param sortKey     non-null key of the person made by {@link RosterOrder#getSortKey(Person)}
+   * @param parts       the part of the page before and the part after the "Next Student" link
+   * @param searchTerms terms the search index holds for the person, or null if no index is written
+   * @return key used to sort the page and read it back
+   * @throws IOException if the page can't be written
+   */
+  Page append(Person person, byte[][] sortKey, String[] parts, String[] searchTerms) throws IOException {
+    byte[] start = parts[0].getBytes(StandardCharsets.UTF_8);
+    byte[] end = parts[1].getBytes(StandardCharsets.UTF_8);
+    output.write(start);
+    output.write(end);
+
+    Page page = new Page(sortKey, person.getLastName(), person.getName(), person.getFileName(), searchTerms, length,
+            start.length, end.length);
+    length += start.length + end.length;
+    return page;
+  }
+
+  /**
+   * Reads a page back from the spool. Must only be called once every page has been appended.
+   *
+   * @param page non-null Page returned by {@link #append(Person, byte[][], String[], String[])}
+   * @return the part of the page before and the part after the "Next Student" link
+   * @throws IOException if the page can't be read
+   */
+  String[] read(Page page) throws IOException {
+    if (input == null) {
+      output.close();
+      input = new RandomAccessFile(file, "r");
+    }
+    byte[] bytes = new byte[page.startLength + page.endLength];
+    input.seek(page.offset);
+    input.readFully(bytes);
+    return new String[] {new String(bytes, 0, page.startLength, StandardCharsets.UTF_8),
+            new String(bytes, page.startLength, page.endLength, StandardCharsets.UTF_8)};
+  }
+
+  /**
+   * Closes and deletes the spool file.
+   *
+   * @throws IOException if the spool file can't be closed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      output.close();
+      if (input != null) {
+        input.close();
+      }
+    }
+    finally {
+      if (!file.delete() && file.exists()) {
+        file.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Key of a spooled page. Holds only what is needed to order the directory, build the "Next Student" links and
+   * the search index.
+   */
+  static class Page {
+
+    static final Comparator<Page> ORDER = (p1, p2) -> RosterOrder.compare(p1.sortKey, p2.sortKey);
+
+    private final byte[][] sortKey;
+    private final String lastName;
+    private final String name;
+    private final String fileName;
+    private final String[] searchTerms;
+    private final long offset;
+    private final int startLength;
+    private final int endLength;
+
+    private Page(byte[][] sortKey, String lastName, String name, String fileName, String[] searchTerms, long offset,
+                 int startLength, int endLength) {
+      this.sortKey = sortKey;
+      this.lastName = lastName;
+      this.name = name;
+      this.fileName = fileName;
+      this.searchTerms = searchTerms;
+      this.offset = offset;
+      this.startLength = startLength;
+      this.endLength = endLength;
+    }
+
+    String getLastName() {
+      return lastName;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getFileName() {
+      return fileName;
+    }
+
+    String[] getSearchTerms() {
+      return searchTerms;
+    }
+  }
+}
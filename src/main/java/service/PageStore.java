@@ -0,0 +1,172 @@
+package service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The files of a run kept in memory to be served by a PageServer, instead of being written to disk. Every file is
+ * encoded as UTF-8, compressed with gzip and hashed once when it is stored, so requests are answered with bytes that
+ * are ready to send. Files are rendered into a Snapshot, which replaces the files being served all at once when it is
+ * published: a request sees either every file of the previous run or every file of the new one.
+ */
+class PageStore {
+
+  private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+  private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+  static {
+    CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+    CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+    CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+    CONTENT_TYPES.put("json", "application/json; charset=utf-8");
+  }
+
+  private volatile Map<String, StoredPage> pages = Collections.emptyMap();
+
+  /**
+   * Gets a file of the last published snapshot.
+   *
+   * @param name non-null name of the file, as FileGenerator names it (such as "studentPages/style.css")
+   * @return the file, or null if the snapshot has no file of that name
+   */
+  StoredPage get(String name) {
+    return pages.get(name);
+  }
+
+  /**
+   * Gets the number of files being served.
+   *
+   * @return files in the last published snapshot
+   */
+  int size() {
+    return pages.size();
+  }
+
+  /**
+   * Replaces every file being served with the files of a snapshot. Requests already being answered finish with the
+   * files they found.
+   *
+   * @param snapshot non-null Snapshot holding every file of a run, which must not be changed afterwards
+   */
+  void publish(Snapshot snapshot) {
+    pages = Collections.unmodifiableMap(new HashMap<>(snapshot.pages));
+  }
+
+  /**
+   * Files of one run, as they are rendered. Files can be stored from several threads at once.
+   */
+  static class Snapshot {
+
+    private final Map<String, StoredPage> pages = new ConcurrentHashMap<>();
+
+    /**
+     * Stores a file, replacing a file of the same name.
+     *
+     * @param name    non-null name of the file
+     * @param content non-null characters of the file
+     * @param length  number of characters of the content that belong to the file
+     * @return number of bytes the file takes once encoded
+     */
+    int put(String name, char[] content, int length) {
+      byte[] bytes = new String(content, 0, length).getBytes(StandardCharsets.UTF_8);
+      pages.put(name, new StoredPage(getContentType(name), bytes));
+      return bytes.length;
+    }
+
+    /**
+     * Opens a file to be written as text. The file is stored when the Writer is closed.
+     *
+     * @param name non-null name of the file
+     * @return Writer to write the file with
+     */
+    Writer openPage(String name) {
+      return new StringWriter() {
+        @Override
+        public void close() {
+          pages.put(name, new StoredPage(getContentType(name), toString().getBytes(StandardCharsets.UTF_8)));
+        }
+      };
+    }
+
+    /**
+     * Gets the number of files stored.
+     *
+     * @return files in the snapshot
+     */
+    int size() {
+      return pages.size();
+    }
+  }
+
+  private static String getContentType(String name) {
+    String contentType = CONTENT_TYPES.get(name.substring(name.lastIndexOf('.') + 1));
+    return contentType == null ? DEFAULT_CONTENT_TYPE : contentType;
+  }
+
+  /**
+   * One file ready to be sent: its bytes as they are and compressed with gzip, and an entity tag for each of them
+   * taken from the hash of the content.
+   */
+  static class StoredPage {
+
+    private final String contentType;
+    private final byte[] content;
+    private final byte[] gzipContent;
+    private final String entityTag;
+    private final String gzipEntityTag;
+
+    private StoredPage(String contentType, byte[] content) {
+      this.contentType = contentType;
+      this.content = content;
+      this.gzipContent = gzip(content);
+      String hash = PageManifest.hash(content);
+      // Each encoding is a representation of its own, so the two need different strong entity tags
+      this.entityTag = '"' + hash + '"';
+      this.gzipEntityTag = '"' + hash + "-gzip\"";
+    }
+
+    String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * Gets the content, which must not be changed.
+     *
+     * @param gzip if the content compressed with gzip is wanted
+     * @return the bytes to send
+     */
+    byte[] getContent(boolean gzip) {
+      return gzip ? gzipContent : content;
+    }
+
+    /**
+     * Gets the entity tag of the content, quoted as it is sent in an ETag header.
+     *
+     * @param gzip if the tag of the content compressed with gzip is wanted
+     * @return the entity tag
+     */
+    String getEntityTag(boolean gzip) {
+      return gzip ? gzipEntityTag : entityTag;
+    }
+
+    private static byte[] gzip(byte[] content) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4 + 32);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+        gzip.write(content);
+      }
+      catch (IOException ioException) {
+        throw new UncheckedIOException(ioException);
+      }
+      return compressed.toByteArray();
+    }
+  }
+}
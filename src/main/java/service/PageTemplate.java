@@ -0,0 +1,91 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Page layout compiled once into a fixed sequence of literal chunks and slots. Slots are written as {{name}} in the
+ * template source and are filled, in order, with the values given when rendering.
+ */
+class PageTemplate {
+
+  private static final String SLOT_START = "{{";
+  private static final String SLOT_END = "}}";
+
+  private final String[] literals;
+  private final int[] slots;
+
+  private PageTemplate(String[] literals, int[] slots) {
+    this.literals = literals;
+    this.slots = slots;
+  }
+
+  /**
+   * Compiles a template source. Each slot in the source must be one of the slot names given; the position of the name
+   * is the position of the value that fills the slot when rendering. Slots may be used more than once or not at all.
+   *
+   * @param source    non-null template source
+   * @param slotNames names of the slots the template may use
+   * @return the compiled template
+   */
+  static PageTemplate compile(String source, String... slotNames) {
+    List<String> names = Arrays.asList(slotNames);
+    List<String> literals = new ArrayList<>();
+    List<Integer> slots = new ArrayList<>();
+
+    int position = 0;
+    int slotStart = source.indexOf(SLOT_START);
+    while (slotStart != -1) {
+      int slotEnd = source.indexOf(SLOT_END, slotStart + SLOT_START.length());
+      if (slotEnd == -1) {
+        throw new IllegalArgumentException(String.format("Template has an unclosed slot at index=%d", slotStart));
+      }
+      String name = source.substring(slotStart + SLOT_START.length(), slotEnd).trim();
+      int slot = names.indexOf(name);
+      if (slot == -1) {
+        throw new IllegalArgumentException(String.format("Template uses unknown slot=%s. Known slots are=%s",
+                name, names));
+      }
+      literals.add(source.substring(position, slotStart));
+      slots.add(slot);
+      position = slotEnd + SLOT_END.length();
+      slotStart = source.indexOf(SLOT_START, position);
+    }
+    literals.add(source.substring(position));
+
+    return new PageTemplate(literals.toArray(new String[literals.size()]),
+            slots.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /**
+   * Renders the template into the given buffer.
+   *
+   * @param out    non-null buffer to append the rendered template to
+   * @param values non-null values of the slots, in the order of the slot names the template was compiled with
+   */
+  void render(StringBuilder out, CharSequence... values) {
+    render(out, -1, values);
+  }
+
+  /**
+   * Renders the template into the given buffer and reports where the first use of the marked slot was written.
+   *
+   * @param out        non-null buffer to append the rendered template to
+   * @param markedSlot position of the slot to report
+   * @param values     non-null values of the slots, in the order of the slot names the template was compiled with
+   * @return index in the buffer where the value of the marked slot starts, or -1 if the template doesn't use it
+   */
+  int render(StringBuilder out, int markedSlot, CharSequence... values) {
+    int mark = -1;
+    for (int i = 0; i < slots.length; i++) {
+      out.append(literals[i]);
+      if (slots[i] == markedSlot && mark == -1) {
+        mark = out.length();
+      }
+      out.append(values[slots[i]]);
+    }
+    out.append(literals[slots.length]);
+    return mark;
+  }
+}
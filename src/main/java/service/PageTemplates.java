@@ -0,0 +1,171 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * The set of compiled templates used to generate the student pages. The defaults produce the original pages of the
+ * application; any of them can be replaced by a file of the same name in a template directory.
+ */
+class PageTemplates {
+
+  static final String PROFILE_FILE = "profile.html";
+  static final String NEXT_LINK_FILE = "next-link.html";
+  static final String ENTRY_FILE = "entry.html";
+  static final String COLON_ENTRY_FILE = "colon-entry.html";
+  static final String DIRECTORY_FILE = "directory.html";
+  static final String DIRECTORY_LINK_FILE = "directory-link.html";
+  static final String DIRECTORY_BACK_LINK_FILE = "directory-back-link.html";
+  static final String STYLE_SHEET_FILE = "style.css";
+
+  static final int PROFILE_NAME = 0;
+  static final int PROFILE_STYLE_SHEET = 1;
+  static final int PROFILE_IMAGE = 2;
+  static final int PROFILE_NEXT = 3;
+  static final int PROFILE_ENTRIES = 4;
+  private static final String[] PROFILE_SLOTS = {"name", "css", "image", "next", "entries"};
+
+  static final int DIRECTORY_STYLE_SHEET = 0;
+  static final int DIRECTORY_LINKS = 1;
+  static final int DIRECTORY_SEARCH = 2;
+  private static final String[] DIRECTORY_SLOTS = {"css", "links", "search"};
+
+  static final int LINK_FILE = 0;
+  static final int LINK_NAME = 1;
+  private static final String[] LINK_SLOTS = {"file", "name"};
+
+  static final int ENTRY_HEADER = 0;
+  static final int ENTRY_VALUE = 1;
+  private static final String[] ENTRY_SLOTS = {"header", "value"};
+
+  private static final String HEAD = "<!DOCTYPE html><html><head><title>%s Profile</title>" +
+          "<link rel=\"stylesheet\"type=\"text/css\" href=\"{{css}}\"></head>";
+  private static final String LINK = "<a href=\"{{file}}\">{{name}}</a>";
+
+  static final String DEFAULT_PROFILE = String.format(HEAD, "{{name}}") + "<body><table><tr><td>" +
+          "<img src=\"{{image}}\"></td><td><h1>{{name}}</h1>{{next}}</td></tr></table>{{entries}}</body></html>";
+  static final String DEFAULT_NEXT_LINK = "<br><b>Next Student: </b>" + LINK;
+  static final String DEFAULT_ENTRY = "<b>{{header}}: </b>{{value}}<br>";
+  static final String DEFAULT_COLON_ENTRY = "<b>{{header}} </b>{{value}}<br>";
+  static final String DEFAULT_DIRECTORY = String.format(HEAD, "Directory Page") +
+          "<body>{{search}}<table>{{links}}</table></body></html>";
+  static final String DEFAULT_DIRECTORY_LINK = "<tr>" + LINK + "</tr><br>";
+  static final String DEFAULT_DIRECTORY_BACK_LINK = "<br><b>Directory: </b>" + LINK;
+  static final String DEFAULT_STYLE_SHEET = "body {\n" +
+          "  background: lightyellow;\n" +
+          "}\n" +
+          "\n" +
+          "img {\n" +
+          "  max-height: 200px;\n" +
+          "  max-width: 200px;\n" +
+          "  padding:0px;\n" +
+          "  border-width:0px;\n" +
+          "  margin:0px;\n" +
+          "}\n";
+
+  private final PageTemplate profile;
+  private final PageTemplate nextLink;
+  private final PageTemplate entry;
+  private final PageTemplate colonEntry;
+  private final PageTemplate directory;
+  private final PageTemplate directoryLink;
+  private final PageTemplate directoryBackLink;
+  private final String styleSheet;
+
+  /**
+   * Default Constructor. Uses the original layout of the application.
+   */
+  PageTemplates() {
+    this(DEFAULT_PROFILE, DEFAULT_NEXT_LINK, DEFAULT_ENTRY, DEFAULT_COLON_ENTRY, DEFAULT_DIRECTORY,
+            DEFAULT_DIRECTORY_LINK, DEFAULT_DIRECTORY_BACK_LINK, DEFAULT_STYLE_SHEET);
+  }
+
+  /**
+   * Constructor that takes in the source of every template.
+   *
+   * @param profile           non-null source of a profile page, with slots name, css, image, next and entries
+   * @param nextLink          non-null source of the "Next Student" link, with slots file and name
+   * @param entry             non-null source of one response, with slots header and value
+   * @param colonEntry        non-null source of one response whose header ends in a colon, with slots header and value
+   * @param directory         non-null source of the directory page, with slots css, links and search, which holds
+   *                          the search box when a search index is written
+   * @param directoryLink     non-null source of one directory link, with slots file and name
+   * @param directoryBackLink non-null source of the link from a profile to the directory page that lists it, when the
+   *                          directory is split into several pages, with slots file and name
+   * @param styleSheet        non-null content of the style sheet
+   */
+  PageTemplates(String profile, String nextLink, String entry, String colonEntry, String directory,
+                String directoryLink, String directoryBackLink, String styleSheet) {
+    this.profile = PageTemplate.compile(profile, PROFILE_SLOTS);
+    this.nextLink = PageTemplate.compile(nextLink, LINK_SLOTS);
+    this.entry = PageTemplate.compile(entry, ENTRY_SLOTS);
+    this.colonEntry = PageTemplate.compile(colonEntry, ENTRY_SLOTS);
+    this.directory = PageTemplate.compile(directory, DIRECTORY_SLOTS);
+    this.directoryLink = PageTemplate.compile(directoryLink, LINK_SLOTS);
+    this.directoryBackLink = PageTemplate.compile(directoryBackLink, LINK_SLOTS);
+    this.styleSheet = styleSheet;
+  }
+
+  /**
+   * Loads the templates from a directory. Templates missing from the directory keep their default.
+   *
+   * @param templateDirectory non-null directory holding any of the template files
+   * @return the compiled templates
+   * @throws IOException if a template file can't be read
+   */
+  static PageTemplates load(File templateDirectory) throws IOException {
+    if (!templateDirectory.isDirectory()) {
+      throw new IllegalArgumentException(String.format("Template directory %s does not exist", templateDirectory));
+    }
+    return new PageTemplates(read(templateDirectory, PROFILE_FILE, DEFAULT_PROFILE),
+            read(templateDirectory, NEXT_LINK_FILE, DEFAULT_NEXT_LINK),
+            read(templateDirectory, ENTRY_FILE, DEFAULT_ENTRY),
+            read(templateDirectory, COLON_ENTRY_FILE, DEFAULT_COLON_ENTRY),
+            read(templateDirectory, DIRECTORY_FILE, DEFAULT_DIRECTORY),
+            read(templateDirectory, DIRECTORY_LINK_FILE, DEFAULT_DIRECTORY_LINK),
+            read(templateDirectory, DIRECTORY_BACK_LINK_FILE, DEFAULT_DIRECTORY_BACK_LINK),
+            read(templateDirectory, STYLE_SHEET_FILE, DEFAULT_STYLE_SHEET));
+  }
+
+  private static String read(File templateDirectory, String fileName, String defaultTemplate) throws IOException {
+    File file = new File(templateDirectory, fileName);
+    if (!file.isFile()) {
+      return defaultTemplate;
+    }
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  PageTemplate getProfile() {
+    return profile;
+  }
+
+  PageTemplate getNextLink() {
+    return nextLink;
+  }
+
+  PageTemplate getEntry() {
+    return entry;
+  }
+
+  PageTemplate getColonEntry() {
+    return colonEntry;
+  }
+
+  PageTemplate getDirectory() {
+    return directory;
+  }
+
+  PageTemplate getDirectoryLink() {
+    return directoryLink;
+  }
+
+  PageTemplate getDirectoryBackLink() {
+    return directoryBackLink;
+  }
+
+  String getStyleSheet() {
+    return styleSheet;
+  }
+}
@@ -0,0 +1,242 @@
+package service;
+
+import model.Person;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes of the responses of a parsed roster, built once so that any number of RosterQueries can be answered without
+ * scanning the responses of every person. Every column gets a hash index from each response to the people who gave it.
+ * Columns with few distinct responses, such as multiple choice questions, keep a bitmap per response instead, which
+ * AND, OR and NOT combine a word of 64 people at a time. People are numbered in the order of the roster, and results
+ * keep that order.
+ */
+public class RosterIndex {
+
+  static final int BITMAP_CARDINALITY_LIMIT = 64;
+
+  private final List<Person> people;
+  private final Map<String, ColumnIndex> columns = new LinkedHashMap<>();
+
+  /**
+   * Constructor that indexes every response of the given people. Only columns someone answered are indexed.
+   *
+   * @param people non-null list of Person objects, usually as returned by DataParser.parseData
+   */
+  public RosterIndex(List<Person> people) {
+    this(Collections.emptyList(), people);
+  }
+
+  /**
+   * Constructor that indexes every response of the given people, and every given column even if nobody answered it.
+   * Querying such a column matches nobody, while querying a column that is not in the roster is rejected.
+   *
+   * @param headers non-null headers of the columns of the roster, usually as returned by
+   *                DataParser.getResponseHeaders
+   * @param people  non-null list of Person objects, usually as returned by DataParser.parseData
+   */
+  public RosterIndex(Collection<String> headers, List<Person> people) {
+    this.people = Collections.unmodifiableList(new ArrayList<>(people));
+    Map<String, Map<String, Postings>> responses = new LinkedHashMap<>();
+    for (String header : headers) {
+      responses.put(header, new HashMap<>());
+    }
+    for (int id = 0; id < this.people.size(); id++) {
+      for (Map.Entry<String, String> response : this.people.get(id).getData().entrySet()) {
+        if (response.getValue() == null) {
+          continue;
+        }
+        responses.computeIfAbsent(response.getKey(), column -> new HashMap<>())
+                .computeIfAbsent(response.getValue(), value -> new Postings()).add(id);
+      }
+    }
+    for (Map.Entry<String, Map<String, Postings>> column : responses.entrySet()) {
+      columns.put(column.getKey(), new ColumnIndex(column.getValue()));
+    }
+  }
+
+  /**
+   * Gets the number of people indexed.
+   *
+   * @return people in the roster
+   */
+  public int size() {
+    return people.size();
+  }
+
+  /**
+   * Gets the headers of the indexed columns.
+   *
+   * @return the headers, in the order of the columns
+   */
+  public Set<String> getColumns() {
+    return Collections.unmodifiableSet(columns.keySet());
+  }
+
+  /**
+   * Gets the distinct responses to a column.
+   *
+   * @param column non-null header of the column
+   * @return the responses
+   */
+  public Set<String> getValues(String column) {
+    return Collections.unmodifiableSet(getColumn(column).getValues());
+  }
+
+  /**
+   * Whether the responses to a column are kept as bitmaps, which it is when the column has at most
+   * {@value #BITMAP_CARDINALITY_LIMIT} distinct responses.
+   *
+   * @param column non-null header of the column
+   * @return if the column has a bitmap index
+   */
+  public boolean isBitmapIndexed(String column) {
+    return getColumn(column).bitmaps != null;
+  }
+
+  /**
+   * Finds the people a query matches.
+   *
+   * @param query non-null RosterQuery to answer
+   * @return the matching Person objects, in the order of the roster
+   */
+  public List<Person> find(RosterQuery query) {
+    BitSet matches = match(query);
+    List<Person> found = new ArrayList<>(matches.cardinality());
+    for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+      found.add(people.get(id));
+    }
+    return found;
+  }
+
+  /**
+   * Finds the people a query expression matches.
+   *
+   * @param expression non-null query, in the syntax of {@link RosterQuery#parse(String)}
+   * @return the matching Person objects, in the order of the roster
+   */
+  public List<Person> find(String expression) {
+    return find(RosterQuery.parse(expression));
+  }
+
+  /**
+   * Counts the people a query matches.
+   *
+   * @param query non-null RosterQuery to answer
+   * @return number of matching people
+   */
+  public int count(RosterQuery query) {
+    return match(query).cardinality();
+  }
+
+  /**
+   * Finds the positions in the roster of the people a query matches.
+   *
+   * @param query non-null RosterQuery to answer
+   * @return a new bitmap with a bit set for each matching person, which the caller may change
+   */
+  public BitSet match(RosterQuery query) {
+    return query.evaluate(this);
+  }
+
+  /**
+   * Finds the people who gave a response to a column. Used by RosterQuery.
+   *
+   * @return a new bitmap of the people
+   */
+  BitSet equalTo(String column, String value) {
+    return getColumn(column).match(value);
+  }
+
+  private ColumnIndex getColumn(String column) {
+    ColumnIndex index = columns.get(column);
+    if (index == null) {
+      throw new IllegalArgumentException(String.format("Unknown column. Column given was=%s", column));
+    }
+    return index;
+  }
+
+  /**
+   * Index of the responses to one column: a hash map from each response to the people who gave it, as a bitmap when
+   * the column has few distinct responses and as an array of positions otherwise.
+   */
+  private static class ColumnIndex {
+
+    private final Map<String, BitSet> bitmaps;
+    private final Map<String, int[]> positions;
+
+    private ColumnIndex(Map<String, Postings> responses) {
+      if (responses.size() <= BITMAP_CARDINALITY_LIMIT) {
+        bitmaps = new HashMap<>(responses.size() * 2);
+        positions = null;
+        for (Map.Entry<String, Postings> response : responses.entrySet()) {
+          bitmaps.put(response.getKey(), response.getValue().toBitSet());
+        }
+      }
+      else {
+        bitmaps = null;
+        positions = new HashMap<>(responses.size() * 2);
+        for (Map.Entry<String, Postings> response : responses.entrySet()) {
+          positions.put(response.getKey(), response.getValue().toArray());
+        }
+      }
+    }
+
+    private Set<String> getValues() {
+      return bitmaps != null ? bitmaps.keySet() : positions.keySet();
+    }
+
+    private BitSet match(String value) {
+      if (bitmaps != null) {
+        BitSet bitmap = bitmaps.get(value);
+        // Queries combine bitmaps in place, so the index only hands out copies
+        return bitmap == null ? new BitSet() : (BitSet) bitmap.clone();
+      }
+      BitSet bitmap = new BitSet();
+      int[] ids = positions.get(value);
+      if (ids != null) {
+        for (int id : ids) {
+          bitmap.set(id);
+        }
+      }
+      return bitmap;
+    }
+  }
+
+  /**
+   * Positions of the people who gave one response, in increasing order, while the index is being built.
+   */
+  private static class Postings {
+
+    private int[] ids = new int[4];
+    private int size;
+
+    private void add(int id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+
+    private BitSet toBitSet() {
+      BitSet bitmap = new BitSet(size == 0 ? 0 : ids[size - 1] + 1);
+      for (int i = 0; i < size; i++) {
+        bitmap.set(ids[i]);
+      }
+      return bitmap;
+    }
+
+    private int[] toArray() {
+      return Arrays.copyOf(ids, size);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package service;
+
+import model.Person;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Order of the people of the directory: by one or more SortKeys, compared with the collation rules of a locale, with
+ * people missing a response placed after everyone who gave one. Sorting computes the collation keys of each person
+ * once instead of collating names on every comparison, and large rosters are sorted on several threads. People equal
+ * by every key keep the order of their rows, so the same survey always gives the same order.
+ */
+class RosterOrder {
+
+  static final String TIMESTAMP_KEY = "Timestamp";
+  static final int PARALLEL_THRESHOLD = 8192;
+  static final List<SortKey> DEFAULT_KEYS = Collections.unmodifiableList(Arrays.asList(SortKey.LAST_NAME,
+          SortKey.FIRST_NAME));
+
+  // Google Forms writes timestamps like 9/14/2018 10:23:45; exports of other tools use ISO-8601
+  private static final List<DateTimeFormatter> TIMESTAMP_FORMATS = Arrays.asList(
+          DateTimeFormatter.ofPattern("M/d/yyyy H:mm:ss", Locale.ROOT),
+          DateTimeFormatter.ofPattern("yyyy-MM-dd H:mm:ss", Locale.ROOT),
+          DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+  private static final int TIMESTAMP_BYTES = Long.BYTES;
+
+  private final Locale locale;
+  private final List<SortKey> keys;
+  private final ThreadLocal<Collator> collators;
+
+  /**
+   * Default Constructor. Orders by last name and then first name, with the root collation rules, which don't depend on
+   * the locale of the machine.
+   */
+  RosterOrder() {
+    this(Locale.ROOT, DEFAULT_KEYS);
+  }
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param locale non-null Locale whose collation rules names are compared with
+   * @param keys   non-empty SortKeys to order by, the first one first
+   */
+  RosterOrder(Locale locale, List<SortKey> keys) {
+    if (keys.isEmpty()) {
+      throw new IllegalArgumentException("Must give at least one sort key");
+    }
+    this.locale = locale;
+    this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+    // Collators are not safe to share between threads
+    Collator collator = Collator.getInstance(locale);
+    this.collators = ThreadLocal.withInitial(() -> (Collator) collator.clone());
+  }
+
+  /**
+   * Gets the locale whose collation rules names are compared with.
+   *
+   * @return the Locale
+   */
+  Locale getLocale() {
+    return locale;
+  }
+
+  /**
+   * Gets the keys people are ordered by.
+   *
+   * @return the SortKeys, the first one first
+   */
+  List<SortKey> getKeys() {
+    return keys;
+  }
+
+  /**
+   * Sorts people into the order of the directory. The sort is stable.
+   *
+   * @param people non-null list of Person objects to sort in place
+   */
+  void sort(List<Person> people) {
+    Entry[] entries = new Entry[people.size()];
+    boolean parallel = entries.length >= PARALLEL_THRESHOLD;
+    IntStream indexes = IntStream.range(0, entries.length);
+    (parallel ? indexes.parallel() : indexes).forEach(i -> entries[i] = new Entry(people.get(i),
+            getSortKey(people.get(i))));
+
+    // Both sorts are stable, so people equal by every key keep the order of their rows
+    if (parallel) {
+      Arrays.parallelSort(entries, Entry.ORDER);
+    }
+    else {
+      Arrays.sort(entries, Entry.ORDER);
+    }
+
+    ListIterator<Person> sorted = people.listIterator();
+    for (Entry entry : entries) {
+      sorted.next();
+      sorted.set(entry.person);
+    }
+  }
+
+  /**
+   * Gets a comparator of people in the order of the directory. It computes the sort keys of both people on every
+   * comparison, so use {@link #sort(List)} to sort more than a few people.
+   *
+   * @return comparator of Person objects
+   */
+  Comparator<Person> comparator() {
+    return (p1, p2) -> compare(getSortKey(p1), getSortKey(p2));
+  }
+
+  /**
+   * Computes the sort key of a person: one array of bytes for each SortKey, which compare as unsigned bytes in the
+   * same order as the responses they were made from.
+   *
+   * @param person non-null Person to compute the key of
+   * @return the key, holding null for each response the person did not give
+   */
+  byte[][] getSortKey(Person person) {
+    byte[][] sortKey = new byte[keys.size()][];
+    for (int i = 0; i < sortKey.length; i++) {
+      SortKey key = keys.get(i);
+      String value = getValue(person, key);
+      if (value == null || value.trim().isEmpty()) {
+        continue;
+      }
+      sortKey[i] = key == SortKey.TIMESTAMP ? toTimestampKey(value.trim()) : collators.get().getCollationKey(value)
+              .toByteArray();
+    }
+    return sortKey;
+  }
+
+  /**
+   * Compares two sort keys made by {@link #getSortKey(Person)}.
+   *
+   * @param key1 non-null first key
+   * @param key2 non-null second key
+   * @return negative, zero or positive as the first key orders before, with or after the second
+   */
+  static int compare(byte[][] key1, byte[][] key2) {
+    for (int i = 0; i < key1.length; i++) {
+      int order = compareValues(key1[i], key2[i]);
+      if (order != 0) {
+        return order;
+      }
+    }
+    return 0;
+  }
+
+  private static int compareValues(byte[] value1, byte[] value2) {
+    if (value1 == null || value2 == null) {
+      // Missing responses go last
+      return value1 == null ? (value2 == null ? 0 : 1) : -1;
+    }
+    int length = Math.min(value1.length, value2.length);
+    for (int i = 0; i < length; i++) {
+      int order = Integer.compare(value1[i] & 0xFF, value2[i] & 0xFF);
+      if (order != 0) {
+        return order;
+      }
+    }
+    return Integer.compare(value1.length, value2.length);
+  }
+
+  private String getValue(Person person, SortKey key) {
+    switch (key) {
+      case LAST_NAME:
+        return person.getLastName();
+      case FIRST_NAME:
+        return person.getFirstName();
+      case TIMESTAMP:
+        return person.getData().get(TIMESTAMP_KEY);
+      default:
+        throw new IllegalArgumentException(String.format("Unknown sort key. Key given was=%s", key));
+    }
+  }
+
+  /**
+   * Encodes a timestamp as big-endian seconds with the sign bit flipped, so earlier times compare lower as unsigned
+   * bytes. Timestamps in no known format are compared as text, after every timestamp that could be read, since no
+   * time of the next few thousand years starts with the byte 0xFF.
+   */
+  private byte[] toTimestampKey(String timestamp) {
+    for (DateTimeFormatter format : TIMESTAMP_FORMATS) {
+      try {
+        long seconds = LocalDateTime.parse(timestamp, format).toEpochSecond(ZoneOffset.UTC) ^ Long.MIN_VALUE;
+        byte[] key = new byte[TIMESTAMP_BYTES];
+        for (int i = 0; i < TIMESTAMP_BYTES; i++) {
+          key[i] = (byte) (seconds >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+        }
+        return key;
+      }
+      catch (DateTimeParseException unknownFormat) {
+        // try the next format
+      }
+    }
+    byte[] text = timestamp.getBytes(StandardCharsets.UTF_8);
+    byte[] key = new byte[text.length + 1];
+    key[0] = (byte) 0xFF;
+    System.arraycopy(text, 0, key, 1, text.length);
+    return key;
+  }
+
+  private static class Entry {
+
+    private static final Comparator<Entry> ORDER = (e1, e2) -> compare(e1.sortKey, e2.sortKey);
+
+    private final Person person;
+    private final byte[][] sortKey;
+
+    private Entry(Person person, byte[][] sortKey) {
+      this.person = person;
+      this.sortKey = sortKey;
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Question about the responses of a roster, answered by a RosterIndex: people who gave an exact response to a column,
+ * combined with AND, OR and NOT. Queries can be built with the static methods or parsed from text such as
+ *
+ * Attending=Fall AND (Siblings=0-3 OR Siblings=4+) AND NOT "Home State"="New York"
+ *
+ * Headers and responses holding spaces, parentheses, quotes, = or ! are written in double quotes, with a quote inside
+ * them written twice. The keywords AND, OR and NOT may be written in any case, and NOT binds tighter than AND, which
+ * binds tighter than OR. column!=value is short for NOT column=value.
+ */
+public abstract class RosterQuery {
+
+  private static final String AND = "AND";
+  private static final String OR = "OR";
+  private static final String NOT = "NOT";
+
+  RosterQuery() {
+  }
+
+  /**
+   * Matches the people who gave exactly a response to a column.
+   *
+   * @param column non-null header of the column
+   * @param value  non-null response
+   * @return the query
+   */
+  public static RosterQuery equalTo(String column, String value) {
+    return new EqualTo(column, value);
+  }
+
+  /**
+   * Matches the people every one of the given queries matches.
+   *
+   * @param queries non-empty queries
+   * @return the query
+   */
+  public static RosterQuery and(RosterQuery... queries) {
+    return new Combination(true, Arrays.asList(queries));
+  }
+
+  /**
+   * Matches the people any of the given queries matches.
+   *
+   * @param queries non-empty queries
+   * @return the query
+   */
+  public static RosterQuery or(RosterQuery... queries) {
+    return new Combination(false, Arrays.asList(queries));
+  }
+
+  /**
+   * Matches the people a query doesn't match, including those who didn't answer the column it asks about.
+   *
+   * @param query non-null query
+   * @return the query
+   */
+  public static RosterQuery not(RosterQuery query) {
+    return new Not(query);
+  }
+
+  /**
+   * Parses a query written as text.
+   *
+   * @param expression non-null query, such as Attending=Fall AND NOT Siblings=0
+   * @return the query
+   */
+  public static RosterQuery parse(String expression) {
+    return new Parser(expression).parse();
+  }
+
+  /**
+   * Finds the people the query matches.
+   *
+   * @param index non-null RosterIndex of the roster
+   * @return a new bitmap with a bit set for each matching person
+   */
+  abstract BitSet evaluate(RosterIndex index);
+
+  private static class EqualTo extends RosterQuery {
+
+    private final String column;
+    private final String value;
+
+    private EqualTo(String column, String value) {
+      this.column = column;
+      this.value = value;
+    }
+
+    @Override
+    BitSet evaluate(RosterIndex index) {
+      return index.equalTo(column, value);
+    }
+
+    @Override
+    public String toString() {
+      return Parser.quote(column) + "=" + Parser.quote(value);
+    }
+  }
+
+  private static class Combination extends RosterQuery {
+
+    private final boolean and;
+    private final List<RosterQuery> queries;
+
+    private Combination(boolean and, List<RosterQuery> queries) {
+      if (queries.isEmpty()) {
+        throw new IllegalArgumentException(String.format("Must combine at least one query. Queries given were=%s",
+                queries));
+      }
+      this.and = and;
+      this.queries = Collections.unmodifiableList(new ArrayList<>(queries));
+    }
+
+    @Override
+    BitSet evaluate(RosterIndex index) {
+      BitSet result = queries.get(0).evaluate(index);
+      for (int i = 1; i < queries.size(); i++) {
+        if (and && result.isEmpty()) {
+          break;
+        }
+        if (and) {
+          result.and(queries.get(i).evaluate(index));
+        }
+        else {
+          result.or(queries.get(i).evaluate(index));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder text = new StringBuilder("(");
+      for (int i = 0; i < queries.size(); i++) {
+        if (i > 0) {
+          text.append(and ? " AND " : " OR ");
+        }
+        text.append(queries.get(i));
+      }
+      return text.append(')').toString();
+    }
+  }
+
+  private static class Not extends RosterQuery {
+
+    private final RosterQuery query;
+
+    private Not(RosterQuery query) {
+      this.query = query;
+    }
+
+    @Override
+    BitSet evaluate(RosterIndex index) {
+      BitSet result = query.evaluate(index);
+      result.flip(0, index.size());
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return "NOT " + query;
+    }
+  }
+
+  /**
+   * Recursive descent parser of the text form of queries.
+   */
+  private static class Parser {
+
+    private static final String SPECIAL_CHARACTERS = "()=!\"";
+
+    private final String expression;
+    private int position;
+
+    private Parser(String expression) {
+      this.expression = expression;
+    }
+
+    private static String quote(String word) {
+      for (int i = 0; i < word.length(); i++) {
+        char c = word.charAt(i);
+        if (Character.isWhitespace(c) || SPECIAL_CHARACTERS.indexOf(c) != -1) {
+          return '"' + word.replace("\"", "\"\"") + '"';
+        }
+      }
+      return word.isEmpty() ? "\"\"" : word;
+    }
+
+    private RosterQuery parse() {
+      RosterQuery query = parseOr();
+      skipWhitespace();
+      if (position < expression.length()) {
+        throw error("Unexpected text");
+      }
+      return query;
+    }
+
+    private RosterQuery parseOr() {
+      List<RosterQuery> queries = new ArrayList<>();
+      queries.add(parseAnd());
+      while (acceptKeyword(OR)) {
+        queries.add(parseAnd());
+      }
+      return queries.size() == 1 ? queries.get(0) : new Combination(false, queries);
+    }
+
+    private RosterQuery parseAnd() {
+      List<RosterQuery> queries = new ArrayList<>();
+      queries.add(parseNot());
+      while (acceptKeyword(AND)) {
+        queries.add(parseNot());
+      }
+      return queries.size() == 1 ? queries.get(0) : new Combination(true, queries);
+    }
+
+    private RosterQuery parseNot() {
+      if (acceptKeyword(NOT)) {
+        return new Not(parseNot());
+      }
+      skipWhitespace();
+      if (accept('(')) {
+        RosterQuery query = parseOr();
+        skipWhitespace();
+        if (!accept(')')) {
+          throw error("Expected )");
+        }
+        return query;
+      }
+      return parseComparison();
+    }
+
+    private RosterQuery parseComparison() {
+      String column = parseWord();
+      skipWhitespace();
+      boolean negated = accept('!');
+      if (!accept('=')) {
+        throw error("Expected = or !=");
+      }
+      skipWhitespace();
+      RosterQuery query = new EqualTo(column, parseWord());
+      return negated ? new Not(query) : query;
+    }
+
+    private String parseWord() {
+      skipWhitespace();
+      if (accept('"')) {
+        StringBuilder word = new StringBuilder();
+        while (true) {
+          if (position == expression.length()) {
+            throw error("Unterminated quote");
+          }
+          char c = expression.charAt(position++);
+          if (c == '"') {
+            if (!accept('"')) {
+              return word.toString();
+            }
+          }
+          word.append(c);
+        }
+      }
+      int start = position;
+      while (position < expression.length() && !Character.isWhitespace(expression.charAt(position))
+              && SPECIAL_CHARACTERS.indexOf(expression.charAt(position)) == -1) {
+        position++;
+      }
+      if (start == position) {
+        throw error("Expected a header or a response");
+      }
+      return expression.substring(start, position);
+    }
+
+    /**
+     * Consumes a keyword if it comes next as a whole word.
+     */
+    private boolean acceptKeyword(String keyword) {
+      skipWhitespace();
+      int end = position + keyword.length();
+      if (end > expression.length() || !expression.substring(position, end).toUpperCase(Locale.ROOT).equals(keyword)
+              || (end < expression.length() && !Character.isWhitespace(expression.charAt(end))
+              && expression.charAt(end) != '(' && expression.charAt(end) != '"')) {
+        return false;
+      }
+      position = end;
+      return true;
+    }
+
+    private boolean accept(char c) {
+      if (position < expression.length() && expression.charAt(position) == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void skipWhitespace() {
+      while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+        position++;
+      }
+    }
+
+    private IllegalArgumentException error(String problem) {
+      return new IllegalArgumentException(String.format("%s at position %d. Query given was=%s", problem, position,
+              expression));
+    }
+  }
+}
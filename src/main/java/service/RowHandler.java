@@ -0,0 +1,18 @@
+package service;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives blocks of spreadsheet rows, in spreadsheet order, as they are retrieved.
+ */
+interface RowHandler {
+
+  /**
+   * Handles the next block of rows.
+   *
+   * @param rows non-null list of rows, each a list of cell values
+   * @throws IOException if the rows can't be handled
+   */
+  void handleRows(List<List<Object>> rows) throws IOException;
+}
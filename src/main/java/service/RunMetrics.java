@@ -0,0 +1,225 @@
+package service;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of one run of the survey parser. The DataParser, FileGenerator and
+ * StreamingPipeline of a run record into the same instance, which can be watched over JMX while the run is going and
+ * written as a JSON report once it is done.
+ */
+class RunMetrics implements RunMetricsMBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RunMetrics.class);
+
+  static final String JMX_DOMAIN = "surveyParser";
+  private static final String RUN_OBJECT_NAME = JMX_DOMAIN + ":type=Run";
+  private static final String STAGE_OBJECT_NAME_FORMAT = JMX_DOMAIN + ":type=Stage,name=%s";
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final Map<Stage, StageMetrics> stages = new EnumMap<>(Stage.class);
+  private final LongAdder bytesWritten = new LongAdder();
+  private volatile long searchIndexBytes;
+  private volatile int searchIndexPeople;
+  private final long startNanos = System.nanoTime();
+  private volatile long finishNanos;
+
+  /**
+   * Default Constructor. The run is timed from the moment the metrics are created.
+   */
+  RunMetrics() {
+    for (Stage stage : Stage.values()) {
+      stages.put(stage, new StageMetrics());
+    }
+  }
+
+  /**
+   * Records the latency of one step of a stage that started at the given time.
+   *
+   * @param stage      non-null Stage the step belongs to
+   * @param startNanos value of System.nanoTime() when the step started
+   */
+  void record(Stage stage, long startNanos) {
+    stages.get(stage).record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Adds the size of a file that was written.
+   *
+   * @param bytes size of the file
+   */
+  void addBytesWritten(long bytes) {
+    bytesWritten.add(bytes);
+  }
+
+  /**
+   * Sets the size of the search index that was written last. Watching runs write the whole index again on every
+   * update, so each index replaces the one before.
+   *
+   * @param bytes  size of the shards of the index
+   * @param people number of people the index holds
+   */
+  void setSearchIndexSize(long bytes, int people) {
+    searchIndexBytes = bytes;
+    searchIndexPeople = people;
+  }
+
+  /**
+   * Gets the latencies recorded for a stage.
+   *
+   * @param stage non-null Stage to get the latencies of
+   * @return the latencies of the stage
+   */
+  StageMetrics getStage(Stage stage) {
+    return stages.get(stage);
+  }
+
+  /**
+   * Marks the run as finished, which stops the elapsed time.
+   */
+  void finish() {
+    if (finishNanos == 0) {
+      finishNanos = System.nanoTime();
+    }
+  }
+
+  @Override
+  public long getRows() {
+    return stages.get(Stage.PARSE_ROW).getCount();
+  }
+
+  @Override
+  public long getFilesWritten() {
+    return stages.get(Stage.WRITE).getCount();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public long getSearchIndexBytes() {
+    return searchIndexBytes;
+  }
+
+  @Override
+  public double getSearchIndexBytesPerPerson() {
+    int people = searchIndexPeople;
+    return people == 0 ? 0 : (double) getSearchIndexBytes() / people;
+  }
+
+  @Override
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(getElapsedNanos());
+  }
+
+  @Override
+  public double getRowsPerSecond() {
+    long elapsedNanos = getElapsedNanos();
+    return elapsedNanos == 0 ? 0 : getRows() * NANOS_PER_SECOND / elapsedNanos;
+  }
+
+  @Override
+  public boolean isFinished() {
+    return finishNanos != 0;
+  }
+
+  private long getElapsedNanos() {
+    return (isFinished() ? finishNanos : System.nanoTime()) - startNanos;
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server, replacing the metrics of the previous run. When several
+   * runs go at once, as in a batch, the run that started last is the one registered. Failing to register is logged
+   * and otherwise ignored, since the run doesn't depend on it.
+   */
+  void register() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    synchronized (RunMetrics.class) {
+      try {
+        replace(server, this, new ObjectName(RUN_OBJECT_NAME));
+        for (Map.Entry<Stage, StageMetrics> stage : stages.entrySet()) {
+          replace(server, stage.getValue(),
+                  new ObjectName(String.format(STAGE_OBJECT_NAME_FORMAT, stage.getKey().getMetricName())));
+        }
+      }
+      catch (JMException | SecurityException registrationFailure) {
+        LOGGER.warn("Unable to register run metrics with JMX", registrationFailure);
+      }
+    }
+  }
+
+  private void replace(MBeanServer server, Object metrics, ObjectName name) throws JMException {
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+    server.registerMBean(metrics, name);
+  }
+
+  /**
+   * Writes the counters and the latencies of every stage as a JSON object.
+   *
+   * @param writer non-null Writer to write the report to, which is left open
+   * @throws IOException if the report can't be written
+   */
+  void writeReport(Writer writer) throws IOException {
+    JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+    JsonGenerator generator = jsonFactory.createJsonGenerator(writer);
+    generator.enablePrettyPrint();
+    generator.writeStartObject();
+    generator.writeFieldName("rows");
+    generator.writeNumber(getRows());
+    generator.writeFieldName("filesWritten");
+    generator.writeNumber(getFilesWritten());
+    generator.writeFieldName("bytesWritten");
+    generator.writeNumber(getBytesWritten());
+    generator.writeFieldName("searchIndexBytes");
+    generator.writeNumber(getSearchIndexBytes());
+    generator.writeFieldName("searchIndexBytesPerPerson");
+    generator.writeNumber(getSearchIndexBytesPerPerson());
+    generator.writeFieldName("elapsedMillis");
+    generator.writeNumber(getElapsedMillis());
+    generator.writeFieldName("rowsPerSecond");
+    generator.writeNumber(getRowsPerSecond());
+    generator.writeFieldName("stages");
+    generator.writeStartObject();
+    for (Map.Entry<Stage, StageMetrics> stage : stages.entrySet()) {
+      StageMetrics metrics = stage.getValue();
+      generator.writeFieldName(stage.getKey().getMetricName());
+      generator.writeStartObject();
+      generator.writeFieldName("count");
+      generator.writeNumber(metrics.getCount());
+      generator.writeFieldName("totalMillis");
+      generator.writeNumber(metrics.getTotalMillis());
+      generator.writeFieldName("meanMicros");
+      generator.writeNumber(metrics.getMeanMicros());
+      generator.writeFieldName("p50Micros");
+      generator.writeNumber(metrics.getP50Micros());
+      generator.writeFieldName("p95Micros");
+      generator.writeNumber(metrics.getP95Micros());
+      generator.writeFieldName("p99Micros");
+      generator.writeNumber(metrics.getP99Micros());
+      generator.writeFieldName("maxMicros");
+      generator.writeNumber(metrics.getMaxMicros());
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.flush();
+  }
+}
@@ -0,0 +1,63 @@
+package service;
+
+/**
+ * JMX view of the totals of a run. The latencies of each stage are registered alongside it.
+ */
+public interface RunMetricsMBean {
+
+  /**
+   * Gets the number of rows parsed into people so far.
+   *
+   * @return rows parsed
+   */
+  long getRows();
+
+  /**
+   * Gets the number of files written so far, not counting files left unchanged by an incremental run.
+   *
+   * @return files written
+   */
+  long getFilesWritten();
+
+  /**
+   * Gets the size of the files written so far.
+   *
+   * @return characters written, which is the number of bytes for pages of ASCII responses
+   */
+  long getBytesWritten();
+
+  /**
+   * Gets the size of the search index written last.
+   *
+   * @return characters of the index shards, which is the number of bytes for ASCII names and responses
+   */
+  long getSearchIndexBytes();
+
+  /**
+   * Gets the size of the search index for each person it holds.
+   *
+   * @return search index bytes per person, or 0 if no index was written
+   */
+  double getSearchIndexBytesPerPerson();
+
+  /**
+   * Gets how long the run took, or has taken so far.
+   *
+   * @return elapsed time in milliseconds
+   */
+  long getElapsedMillis();
+
+  /**
+   * Gets the rate rows were parsed at over the whole run.
+   *
+   * @return rows per second of elapsed time
+   */
+  double getRowsPerSecond();
+
+  /**
+   * Whether the run has finished.
+   *
+   * @return if the run is over
+   */
+  boolean isFinished();
+}
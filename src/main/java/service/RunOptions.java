@@ -0,0 +1,744 @@
+package service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Optional settings for a run of the Survey Parser. The defaults reproduce the original behavior of the application,
+ * except that the directory is ordered by collation rather than by raw character codes.
+ */
+public class RunOptions {
+
+  static final int SINGLE_REQUEST = 0;
+  static final int SINGLE_DIRECTORY_PAGE = 0;
+  static final int NOT_SERVED = -1;
+  private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+  private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+  private static final int SEQUENTIAL = 1;
+  private static final int DEFAULT_JOBS = 4;
+  private static final int DEFAULT_POLL_INTERVAL_SECONDS = 30;
+  private static final int DEFAULT_MAX_POLL_INTERVAL_SECONDS = 600;
+  private static final int DEFAULT_IMAGE_THREADS = 8;
+  private static final int DEFAULT_IMAGES_PER_HOST = 2;
+  private static final int DEFAULT_SERVE_THREADS = 8;
+  private static final int DEFAULT_RELOAD_INTERVAL_SECONDS = 300;
+
+  private int pageSize = SINGLE_REQUEST;
+  private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+  private boolean streaming;
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+  private int parallelism = SEQUENTIAL;
+  private File templateDirectory;
+  private boolean incremental;
+  private File cacheDirectory;
+  private boolean cacheProbe;
+  private boolean offline;
+  private NormalizationPolicy normalizationPolicy = NormalizationPolicy.STRIP;
+  private int jobs = DEFAULT_JOBS;
+  private boolean watch;
+  private int pollIntervalSeconds = DEFAULT_POLL_INTERVAL_SECONDS;
+  private int maxPollIntervalSeconds = DEFAULT_MAX_POLL_INTERVAL_SECONDS;
+  private File archive;
+  private boolean channelOutput;
+  private SyncPolicy syncPolicy = SyncPolicy.NONE;
+  private boolean images;
+  private int imageThreads = DEFAULT_IMAGE_THREADS;
+  private int imagesPerHost = DEFAULT_IMAGES_PER_HOST;
+  private List<SortKey> sortKeys = RosterOrder.DEFAULT_KEYS;
+  private Locale sortLocale = Locale.ROOT;
+  private boolean directoryByInitial;
+  private int directoryPageSize = SINGLE_DIRECTORY_PAGE;
+  private boolean search;
+  private List<String> searchColumns = Collections.emptyList();
+  private boolean answerSummary;
+  private int servePort = NOT_SERVED;
+  private int serveThreads = DEFAULT_SERVE_THREADS;
+  private int reloadIntervalSeconds = DEFAULT_RELOAD_INTERVAL_SECONDS;
+  private int maxAgeSeconds;
+
+  /**
+   * Gets the number of rows retrieved per request. 0 means the whole range is retrieved in a single request.
+   *
+   * @return rows per request
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets the number of rows retrieved per request. 0 means the whole range is retrieved in a single request.
+   *
+   * @param pageSize non-negative number of rows per request
+   */
+  public void setPageSize(int pageSize) {
+    if (pageSize < 0) {
+      throw new IllegalArgumentException(String.format("Page size must not be negative. Page size given was=%d",
+              pageSize));
+    }
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Gets the maximum number of page requests that may be in flight at once.
+   *
+   * @return maximum number of concurrent requests
+   */
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  /**
+   * Sets the maximum number of page requests that may be in flight at once.
+   *
+   * @param maxConcurrentRequests positive number of concurrent requests
+   */
+  public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+    if (maxConcurrentRequests < 1) {
+      throw new IllegalArgumentException(String.format("Concurrent requests must be at least 1. Value given was=%d",
+              maxConcurrentRequests));
+    }
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  /**
+   * Whether rows are parsed and rendered as they arrive instead of one whole stage after another.
+   *
+   * @return if the streaming pipeline is used
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Sets whether rows are parsed and rendered as they arrive instead of one whole stage after another.
+   *
+   * @param streaming if the streaming pipeline should be used
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * Gets the number of rows (and people) that may wait between two stages of the streaming pipeline.
+   *
+   * @return queue capacity
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * Sets the number of rows (and people) that may wait between two stages of the streaming pipeline.
+   *
+   * @param queueCapacity positive queue capacity
+   */
+  public void setQueueCapacity(int queueCapacity) {
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException(String.format("Queue capacity must be at least 1. Value given was=%d",
+              queueCapacity));
+    }
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Gets the number of threads profile pages are written with. 1 means pages are written one at a time.
+   *
+   * @return number of page writing threads
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the number of threads profile pages are written with. 1 means pages are written one at a time.
+   *
+   * @param parallelism positive number of page writing threads
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(String.format("Parallelism must be at least 1. Value given was=%d",
+              parallelism));
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the directory holding templates that replace the default page layouts.
+   *
+   * @return template directory, or null if the default layouts are used
+   */
+  public File getTemplateDirectory() {
+    return templateDirectory;
+  }
+
+  /**
+   * Sets the directory holding templates that replace the default page layouts. Any of profile.html,
+   * next-link.html, entry.html, colon-entry.html, directory.html, directory-link.html, directory-back-link.html and
+   * style.css may be given; the rest keep their default.
+   *
+   * @param templateDirectory template directory, or null to use the default layouts
+   */
+  public void setTemplateDirectory(File templateDirectory) {
+    this.templateDirectory = templateDirectory;
+  }
+
+  /**
+   * Whether files are only written when their content changed since the previous run.
+   *
+   * @return if runs are incremental
+   */
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Sets whether files are only written when their content changed since the previous run. A manifest of content
+   * hashes is kept in the output folder, and the pages of people who were removed are deleted.
+   *
+   * @param incremental if runs should be incremental
+   */
+  public void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
+
+  /**
+   * Gets the folder holding snapshots of previously downloaded ranges. Offline runs use the default cache folder when
+   * none was given.
+   *
+   * @return cache folder, or null if downloads are not cached
+   */
+  public File getCacheDirectory() {
+    if (cacheDirectory == null && offline) {
+      return SpreadsheetCache.DEFAULT_DIRECTORY;
+    }
+    return cacheDirectory;
+  }
+
+  /**
+   * Sets the folder holding snapshots of previously downloaded ranges. Every online run downloads the full range and
+   * stores it, for offline runs to read, unless the cache probe is on.
+   *
+   * @param cacheDirectory cache folder, or null to not keep snapshots
+   */
+  public void setCacheDirectory(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * Whether a cached range is reused while its first column is unchanged.
+   *
+   * @return if the cache probe is on
+   */
+  public boolean isCacheProbe() {
+    return cacheProbe;
+  }
+
+  /**
+   * Sets whether a cached range is reused while its first column is unchanged. Before downloading the range again,
+   * only its first column is retrieved, and the snapshot is used if that column is unchanged. Edits outside the first
+   * column are not noticed, so the column should change with every response, as the Timestamp column of a Form does.
+   * Defaults to false.
+   *
+   * @param cacheProbe if the cache probe is on
+   */
+  public void setCacheProbe(boolean cacheProbe) {
+    this.cacheProbe = cacheProbe;
+  }
+
+  /**
+   * Whether ranges are only read from the cache, without contacting the Google Spreadsheet.
+   *
+   * @return if runs are offline
+   */
+  public boolean isOffline() {
+    return offline;
+  }
+
+  /**
+   * Sets whether ranges are only read from the cache, without contacting the Google Spreadsheet. Runs fail if the
+   * range has not been cached by an earlier run.
+   *
+   * @param offline if runs should be offline
+   */
+  public void setOffline(boolean offline) {
+    this.offline = offline;
+  }
+
+  /**
+   * Gets how responses with characters outside of ASCII are written to the pages.
+   *
+   * @return the normalization policy
+   */
+  public NormalizationPolicy getNormalizationPolicy() {
+    return normalizationPolicy;
+  }
+
+  /**
+   * Sets how responses with characters outside of ASCII are written to the pages. Defaults to removing accents and
+   * dropping every other character outside of ASCII.
+   *
+   * @param normalizationPolicy non-null normalization policy
+   */
+  public void setNormalizationPolicy(NormalizationPolicy normalizationPolicy) {
+    if (normalizationPolicy == null) {
+      throw new IllegalArgumentException("Normalization policy must not be null");
+    }
+    this.normalizationPolicy = normalizationPolicy;
+  }
+
+  /**
+   * Gets the number of jobs of a batch that may run at once.
+   *
+   * @return maximum number of concurrent jobs
+   */
+  public int getJobs() {
+    return jobs;
+  }
+
+  /**
+   * Sets the number of jobs of a batch that may run at once. Defaults to 4.
+   *
+   * @param jobs positive number of concurrent jobs
+   */
+  public void setJobs(int jobs) {
+    if (jobs < 1) {
+      throw new IllegalArgumentException(String.format("Jobs must be at least 1. Value given was=%d", jobs));
+    }
+    this.jobs = jobs;
+  }
+
+  /**
+   * Whether the run keeps polling the spreadsheet for new responses after the files are written.
+   *
+   * @return if the run watches the spreadsheet
+   */
+  public boolean isWatch() {
+    return watch;
+  }
+
+  /**
+   * Sets whether the run keeps polling the spreadsheet for new responses after the files are written. Only rows after
+   * the last row retrieved are requested, and only the pages they affect are written. Can't be combined with a cache
+   * or offline mode.
+   *
+   * @param watch if the run should watch the spreadsheet
+   */
+  public void setWatch(boolean watch) {
+    this.watch = watch;
+  }
+
+  /**
+   * Gets the time between polls of a watched spreadsheet while new responses keep coming in.
+   *
+   * @return shortest poll interval in seconds
+   */
+  public int getPollIntervalSeconds() {
+    return pollIntervalSeconds;
+  }
+
+  /**
+   * Sets the time between polls of a watched spreadsheet while new responses keep coming in. Defaults to 30 seconds.
+   *
+   * @param pollIntervalSeconds positive poll interval in seconds
+   */
+  public void setPollIntervalSeconds(int pollIntervalSeconds) {
+    if (pollIntervalSeconds < 1) {
+      throw new IllegalArgumentException(String.format("Poll interval must be at least 1. Value given was=%d",
+              pollIntervalSeconds));
+    }
+    this.pollIntervalSeconds = pollIntervalSeconds;
+  }
+
+  /**
+   * Gets the longest time between polls of a watched spreadsheet. The interval doubles after every poll that finds
+   * nothing new, up to this limit.
+   *
+   * @return longest poll interval in seconds
+   */
+  public int getMaxPollIntervalSeconds() {
+    return maxPollIntervalSeconds;
+  }
+
+  /**
+   * Sets the longest time between polls of a watched spreadsheet. The interval doubles after every poll that finds
+   * nothing new, up to this limit. Defaults to 600 seconds.
+   *
+   * @param maxPollIntervalSeconds positive poll interval in seconds
+   */
+  public void setMaxPollIntervalSeconds(int maxPollIntervalSeconds) {
+    if (maxPollIntervalSeconds < 1) {
+      throw new IllegalArgumentException(String.format("Poll interval must be at least 1. Value given was=%d",
+              maxPollIntervalSeconds));
+    }
+    this.maxPollIntervalSeconds = maxPollIntervalSeconds;
+  }
+
+  /**
+   * Gets the zip archive the files are written into instead of the studentPages folder.
+   *
+   * @return the archive, or null if loose files are written
+   */
+  public File getArchive() {
+    return archive;
+  }
+
+  /**
+   * Sets the zip archive the files are written into instead of the studentPages folder. Entries are named like the
+   * files they replace, so extracting the archive gives the same folder. Can't be combined with incremental or
+   * watching runs. A relative archive of a batch job is created in the output folder of the job.
+   *
+   * @param archive zip archive to write, or null to write loose files
+   */
+  public void setArchive(File archive) {
+    this.archive = archive;
+  }
+
+  /**
+   * Whether pages are written through FileChannels from pooled direct buffers instead of through Writers.
+   *
+   * @return if pages are written through FileChannels
+   */
+  public boolean isChannelOutput() {
+    return channelOutput;
+  }
+
+  /**
+   * Sets whether pages are written through FileChannels from pooled direct buffers instead of through Writers. The
+   * files are the same either way.
+   *
+   * @param channelOutput if pages should be written through FileChannels
+   */
+  public void setChannelOutput(boolean channelOutput) {
+    this.channelOutput = channelOutput;
+  }
+
+  /**
+   * Gets when pages written through FileChannels are forced to the storage device.
+   *
+   * @return the sync policy
+   */
+  public SyncPolicy getSyncPolicy() {
+    return syncPolicy;
+  }
+
+  /**
+   * Sets when pages written through FileChannels are forced to the storage device. Defaults to leaving it to the
+   * operating system. Only applies with channel output.
+   *
+   * @param syncPolicy non-null sync policy
+   */
+  public void setSyncPolicy(SyncPolicy syncPolicy) {
+    if (syncPolicy == null) {
+      throw new IllegalArgumentException("Sync policy must not be null");
+    }
+    this.syncPolicy = syncPolicy;
+  }
+
+  /**
+   * Whether the image of every person is fetched and stored next to the pages before they are written.
+   *
+   * @return if images are fetched
+   */
+  public boolean isImages() {
+    return images;
+  }
+
+  /**
+   * Sets whether the image of every person is fetched, downscaled to the size it is displayed at and stored next to
+   * the pages, which then show the stored image instead of the original link.
+   *
+   * @param images if images should be fetched
+   */
+  public void setImages(boolean images) {
+    this.images = images;
+  }
+
+  /**
+   * Gets the number of images that may be fetched at once.
+   *
+   * @return concurrent image fetches
+   */
+  public int getImageThreads() {
+    return imageThreads;
+  }
+
+  /**
+   * Sets the number of images that may be fetched at once. Defaults to 8.
+   *
+   * @param imageThreads positive number of concurrent image fetches
+   */
+  public void setImageThreads(int imageThreads) {
+    if (imageThreads < 1) {
+      throw new IllegalArgumentException(String.format("Image threads must be at least 1. Value given was=%d",
+              imageThreads));
+    }
+    this.imageThreads = imageThreads;
+  }
+
+  /**
+   * Gets the number of images that may be fetched at once from any one host.
+   *
+   * @return concurrent image fetches per host
+   */
+  public int getImagesPerHost() {
+    return imagesPerHost;
+  }
+
+  /**
+   * Sets the number of images that may be fetched at once from any one host. Defaults to 2.
+   *
+   * @param imagesPerHost positive number of concurrent image fetches per host
+   */
+  public void setImagesPerHost(int imagesPerHost) {
+    if (imagesPerHost < 1) {
+      throw new IllegalArgumentException(String.format("Images per host must be at least 1. Value given was=%d",
+              imagesPerHost));
+    }
+    this.imagesPerHost = imagesPerHost;
+  }
+
+  /**
+   * Gets the keys people are ordered by in the directory.
+   *
+   * @return the SortKeys, the first one first
+   */
+  public List<SortKey> getSortKeys() {
+    return sortKeys;
+  }
+
+  /**
+   * Sets the keys people are ordered by in the directory. People equal by every key keep the order of their rows, and
+   * people missing a response go after everyone who gave one. Defaults to last name and then first name.
+   *
+   * @param sortKeys non-empty SortKeys, the first one first
+   */
+  public void setSortKeys(List<SortKey> sortKeys) {
+    if (sortKeys == null || sortKeys.isEmpty()) {
+      throw new IllegalArgumentException(String.format("Must give at least one sort key. Value given was=%s",
+              sortKeys));
+    }
+    this.sortKeys = Collections.unmodifiableList(new ArrayList<>(sortKeys));
+  }
+
+  /**
+   * Gets the locale whose collation rules names are ordered with.
+   *
+   * @return the Locale
+   */
+  public Locale getSortLocale() {
+    return sortLocale;
+  }
+
+  /**
+   * Sets the locale whose collation rules names are ordered with, such as sv-SE to sort "Ö" after "Z". Defaults to
+   * the root rules, which give the same order on every machine.
+   *
+   * @param sortLocale non-null Locale to collate with
+   */
+  public void setSortLocale(Locale sortLocale) {
+    if (sortLocale == null) {
+      throw new IllegalArgumentException("Sort locale must not be null");
+    }
+    this.sortLocale = sortLocale;
+  }
+
+  /**
+   * Whether the directory is split into one page for each first letter of the last names.
+   *
+   * @return if the directory is split by initial
+   */
+  public boolean isDirectoryByInitial() {
+    return directoryByInitial;
+  }
+
+  /**
+   * Sets whether the directory is split into one page for each first letter of the last names, compared with the
+   * collation rules of the sort locale. The directory page then links to those pages, and each profile links back to
+   * the page that lists it. Can't be combined with a directory page size.
+   *
+   * @param directoryByInitial if the directory should be split by initial
+   */
+  public void setDirectoryByInitial(boolean directoryByInitial) {
+    this.directoryByInitial = directoryByInitial;
+  }
+
+  /**
+   * Gets the number of people listed on each page of the directory. 0 means everyone is listed on one page.
+   *
+   * @return people per directory page
+   */
+  public int getDirectoryPageSize() {
+    return directoryPageSize;
+  }
+
+  /**
+   * Sets the number of people listed on each page of the directory. 0 means everyone is listed on one page. The
+   * directory page then links to those pages, and each profile links back to the page that lists it. Can't be
+   * combined with splitting the directory by initial.
+   *
+   * @param directoryPageSize non-negative number of people per directory page
+   */
+  public void setDirectoryPageSize(int directoryPageSize) {
+    if (directoryPageSize < 0) {
+      throw new IllegalArgumentException(String.format("Directory page size must not be negative. Value given was=%d",
+              directoryPageSize));
+    }
+    this.directoryPageSize = directoryPageSize;
+  }
+
+  /**
+   * Whether a search index is written next to the pages.
+   *
+   * @return if the directory can be searched
+   */
+  public boolean isSearch() {
+    return search;
+  }
+
+  /**
+   * Sets whether a search index of the names, and of the responses to the search columns, is written next to the
+   * pages. The directory page then gets a search box that only loads the part of the index it needs.
+   *
+   * @param search if the directory should be searchable
+   */
+  public void setSearch(boolean search) {
+    this.search = search;
+  }
+
+  /**
+   * Gets the headers of the columns whose responses can be searched along with the names.
+   *
+   * @return the headers
+   */
+  public List<String> getSearchColumns() {
+    return searchColumns;
+  }
+
+  /**
+   * Sets the headers of the columns whose responses can be searched along with the names, such as a major or a home
+   * town. Defaults to none, so only names can be searched.
+   *
+   * @param searchColumns non-null headers, as they appear in the header row
+   */
+  public void setSearchColumns(List<String> searchColumns) {
+    if (searchColumns == null) {
+      throw new IllegalArgumentException("Search columns must not be null");
+    }
+    this.searchColumns = Collections.unmodifiableList(new ArrayList<>(searchColumns));
+  }
+
+  /**
+   * Whether a summary of the responses to every question is written next to the pages.
+   *
+   * @return if the answer summary is written
+   */
+  public boolean isAnswerSummary() {
+    return answerSummary;
+  }
+
+  /**
+   * Sets whether a summary of the responses to every question is written next to the pages: how often each answer
+   * was given, how many people left the question empty or answered N/A, and how many distinct answers there were. It
+   * is written as a page linked from the directory and as JSON.
+   *
+   * @param answerSummary if the answer summary should be written
+   */
+  public void setAnswerSummary(boolean answerSummary) {
+    this.answerSummary = answerSummary;
+  }
+
+  /**
+   * Gets the port the pages are served on.
+   *
+   * @return the port, 0 for any free port, or NOT_SERVED if the pages are written to disk
+   */
+  public int getServePort() {
+    return servePort;
+  }
+
+  /**
+   * Sets the port to serve the pages on over HTTP instead of writing them to disk. The pages are kept in memory, ready
+   * to send, and the run keeps serving them until it is interrupted, running again every reload interval. Can't be
+   * combined with watching, incremental runs, archives, images or batches.
+   *
+   * @param servePort port between 0 and 65535, where 0 picks any free port, or NOT_SERVED to write the pages to disk
+   */
+  public void setServePort(int servePort) {
+    if (servePort != NOT_SERVED && (servePort < 0 || servePort > 0xFFFF)) {
+      throw new IllegalArgumentException(String.format("Port must be between 0 and 65535. Value given was=%d",
+              servePort));
+    }
+    this.servePort = servePort;
+  }
+
+  /**
+   * Gets the number of threads that answer requests for served pages.
+   *
+   * @return threads of the server
+   */
+  public int getServeThreads() {
+    return serveThreads;
+  }
+
+  /**
+   * Sets the number of threads that answer requests for served pages. Defaults to 8.
+   *
+   * @param serveThreads positive number of threads
+   */
+  public void setServeThreads(int serveThreads) {
+    if (serveThreads < 1) {
+      throw new IllegalArgumentException(String.format("Must serve on at least one thread. Value given was=%d",
+              serveThreads));
+    }
+    this.serveThreads = serveThreads;
+  }
+
+  /**
+   * Gets the time between runs while pages are served.
+   *
+   * @return reload interval in seconds
+   */
+  public int getReloadIntervalSeconds() {
+    return reloadIntervalSeconds;
+  }
+
+  /**
+   * Sets the time between runs while pages are served. Each run renders every page again and the server switches to
+   * the new pages at once when it is done. Defaults to 300 seconds.
+   *
+   * @param reloadIntervalSeconds positive reload interval in seconds
+   */
+  public void setReloadIntervalSeconds(int reloadIntervalSeconds) {
+    if (reloadIntervalSeconds < 1) {
+      throw new IllegalArgumentException(String.format("Reload interval must be at least 1. Value given was=%d",
+              reloadIntervalSeconds));
+    }
+    this.reloadIntervalSeconds = reloadIntervalSeconds;
+  }
+
+  /**
+   * Gets how long browsers may use a served page without asking whether it changed.
+   *
+   * @return max age in seconds
+   */
+  public int getMaxAgeSeconds() {
+    return maxAgeSeconds;
+  }
+
+  /**
+   * Sets how long browsers may use a served page without asking whether it changed. Defaults to 0, so browsers always
+   * ask, and get an empty "not modified" response while the page is unchanged.
+   *
+   * @param maxAgeSeconds non-negative max age in seconds
+   */
+  public void setMaxAgeSeconds(int maxAgeSeconds) {
+    if (maxAgeSeconds < 0) {
+      throw new IllegalArgumentException(String.format("Max age must not be negative. Value given was=%d",
+              maxAgeSeconds));
+    }
+    this.maxAgeSeconds = maxAgeSeconds;
+  }
+}
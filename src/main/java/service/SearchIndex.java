@@ -0,0 +1,253 @@
+package service;
+
+import model.Person;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index of the names and chosen responses of everyone in the directory, written next to the pages so the
+ * directory page can search them without a server. Terms are split into shards by their first character, and the
+ * search script of the directory page only loads the shards of the words typed. Shards are scripts rather than plain
+ * JSON because browsers don't let pages opened from disk fetch JSON files, while they do load scripts.
+ * People are numbered in the order they are added, which is the order of the directory, so the same survey always
+ * gives the same files. Building the index takes time linear in the size of the indexed responses.
+ */
+class SearchIndex {
+
+  static final String SEARCH_FOLDER = "search";
+  static final String SCRIPT_FILE_NAME = "search.js";
+  static final String SHARD_FILE_FORMAT = "%s.js";
+  static final String OTHER_SHARD = "_";
+  static final String SEARCH_BOX = "<p><input id=\"search\" type=\"search\" placeholder=\"Search\" " +
+          "autocomplete=\"off\"></p><ul id=\"searchResults\"></ul><script src=\"" + SEARCH_FOLDER + "/" +
+          SCRIPT_FILE_NAME + "\"></script>";
+
+  private static final String SCRIPT_RESOURCE = "/search.js";
+  private static final String SHARD_START = "SearchIndex.load(\"%s\",{\"names\":{";
+  private static final String SHARD_TERMS = "},\"terms\":{";
+  private static final String SHARD_END = "}});\n";
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+  private static final char LAST_ASCII = 0x7F;
+
+  private final List<String> names = new ArrayList<>();
+  private final Map<String, Postings> postings = new HashMap<>();
+
+  /**
+   * Finds the terms a person can be found by: the words of their name and of their responses to the given columns,
+   * lower case and without accents, in the order they first appear.
+   *
+   * @param person  non-null Person to find the terms of
+   * @param columns non-null headers of the columns whose responses are indexed along with the name
+   * @return the terms, without duplicates
+   */
+  static String[] getTerms(Person person, List<String> columns) {
+    Set<String> terms = new LinkedHashSet<>();
+    addTerms(person.getName(), terms);
+    for (String column : columns) {
+      addTerms(person.getData().get(column), terms);
+    }
+    return terms.toArray(new String[0]);
+  }
+
+  /**
+   * Adds the next person of the directory. People must be added in the order of the directory, from one thread.
+   *
+   * @param name  non-null name the person is listed under
+   * @param terms non-null terms the person can be found by, as given by {@link #getTerms(Person, List)}
+   */
+  void add(String name, String[] terms) {
+    int id = names.size();
+    names.add(name);
+    for (String term : terms) {
+      postings.computeIfAbsent(term, key -> new Postings()).add(id);
+    }
+  }
+
+  /**
+   * Gets the number of people added.
+   *
+   * @return people in the index
+   */
+  int size() {
+    return names.size();
+  }
+
+  /**
+   * Gets the shards the terms were split into.
+   *
+   * @return the keys of the shards, in order
+   */
+  Set<String> getShards() {
+    Set<String> shards = new TreeSet<>();
+    for (String term : postings.keySet()) {
+      shards.add(getShard(term));
+    }
+    return shards;
+  }
+
+  /**
+   * Renders one shard: the people of each of its terms, and the names of those people.
+   *
+   * @param shard non-null key of the shard, one of {@link #getShards()}
+   * @param out   non-null buffer to append the shard to
+   */
+  void renderShard(String shard, StringBuilder out) {
+    Map<String, Postings> terms = new TreeMap<>();
+    Set<Integer> ids = new TreeSet<>();
+    for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+      if (getShard(entry.getKey()).equals(shard)) {
+        terms.put(entry.getKey(), entry.getValue());
+        for (int i = 0; i < entry.getValue().size; i++) {
+          ids.add(entry.getValue().ids[i]);
+        }
+      }
+    }
+
+    out.append(String.format(SHARD_START, shard));
+    String separator = "";
+    for (int id : ids) {
+      out.append(separator).append('"').append(id).append("\":");
+      appendString(names.get(id), out);
+      separator = ",";
+    }
+    out.append(SHARD_TERMS);
+    separator = "";
+    for (Map.Entry<String, Postings> term : terms.entrySet()) {
+      out.append(separator);
+      appendString(term.getKey(), out);
+      out.append(":[");
+      Postings termPostings = term.getValue();
+      for (int i = 0; i < termPostings.size; i++) {
+        if (i > 0) {
+          out.append(',');
+        }
+        out.append(termPostings.ids[i]);
+      }
+      out.append(']');
+      separator = ",";
+    }
+    out.append(SHARD_END);
+  }
+
+  /**
+   * Gets the key of the shard holding a term: its first character if that is a letter or digit of ASCII, or
+   * {@value #OTHER_SHARD} for every other term. The search script picks shards the same way.
+   *
+   * @param term non-null, non-empty term
+   * @return the key of the shard
+   */
+  static String getShard(String term) {
+    char first = term.charAt(0);
+    return (first >= 'a' && first <= 'z') || (first >= '0' && first <= '9') ? String.valueOf(first) : OTHER_SHARD;
+  }
+
+  /**
+   * Reads the search script that the directory page loads, which loads the shards as words are typed.
+   *
+   * @return the script
+   */
+  static String getScript() {
+    try (InputStream script = SearchIndex.class.getResourceAsStream(SCRIPT_RESOURCE)) {
+      if (script == null) {
+        throw new IllegalStateException(String.format("Search script is missing. Resource given was=%s",
+                SCRIPT_RESOURCE));
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int length = script.read(buffer); length != -1; length = script.read(buffer)) {
+        bytes.write(buffer, 0, length);
+      }
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+    catch (IOException ioException) {
+      throw new UncheckedIOException(ioException);
+    }
+  }
+
+  /**
+   * Splits a response into terms the way the search script splits what is typed: accents are removed, letters are
+   * made lower case, and everything but letters and digits separates words.
+   */
+  private static void addTerms(String value, Set<String> terms) {
+    if (value == null) {
+      return;
+    }
+    String folded = fold(value);
+    int start = -1;
+    for (int i = 0; i <= folded.length(); i = i < folded.length() ? folded.offsetByCodePoints(i, 1) : i + 1) {
+      boolean wordCharacter = i < folded.length() && Character.isLetterOrDigit(folded.codePointAt(i));
+      if (wordCharacter && start == -1) {
+        start = i;
+      }
+      else if (!wordCharacter && start != -1) {
+        terms.add(folded.substring(start, i));
+        start = -1;
+      }
+    }
+  }
+
+  private static String fold(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > LAST_ASCII) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+      }
+    }
+    return value.toLowerCase(Locale.ROOT);
+  }
+
+  private static void appendString(String value, StringBuilder out) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      }
+      else if (c < ' ' || c == '\u2028' || c == '\u2029') {
+        // Line and paragraph separators end a line in older scripts, so they are escaped like control characters
+        out.append(String.format("\\u%04x", (int) c));
+      }
+      else {
+        out.append(c);
+      }
+    }
+    out.append('"');
+  }
+
+  /**
+   * The people a term was found in, in the order they were added. A growing array of ids rather than a list of
+   * Integers, since most terms belong to only a few people and the index holds one of these per term.
+   */
+  private static class Postings {
+
+    private int[] ids = new int[2];
+    private int size;
+
+    private void add(int id) {
+      // A person is added once, so a repeated id can only be the last one
+      if (size > 0 && ids[size - 1] == id) {
+        return;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+  }
+}
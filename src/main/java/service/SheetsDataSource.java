@@ -0,0 +1,389 @@
+package service;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
+import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
+import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
+import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpBackOffUnsuccessfulResponseHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.client.util.store.FileDataStoreFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.SheetsScopes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.security.GeneralSecurityException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Retrieves survey responses from Google Spreadsheets through the Sheets API.
+ */
+class SheetsDataSource implements DataSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SheetsDataSource.class);
+
+  private static final List<String> SCOPES = Collections.singletonList(SheetsScopes.SPREADSHEETS_READONLY);
+  private static final String APPLICATION_NAME = "Survey Parser";
+  private static final String SECRET_LOCATION = "/client_secret.json";
+  private static final String CREDENTIALS_LOCATION = ".credentials/sheets.googleapis.com-java-quickstart.json";
+  private static final String EDIT_URL = "/edit";
+  private static final int CACHE_BLOCK_SIZE = 1000;
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int SERVER_ERROR = 500;
+  private static final int DEFAULT_INITIAL_BACK_OFF_MILLIS = 500;
+  private static final int DEFAULT_MAX_BACK_OFF_ELAPSED_MILLIS = 60000;
+
+  private final HttpTransport httpTransport;
+  private final JsonFactory jsonFactory;
+  private final FileDataStoreFactory dataStoreFactory;
+  private final String rootUrl;
+  private int initialBackOffMillis = DEFAULT_INITIAL_BACK_OFF_MILLIS;
+  private int maxBackOffElapsedMillis = DEFAULT_MAX_BACK_OFF_ELAPSED_MILLIS;
+  private Sheets retriever;
+  private SpreadsheetCache cache;
+  private boolean offline;
+  private boolean probe;
+
+  /**
+   * Default Constructor.
+   *
+   * @throws IOException if files aren't found properly
+   * @throws GeneralSecurityException if there is a security error
+   */
+  SheetsDataSource() throws IOException, GeneralSecurityException {
+    this(GoogleNetHttpTransport.newTrustedTransport(), JacksonFactory.getDefaultInstance(),
+            new FileDataStoreFactory(new java.io.File(System.getProperty("user.home"), CREDENTIALS_LOCATION)));
+  }
+
+  /**
+   * Constructor used only for unit testing.
+   *
+   * @param httpTransport    HttpTransport used by the Sheet object
+   * @param jsonFactory      JsonFactory used by the Sheet object
+   * @param dataStoreFactory FileDataStoreFactory used by the Sheet object
+   */
+  SheetsDataSource(HttpTransport httpTransport, JsonFactory jsonFactory, FileDataStoreFactory dataStoreFactory) {
+    this(httpTransport, jsonFactory, dataStoreFactory, null);
+  }
+
+  /**
+   * Constructor that reads from a server standing in for the Sheets API, such as a local test server, without
+   * signing in.
+   *
+   * @param httpTransport HttpTransport used to reach the server
+   * @param jsonFactory   JsonFactory used by the Sheet object
+   * @param rootUrl       non-null root url of the server, such as "http://localhost:8080/"
+   */
+  SheetsDataSource(HttpTransport httpTransport, JsonFactory jsonFactory, String rootUrl) {
+    this(httpTransport, jsonFactory, null, rootUrl);
+  }
+
+  private SheetsDataSource(HttpTransport httpTransport, JsonFactory jsonFactory, FileDataStoreFactory dataStoreFactory,
+                           String rootUrl) {
+    this.httpTransport = httpTransport;
+    this.jsonFactory = jsonFactory;
+    this.dataStoreFactory = dataStoreFactory;
+    this.rootUrl = rootUrl;
+  }
+
+  /**
+   * Sets the cache of spreadsheet snapshots. Every run still downloads the full range, and stores it for offline runs,
+   * unless the cache probe is on.
+   *
+   * @param cache the cache to check before downloading, or null to disable caching
+   */
+  void setCache(SpreadsheetCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Sets whether a snapshot is reused while the first column of its range is unchanged, instead of downloading the
+   * range again. The Sheets API has no revision number for a range, so edits outside that column are not noticed and
+   * the snapshot taken before them keeps being served. Ranges the probe would cost as much as are always downloaded.
+   *
+   * @param probe if the first column of the range decides whether the snapshot is used
+   */
+  void setProbe(boolean probe) {
+    this.probe = probe;
+  }
+
+  /**
+   * Sets whether data is only read from the cache, without contacting the Sheets API at all.
+   *
+   * @param offline if the spreadsheet must not be contacted
+   */
+  void setOffline(boolean offline) {
+    this.offline = offline;
+  }
+
+  /**
+   * Sets how requests rejected for exceeding the quota (429) or by a server error (5xx) are retried. Each retry waits
+   * about twice as long as the previous one, starting from the initial interval, until the maximum elapsed time is
+   * reached. Defaults to 500 milliseconds and 60 seconds.
+   *
+   * @param initialBackOffMillis    positive time to wait before the first retry
+   * @param maxBackOffElapsedMillis time after which a request is no longer retried
+   */
+  void setBackOff(int initialBackOffMillis, int maxBackOffElapsedMillis) {
+    this.initialBackOffMillis = initialBackOffMillis;
+    this.maxBackOffElapsedMillis = maxBackOffElapsedMillis;
+  }
+
+  private synchronized Sheets getRetriever() throws IOException {
+    if (offline) {
+      throw new IllegalStateException("The spreadsheet can't be contacted in offline mode");
+    }
+    if (retriever == null) {
+      retriever = getSheets(httpTransport, jsonFactory, dataStoreFactory);
+    }
+    return retriever;
+  }
+
+  /**
+   * Gets an authorized Google Spreadsheets API Client. Package protected to override and mock in unit tests.
+   *
+   * @param httpTransport    HttpTransport used by the Sheet object
+   * @param jsonFactory      JsonFactory used by the Sheet object
+   * @param dataStoreFactory FileDataStoreFactory used by the Sheet object
+   * @return an authorized Sheets API client service
+   * @throws IOException when unable to create sheets object
+   */
+  Sheets getSheets(HttpTransport httpTransport, JsonFactory jsonFactory,
+                   FileDataStoreFactory dataStoreFactory) throws IOException {
+    if (rootUrl != null) {
+      LOGGER.info("Creating sheets object for application={} at rootUrl={}", APPLICATION_NAME, rootUrl);
+      return new Sheets.Builder(httpTransport, jsonFactory, new RetryingInitializer(null))
+              .setApplicationName(APPLICATION_NAME).setRootUrl(rootUrl).build();
+    }
+    Credential credential = getCredentials(httpTransport, jsonFactory, dataStoreFactory);
+    LOGGER.info("Creating sheets object for application={}", APPLICATION_NAME);
+    return new Sheets.Builder(httpTransport, jsonFactory, new RetryingInitializer(credential))
+            .setApplicationName(APPLICATION_NAME).build();
+  }
+
+  private Credential getCredentials(HttpTransport httpTransport, JsonFactory jsonFactory,
+                                    FileDataStoreFactory dataStoreFactory) throws IOException {
+    LOGGER.info("Retrieving client_secret.json");
+    InputStream inputStream = SheetsDataSource.class.getResourceAsStream(SECRET_LOCATION);
+
+    LOGGER.info("Loading client_secret.json");
+    GoogleClientSecrets clientSecrets = GoogleClientSecrets.load(jsonFactory, new InputStreamReader(inputStream));
+
+    LOGGER.info("Building credentials");
+    GoogleAuthorizationCodeFlow codeFlow = new GoogleAuthorizationCodeFlow.Builder(httpTransport, jsonFactory,
+            clientSecrets, SCOPES).setDataStoreFactory(dataStoreFactory).setAccessType("offline").build();
+    return new AuthorizationCodeInstalledApp(codeFlow, new LocalServerReceiver()).authorize("user");
+  }
+
+  private List<List<Object>> download(String spreadsheetId, String range) throws IOException {
+    LOGGER.info("Now attempting to retrieve data from spreadsheet with spreadsheetId={}", spreadsheetId);
+    return getRetriever().spreadsheets().values().get(spreadsheetId, range).execute().getValues();
+  }
+
+  @Override
+  public boolean supports(String location) {
+    return location.contains(SurveyParser.EXPECTED_URL_PREFIX);
+  }
+
+  /**
+   * Retrieves the data in the given range in blocks of rows and hands each block to the handler as soon as it and
+   * every block before it have arrived. Blocks are requested concurrently, but no more than maxConcurrentRequests
+   * blocks are held at once. Ranges without explicit row bounds are retrieved in a single request.
+   * <p>
+   * With a cache, every download of the range is stored as its snapshot, and in offline mode the snapshot is served
+   * without any check. With the cache probe, the first column of the range is retrieved first and the range is served
+   * from its snapshot if that column is unchanged since the snapshot was taken.
+   *
+   * @param url                   a non-null string which is the full url path of the Google Spreadsheet
+   * @param range                 a non-null string which is range of cells to extract from the spreadsheet
+   * @param pageSize              number of rows to retrieve per request
+   * @param maxConcurrentRequests maximum number of requests in flight at once
+   * @param handler               non-null RowHandler which receives the rows in spreadsheet order
+   * @throws IOException if unable to retrieve data from spreadsheet or the handler fails
+   */
+  @Override
+  public void retrieveData(String url, String range, int pageSize, int maxConcurrentRequests, RowHandler handler)
+          throws IOException {
+    String spreadsheetId = getSpreadsheetId(url);
+    if (cache == null) {
+      download(spreadsheetId, range, pageSize, maxConcurrentRequests, handler);
+      return;
+    }
+
+    int blockSize = pageSize > 0 ? pageSize : CACHE_BLOCK_SIZE;
+    if (offline) {
+      if (!cache.read(spreadsheetId, range, null, blockSize, handler)) {
+        throw new IOException(String.format("No snapshot of spreadsheetId=%s range=%s is cached for offline mode",
+                spreadsheetId, range));
+      }
+      LOGGER.info("Serving spreadsheetId={} range={} from the cache", spreadsheetId, range);
+      return;
+    }
+
+    String fingerprint = null;
+    String probeRange = probe ? getProbeRange(range) : null;
+    if (probeRange != null) {
+      fingerprint = cache.fingerprint(download(spreadsheetId, probeRange));
+      if (cache.read(spreadsheetId, range, fingerprint, blockSize, handler)) {
+        LOGGER.info("Serving spreadsheetId={} range={} from the cache", spreadsheetId, range);
+        return;
+      }
+    }
+
+    try (SpreadsheetCache.Snapshot snapshot = cache.write(spreadsheetId, range, fingerprint)) {
+      download(spreadsheetId, range, pageSize, maxConcurrentRequests, rows -> {
+        snapshot.handleRows(rows);
+        handler.handleRows(rows);
+      });
+      snapshot.commit();
+    }
+  }
+
+  /**
+   * Gets the first column of a range, or null if retrieving it would cost as much as the range itself: for ranges of
+   * one column, and for named ranges and sheet names, whose columns aren't known.
+   */
+  private String getProbeRange(String range) {
+    CellRange cellRange = CellRange.parse(range);
+    if (cellRange == null) {
+      return null;
+    }
+    String probeRange = cellRange.firstColumn().toString();
+    return probeRange.equals(cellRange.toString()) ? null : probeRange;
+  }
+
+  private void download(String spreadsheetId, String range, int pageSize, int maxConcurrentRequests,
+                        RowHandler handler) throws IOException {
+    CellRange cellRange = CellRange.parse(range);
+    if (pageSize <= 0 || cellRange == null || cellRange.getRowCount() <= pageSize) {
+      List<List<Object>> values = download(spreadsheetId, range);
+      if (values != null) {
+        handler.handleRows(values);
+      }
+      return;
+    }
+
+    List<CellRange> blocks = cellRange.split(pageSize);
+    LOGGER.info("Now attempting to retrieve data from spreadsheet with spreadsheetId={} in {} blocks",
+            spreadsheetId, blocks.size());
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentRequests, blocks.size()));
+    try {
+      Deque<Future<List<List<Object>>>> inFlight = new ArrayDeque<>();
+      int nextBlock = 0;
+      int handledBlocks = 0;
+      int missingRows = 0;
+      while (handledBlocks < blocks.size()) {
+        while (nextBlock < blocks.size() && inFlight.size() < maxConcurrentRequests) {
+          String blockRange = blocks.get(nextBlock++).toString();
+          inFlight.addLast(executor.submit(() ->
+                  getRetriever().spreadsheets().values().get(spreadsheetId, blockRange).execute().getValues()));
+        }
+        List<List<Object>> rows = awaitBlock(inFlight.removeFirst());
+        int blockRows = blocks.get(handledBlocks++).getRowCount();
+
+        // Sheets drops trailing empty rows, so empty rows at the end of one block only exist if a later block has data
+        if (rows == null || rows.isEmpty()) {
+          missingRows += blockRows;
+          continue;
+        }
+        if (missingRows > 0) {
+          handler.handleRows(emptyRows(missingRows));
+        }
+        handler.handleRows(rows);
+        missingRows = blockRows - rows.size();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<List<Object>> awaitBlock(Future<List<List<Object>>> block) throws IOException {
+    try {
+      return block.get();
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while retrieving spreadsheet data");
+    }
+    catch (ExecutionException executionException) {
+      Throwable cause = executionException.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Unable to retrieve spreadsheet data", cause);
+    }
+  }
+
+  private List<List<Object>> emptyRows(int count) {
+    List<List<Object>> rows = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      rows.add(new ArrayList<>());
+    }
+    return rows;
+  }
+
+  /**
+   * Signs requests in, if there are credentials, and retries requests rejected for exceeding the quota or by a
+   * server error with exponential back off.
+   */
+  private class RetryingInitializer implements HttpRequestInitializer {
+
+    private final Credential credential;
+
+    private RetryingInitializer(Credential credential) {
+      this.credential = credential;
+    }
+
+    @Override
+    public void initialize(HttpRequest request) throws IOException {
+      if (credential != null) {
+        credential.initialize(request);
+      }
+      ExponentialBackOff backOff = new ExponentialBackOff.Builder().setInitialIntervalMillis(initialBackOffMillis)
+              .setMaxElapsedTimeMillis(maxBackOffElapsedMillis).build();
+      HttpBackOffUnsuccessfulResponseHandler backOffHandler = new HttpBackOffUnsuccessfulResponseHandler(backOff)
+              .setBackOffRequired(this::isRetried);
+      request.setUnsuccessfulResponseHandler((failedRequest, response, supportsRetry) -> {
+        if (credential != null && credential.handleResponse(failedRequest, response, supportsRetry)) {
+          return true;
+        }
+        boolean retry = backOffHandler.handleResponse(failedRequest, response, supportsRetry);
+        if (retry) {
+          LOGGER.warn("Retrying request for {} after status={}", failedRequest.getUrl(), response.getStatusCode());
+        }
+        return retry;
+      });
+    }
+
+    private boolean isRetried(HttpResponse response) {
+      return response.getStatusCode() == TOO_MANY_REQUESTS || response.getStatusCode() >= SERVER_ERROR;
+    }
+  }
+
+  private String getSpreadsheetId(String url) {
+    String result = url;
+    int editIndex = result.indexOf(EDIT_URL);
+    if (editIndex != -1) {
+      result = result.substring(0, editIndex);
+    }
+    return result.replace(SurveyParser.EXPECTED_URL_PREFIX, "").replace("/", "");
+  }
+}
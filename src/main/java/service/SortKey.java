@@ -0,0 +1,22 @@
+package service;
+
+/**
+ * A response the people of the directory can be ordered by.
+ */
+public enum SortKey {
+
+  /**
+   * Last name.
+   */
+  LAST_NAME,
+
+  /**
+   * First name as shown on the pages, which is the preferred first name if one was given.
+   */
+  FIRST_NAME,
+
+  /**
+   * Time the response was submitted, from the Timestamp column a Google Form adds to its spreadsheet.
+   */
+  TIMESTAMP
+}
@@ -0,0 +1,186 @@
+package service;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshots of retrieved spreadsheet ranges kept on disk between runs, keyed by spreadsheet id and range. Each
+ * snapshot stores the fingerprint of a probe of the spreadsheet taken when it was downloaded, if it was probed,
+ * followed by one JSON array per row, so it can be written and read back a block of rows at a time.
+ */
+class SpreadsheetCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpreadsheetCache.class);
+
+  static final File DEFAULT_DIRECTORY = new File(System.getProperty("user.home"), ".surveyParser/cache");
+
+  private static final String SNAPSHOT_EXTENSION = ".rows";
+  private static final String TEMPORARY_EXTENSION = ".tmp";
+
+  private final File directory;
+  private final JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+
+  /**
+   * Constructor that takes in the directory holding the snapshots.
+   *
+   * @param directory non-null directory of the cache, created when the first snapshot is written
+   */
+  SpreadsheetCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Computes the fingerprint of a freshness probe of the spreadsheet.
+   *
+   * @param probe values of the probe, null if the probed range is empty
+   * @return hex encoded hash of the probe
+   * @throws IOException if the probe can't be serialized
+   */
+  String fingerprint(List<List<Object>> probe) throws IOException {
+    String content = probe == null ? "" : jsonFactory.toString(probe);
+    return PageManifest.hash(content.toCharArray(), content.length());
+  }
+
+  /**
+   * Hands the rows of a snapshot to the handler, if a snapshot with the given fingerprint exists.
+   *
+   * @param spreadsheetId non-null id of the spreadsheet
+   * @param range         non-null range of the snapshot
+   * @param fingerprint   fingerprint the snapshot must have been taken with, or null to accept any snapshot
+   * @param blockSize     positive number of rows to hand to the handler at once
+   * @param handler       non-null RowHandler which receives the rows in spreadsheet order
+   * @return if the snapshot was found and handed to the handler
+   * @throws IOException if the snapshot can't be read or the handler fails
+   */
+  boolean read(String spreadsheetId, String range, String fingerprint, int blockSize, RowHandler handler)
+          throws IOException {
+    File snapshot = getSnapshotFile(spreadsheetId, range);
+    if (!snapshot.isFile()) {
+      return false;
+    }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(snapshot),
+            StandardCharsets.UTF_8))) {
+      String snapshotFingerprint = reader.readLine();
+      if (snapshotFingerprint == null || (fingerprint != null && !fingerprint.equals(snapshotFingerprint))) {
+        LOGGER.info("Snapshot of spreadsheetId={} range={} is out of date", spreadsheetId, range);
+        return false;
+      }
+
+      List<List<Object>> rows = new ArrayList<>();
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        rows.add(parseRow(line));
+        if (rows.size() == blockSize) {
+          handler.handleRows(rows);
+          rows = new ArrayList<>();
+        }
+      }
+      if (!rows.isEmpty()) {
+        handler.handleRows(rows);
+      }
+    }
+    return true;
+  }
+
+  private List<Object> parseRow(String line) throws IOException {
+    JsonParser parser = jsonFactory.createJsonParser(line);
+    try {
+      return new ArrayList<>(parser.parseArray(ArrayList.class, Object.class));
+    }
+    finally {
+      parser.close();
+    }
+  }
+
+  /**
+   * Starts a new snapshot. The previous snapshot of the range is only replaced once the new one is committed.
+   *
+   * @param spreadsheetId non-null id of the spreadsheet
+   * @param range         non-null range of the snapshot
+   * @param fingerprint   fingerprint of the probe of the spreadsheet the rows are downloaded from, or null if it was not
+   *                      probed, in which case only reads without a fingerprint accept the snapshot
+   * @return the snapshot to hand the rows to
+   * @throws IOException if the snapshot can't be created
+   */
+  Snapshot write(String spreadsheetId, String range, String fingerprint) throws IOException {
+    File snapshot = getSnapshotFile(spreadsheetId, range);
+    File folder = snapshot.getParentFile();
+    if (!folder.isDirectory() && !folder.mkdirs()) {
+      throw new IOException(String.format("Directory %s was not created successfully", folder));
+    }
+    return new Snapshot(snapshot, fingerprint);
+  }
+
+  private File getSnapshotFile(String spreadsheetId, String range) throws UnsupportedEncodingException {
+    String encoding = StandardCharsets.UTF_8.name();
+    return new File(new File(directory, URLEncoder.encode(spreadsheetId, encoding)),
+            URLEncoder.encode(range, encoding) + SNAPSHOT_EXTENSION);
+  }
+
+  /**
+   * A snapshot being written. Closing a snapshot that was not committed discards it.
+   */
+  class Snapshot implements RowHandler, Closeable {
+
+    private final File target;
+    private final File temporary;
+    private final Writer writer;
+    private boolean committed;
+
+    private Snapshot(File target, String fingerprint) throws IOException {
+      this.target = target;
+      // Jobs of a batch share the cache and may download the same range at once, so each gets its own file
+      temporary = Files.createTempFile(target.getParentFile().toPath(), target.getName(), TEMPORARY_EXTENSION)
+              .toFile();
+      writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary), StandardCharsets.UTF_8));
+      writer.write(fingerprint == null ? "" : fingerprint);
+      writer.write('\n');
+    }
+
+    @Override
+    public void handleRows(List<List<Object>> rows) throws IOException {
+      for (List<Object> row : rows) {
+        writer.write(jsonFactory.toString(row));
+        writer.write('\n');
+      }
+    }
+
+    /**
+     * Replaces the previous snapshot of the range with this one.
+     *
+     * @throws IOException if the snapshot can't be stored
+     */
+    void commit() throws IOException {
+      writer.close();
+      try {
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!committed) {
+        writer.close();
+        if (!temporary.delete()) {
+          LOGGER.warn("Unable to delete incomplete snapshot {}", temporary);
+        }
+      }
+    }
+  }
+}
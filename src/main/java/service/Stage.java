@@ -0,0 +1,77 @@
+package service;
+
+/**
+ * A step of a run that RunMetrics records the latency of.
+ */
+enum Stage {
+
+  /**
+   * Waiting for the next block of rows from the data source.
+   */
+  RETRIEVE("retrieve"),
+
+  /**
+   * Reading the header row.
+   */
+  PARSE_HEADERS("parseHeaders"),
+
+  /**
+   * Turning one row into a Person, once its responses are normalized.
+   */
+  PARSE_ROW("parseRow"),
+
+  /**
+   * Normalizing the responses of one row.
+   */
+  NORMALIZE("normalize"),
+
+  /**
+   * Sorting everyone into the order of the directory by their collated sort keys.
+   */
+  SORT("sort"),
+
+  /**
+   * Downloading the image of one person.
+   */
+  FETCH_IMAGE("fetchImage"),
+
+  /**
+   * Downscaling one image to the size it is displayed at.
+   */
+  THUMBNAIL("thumbnail"),
+
+  /**
+   * Rendering the page of one person.
+   */
+  RENDER("render"),
+
+  /**
+   * Adding the name and responses of one person to the search index.
+   */
+  INDEX("index"),
+
+  /**
+   * Counting responses for the answer summary: every person at once, or one person as they are rendered.
+   */
+  SUMMARIZE("summarize"),
+
+  /**
+   * Writing one file.
+   */
+  WRITE("write");
+
+  private final String metricName;
+
+  Stage(String metricName) {
+    this.metricName = metricName;
+  }
+
+  /**
+   * Gets the name the stage is reported under.
+   *
+   * @return name of the stage in the run report and JMX
+   */
+  String getMetricName() {
+    return metricName;
+  }
+}
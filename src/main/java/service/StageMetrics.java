@@ -0,0 +1,95 @@
+package service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram of one stage. Latencies fall into buckets that double in width, so recording one is a couple of
+ * atomic increments and a percentile is exact to within a factor of two. Safe to record into from several threads.
+ */
+class StageMetrics implements StageMetricsMBean {
+
+  private static final int BUCKETS = Long.SIZE;
+  private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Records one latency.
+   *
+   * @param nanos latency in nanoseconds; negative latencies are counted as 0
+   */
+  void record(long nanos) {
+    long latency = Math.max(nanos, 0);
+    buckets.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(latency | 1));
+    count.increment();
+    totalNanos.add(latency);
+    maxNanos.accumulateAndGet(latency, Math::max);
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public double getTotalMillis() {
+    return totalNanos.sum() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getMeanMicros() {
+    long recorded = count.sum();
+    return recorded == 0 ? 0 : totalNanos.sum() / NANOS_PER_MICRO / recorded;
+  }
+
+  @Override
+  public double getP50Micros() {
+    return getPercentileMicros(0.5);
+  }
+
+  @Override
+  public double getP95Micros() {
+    return getPercentileMicros(0.95);
+  }
+
+  @Override
+  public double getP99Micros() {
+    return getPercentileMicros(0.99);
+  }
+
+  @Override
+  public double getMaxMicros() {
+    return maxNanos.get() / NANOS_PER_MICRO;
+  }
+
+  /**
+   * Gets a percentile of the recorded latencies.
+   *
+   * @param percentile fraction of the latencies that are at most the result, between 0 and 1
+   * @return upper bound of the bucket holding the percentile in microseconds, or 0 if nothing was recorded
+   */
+  double getPercentileMicros(double percentile) {
+    long recorded = count.sum();
+    if (recorded == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(percentile * recorded), 1);
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += buckets.get(bucket);
+      if (seen >= rank) {
+        // Every latency in the bucket is below the next power of two, and none is above the maximum
+        long upperBound = bucket == BUCKETS - 1 ? Long.MAX_VALUE : (2L << bucket) - 1;
+        return Math.min(upperBound, maxNanos.get()) / NANOS_PER_MICRO;
+      }
+    }
+    return getMaxMicros();
+  }
+}
@@ -0,0 +1,56 @@
+package service;
+
+/**
+ * JMX view of the latencies recorded for one stage of a run.
+ */
+public interface StageMetricsMBean {
+
+  /**
+   * Gets the number of times the stage ran.
+   *
+   * @return number of recorded latencies
+   */
+  long getCount();
+
+  /**
+   * Gets the time spent in the stage.
+   *
+   * @return sum of every recorded latency in milliseconds
+   */
+  double getTotalMillis();
+
+  /**
+   * Gets the average latency of the stage.
+   *
+   * @return mean latency in microseconds, or 0 if the stage never ran
+   */
+  double getMeanMicros();
+
+  /**
+   * Gets the median latency of the stage.
+   *
+   * @return upper bound of the median latency in microseconds
+   */
+  double getP50Micros();
+
+  /**
+   * Gets the 95th percentile latency of the stage.
+   *
+   * @return upper bound of the 95th percentile latency in microseconds
+   */
+  double getP95Micros();
+
+  /**
+   * Gets the 99th percentile latency of the stage.
+   *
+   * @return upper bound of the 99th percentile latency in microseconds
+   */
+  double getP99Micros();
+
+  /**
+   * Gets the longest latency of the stage.
+   *
+   * @return maximum latency in microseconds
+   */
+  double getMaxMicros();
+}
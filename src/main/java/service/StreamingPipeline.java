@@ -0,0 +1,181 @@
+package service;
+
+import model.Person;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs retrieval, parsing and rendering as concurrent stages connected by bounded queues, so rows are parsed and
+ * rendered while later rows are still being downloaded. Rendered pages are spooled to disk and only a small key per
+ * person is kept in memory, which keeps memory use flat as the roster grows.
+ */
+class StreamingPipeline {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StreamingPipeline.class);
+
+  private static final List<Object> END_OF_ROWS = new ArrayList<>();
+  private static final Person END_OF_PEOPLE = new Person(Collections.emptyMap(), "");
+  private static final int STAGE_THREADS = 2;
+
+  private final DataParser dataParser;
+  private final FileGenerator fileGenerator;
+  private final int queueCapacity;
+  private RunMetrics metrics = new RunMetrics();
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param dataParser    non-null DataParser to use to retrieve and parse spreadsheet data
+   * @param fileGenerator non-null FileGenerator to use to render and write the student files
+   * @param queueCapacity positive number of rows (and people) that may wait between two stages
+   */
+  StreamingPipeline(DataParser dataParser, FileGenerator fileGenerator, int queueCapacity) {
+    this.dataParser = dataParser;
+    this.fileGenerator = fileGenerator;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Sets the metrics that sorting the spooled pages is recorded in. The other stages record into the metrics of the
+   * DataParser and FileGenerator.
+   *
+   * @param metrics non-null RunMetrics of the current run
+   */
+  void setMetrics(RunMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Retrieves, parses and renders the spreadsheet data, then writes the student files. Produces the same files as
+   * retrieving all the data, parsing it and generating the files one stage after another.
+   *
+   * @param url                   a non-null string which is the full url path of the Google Spreadsheet
+   * @param range                 a non-null string which is range of cells to extract from the spreadsheet
+   * @param imageIndex            an index which is column in the spreadsheet that contains the url of the person's image
+   * @param pageSize              number of rows to retrieve per request
+   * @param maxConcurrentRequests maximum number of requests in flight at once
+   * @throws IOException if retrieving, rendering or writing fails
+   */
+  void run(String url, String range, int imageIndex, int pageSize, int maxConcurrentRequests) throws IOException {
+    BlockingQueue<List<Object>> rows = new ArrayBlockingQueue<>(queueCapacity);
+    BlockingQueue<Person> people = new ArrayBlockingQueue<>(queueCapacity);
+    ExecutorService stages = Executors.newFixedThreadPool(STAGE_THREADS);
+
+    try (PageSpool spool = new PageSpool()) {
+      Future<?> retrieval = stages.submit(() -> {
+        try {
+          dataParser.retrieveData(url, range, pageSize, maxConcurrentRequests, block -> {
+            for (List<Object> row : block) {
+              put(rows, row);
+            }
+          });
+        }
+        finally {
+          put(rows, END_OF_ROWS);
+        }
+        return null;
+      });
+      Future<?> parsing = stages.submit(() -> {
+        try {
+          parse(rows, people, imageIndex);
+        }
+        finally {
+          put(people, END_OF_PEOPLE);
+        }
+        return null;
+      });
+
+      AnswerSummary answerSummary = fileGenerator.newAnswerSummary();
+      List<PageSpool.Page> pages = render(people, spool, answerSummary);
+      // a failed parsing stage stops draining rows, so it is checked first to avoid waiting on a blocked retrieval
+      await(parsing);
+      await(retrieval);
+
+      LOGGER.info("Sorting {} spooled pages", pages.size());
+      long sortStart = System.nanoTime();
+      Collections.sort(pages, PageSpool.Page.ORDER);
+      metrics.record(Stage.SORT, sortStart);
+
+      LOGGER.info("Beginning to write files from spooled pages");
+      fileGenerator.generateFiles(pages, spool, answerSummary);
+    }
+    finally {
+      stages.shutdownNow();
+    }
+  }
+
+  private void parse(BlockingQueue<List<Object>> rows, BlockingQueue<Person> people, int imageIndex)
+          throws InterruptedIOException {
+    List<Object> row = take(rows);
+    if (row == END_OF_ROWS) {
+      return;
+    }
+    dataParser.getHeaders(row);
+
+    LOGGER.info("Parsing data for each person as it arrives");
+    for (row = take(rows); row != END_OF_ROWS; row = take(rows)) {
+      put(people, dataParser.parseOnePerson(row, imageIndex));
+    }
+  }
+
+  private List<PageSpool.Page> render(BlockingQueue<Person> people, PageSpool spool, AnswerSummary answerSummary)
+          throws IOException {
+    List<PageSpool.Page> pages = new ArrayList<>();
+    RosterOrder rosterOrder = dataParser.getRosterOrder();
+    for (Person person = take(people); person != END_OF_PEOPLE; person = take(people)) {
+      if (answerSummary != null) {
+        long start = System.nanoTime();
+        answerSummary.add(person);
+        metrics.record(Stage.SUMMARIZE, start);
+      }
+      pages.add(spool.append(person, rosterOrder.getSortKey(person), fileGenerator.renderPageParts(person),
+              fileGenerator.getSearchTerms(person)));
+    }
+    return pages;
+  }
+
+  private static <T> void put(BlockingQueue<T> queue, T item) throws InterruptedIOException {
+    try {
+      queue.put(item);
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while handing data to the next stage");
+    }
+  }
+
+  private static <T> T take(BlockingQueue<T> queue) throws InterruptedIOException {
+    try {
+      return queue.take();
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for data from the previous stage");
+    }
+  }
+
+  private static void await(Future<?> stage) throws IOException {
+    try {
+      stage.get();
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a stage to finish");
+    }
+    catch (ExecutionException executionException) {
+      Throwable cause = executionException.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException("Stage failed", cause);
+    }
+  }
+}
@@ -4,9 +4,13 @@ import model.Person;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Facade of the back-end service of the application. Uses the DataParser and FileGenerator classes to take
@@ -25,10 +29,12 @@ public class SurveyParser {
 
   private final DataParser dataParser;
   private final FileGenerator fileGenerator;
+  private final RunOptions options;
 
   private String url;
   private String range;
   private String imageColumn;
+  private RunMetrics metrics;
 
   /**
    * Default Constructor.
@@ -37,7 +43,19 @@ public class SurveyParser {
     * @throws GeneralSecurityException if there is a security error
    */
   public SurveyParser() throws IOException, GeneralSecurityException {
-    this(new DataParser(), new FileGenerator());
+    this(new RunOptions());
+  }
+
+  /**
+   * Constructor that takes in the settings to run with.
+   *
+   * @param options non-null RunOptions to use for every run
+   * @throws IOException if files aren't found properly
+   * @throws GeneralSecurityException if there is a security error
+   */
+  public SurveyParser(RunOptions options) throws IOException, GeneralSecurityException {
+    this(createDataParser(options, createSheetsDataSource(options), new DelimitedFileSource()),
+            createFileGenerator(options, loadTemplates(options), null), options);
   }
 
   /**
@@ -47,15 +65,127 @@ public class SurveyParser {
    * @param fileGenerator non-null FileGenerator to use to generate student files
    */
   SurveyParser(DataParser dataParser, FileGenerator fileGenerator) {
+    this(dataParser, fileGenerator, new RunOptions());
+  }
+
+  /**
+   * Constructor used only for unit testing.
+   *
+   * @param dataParser non-null DataParser to use to retrieve and parse spreadsheet data
+   * @param fileGenerator non-null FileGenerator to use to generate student files
+   * @param options non-null RunOptions to use for every run
+   */
+  SurveyParser(DataParser dataParser, FileGenerator fileGenerator, RunOptions options) {
     this.dataParser = dataParser;
     this.fileGenerator = fileGenerator;
+    this.options = options;
+  }
+
+  /**
+   * Creates the source of Google Spreadsheets, with the cache and offline mode of the given settings. One source can
+   * be shared by several runs, which then share its Sheets client and HTTP transport.
+   *
+   * @param options non-null RunOptions to create the source with
+   * @return the SheetsDataSource
+   * @throws IOException if files aren't found properly
+   * @throws GeneralSecurityException if there is a security error
+   * @throws IllegalArgumentException if the options watch with a cache or offline, as every poll would miss the cache
+   */
+  static SheetsDataSource createSheetsDataSource(RunOptions options) throws IOException, GeneralSecurityException {
+    if (options.isWatch() && (options.getCacheDirectory() != null || options.isOffline())) {
+      throw new IllegalArgumentException("The spreadsheet can't be watched with a cache or offline");
+    }
+    SheetsDataSource sheetsDataSource = new SheetsDataSource();
+    if (options.getCacheDirectory() != null) {
+      sheetsDataSource.setCache(new SpreadsheetCache(options.getCacheDirectory()));
+    }
+    sheetsDataSource.setOffline(options.isOffline());
+    sheetsDataSource.setProbe(options.isCacheProbe());
+    return sheetsDataSource;
+  }
+
+  /**
+   * Creates a DataParser that reads from the given sources with the normalization policy and roster order of the
+   * given settings.
+   *
+   * @param options non-null RunOptions to create the parser with
+   * @param sources non-null sources to read from
+   * @return the DataParser
+   */
+  static DataParser createDataParser(RunOptions options, DataSource... sources) {
+    DataParser dataParser = new DataParser(sources);
+    dataParser.setNormalizationPolicy(options.getNormalizationPolicy());
+    dataParser.setRosterOrder(new RosterOrder(options.getSortLocale(), options.getSortKeys()));
+    return dataParser;
+  }
+
+  /**
+   * Loads the templates of the given settings, or the default layouts if no template directory was given.
+   *
+   * @param options non-null RunOptions to load the templates of
+   * @return the PageTemplates
+   * @throws IOException if a template can't be read
+   */
+  static PageTemplates loadTemplates(RunOptions options) throws IOException {
+    return options.getTemplateDirectory() == null ? new PageTemplates()
+            : PageTemplates.load(options.getTemplateDirectory());
+  }
+
+  /**
+   * Creates a FileGenerator that renders with the given templates and writes in the given folder.
+   *
+   * @param options      non-null RunOptions to create the generator with
+   * @param templates    non-null PageTemplates to render every page with
+   * @param outputFolder folder to create the studentPages folder (or a relative archive) in, or null for the working
+   *                     directory
+   * @return the FileGenerator
+   */
+  static FileGenerator createFileGenerator(RunOptions options, PageTemplates templates, File outputFolder) {
+    FileGenerator fileGenerator = outputFolder == null ? new FileGenerator(templates)
+            : new FileGenerator(templates, outputFolder);
+    fileGenerator.setIncremental(options.isIncremental());
+    if (options.isChannelOutput()) {
+      // The same charset FileWriter uses, so the files are identical to those written through getFileWriter
+      fileGenerator.setChannelWriter(new ChannelPageWriter(Charset.defaultCharset(), options.getSyncPolicy()));
+    }
+    if (options.isImages() && (options.isStreaming() || options.isWatch() || options.getArchive() != null)) {
+      throw new IllegalArgumentException("Images can't be fetched by streaming, watching or archived runs");
+    }
+    if (options.getServePort() != RunOptions.NOT_SERVED && (options.isWatch() || options.isIncremental()
+            || options.getArchive() != null || options.isImages())) {
+      throw new IllegalArgumentException("Pages can't be served by watching, incremental, archived or image runs");
+    }
+    if (options.isSearch()) {
+      fileGenerator.setSearchColumns(options.getSearchColumns());
+    }
+    fileGenerator.setAnswerSummary(options.isAnswerSummary());
+    if (options.isDirectoryByInitial()) {
+      if (options.getDirectoryPageSize() != RunOptions.SINGLE_DIRECTORY_PAGE) {
+        throw new IllegalArgumentException("The directory can't be split both by initial and by page size");
+      }
+      fileGenerator.setDirectorySharding(DirectorySharding.byInitial(options.getSortLocale()));
+    }
+    else if (options.getDirectoryPageSize() != RunOptions.SINGLE_DIRECTORY_PAGE) {
+      fileGenerator.setDirectorySharding(DirectorySharding.bySize(options.getDirectoryPageSize()));
+    }
+    File archive = options.getArchive();
+    if (archive != null) {
+      if (options.isIncremental() || options.isWatch()) {
+        throw new IllegalArgumentException("An archive can't be written by incremental or watching runs");
+      }
+      fileGenerator.setArchive(outputFolder == null || archive.isAbsolute() ? archive
+              : new File(outputFolder, archive.getPath()));
+    }
+    return fileGenerator;
   }
 
   /**
    * Runs the Survey Parser program.
-   * With the given inputs it will generate the files for each person with their given responses.
+   * With the given inputs it will generate the files for each person with their given responses. In watch mode it
+   * then keeps the files up to date as responses are added, and only returns by throwing once interrupted.
    *
-   * @param url         non-null string which is the full url path of the Google Spreadsheet
+   * @param url         non-null string which is the full url path of the Google Spreadsheet, or the path of a CSV or
+   *                    TSV export of it
    * @param range       non-null string which is range of cells to extract from the spreadsheet
    * @param imageColumn non-null string which is column in the spreadsheet that contains the url of the person's image
    * @throws IOException if something in the dataParser of fileGenerator goes wrong
@@ -69,17 +199,166 @@ public class SurveyParser {
 
     validateInput();
 
-    LOGGER.info("Beginning to retrieve data from spreadsheet={} with range={}", url, range);
-    List<List<Object>> data = dataParser.retrieveData(url, range);
-
     int imageIndex = imageColumn.toUpperCase().charAt(0) - range.charAt(RANGE_COLUMN_START_INDEX);
     LOGGER.info("Picture link is at index={}", imageIndex);
 
-    LOGGER.info("Beginning to parse through retrieved data");
-    List<Person> people = dataParser.parseData(data, imageIndex);
+    metrics = new RunMetrics();
+    metrics.register();
+    dataParser.setMetrics(metrics);
+    fileGenerator.setMetrics(metrics);
 
-    LOGGER.info("Beginning to generate files");
-    fileGenerator.generateFiles(people);
+    if (options.getServePort() != RunOptions.NOT_SERVED) {
+      serve(imageIndex);
+      return;
+    }
+
+    if (options.isWatch()) {
+      LOGGER.info("Watching spreadsheet={} for new responses", url);
+      new SurveyWatcher(dataParser, fileGenerator, metrics,
+              TimeUnit.SECONDS.toMillis(options.getPollIntervalSeconds()),
+              TimeUnit.SECONDS.toMillis(options.getMaxPollIntervalSeconds())).watch(url, range, imageIndex);
+      return;
+    }
+
+    try {
+      generateFiles(imageIndex, metrics);
+
+      metrics.finish();
+      LOGGER.info("Parsed {} rows and wrote {} files ({} bytes) in {} ms", metrics.getRows(),
+              metrics.getFilesWritten(), metrics.getBytesWritten(), metrics.getElapsedMillis());
+      fileGenerator.writeRunReport(metrics);
+    }
+    finally {
+      fileGenerator.finishOutput();
+    }
+  }
+
+  /**
+   * Serves the pages from memory until the thread is interrupted, running again every reload interval. A reload that
+   * fails is logged, and the pages of the last run that worked keep being served.
+   */
+  private void serve(int imageIndex) throws IOException {
+    PageStore pageStore = new PageStore();
+    loadPages(imageIndex, pageStore);
+    try (PageServer server = new PageServer(pageStore, options.getServePort(), options.getServeThreads(),
+            options.getMaxAgeSeconds())) {
+      LOGGER.info("Serving {} files at http://localhost:{}/", pageStore.size(), server.getPort());
+      while (true) {
+        try {
+          TimeUnit.SECONDS.sleep(options.getReloadIntervalSeconds());
+        }
+        catch (InterruptedException interruptedException) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Stopped serving pages");
+        }
+
+        metrics = new RunMetrics();
+        metrics.register();
+        dataParser.setMetrics(metrics);
+        fileGenerator.setMetrics(metrics);
+        try {
+          loadPages(imageIndex, pageStore);
+        }
+        catch (InterruptedIOException interruptedException) {
+          throw interruptedException;
+        }
+        catch (IOException | RuntimeException reloadFailure) {
+          LOGGER.warn("Unable to reload pages, still serving the previous ones", reloadFailure);
+        }
+      }
+    }
+  }
+
+  private void loadPages(int imageIndex, PageStore pageStore) throws IOException {
+    PageStore.Snapshot snapshot = new PageStore.Snapshot();
+    fileGenerator.setPageSnapshot(snapshot);
+    generateFiles(imageIndex, metrics);
+    metrics.finish();
+    fileGenerator.writeRunReport(metrics);
+    pageStore.publish(snapshot);
+    LOGGER.info("Loaded {} rows into {} files ({} bytes) in {} ms", metrics.getRows(), snapshot.size(),
+            metrics.getBytesWritten(), metrics.getElapsedMillis());
+  }
+
+  /**
+   * Retrieves and parses the survey like {@link #run(String, String, String)}, without writing any files, and indexes
+   * the people so that questions about their responses can be answered quickly.
+   *
+   * @param url         non-null string which is the full url path of the Google Spreadsheet, or the path of a CSV or
+   *                    TSV export of it
+   * @param range       non-null string which is range of cells to extract from the spreadsheet
+   * @param imageColumn non-null string which is column in the spreadsheet that contains the url of the person's image
+   * @return the RosterIndex of everyone in the survey, in the order of the directory
+   * @throws IOException if the survey can't be retrieved
+   */
+  public RosterIndex index(String url, String range, String imageColumn) throws IOException {
+    this.url = url;
+    this.range = range;
+    this.imageColumn = imageColumn;
+    validateInput();
+    int imageIndex = this.imageColumn.charAt(0) - this.range.charAt(RANGE_COLUMN_START_INDEX);
+
+    metrics = new RunMetrics();
+    dataParser.setMetrics(metrics);
+    List<Person> people = retrievePeople(imageIndex);
+    long start = System.nanoTime();
+    RosterIndex rosterIndex = new RosterIndex(dataParser.getResponseHeaders(imageIndex), people);
+    LOGGER.info("Indexed {} people in {} ms", people.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return rosterIndex;
+  }
+
+  /**
+   * Gets the metrics of the last run.
+   *
+   * @return the RunMetrics of the last run, or null if nothing was run yet
+   */
+  RunMetrics getMetrics() {
+    return metrics;
+  }
+
+  private void generateFiles(int imageIndex, RunMetrics metrics) throws IOException {
+    if (options.isStreaming()) {
+      LOGGER.info("Beginning to stream data from spreadsheet={} with range={} into files", url, range);
+      StreamingPipeline pipeline = new StreamingPipeline(dataParser, fileGenerator, options.getQueueCapacity());
+      pipeline.setMetrics(metrics);
+      pipeline.run(url, range, imageIndex, options.getPageSize(), options.getMaxConcurrentRequests());
+      return;
+    }
+
+    List<Person> people = retrievePeople(imageIndex);
+
+    if (options.isImages()) {
+      LOGGER.info("Beginning to fetch images");
+      ImagePrefetcher imagePrefetcher = new ImagePrefetcher(options.getImageThreads(), options.getImagesPerHost());
+      imagePrefetcher.setMetrics(metrics);
+      fileGenerator.setImageNames(imagePrefetcher.prefetch(people, fileGenerator));
+    }
+
+    if (options.getParallelism() > 1) {
+      LOGGER.info("Beginning to generate files on {} threads", options.getParallelism());
+      fileGenerator.generateFiles(people, options.getParallelism());
+    }
+    else {
+      LOGGER.info("Beginning to generate files");
+      fileGenerator.generateFiles(people);
+    }
+  }
+
+  private List<Person> retrievePeople(int imageIndex) throws IOException {
+    if (options.getPageSize() == RunOptions.SINGLE_REQUEST) {
+      LOGGER.info("Beginning to retrieve data from spreadsheet={} with range={}", url, range);
+      List<List<Object>> data = dataParser.retrieveData(url, range);
+
+      LOGGER.info("Beginning to parse through retrieved data");
+      return dataParser.parseData(data, imageIndex);
+    }
+    else {
+      LOGGER.info("Beginning to retrieve and parse data from spreadsheet={} with range={} in pages of {} rows",
+              url, range, options.getPageSize());
+      return dataParser.retrieveAndParseData(url, range, imageIndex, options.getPageSize(),
+              options.getMaxConcurrentRequests());
+    }
   }
 
   private void validateInput() {
@@ -108,9 +387,9 @@ public class SurveyParser {
   }
 
   private void validateUrl() {
-    if (!url.contains(EXPECTED_URL_PREFIX)) {
-      throw new IllegalArgumentException(String.format("URL must contain %s. URL given was= %s",
-              EXPECTED_URL_PREFIX, url));
+    if (!url.contains(EXPECTED_URL_PREFIX) && !DelimitedFileSource.isDelimitedFile(url)) {
+      throw new IllegalArgumentException(String.format(
+              "URL must contain %s or be a .csv or .tsv file. URL given was= %s", EXPECTED_URL_PREFIX, url));
     }
   }
 
@@ -0,0 +1,189 @@
+package service;
+
+import model.Person;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the files of a run up to date while responses are added to the spreadsheet. Forms only ever append rows, so
+ * after the first full run only the rows after the last row retrieved are requested. New people are inserted into the
+ * sorted list and only their pages, the pages linking to them and the directory are written again. The time between
+ * polls doubles while nothing changes, up to a limit, and drops back as soon as new rows arrive.
+ * <p>
+ * Edits made to rows that were already retrieved are not picked up; run again without watching to pick them up.
+ */
+class SurveyWatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SurveyWatcher.class);
+
+  private final DataParser dataParser;
+  private final FileGenerator fileGenerator;
+  private final RunMetrics metrics;
+  private final long minIntervalMillis;
+  private final long maxIntervalMillis;
+  private final List<Person> unwritten = new ArrayList<>();
+
+  private String url;
+  private CellRange range;
+  private int imageIndex;
+  private List<Person> people;
+  private int nextRow;
+  private long intervalMillis;
+
+  /**
+   * Constructor that takes in all given fields.
+   *
+   * @param dataParser        non-null DataParser to use to retrieve and parse spreadsheet data
+   * @param fileGenerator     non-null FileGenerator to use to write the student files
+   * @param metrics           non-null RunMetrics to record into and report after every update
+   * @param minIntervalMillis positive time between polls while new rows keep arriving
+   * @param maxIntervalMillis time between polls once nothing has changed for a while, at least minIntervalMillis
+   */
+  SurveyWatcher(DataParser dataParser, FileGenerator fileGenerator, RunMetrics metrics, long minIntervalMillis,
+                long maxIntervalMillis) {
+    this.dataParser = dataParser;
+    this.fileGenerator = fileGenerator;
+    this.metrics = metrics;
+    this.minIntervalMillis = minIntervalMillis;
+    this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+    this.intervalMillis = minIntervalMillis;
+  }
+
+  /**
+   * Writes the files for the whole range, then polls for new rows until the thread is interrupted. A poll that fails,
+   * for instance because the network is down, is logged and retried after the next interval.
+   *
+   * @param url        non-null string which is the full url path of the Google Spreadsheet, or the path of a CSV or
+   *                   TSV export of it
+   * @param range      non-null range of cells holding the header row and the responses; rows added after its end
+   *                   are picked up too
+   * @param imageIndex an index which is column in the spreadsheet that contains the url of the person's image
+   * @throws IOException if the first run fails
+   * @throws InterruptedIOException once the thread is interrupted
+   */
+  void watch(String url, String range, int imageIndex) throws IOException {
+    start(url, range, imageIndex);
+    while (true) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(intervalMillis);
+      }
+      catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Stopped watching the spreadsheet");
+      }
+      try {
+        poll();
+      }
+      catch (InterruptedIOException interruptedException) {
+        throw interruptedException;
+      }
+      catch (IOException | RuntimeException pollFailure) {
+        LOGGER.warn("Unable to poll spreadsheet={} for new rows, trying again in {} ms", url, intervalMillis,
+                pollFailure);
+      }
+    }
+  }
+
+  /**
+   * Retrieves and parses the whole range and writes the files for it.
+   *
+   * @param url        non-null string which is the full url path of the Google Spreadsheet, or the path of a CSV or
+   *                   TSV export of it
+   * @param range      non-null range of cells holding the header row and the responses
+   * @param imageIndex an index which is column in the spreadsheet that contains the url of the person's image
+   * @throws IOException if unable to retrieve the data or write the files
+   */
+  void start(String url, String range, int imageIndex) throws IOException {
+    CellRange cellRange = CellRange.parse(range);
+    if (cellRange == null) {
+      throw new IllegalArgumentException(String.format("Range must be in A1 notation to be watched. Range given was=%s",
+              range));
+    }
+    this.url = url;
+    this.range = cellRange;
+    this.imageIndex = imageIndex;
+
+    LOGGER.info("Beginning to retrieve data from spreadsheet={} with range={}", url, range);
+    List<List<Object>> data = dataParser.retrieveData(url, range);
+    people = dataParser.parseData(data, imageIndex);
+    unwritten.clear();
+    nextRow = cellRange.getFirstRow() + data.size();
+    fileGenerator.generateFiles(people);
+    fileGenerator.writeRunReport(metrics);
+    fileGenerator.finishOutput();
+    LOGGER.info("Wrote files for {} people, watching for rows from row {}", people.size(), nextRow);
+  }
+
+  /**
+   * Retrieves the rows added since the last poll and updates the files they affect, along with those of people added
+   * by earlier polls whose files could not be written. Adjusts the time until the next poll: back to the shortest
+   * interval if files were updated, twice as long otherwise.
+   *
+   * @return if any files were updated
+   * @throws IOException if unable to retrieve the rows or write the files
+   */
+  boolean poll() throws IOException {
+    String newRange = range.rowsFrom(nextRow).toString();
+    List<List<Object>> rows = dataParser.retrieveData(url, newRange);
+    if (rows != null && !rows.isEmpty()) {
+      LOGGER.info("Found {} new rows in range={}", rows.size(), newRange);
+      List<Person> added = dataParser.parseMoreData(rows, imageIndex);
+      for (Person person : added) {
+        insert(person);
+      }
+      nextRow += rows.size();
+      unwritten.addAll(added);
+    }
+    if (unwritten.isEmpty()) {
+      intervalMillis = Math.min(intervalMillis * 2, maxIntervalMillis);
+      LOGGER.debug("No new rows in range={}, polling again in {} ms", newRange, intervalMillis);
+      return false;
+    }
+
+    // The added people stay unwritten until their files are, so a poll after a failed update writes them again
+    fileGenerator.updateFiles(people, unwritten);
+    unwritten.clear();
+    fileGenerator.writeRunReport(metrics);
+    fileGenerator.finishOutput();
+    intervalMillis = minIntervalMillis;
+    return true;
+  }
+
+  private void insert(Person person) {
+    long start = System.nanoTime();
+    // After every equal name, as a stable sort of all rows would place a later row
+    Comparator<Person> order = dataParser.getRosterOrder().comparator();
+    int index = Collections.binarySearch(people, person, (p1, p2) -> {
+      int comparison = order.compare(p1, p2);
+      return comparison == 0 ? -1 : comparison;
+    });
+    people.add(-index - 1, person);
+    metrics.record(Stage.SORT, start);
+  }
+
+  /**
+   * Gets the time until the next poll.
+   *
+   * @return interval in milliseconds
+   */
+  long getIntervalMillis() {
+    return intervalMillis;
+  }
+
+  /**
+   * Gets the people of the run so far, in the order of the directory.
+   *
+   * @return sorted list of every Person
+   */
+  List<Person> getPeople() {
+    return people;
+  }
+}
@@ -0,0 +1,23 @@
+package service;
+
+/**
+ * When files written through a FileChannel are forced to the storage device. Without syncing, a crash of the machine
+ * shortly after a run may lose pages that the run reported as written.
+ */
+public enum SyncPolicy {
+
+  /**
+   * Leaves flushing to the operating system, like the default writer does.
+   */
+  NONE,
+
+  /**
+   * Syncs the files written so far every few hundred files, so at most one batch is lost in a crash.
+   */
+  BATCH,
+
+  /**
+   * Syncs every file once, when the run finishes.
+   */
+  END
+}
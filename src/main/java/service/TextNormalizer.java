@@ -0,0 +1,96 @@
+package service;
+
+import java.text.Normalizer;
+
+/**
+ * Converts responses to ASCII according to a NormalizationPolicy. Responses that are already ASCII, the large
+ * majority, are returned as they are without any allocation. Other characters are looked up in tables computed once
+ * from their canonical decomposition, which gives the same result as decomposing the whole response and dropping
+ * everything outside of ASCII: combining marks are never ASCII, so reordering them can't change what is kept.
+ */
+class TextNormalizer {
+
+  private static final char LAST_ASCII = 0x7F;
+  private static final char DROPPED = 0;
+  // No character past this point has an ASCII letter in its canonical decomposition
+  private static final int TABLE_SIZE = 0x3000;
+  private static final char[] STRIPPED = new char[TABLE_SIZE];
+  private static final String[] TRANSLITERATED = new String[TABLE_SIZE];
+  private static final String[][] TRANSLITERATIONS = {
+          {"ß", "ss"}, {"ẞ", "SS"}, {"æ", "ae"}, {"Æ", "AE"}, {"œ", "oe"}, {"Œ", "OE"}, {"ø", "o"}, {"Ø", "O"},
+          {"đ", "d"}, {"Đ", "D"}, {"ð", "d"}, {"Ð", "D"}, {"þ", "th"}, {"Þ", "Th"}, {"ł", "l"}, {"Ł", "L"},
+          {"ŀ", "l"}, {"Ŀ", "L"}, {"ı", "i"}, {"ĸ", "k"}, {"ŉ", "'n"}, {"ſ", "s"}, {"ħ", "h"}, {"Ħ", "H"},
+          {"ŧ", "t"}, {"Ŧ", "T"}, {"ŋ", "ng"}, {"Ŋ", "NG"}, {"ƒ", "f"}, {"ĳ", "ij"}, {"Ĳ", "IJ"},
+          {"«", "\""}, {"»", "\""}, {"´", "'"}, {"·", "."}, {"×", "x"}, {"÷", "/"}, {"©", "(c)"}, {"®", "(R)"},
+          {"‘", "'"}, {"’", "'"}, {"‚", "'"}, {"‛", "'"}, {"“", "\""}, {"”", "\""}, {"„", "\""}, {"′", "'"},
+          {"″", "\""}, {"‹", "<"}, {"›", ">"}, {"•", "*"}, {"…", "..."}, {"€", "EUR"}, {"™", "TM"},
+          // No-break, en, em, thin and hair spaces
+          {"\u00A0", " "}, {"\u2002", " "}, {"\u2003", " "}, {"\u2009", " "}, {"\u200A", " "},
+          // Hyphen, non-breaking hyphen, figure dash, en dash, em dash and horizontal bar
+          {"\u2010", "-"}, {"\u2011", "-"}, {"\u2012", "-"}, {"\u2013", "-"}, {"\u2014", "-"}, {"\u2015", "-"}};
+
+  static {
+    for (char c = LAST_ASCII + 1; c < TABLE_SIZE; c++) {
+      char first = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+      STRIPPED[c] = first <= LAST_ASCII ? first : DROPPED;
+    }
+    for (String[] transliteration : TRANSLITERATIONS) {
+      TRANSLITERATED[transliteration[0].charAt(0)] = transliteration[1];
+    }
+  }
+
+  private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(StringBuilder::new);
+
+  private final NormalizationPolicy policy;
+
+  /**
+   * Constructor that takes in the policy to normalize with.
+   *
+   * @param policy non-null NormalizationPolicy to apply to every response
+   */
+  TextNormalizer(NormalizationPolicy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * Normalizes one response.
+   *
+   * @param input non-null response
+   * @return the normalized response, which is the input itself if nothing had to change
+   */
+  String normalize(String input) {
+    if (policy == NormalizationPolicy.KEEP) {
+      return input;
+    }
+    int firstNonAscii = 0;
+    while (firstNonAscii < input.length() && input.charAt(firstNonAscii) <= LAST_ASCII) {
+      firstNonAscii++;
+    }
+    if (firstNonAscii == input.length()) {
+      return input;
+    }
+
+    StringBuilder result = BUFFERS.get();
+    result.setLength(0);
+    result.append(input, 0, firstNonAscii);
+    for (int i = firstNonAscii; i < input.length(); i++) {
+      char c = input.charAt(i);
+      if (c <= LAST_ASCII) {
+        result.append(c);
+      }
+      else if (c < TABLE_SIZE) {
+        appendTableEntry(result, c);
+      }
+    }
+    return result.toString();
+  }
+
+  private void appendTableEntry(StringBuilder result, char c) {
+    if (STRIPPED[c] != DROPPED) {
+      result.append(STRIPPED[c]);
+    }
+    else if (policy == NormalizationPolicy.TRANSLITERATE && TRANSLITERATED[c] != null) {
+      result.append(TRANSLITERATED[c]);
+    }
+  }
+}
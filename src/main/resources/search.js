@@ -0,0 +1,106 @@
+// Searches the directory with the index written next to it. Terms are split into one script per first character,
+// which is only loaded once a word starting with that character is typed.
+var SearchIndex = (function () {
+  var MAX_RESULTS = 50;
+  var OTHER_SHARD = "_";
+  var shards = {};
+  var waiting = {};
+  var input = document.getElementById("search");
+  var results = document.getElementById("searchResults");
+
+  // Same as SearchIndex.java: no accents, lower case, words of letters and digits
+  function terms(text) {
+    return text.normalize("NFD").replace(/\p{M}+/gu, "").toLowerCase().split(/[^\p{L}\p{N}]+/u)
+        .filter(function (term) { return term.length > 0; });
+  }
+
+  function shardOf(term) {
+    return /^[a-z0-9]/.test(term) ? term.charAt(0) : OTHER_SHARD;
+  }
+
+  function loadShard(shard, done) {
+    if (shards[shard]) {
+      done();
+      return;
+    }
+    if (waiting[shard]) {
+      waiting[shard].push(done);
+      return;
+    }
+    waiting[shard] = [done];
+    var script = document.createElement("script");
+    script.src = "search/" + shard + ".js";
+    script.onerror = function () {
+      load(shard, {names: {}, terms: {}});
+    };
+    document.head.appendChild(script);
+  }
+
+  function load(shard, index) {
+    shards[shard] = index;
+    var callbacks = waiting[shard] || [];
+    delete waiting[shard];
+    callbacks.forEach(function (callback) { callback(); });
+  }
+
+  // People with a term starting with the word, and the names of those people
+  function find(word) {
+    var index = shards[shardOf(word)];
+    var found = {};
+    Object.keys(index.terms).forEach(function (term) {
+      if (term.lastIndexOf(word, 0) === 0) {
+        index.terms[term].forEach(function (id) { found[id] = index.names[id]; });
+      }
+    });
+    return found;
+  }
+
+  function show(words) {
+    var matches = null;
+    words.forEach(function (word) {
+      var found = find(word);
+      if (matches === null) {
+        matches = found;
+        return;
+      }
+      Object.keys(matches).forEach(function (id) {
+        if (!(id in found)) {
+          delete matches[id];
+        }
+      });
+    });
+    results.innerHTML = "";
+    Object.keys(matches || {}).map(Number).sort(function (a, b) { return a - b; }).slice(0, MAX_RESULTS)
+        .forEach(function (id) {
+          var link = document.createElement("a");
+          // Pages are named after the name they are listed under
+          link.href = encodeURIComponent(matches[id]) + ".html";
+          link.textContent = matches[id];
+          var item = document.createElement("li");
+          item.appendChild(link);
+          results.appendChild(item);
+        });
+  }
+
+  function search() {
+    var query = input.value;
+    var words = terms(query);
+    var pending = words.length;
+    if (pending === 0) {
+      results.innerHTML = "";
+      return;
+    }
+    words.forEach(function (word) {
+      loadShard(shardOf(word), function () {
+        pending--;
+        // Show only the latest query once every shard it needs is loaded
+        if (pending === 0 && input.value === query) {
+          show(words);
+        }
+      });
+    });
+  }
+
+  input.addEventListener("input", search);
+  return {load: load};
+})();
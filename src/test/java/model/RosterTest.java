@@ -0,0 +1,143 @@
+package model;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class RosterTest {
+
+  private static final int IMAGE_INDEX = 2;
+  private static final String IMAGE_LINK = "picture";
+  private static final String MAJOR = "Major:";
+
+  private Roster testModel;
+
+  @BeforeMethod
+  public void setUp() {
+    testModel = new Roster(Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, Person.LAST_NAME_KEY, "Link to Picture", MAJOR),
+            IMAGE_INDEX);
+  }
+
+  @Test
+  public void shouldViewRowAsPersonWithSameData() {
+    Person result = testModel.add(new String[]{"First", "Last", IMAGE_LINK, "Biology"});
+
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put(Person.GIVEN_FIRST_NAME_KEY, "First");
+    data.put(Person.LAST_NAME_KEY, "Last");
+    data.put(MAJOR, "Biology");
+    assertEquals(result, new Person(data, IMAGE_LINK));
+    assertEquals(result.getData().toString(), data.toString());
+    assertEquals(result.getName(), "First Last");
+    assertEquals(result.getLastName(), "Last");
+  }
+
+  @Test
+  public void shouldLeaveOutMissingCells() {
+    Person result = testModel.add(new String[]{"First", "Last"});
+
+    assertEquals(result.getData().size(), 2);
+    assertFalse(result.getData().containsKey(MAJOR));
+    assertNull(result.getData().get(MAJOR));
+    assertEquals(result.getImageLink(), "");
+  }
+
+  @Test
+  public void shouldVisitAnsweredCellsInColumnOrder() {
+    Person result = testModel.add(new String[]{"First", null, IMAGE_LINK, "Biology"});
+    Map<String, String> visited = new LinkedHashMap<>();
+
+    result.getData().forEach(visited::put);
+
+    assertEquals(new ArrayList<>(visited.entrySet()), new ArrayList<>(result.getData().entrySet()));
+  }
+
+  @Test
+  public void shouldKeyResponsesByEveryHeaderButImageColumn() {
+    assertEquals(testModel.getResponseHeaders(), Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, Person.LAST_NAME_KEY,
+            MAJOR));
+  }
+
+  @Test
+  public void shouldKeepRowsWhileGrowing() {
+    for (int i = 0; i < 100; i++) {
+      testModel.add(new String[]{"First" + i, "Last" + i, IMAGE_LINK + i});
+    }
+
+    assertEquals(testModel.size(), 100);
+    assertEquals(testModel.get(0).getName(), "First0 Last0");
+    assertEquals(testModel.get(99).getName(), "First99 Last99");
+    assertEquals(testModel.get(57).getImageLink(), IMAGE_LINK + 57);
+  }
+
+  @Test
+  public void shouldNotKeepWrappedRow() {
+    Person result = testModel.wrap(new String[]{"First", "Last", IMAGE_LINK});
+
+    assertEquals(result.getName(), "First Last");
+    assertEquals(result.getImageLink(), IMAGE_LINK);
+    assertEquals(testModel.size(), 0);
+  }
+
+  @Test
+  public void shouldUseLastValueOfRepeatedHeader() {
+    Roster roster = new Roster(Arrays.asList(Person.LAST_NAME_KEY, MAJOR, MAJOR), -1);
+
+    Person result = roster.add(new String[]{"Last", "Biology", "Physics"});
+
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put(Person.LAST_NAME_KEY, "Last");
+    data.put(MAJOR, "Biology");
+    data.put(MAJOR, "Physics");
+    assertEquals(result.getData(), data);
+  }
+
+  @Test
+  public void shouldStoreRepeatedAnswersOnce() {
+    Person first = testModel.add(new String[]{"First", "Last", IMAGE_LINK, new String("Biology")});
+    Person second = testModel.add(new String[]{"Second", "Last", IMAGE_LINK, new String("Biology")});
+    testModel.add(new String[]{"Third", "Last", IMAGE_LINK, "Physics"});
+    testModel.add(new String[]{"Fourth", "Last", IMAGE_LINK});
+
+    ColumnDictionary result = testModel.getDictionary(3);
+    assertEquals(result.getValues(), Arrays.asList("Biology", "Physics"));
+    assertSame(first.getData().get(MAJOR), second.getData().get(MAJOR));
+    assertFalse(testModel.get(3).getData().containsKey(MAJOR));
+  }
+
+  @Test
+  public void shouldStopEncodingColumnWithTooManyDistinctAnswers() {
+    int people = Roster.MAX_DICTIONARY_SIZE + 10;
+    for (int i = 0; i < people; i++) {
+      testModel.add(new String[]{"First" + i, "Last", IMAGE_LINK, i % 2 == 0 ? "Biology" : null});
+    }
+
+    assertNull(testModel.getDictionary(0));
+    assertNotNull(testModel.getDictionary(1));
+    assertEquals(testModel.get(0).getName(), "First0 Last");
+    assertEquals(testModel.get(people - 1).getName(), "First" + (people - 1) + " Last");
+    assertEquals(testModel.get(people - 2).getData().get(MAJOR), "Biology");
+    assertFalse(testModel.get(people - 1).getData().containsKey(MAJOR));
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*Cells given was=5.*")
+  public void shouldRejectRowLongerThanHeaders() {
+    testModel.add(new String[]{"First", "Last", IMAGE_LINK, "Biology", "Extra"});
+  }
+
+  @Test (expectedExceptions = IndexOutOfBoundsException.class)
+  public void shouldRejectRowOutsideRoster() {
+    testModel.get(0);
+  }
+}
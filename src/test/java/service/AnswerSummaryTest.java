@@ -0,0 +1,175 @@
+package service;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import model.Person;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class AnswerSummaryTest {
+
+  private AnswerSummary testModel;
+
+  @BeforeMethod
+  public void setUp() {
+    testModel = new AnswerSummary();
+  }
+
+  @Test
+  public void shouldCountAnswersPerQuestion() {
+    testModel.add(person("Math", "Fall"));
+    testModel.add(person("Art", "Fall"));
+    testModel.add(person("Math", "Spring"));
+
+    AnswerSummary.Question major = testModel.getQuestions().get(0);
+    assertEquals(testModel.getRows(), 3);
+    assertEquals(major.getHeader(), "Major");
+    assertEquals(major.getCount("Math"), 2);
+    assertEquals(major.getCount("Art"), 1);
+    assertEquals(major.getCount("History"), 0);
+    assertEquals(major.getAnswered(), 3);
+    assertEquals(major.getDistinctAnswers(), 2);
+  }
+
+  @Test
+  public void shouldCountEmptyAndNotApplicableAnswersApart() {
+    testModel.add(person("", "N/A"));
+    testModel.add(person(null, "n/a"));
+    testModel.add(person("Math", "Fall"));
+
+    AnswerSummary.Question major = testModel.getQuestions().get(0);
+    AnswerSummary.Question attending = testModel.getQuestions().get(1);
+    assertEquals(major.getEmpty(), 2);
+    assertEquals(major.getNotApplicable(), 0);
+    assertEquals(major.getDistinctAnswers(), 1);
+    assertEquals(attending.getEmpty(), 0);
+    assertEquals(attending.getNotApplicable(), 2);
+    assertEquals(attending.getAnswered(), 1);
+  }
+
+  @Test
+  public void shouldKeepQuestionsInColumnOrderWhenRowsDiffer() {
+    Map<String, String> reordered = new LinkedHashMap<>();
+    reordered.put("Attending", "Fall");
+    reordered.put("Hometown", "Boston");
+    reordered.put("Major", "Art");
+    testModel.add(person("Math", "Spring"));
+
+    testModel.add(new Person(reordered, ""));
+
+    assertEquals(headers(testModel), Arrays.asList("Major", "Attending", "Hometown"));
+    assertEquals(testModel.getQuestions().get(0).getCount("Art"), 1);
+    assertEquals(testModel.getQuestions().get(1).getCount("Fall"), 1);
+  }
+
+  @Test
+  public void shouldMergeCountsOfAnotherSummary() {
+    AnswerSummary other = new AnswerSummary();
+    Map<String, String> withHometown = new LinkedHashMap<>();
+    withHometown.put("Hometown", "Boston");
+    testModel.add(person("Math", "Fall"));
+    other.add(person("Math", ""));
+    other.add(new Person(withHometown, ""));
+
+    testModel.merge(other);
+
+    assertEquals(testModel.getRows(), 3);
+    assertEquals(headers(testModel), Arrays.asList("Major", "Attending", "Hometown"));
+    assertEquals(testModel.getQuestions().get(0).getCount("Math"), 2);
+    assertEquals(testModel.getQuestions().get(1).getEmpty(), 2);
+    assertEquals(testModel.getQuestions().get(2).getCount("Boston"), 1);
+    assertEquals(testModel.getQuestions().get(2).getEmpty(), 2);
+  }
+
+  @Test
+  public void shouldSummarizeLargeRosterLikeOnOneThread() {
+    List<Person> people = new ArrayList<>();
+    for (int i = 0; i < AnswerSummary.PARALLEL_THRESHOLD * 3 + 7; i++) {
+      people.add(person("Major" + i % 13, i % 5 == 0 ? "N/A" : "Term" + i % 4));
+    }
+    people.forEach(testModel::add);
+
+    AnswerSummary summary = AnswerSummary.summarize(people);
+
+    assertEquals(summary.getRows(), testModel.getRows());
+    assertEquals(report(summary), report(testModel));
+  }
+
+  @Test
+  public void shouldListOnlyMostFrequentAnswersInPage() {
+    for (int i = 0; i < AnswerSummary.LISTED_ANSWERS + 3; i++) {
+      testModel.add(person("Major" + i, "Fall"));
+    }
+    testModel.add(person("Major0", "Fall"));
+    StringBuilder page = new StringBuilder();
+
+    testModel.renderPage(page, "style.css");
+
+    assertTrue(page.toString().contains("<tr><td>Major0</td><td>2</td><td>3.7%</td></tr>"));
+    assertTrue(page.toString().contains("<tr><td><i>3 other answers</i></td><td>3</td><td>5.6%</td></tr>"));
+  }
+
+  @Test
+  public void shouldEscapeAnswersInPage() {
+    testModel.add(person("<b>Math & Art</b>", "Fall"));
+    StringBuilder page = new StringBuilder();
+
+    testModel.renderPage(page, "style.css");
+
+    assertTrue(page.toString().contains("<td>&lt;b&gt;Math &amp; Art&lt;/b&gt;</td>"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldWriteReportAsJson() throws IOException {
+    testModel.add(person("Math", "Fall"));
+    testModel.add(person("", "Fall"));
+
+    Map<String, Object> result = JacksonFactory.getDefaultInstance().fromString(report(testModel), Map.class);
+
+    assertEquals(result.get("rows"), new BigDecimal(2));
+    List<Map<String, Object>> questions = (List<Map<String, Object>>) result.get("questions");
+    assertEquals(questions.size(), 2);
+    assertEquals(questions.get(0).get("header"), "Major");
+    assertEquals(questions.get(0).get("empty"), new BigDecimal(1));
+    assertEquals(questions.get(0).get("notAnsweredRate"), new BigDecimal("0.5"));
+    assertEquals(((Map<String, Object>) questions.get(1).get("answers")).get("Fall"), new BigDecimal(2));
+  }
+
+  private String report(AnswerSummary summary) {
+    StringWriter report = new StringWriter();
+    try {
+      summary.writeReport(report);
+    }
+    catch (IOException ioException) {
+      throw new AssertionError(ioException);
+    }
+    return report.toString();
+  }
+
+  private List<String> headers(AnswerSummary summary) {
+    List<String> headers = new ArrayList<>();
+    for (AnswerSummary.Question question : summary.getQuestions()) {
+      headers.add(question.getHeader());
+    }
+    return headers;
+  }
+
+  private Person person(String major, String attending) {
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put("Major", major);
+    data.put("Attending", attending);
+    return new Person(data, "");
+  }
+}
@@ -0,0 +1,42 @@
+package service;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class BatchJobTest {
+
+  private static final String URL = "https://docs.google.com/spreadsheets/d/test";
+
+  @Test
+  public void shouldReadOneJobPerLine() throws IOException {
+    List<BatchJob> result = BatchJob.read(new StringReader(URL + " A1:D3 C fall\n"
+            + "responses.csv\tA1:E40\tE\tspring/section 2\n"));
+
+    assertEquals(result.size(), 2);
+    assertEquals(result.get(0).getUrl(), URL);
+    assertEquals(result.get(0).getRange(), "A1:D3");
+    assertEquals(result.get(0).getImageColumn(), "C");
+    assertEquals(result.get(0).getOutputFolder(), new File("fall"));
+    assertEquals(result.get(1).getUrl(), "responses.csv");
+    assertEquals(result.get(1).getOutputFolder(), new File("spring/section 2"));
+  }
+
+  @Test
+  public void shouldIgnoreBlankLinesAndComments() throws IOException {
+    List<BatchJob> result = BatchJob.read(new StringReader("# url range image output\n\n   \n"
+            + URL + " A1:D3 C fall\n"));
+
+    assertEquals(result.size(), 1);
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Line 2 .*")
+  public void shouldRejectLineWithoutOutputFolder() throws IOException {
+    BatchJob.read(new StringReader(URL + " A1:D3 C fall\n" + URL + " A1:D3 C\n"));
+  }
+}
@@ -0,0 +1,191 @@
+package service;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.store.FileDataStoreFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import model.Person;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class BatchRunnerTest {
+
+  private static final String URL_PREFIX = "https://docs.google.com/spreadsheets/d/";
+  private static final String DATA_RANGE = "A1:C3";
+  private static final String IMAGE_COLUMN = "B";
+  private static final int JOBS = 2;
+
+  private SheetsStandIn standIn;
+  private SheetsDataSource sheetsDataSource;
+  private File root;
+  private BatchRunner testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    standIn = new SheetsStandIn();
+    standIn.addSpreadsheet("fall", Arrays.asList(
+            Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, "Link to Picture", Person.LAST_NAME_KEY),
+            Arrays.asList("Amy", "amy.png", "Alpha"),
+            Arrays.asList("Zed", "zed.png", "Zulu")));
+    standIn.addSpreadsheet("spring", Arrays.asList(
+            Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, "Link to Picture", Person.LAST_NAME_KEY),
+            Arrays.asList("Mo", "mo.png", "Mike")));
+    sheetsDataSource = new SheetsDataSource(new NetHttpTransport(), JacksonFactory.getDefaultInstance(),
+            standIn.getRootUrl());
+    root = Files.createTempDirectory("batch").toFile();
+
+    RunOptions options = new RunOptions();
+    options.setJobs(JOBS);
+    testModel = new BatchRunner(options, new PageTemplates(), sheetsDataSource, new DelimitedFileSource());
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    standIn.close();
+    TestFiles.deleteRecursively(root);
+  }
+
+  @Test
+  public void shouldWriteEachJobToItsOwnFolder() throws IOException {
+    File manifest = writeManifest(
+            URL_PREFIX + "fall " + DATA_RANGE + " " + IMAGE_COLUMN + " " + new File(root, "fall"),
+            URL_PREFIX + "spring " + DATA_RANGE + " " + IMAGE_COLUMN + " " + new File(root, "spring"));
+
+    testModel.run(manifest);
+
+    File fallPages = new File(root, "fall/studentPages");
+    File springPages = new File(root, "spring/studentPages");
+    assertTrue(new File(fallPages, "Amy Alpha.html").isFile());
+    assertTrue(new File(fallPages, "Zed Zulu.html").isFile());
+    assertFalse(new File(fallPages, "Mo Mike.html").exists());
+    assertTrue(new File(springPages, "Mo Mike.html").isFile());
+    assertTrue(new File(springPages, "run-report.json").isFile());
+  }
+
+  @Test
+  public void shouldWriteSummaryReportNextToManifest() throws IOException {
+    File manifest = writeManifest(
+            URL_PREFIX + "fall " + DATA_RANGE + " " + IMAGE_COLUMN + " " + new File(root, "fall"),
+            URL_PREFIX + "spring " + DATA_RANGE + " " + IMAGE_COLUMN + " " + new File(root, "spring"));
+
+    testModel.run(manifest);
+
+    GenericJson report = readReport();
+    assertEquals(report.get("jobs"), BigDecimal.valueOf(2));
+    assertEquals(report.get("failed"), BigDecimal.ZERO);
+    List<?> results = (List<?>) report.get("results");
+    Map<?, ?> fall = (Map<?, ?>) results.get(0);
+    assertEquals(fall.get("url"), URL_PREFIX + "fall");
+    assertEquals(fall.get("status"), "succeeded");
+    assertEquals(fall.get("rows"), BigDecimal.valueOf(2));
+    assertNull(fall.get("error"));
+    assertEquals(((Map<?, ?>) results.get(1)).get("rows"), BigDecimal.ONE);
+  }
+
+  @Test
+  public void shouldRunOtherJobsWhenOneFails() throws IOException {
+    File manifest = writeManifest(
+            URL_PREFIX + "missing " + DATA_RANGE + " " + IMAGE_COLUMN + " " + new File(root, "missing"),
+            URL_PREFIX + "spring " + DATA_RANGE + " " + IMAGE_COLUMN + " " + new File(root, "spring"));
+
+    try {
+      testModel.run(manifest);
+      fail("Expected the batch to fail");
+    }
+    catch (IOException batchFailure) {
+      assertTrue(batchFailure.getMessage().startsWith("1 of 2 batch jobs failed"), batchFailure.getMessage());
+    }
+
+    assertTrue(new File(root, "spring/studentPages/Mo Mike.html").isFile());
+    List<?> results = (List<?>) readReport().get("results");
+    assertEquals(((Map<?, ?>) results.get(0)).get("status"), "failed");
+    assertEquals(((Map<?, ?>) results.get(1)).get("status"), "succeeded");
+  }
+
+  @Test
+  public void shouldShareSheetsClientBetweenJobs() throws IOException {
+    List<BatchJob> jobs = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      jobs.add(new BatchJob(URL_PREFIX + "fall", DATA_RANGE, IMAGE_COLUMN, new File(root, "fall" + i)));
+    }
+    SheetsDataSource countingSource = new SheetsDataSource(new NetHttpTransport(),
+            JacksonFactory.getDefaultInstance(), standIn.getRootUrl()) {
+      private int clients;
+
+      @Override
+      Sheets getSheets(HttpTransport httpTransport, JsonFactory jsonFactory, FileDataStoreFactory dataStoreFactory)
+              throws IOException {
+        if (++clients > 1) {
+          throw new IllegalStateException("Created a second Sheets client");
+        }
+        return super.getSheets(httpTransport, jsonFactory, dataStoreFactory);
+      }
+    };
+
+    List<BatchRunner.JobResult> results = new BatchRunner(new RunOptions(), new PageTemplates(), countingSource)
+            .run(jobs);
+
+    for (BatchRunner.JobResult result : results) {
+      assertNull(result.getFailure());
+    }
+    assertEquals(standIn.getRequestCount(), 4);
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*can't watch for new responses.*")
+  public void shouldRejectWatchingJobs() {
+    RunOptions options = new RunOptions();
+    options.setWatch(true);
+
+    new BatchRunner(options, new PageTemplates(), sheetsDataSource);
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*can't watch for new responses or serve pages.*")
+  public void shouldRejectServingJobs() {
+    RunOptions options = new RunOptions();
+    options.setServePort(0);
+
+    new BatchRunner(options, new PageTemplates(), sheetsDataSource);
+  }
+
+  private File writeManifest(String... lines) throws IOException {
+    File manifest = new File(root, "batch.txt");
+    try (Writer writer = new FileWriter(manifest)) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    }
+    return manifest;
+  }
+
+  private GenericJson readReport() throws IOException {
+    try (Reader reader = new FileReader(new File(root, BatchRunner.REPORT_FILE_NAME))) {
+      return JacksonFactory.getDefaultInstance().fromReader(reader, GenericJson.class);
+    }
+  }
+}
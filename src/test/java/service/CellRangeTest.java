@@ -0,0 +1,69 @@
+package service;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+public class CellRangeTest {
+
+  @Test
+  public void shouldSplitRangeIntoBlocksOfRows() {
+    List<CellRange> result = CellRange.parse("A1:I5").split(2);
+
+    assertEquals(result.size(), 3);
+    assertEquals(result.get(0).toString(), "A1:I2");
+    assertEquals(result.get(1).toString(), "A3:I4");
+    assertEquals(result.get(2).toString(), "A5:I5");
+  }
+
+  @Test
+  public void shouldKeepSheetNameInBlocks() {
+    List<CellRange> result = CellRange.parse("'Form Responses 1'!B1:AB4").split(3);
+
+    assertEquals(result.get(0).toString(), "'Form Responses 1'!B1:AB3");
+    assertEquals(result.get(1).toString(), "'Form Responses 1'!B4:AB4");
+  }
+
+  @Test
+  public void shouldOpenRangeFromRow() {
+    assertEquals(CellRange.parse("Responses!A1:I300").rowsFrom(301).toString(), "Responses!A301:I");
+  }
+
+  @Test
+  public void shouldCountRows() {
+    assertEquals(CellRange.parse("c2:d11").getRowCount(), 10);
+  }
+
+  @Test
+  public void shouldNotHaveRowBoundsForOpenEndedRange() {
+    CellRange result = CellRange.parse("A:I");
+
+    assertFalse(result.hasRowBounds());
+    assertEquals(result.toString(), "A:I");
+  }
+
+  @Test
+  public void shouldGetFirstColumn() {
+    assertEquals(CellRange.parse("Responses!B1:K300").firstColumn().toString(), "Responses!B1:B300");
+    assertEquals(CellRange.parse("A:I").firstColumn().toString(), "A:A");
+  }
+
+  @Test
+  public void shouldGetColumnIndexes() {
+    CellRange result = CellRange.parse("C2:AB9");
+
+    assertEquals(result.getFirstColumnIndex(), 2);
+    assertEquals(result.getLastColumnIndex(), 27);
+    assertEquals(result.getFirstRow(), 2);
+    assertEquals(result.getLastRow(), 9);
+  }
+
+  @Test
+  public void shouldNotParseInvalidRange() {
+    assertNull(CellRange.parse("A1-I5"));
+  }
+}
@@ -0,0 +1,138 @@
+package service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+
+public class ChannelPageWriterTest {
+
+  private static final String PAGE = "<!DOCTYPE html><html><body><b>Given First Name: </b>Zoë<br></body></html>";
+
+  private Path folder;
+  private ChannelPageWriter testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    folder = Files.createTempDirectory("channelPages");
+    testModel = new ChannelPageWriter(StandardCharsets.UTF_8, SyncPolicy.NONE);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    TestFiles.deleteRecursively(folder.toFile());
+  }
+
+  @Test
+  public void shouldWritePage() throws IOException {
+    Path file = folder.resolve("Test One.html");
+
+    long written = testModel.write(file, PAGE.toCharArray(), PAGE.length());
+
+    byte[] expected = PAGE.getBytes(StandardCharsets.UTF_8);
+    assertEquals(Files.readAllBytes(file), expected);
+    assertEquals(written, expected.length);
+  }
+
+  @Test
+  public void shouldWriteOnlyGivenLength() throws IOException {
+    Path file = folder.resolve("Test One.html");
+    char[] chars = (PAGE + "left over from a longer page").toCharArray();
+
+    testModel.write(file, chars, PAGE.length());
+
+    assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), PAGE);
+  }
+
+  @Test
+  public void shouldWritePageLargerThanBuffer() throws IOException {
+    Path file = folder.resolve("Test One.html");
+    char[] chars = new char[ChannelPageWriter.BUFFER_SIZE * 3 + 7];
+    Arrays.fill(chars, 'é');
+
+    long written = testModel.write(file, chars, chars.length);
+
+    byte[] expected = new String(chars).getBytes(StandardCharsets.UTF_8);
+    assertEquals(written, expected.length);
+    assertEquals(Files.readAllBytes(file), expected);
+  }
+
+  @Test
+  public void shouldWritePageFillingBuffersExactly() throws IOException {
+    Path file = folder.resolve("Test One.html");
+    char[] chars = new char[ChannelPageWriter.BUFFER_SIZE * 2];
+    Arrays.fill(chars, 'x');
+
+    long written = testModel.write(file, chars, chars.length);
+
+    assertEquals(written, chars.length);
+    assertEquals(Files.readAllBytes(file), new String(chars).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldReturnBuffersToPool() throws IOException {
+    char[] chars = new char[ChannelPageWriter.BUFFER_SIZE * 2 + 1];
+    Arrays.fill(chars, 'x');
+
+    testModel.write(folder.resolve("Test One.html"), chars, chars.length);
+    int pooled = testModel.getPooledBufferCount();
+    testModel.write(folder.resolve("Test Two.html"), chars, chars.length);
+
+    assertEquals(pooled, 3);
+    assertEquals(testModel.getPooledBufferCount(), pooled);
+  }
+
+  @Test
+  public void shouldReplaceExistingFile() throws IOException {
+    Path file = folder.resolve("Test One.html");
+    Files.write(file, (PAGE + PAGE).getBytes(StandardCharsets.UTF_8));
+
+    testModel.write(file, PAGE.toCharArray(), PAGE.length());
+
+    assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), PAGE);
+  }
+
+  @Test
+  public void shouldReplaceUnmappableCharacters() throws IOException {
+    ChannelPageWriter asciiWriter = new ChannelPageWriter(StandardCharsets.US_ASCII, SyncPolicy.NONE);
+    Path file = folder.resolve("Test One.html");
+
+    asciiWriter.write(file, "Zoë".toCharArray(), 3);
+
+    assertEquals(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII), "Zo?");
+  }
+
+  @Test
+  public void shouldSyncInBatches() throws IOException {
+    ChannelPageWriter batchWriter = new ChannelPageWriter(StandardCharsets.UTF_8, SyncPolicy.BATCH);
+
+    for (int page = 0; page <= ChannelPageWriter.SYNC_BATCH_SIZE; page++) {
+      batchWriter.write(folder.resolve(page + ".html"), PAGE.toCharArray(), PAGE.length());
+    }
+    batchWriter.finish();
+
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(files.count(), ChannelPageWriter.SYNC_BATCH_SIZE + 1L);
+    }
+  }
+
+  @Test
+  public void shouldSyncAtEnd() throws IOException {
+    ChannelPageWriter endWriter = new ChannelPageWriter(StandardCharsets.UTF_8, SyncPolicy.END);
+    Path file = folder.resolve("Test One.html");
+
+    endWriter.write(file, PAGE.toCharArray(), PAGE.length());
+    endWriter.finish();
+    endWriter.finish();
+
+    assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), PAGE);
+  }
+}
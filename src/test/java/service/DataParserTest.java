@@ -1,10 +1,5 @@
 package service;
 
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.util.store.FileDataStoreFactory;
-import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.sheets.v4.model.ValueRange;
 import model.Person;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -17,37 +12,33 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 public class DataParserTest {
 
-  private static final String SPREADSHEET_ID = "test";
-  private static final String URL = "https://docs.google.com/spreadsheets/d/" + SPREADSHEET_ID;
-  private static final String EDIT_URL = URL + "/edit#gid1234";
+  private static final String URL = "https://docs.google.com/spreadsheets/d/test";
+  private static final String FILE = "responses.csv";
   private static final String DATA_RANGE = "A1:C3";
+  private static final int PAGE_SIZE = 2;
+  private static final int MAX_CONCURRENT_REQUESTS = 2;
   private static final int IMAGE_COLUMN = 2;
   private static final String IMAGE_LINK = "picture";
 
   @Mock
-  private Sheets retriever;
+  private DataSource spreadsheetSource;
   @Mock
-  private Sheets.Spreadsheets spreadsheets;
-  @Mock
-  private Sheets.Spreadsheets.Values values;
-  @Mock
-  private Sheets.Spreadsheets.Values.Get get;
-  @Mock
-  private HttpTransport httpTransport;
-  @Mock
-  private JsonFactory jsonFactory;
-  @Mock
-  private FileDataStoreFactory dataStoreFactory;
+  private DataSource fileSource;
 
   private List<List<Object>> data;
   private List<Object> innerData1;
-  private List<Object> innerData2;
   private List<Person> people;
 
   private DataParser testModel;
@@ -68,7 +59,7 @@ public class DataParserTest {
     innerData1.add("Last");
     innerData1.add(IMAGE_LINK);
 
-    innerData2 = new ArrayList<>();
+    List<Object> innerData2 = new ArrayList<>();
     innerData2.add("Second");
     innerData2.add("Second to Last");
     innerData2.add(IMAGE_LINK);
@@ -77,13 +68,17 @@ public class DataParserTest {
     data.add(innerData1);
     data.add(innerData2);
 
-    ValueRange valueRange = new ValueRange();
-    valueRange.setValues(data);
-    when(retriever.spreadsheets()).thenReturn(spreadsheets);
-    when(spreadsheets.values()).thenReturn(values);
-    when(values.get(SPREADSHEET_ID, DATA_RANGE)).thenReturn(get);
-    when(get.execute()).thenReturn(valueRange);
-
+    when(spreadsheetSource.supports(URL)).thenReturn(true);
+    when(fileSource.supports(FILE)).thenReturn(true);
+    doAnswer(invocation -> {
+      int pageSize = (Integer) invocation.getArguments()[2];
+      RowHandler handler = (RowHandler) invocation.getArguments()[4];
+      for (int i = 0; i < data.size(); i += pageSize) {
+        handler.handleRows(data.subList(i, Math.min(i + pageSize, data.size())));
+      }
+      return null;
+    }).when(spreadsheetSource).retrieveData(eq(URL), eq(DATA_RANGE), eq(PAGE_SIZE), eq(MAX_CONCURRENT_REQUESTS),
+            any(RowHandler.class));
 
     people = new ArrayList<>();
 
@@ -98,49 +93,73 @@ public class DataParserTest {
     people.add(new Person(data1, IMAGE_LINK));
     people.add(new Person(data2, IMAGE_LINK));
 
-    testModel = new DataParser(httpTransport, jsonFactory, dataStoreFactory) {
-      @Override
-      Sheets getSheets(HttpTransport httpTransport, JsonFactory jsonFactory, FileDataStoreFactory dataStoreFactory) {
-        return retriever;
-      }
-    };
+    testModel = new DataParser(spreadsheetSource, fileSource);
   }
 
   @Test
-  public void shouldRetrieveDataProperly() throws IOException {
-    testModel.retrieveData(URL, DATA_RANGE);
+  public void shouldParseDataCorrectly() {
+    List<Person> result = testModel.parseData(data, IMAGE_COLUMN);
 
-    verify(values).get(SPREADSHEET_ID, DATA_RANGE);
+    assertEquals(result, people);
   }
 
   @Test
-  public void shouldReturnCorrectData() throws IOException {
-    List<List<Object>> result = testModel.retrieveData(URL, DATA_RANGE);
+  public void shouldOrderPersonObjectsAlphabeticallyByLastName() {
+    data.remove(innerData1);
+    data.add(innerData1);
 
-    assertEquals(result, data);
+    List<Person> result = testModel.parseData(data, IMAGE_COLUMN);
+
+    assertEquals(result, people);
   }
 
   @Test
-  public void shouldParseDataCorrectly() {
-    List<Person> result = testModel.parseData(data, IMAGE_COLUMN);
+  public void shouldParseMoreRowsWithHeadersParsedLast() {
+    testModel.parseData(data.subList(0, 2), IMAGE_COLUMN);
 
-    assertEquals(result, people);
+    List<Person> result = testModel.parseMoreData(data.subList(2, 3), IMAGE_COLUMN);
+
+    assertEquals(result, people.subList(1, 2));
+  }
+
+  @Test (expectedExceptions = IllegalStateException.class)
+  public void shouldNotParseMoreRowsBeforeHeaders() {
+    testModel.parseMoreData(data.subList(1, 3), IMAGE_COLUMN);
   }
 
   @Test
-  public void shouldHandleEditUrlCorrectly() throws IOException {
-    testModel.retrieveData(EDIT_URL, DATA_RANGE);
+  public void shouldCollectBlocksFromSource() throws IOException {
+    List<List<Object>> result = testModel.retrieveData(URL, DATA_RANGE, PAGE_SIZE, MAX_CONCURRENT_REQUESTS);
 
-    verify(values).get(SPREADSHEET_ID, DATA_RANGE);
+    assertEquals(result, data);
   }
 
   @Test
-  public void shouldOrderPersonObjectsAlphabeticallyByLastName() {
-    data.remove(innerData1);
-    data.add(innerData1);
+  public void shouldReturnNullForEmptyRange() throws IOException {
+    assertNull(testModel.retrieveData(URL, DATA_RANGE));
+  }
 
-    List<Person> result = testModel.parseData(data, IMAGE_COLUMN);
+  @Test
+  public void shouldParsePagesAsTheyArrive() throws IOException {
+    List<Person> result = testModel.retrieveAndParseData(URL, DATA_RANGE, IMAGE_COLUMN, PAGE_SIZE,
+            MAX_CONCURRENT_REQUESTS);
 
     assertEquals(result, people);
   }
+
+  @Test
+  public void shouldReadLocationWithSourceThatSupportsIt() throws IOException {
+    testModel.retrieveData(FILE, DATA_RANGE);
+
+    verify(fileSource).retrieveData(eq(FILE), eq(DATA_RANGE), eq(RunOptions.SINGLE_REQUEST), eq(1),
+            any(RowHandler.class));
+    verify(spreadsheetSource, never()).retrieveData(anyString(), anyString(), eq(RunOptions.SINGLE_REQUEST), eq(1),
+            any(RowHandler.class));
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*Location given was=unknown.*")
+  public void shouldRejectUnsupportedLocation() throws IOException {
+    testModel.retrieveData("unknown", DATA_RANGE);
+  }
 }
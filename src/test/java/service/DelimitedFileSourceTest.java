@@ -0,0 +1,126 @@
+package service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class DelimitedFileSourceTest {
+
+  private static final String CSV_CONTENT = "\uFEFFTimestamp,First Name,Last Name,Link to Picture\r\n" +
+          "1/1/2017,José,\"Smith, Jr.\",picture\r\n" +
+          "1/2/2017,Amy,\"O\"\"Neil\",\"multi\r\nline\"\r\n" +
+          "\r\n" +
+          "1/3/2017,Mo,Mike,,\r\n" +
+          "\r\n";
+  private static final String TSV_CONTENT = "First Name\tLast Name\n" +
+          "Amy\t\"Tab\tInside\"\n";
+  private static final int MAX_CONCURRENT_REQUESTS = 1;
+
+  private File folder;
+  private File csvFile;
+
+  private DelimitedFileSource testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    folder = Files.createTempDirectory("responses").toFile();
+    csvFile = write("responses.csv", CSV_CONTENT);
+
+    testModel = new DelimitedFileSource();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    TestFiles.deleteRecursively(folder);
+  }
+
+  @Test
+  public void shouldSupportCsvAndTsvFiles() {
+    assertTrue(testModel.supports("/exports/Responses.CSV"));
+    assertTrue(testModel.supports("responses.tsv"));
+    assertFalse(testModel.supports("https://docs.google.com/spreadsheets/d/test"));
+  }
+
+  @Test
+  public void shouldReadQuotedAndMultiLineFields() throws IOException {
+    List<List<Object>> result = read(testModel, csvFile, "A1:D5", 0);
+
+    List<List<Object>> expected = new ArrayList<>();
+    expected.add(Arrays.asList("Timestamp", "First Name", "Last Name", "Link to Picture"));
+    expected.add(Arrays.asList("1/1/2017", "José", "Smith, Jr.", "picture"));
+    expected.add(Arrays.asList("1/2/2017", "Amy", "O\"Neil", "multi\r\nline"));
+    expected.add(new ArrayList<>());
+    expected.add(Arrays.asList("1/3/2017", "Mo", "Mike"));
+    assertEquals(result, expected);
+  }
+
+  @Test
+  public void shouldOnlyReadCellsInRange() throws IOException {
+    List<List<Object>> result = read(testModel, csvFile, "Responses!B2:C3", 0);
+
+    List<List<Object>> expected = new ArrayList<>();
+    expected.add(Arrays.asList("José", "Smith, Jr."));
+    expected.add(Arrays.asList("Amy", "O\"Neil"));
+    assertEquals(result, expected);
+  }
+
+  @Test
+  public void shouldReadSameRowsWhenFileIsMappedInSmallWindows() throws IOException {
+    List<List<Object>> result = read(new DelimitedFileSource(5), csvFile, "A:D", 0);
+
+    assertEquals(result, read(testModel, csvFile, "A:D", 0));
+  }
+
+  @Test
+  public void shouldHandRowsToHandlerInBlocks() throws IOException {
+    List<Integer> blockSizes = new ArrayList<>();
+
+    testModel.retrieveData(csvFile.getPath(), "A1:D6", 2, MAX_CONCURRENT_REQUESTS,
+            rows -> blockSizes.add(rows.size()));
+
+    assertEquals(blockSizes, Arrays.asList(2, 2, 1));
+  }
+
+  @Test
+  public void shouldReadTabSeparatedFile() throws IOException {
+    File tsvFile = write("responses.tsv", TSV_CONTENT);
+
+    List<List<Object>> result = read(testModel, tsvFile, "A1:B2", 0);
+
+    assertEquals(result, Arrays.asList(Arrays.asList("First Name", "Last Name"),
+            Arrays.asList("Amy", "Tab\tInside")));
+  }
+
+  @Test
+  public void shouldReadNothingFromEmptyFile() throws IOException {
+    File emptyFile = write("empty.csv", "");
+
+    assertEquals(read(testModel, emptyFile, "A1:D5", 0), Collections.emptyList());
+  }
+
+  private List<List<Object>> read(DelimitedFileSource source, File file, String range, int pageSize)
+          throws IOException {
+    List<List<Object>> result = new ArrayList<>();
+    source.retrieveData(file.getPath(), range, pageSize, MAX_CONCURRENT_REQUESTS, result::addAll);
+    return result;
+  }
+
+  private File write(String fileName, String content) throws IOException {
+    File file = new File(folder, fileName);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
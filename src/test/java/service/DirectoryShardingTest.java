@@ -0,0 +1,92 @@
+package service;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class DirectoryShardingTest {
+
+  @Test
+  public void shouldSplitByInitial() {
+    List<DirectorySharding.Shard> shards = DirectorySharding.byInitial(Locale.ROOT)
+            .split(Arrays.asList("Adams", "avery", "Brown", "Clark", "Cole"));
+
+    assertEquals(fileNames(shards), Arrays.asList("Directory A.html", "Directory B.html", "Directory C.html"));
+    assertEquals(labels(shards), Arrays.asList("A", "B", "C"));
+    assertEquals(shards.get(0).getStart(), 0);
+    assertEquals(shards.get(0).getEnd(), 2);
+    assertEquals(shards.get(2).getStart(), 3);
+    assertEquals(shards.get(2).getEnd(), 5);
+  }
+
+  @Test
+  public void shouldShareShardOfLettersTheLocaleTreatsAsOne() {
+    List<String> lastNames = Arrays.asList("Olsen", "Özil");
+
+    assertEquals(DirectorySharding.byInitial(Locale.ROOT).split(lastNames).size(), 1);
+    assertEquals(DirectorySharding.byInitial(Locale.forLanguageTag("sv-SE")).split(lastNames).size(), 2);
+  }
+
+  @Test
+  public void shouldSkipPunctuationOfInitial() {
+    List<DirectorySharding.Shard> shards = DirectorySharding.byInitial(Locale.ROOT)
+            .split(Arrays.asList("'t Hooft", "Zane"));
+
+    assertEquals(labels(shards), Arrays.asList("T", "Z"));
+  }
+
+  @Test
+  public void shouldPlaceNamesWithoutLetterInOtherShard() {
+    List<DirectorySharding.Shard> shards = DirectorySharding.byInitial(Locale.ROOT)
+            .split(Arrays.asList("Adams", null, "", "--"));
+
+    assertEquals(labels(shards), Arrays.asList("A", DirectorySharding.OTHER_LABEL));
+    assertEquals(shards.get(1).getFileName(), "Directory Other.html");
+    assertEquals(shards.get(1).getEnd(), 4);
+  }
+
+  @Test
+  public void shouldNumberInitialThatComesBack() {
+    List<DirectorySharding.Shard> shards = DirectorySharding.byInitial(Locale.ROOT)
+            .split(Arrays.asList("Adams", "Brown", "Avery"));
+
+    assertEquals(fileNames(shards), Arrays.asList("Directory A.html", "Directory B.html", "Directory A 2.html"));
+  }
+
+  @Test
+  public void shouldSplitBySize() {
+    List<DirectorySharding.Shard> shards = DirectorySharding.bySize(2)
+            .split(Arrays.asList("Adams", "Brown", "Clark", null, "Evans"));
+
+    assertEquals(fileNames(shards), Arrays.asList("Directory 1.html", "Directory 2.html", "Directory 3.html"));
+    assertEquals(labels(shards), Arrays.asList("Adams - Brown", "Clark - #", "Evans - Evans"));
+    assertEquals(shards.get(2).getStart(), 4);
+    assertEquals(shards.get(2).getEnd(), 5);
+  }
+
+  @Test
+  public void shouldNotSplitEmptyDirectory() {
+    assertTrue(DirectorySharding.byInitial(Locale.ROOT).split(Collections.emptyList()).isEmpty());
+    assertTrue(DirectorySharding.bySize(10).split(Collections.emptyList()).isEmpty());
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotSplitIntoEmptyPages() {
+    DirectorySharding.bySize(0);
+  }
+
+  private List<String> fileNames(List<DirectorySharding.Shard> shards) {
+    return shards.stream().map(DirectorySharding.Shard::getFileName).collect(Collectors.toList());
+  }
+
+  private List<String> labels(List<DirectorySharding.Shard> shards) {
+    return shards.stream().map(DirectorySharding.Shard::getLabel).collect(Collectors.toList());
+  }
+}
@@ -6,18 +6,43 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class FileGeneratorTest {
 
@@ -27,34 +52,45 @@ public class FileGeneratorTest {
   private static final String IMAGE_EMBED = "<body><table><tr><td><img src=\"image.org\"></td><td>" +
           "<h1>Test One</h1><br><b>Next Student: </b><a href=\"Test Two.html\">Test Two</a></td></tr></table>";
   private static final String ADD_ENTRY = "<b>Test: </b>Test<br>";
+  private static final String COLON_ENTRY = "<b>Test: </b>Test<br>";
+  private static final String DOUBLE_COLON_ENTRY = "<b>Test:: </b>Test<br>";
   private static final String BLANK_ENTRY = "<b>Test: </b><br>";
   private static final String NA_ENTRY = "<b>Test: </b>N/A<br>";
+  private static final String TEST_ONE_PAGE = "<!DOCTYPE html><html>" + STYLE_SHEET + IMAGE_EMBED +
+          "<b>Given First Name: </b>Test<br><b>Last Name: </b>One<br></body></html>";
+  private static final String DIRECTORY_PAGE = "<!DOCTYPE html><html><head><title>Directory Page Profile</title>" +
+          "<link rel=\"stylesheet\"type=\"text/css\" href=\"style.css\"></head><body><table>" +
+          "<tr><a href=\"Test One.html\">Test One</a></tr><br><tr><a href=\"Test Two.html\">Test Two</a></tr><br>" +
+          "</table></body></html>";
+  private static final String TEST_ONE = "studentPages/Test One.html";
+  private static final String TEST_TWO = "studentPages/Test Two.html";
+  private static final String STYLE = "studentPages/style.css";
+  private static final String DIRECTORY = "studentPages/Student Directory.html";
+  private static final String MANIFEST = "studentPages/.manifest";
+  private static final String REPORT = "studentPages/run-report.json";
+  private static final int PARALLELISM = 2;
 
   @Mock
-  FileWriter fileWriterOne;
-  @Mock
-  FileWriter fileWriterTwo;
-  @Mock
-  FileWriter fileWriterStyle;
-  @Mock
-  FileWriter fileWriterDirectory;
+  Writer failingWriter;
   @Mock
   File directory;
 
   private List<String> trace;
+  private Map<String, StringWriter> files;
   private List<Person> people;
   private FileGenerator testModel;
 
   @BeforeMethod
   public void setUp() throws IOException {
     MockitoAnnotations.initMocks(this);
-    trace = new ArrayList<>();
+    trace = Collections.synchronizedList(new ArrayList<>());
+    files = new ConcurrentHashMap<>();
 
-    Map<String, String> data1 = new HashMap<>();
+    Map<String, String> data1 = new LinkedHashMap<>();
     data1.put(Person.GIVEN_FIRST_NAME_KEY, "Test");
     data1.put(Person.LAST_NAME_KEY, "One");
 
-    Map<String, String> data2 = new HashMap<>();
+    Map<String, String> data2 = new LinkedHashMap<>();
     data2.put(Person.GIVEN_FIRST_NAME_KEY, "Test");
     data2.put(Person.LAST_NAME_KEY, "Two");
 
@@ -67,20 +103,17 @@ public class FileGeneratorTest {
 
     testModel = new FileGenerator(directory) {
       @Override
-      FileWriter getFileWriter(String fileName) throws IOException {
+      Writer getFileWriter(String fileName) throws IOException {
         switch (fileName) {
-          case "studentPages/Test One.html":
-            trace.add(fileName);
-            return fileWriterOne;
-          case "studentPages/Test Two.html":
+          case TEST_ONE:
+          case TEST_TWO:
+          case STYLE:
+          case DIRECTORY:
+          case REPORT:
             trace.add(fileName);
-            return fileWriterTwo;
-          case "studentPages/style.css":
-            trace.add(fileName);
-            return fileWriterStyle;
-          case "studentPages/Student Directory.html":
-            trace.add(fileName);
-            return fileWriterDirectory;
+            StringWriter writer = new StringWriter();
+            files.put(fileName, writer);
+            return writer;
           default:
             return null;
         }
@@ -88,25 +121,55 @@ public class FileGeneratorTest {
     };
   }
 
-  @Test (expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*style.css added to header.*")
-  public void shouldIncludeStyleCssFileInHeader() throws IOException {
-    doThrow(new RuntimeException("style.css added to header")).when(fileWriterOne).write(STYLE_SHEET);
+  @Test
+  public void shouldRecordRenderedAndWrittenFilesInMetrics() throws IOException {
+    RunMetrics metrics = new RunMetrics();
+    testModel.setMetrics(metrics);
 
     testModel.generateFiles(people);
+
+    assertEquals(metrics.getStage(Stage.RENDER).getCount(), 2);
+    assertEquals(metrics.getFilesWritten(), 4);
+    long bytes = 0;
+    for (StringWriter file : files.values()) {
+      bytes += file.toString().length();
+    }
+    assertEquals(metrics.getBytesWritten(), bytes);
   }
 
-  @Test (expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*style.css written.*")
-  public void shouldCreateStyleCssFile() throws IOException {
-    doThrow(new RuntimeException("style.css written")).when(fileWriterStyle).write(anyString());
+  @Test
+  public void shouldWriteRunReportNextToFiles() throws IOException {
+    testModel.writeRunReport(new RunMetrics());
+
+    assertTrue(files.get(REPORT).toString().contains("\"stages\""));
+  }
+
+  @Test
+  public void shouldIncludeStyleCssFileInHeader() throws IOException {
+    testModel.generateFiles(people);
 
+    assertTrue(files.get(TEST_ONE).toString().contains(STYLE_SHEET));
+  }
+
+  @Test
+  public void shouldCreateStyleCssFile() throws IOException {
     testModel.generateFiles(people);
+
+    assertEquals(files.get(STYLE).toString(), PageTemplates.DEFAULT_STYLE_SHEET);
   }
 
-  @Test (expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*embed image.*")
+  @Test
   public void shouldEmbedImage() throws IOException {
-    doThrow(new RuntimeException("embed image")).when(fileWriterOne).write(IMAGE_EMBED);
+    testModel.generateFiles(people);
 
+    assertTrue(files.get(TEST_ONE).toString().contains(IMAGE_EMBED));
+  }
+
+  @Test
+  public void shouldRenderWholePage() throws IOException {
     testModel.generateFiles(people);
+
+    assertEquals(files.get(TEST_ONE).toString(), TEST_ONE_PAGE);
   }
 
   @Test
@@ -120,12 +183,11 @@ public class FileGeneratorTest {
   public void shouldWriteFileToCorrectLocation() throws IOException {
     testModel.generateFiles(people);
 
-    assertEquals(trace.get(2), "studentPages/Test One.html");
+    assertEquals(trace.get(2), TEST_ONE);
   }
 
-  @Test (expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*add colon entry.*")
+  @Test
   public void shouldNotAddColonIfAlreadyThere() throws IOException {
-    doThrow(new RuntimeException("add colon entry")).when(fileWriterOne).write(ADD_ENTRY);
     List<Person> people = new ArrayList<>();
     Map<String, String> data = new HashMap<>();
     data.put(Person.GIVEN_FIRST_NAME_KEY, "Test");
@@ -134,11 +196,13 @@ public class FileGeneratorTest {
     people.add(new Person(data, IMAGE_LINK));
 
     testModel.generateFiles(people);
+
+    assertTrue(files.get(TEST_ONE).toString().contains(COLON_ENTRY));
+    assertFalse(files.get(TEST_ONE).toString().contains(DOUBLE_COLON_ENTRY));
   }
 
   @Test
   public void shouldNotAddEntryIfBlank() throws IOException {
-    doThrow(new RuntimeException("add blank entry")).when(fileWriterOne).write(BLANK_ENTRY);
     List<Person> people = new ArrayList<>();
     Map<String, String> data = new HashMap<>();
     data.put(Person.GIVEN_FIRST_NAME_KEY, "Test");
@@ -147,11 +211,12 @@ public class FileGeneratorTest {
     people.add(new Person(data, IMAGE_LINK));
 
     testModel.generateFiles(people);
+
+    assertFalse(files.get(TEST_ONE).toString().contains(BLANK_ENTRY));
   }
 
   @Test
   public void shouldNotAddEntryIfNA() throws IOException {
-    doThrow(new RuntimeException("add N/A entry")).when(fileWriterOne).write(NA_ENTRY);
     List<Person> people = new ArrayList<>();
     Map<String, String> data = new HashMap<>();
     data.put(Person.GIVEN_FIRST_NAME_KEY, "Test");
@@ -160,20 +225,23 @@ public class FileGeneratorTest {
     people.add(new Person(data, IMAGE_LINK));
 
     testModel.generateFiles(people);
+
+    assertFalse(files.get(TEST_ONE).toString().contains(NA_ENTRY));
   }
 
-  @Test (expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*add entry.*")
+  @Test
   public void shouldContinueAfterBlankEntry() throws IOException {
-    doThrow(new RuntimeException("add entry")).when(fileWriterOne).write(ADD_ENTRY);
     List<Person> people = new ArrayList<>();
-    Map<String, String> data = new HashMap<>();
+    Map<String, String> data = new LinkedHashMap<>();
     data.put(Person.GIVEN_FIRST_NAME_KEY, "Test");
     data.put(Person.LAST_NAME_KEY, "One");
-    data.put("Test", "N/A");
+    data.put("Blank", "N/A");
     data.put("Test", "Test");
     people.add(new Person(data, IMAGE_LINK));
 
     testModel.generateFiles(people);
+
+    assertTrue(files.get(TEST_ONE).toString().contains(ADD_ENTRY));
   }
 
   @Test (expectedExceptions = IOException.class,
@@ -189,6 +257,638 @@ public class FileGeneratorTest {
   public void shouldCreateDirectoryPage() throws IOException {
     testModel.generateFiles(people);
 
-    assertEquals(trace.get(1), "studentPages/Student Directory.html");
+    assertEquals(trace.get(1), DIRECTORY);
+    assertEquals(files.get(DIRECTORY).toString(), DIRECTORY_PAGE);
+  }
+
+  @Test
+  public void shouldRenderWithGivenTemplates() throws IOException {
+    PageTemplates templates = new PageTemplates("<h1>{{name}}</h1>{{next}}<ul>{{entries}}</ul>",
+            "<a href=\"{{file}}\">next</a>", "<li>{{header}}={{value}}</li>", "<li>{{header}}{{value}}</li>",
+            "{{links}}", "{{name}};", "<a href=\"{{file}}\">{{name}}</a>", "body {}");
+    testModel = new FileGenerator(directory, templates) {
+      @Override
+      Writer getFileWriter(String fileName) {
+        StringWriter writer = new StringWriter();
+        files.put(fileName, writer);
+        return writer;
+      }
+    };
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put(Person.GIVEN_FIRST_NAME_KEY, "Test");
+    data.put(Person.LAST_NAME_KEY, "One");
+    data.put("Major:", "Math");
+    people.set(0, new Person(data, IMAGE_LINK));
+
+    testModel.generateFiles(people);
+
+    assertEquals(files.get(TEST_ONE).toString(), "<h1>Test One</h1><a href=\"Test Two.html\">next</a><ul>" +
+            "<li>Given First Name=Test</li><li>Last Name=One</li><li>Major:Math</li></ul>");
+    assertEquals(files.get(DIRECTORY).toString(), "Test One;Test Two;");
+    assertEquals(files.get(STYLE).toString(), "body {}");
+  }
+
+  @Test
+  public void shouldGenerateFileForEachStudentInParallel() throws IOException {
+    testModel.generateFiles(people, PARALLELISM);
+
+    assertEquals(trace.size(), 4);
+    assertTrue(trace.contains(TEST_ONE));
+    assertTrue(trace.contains(TEST_TWO));
+  }
+
+  @Test
+  public void shouldWriteSameContentInParallel() throws IOException {
+    testModel.generateFiles(people, PARALLELISM);
+
+    assertEquals(files.get(TEST_ONE).toString(), TEST_ONE_PAGE);
+    assertEquals(files.get(DIRECTORY).toString(), DIRECTORY_PAGE);
+  }
+
+  @Test
+  public void shouldWriteOtherPagesAndReportFailedPage() throws IOException {
+    doThrow(new IOException("disk full")).when(failingWriter).write(any(char[].class), anyInt(), anyInt());
+    testModel = new FileGenerator(directory) {
+      @Override
+      Writer getFileWriter(String fileName) {
+        if (fileName.equals(TEST_ONE)) {
+          return failingWriter;
+        }
+        StringWriter writer = new StringWriter();
+        files.put(fileName, writer);
+        return writer;
+      }
+    };
+
+    try {
+      testModel.generateFiles(people, PARALLELISM);
+      fail("Expected the failed page to be reported");
+    }
+    catch (PageGenerationException pageGenerationException) {
+      assertEquals(pageGenerationException.getFailures().keySet(), Collections.singleton(0));
+      assertTrue(pageGenerationException.getMessage().contains("Test One.html"));
+    }
+    verify(failingWriter).close();
+    assertTrue(files.containsKey(TEST_TWO));
+    assertEquals(files.get(DIRECTORY).toString(), DIRECTORY_PAGE);
+  }
+
+  @Test
+  public void shouldReportEveryFailedPageOfPeopleSharingName() throws IOException {
+    testModel = new FileGenerator(directory) {
+      @Override
+      Writer getFileWriter(String fileName) throws IOException {
+        if (fileName.equals(TEST_ONE)) {
+          throw new IOException("disk full");
+        }
+        StringWriter writer = new StringWriter();
+        files.put(fileName, writer);
+        return writer;
+      }
+    };
+
+    try {
+      testModel.generateFiles(Arrays.asList(person("Test", "One"), person("Test", "One"), person("Test", "Two")),
+              PARALLELISM);
+      fail("Expected the failed pages to be reported");
+    }
+    catch (PageGenerationException pageGenerationException) {
+      assertEquals(pageGenerationException.getFailures().keySet(), new TreeSet<>(Arrays.asList(0, 1)));
+      assertTrue(pageGenerationException.getMessage().startsWith("2 profile page(s) failed"));
+    }
+  }
+
+  @Test
+  public void shouldWriteEveryFileAndManifestOnFirstIncrementalRun() throws IOException {
+    incrementalGenerator().generateFiles(people);
+
+    assertEquals(trace.size(), 5);
+    assertTrue(trace.contains(MANIFEST));
+    assertEquals(files.get(TEST_ONE).toString(), TEST_ONE_PAGE);
+  }
+
+  @Test
+  public void shouldOnlyWriteManifestIfNothingChanged() throws IOException {
+    FileGenerator generator = incrementalGenerator();
+    generator.generateFiles(people);
+    trace.clear();
+
+    generator.generateFiles(people);
+
+    assertEquals(trace, Collections.singletonList(MANIFEST));
+  }
+
+  @Test
+  public void shouldOnlyRewriteChangedPage() throws IOException {
+    FileGenerator generator = incrementalGenerator();
+    generator.generateFiles(people);
+    trace.clear();
+    people.get(1).getData().put("Major", "Math");
+
+    generator.generateFiles(people);
+
+    assertEquals(trace, Arrays.asList(TEST_TWO, MANIFEST));
+  }
+
+  @Test
+  public void shouldRewriteNeighborAndDirectoryIfPersonAdded() throws IOException {
+    FileGenerator generator = incrementalGenerator();
+    List<Person> onePerson = new ArrayList<>(people.subList(0, 1));
+    generator.generateFiles(onePerson);
+    trace.clear();
+
+    generator.generateFiles(people);
+
+    assertEquals(new HashSet<>(trace), new HashSet<>(Arrays.asList(TEST_ONE, TEST_TWO, DIRECTORY, MANIFEST)));
+    assertEquals(files.get(TEST_ONE).toString(), TEST_ONE_PAGE);
+  }
+
+  @Test
+  public void shouldDeletePageOfRemovedPerson() throws IOException {
+    FileGenerator generator = incrementalGenerator();
+    generator.generateFiles(people);
+
+    generator.generateFiles(new ArrayList<>(people.subList(0, 1)));
+
+    assertFalse(files.containsKey(TEST_TWO));
+    assertFalse(files.get(DIRECTORY).toString().contains("Test Two"));
+  }
+
+  @Test
+  public void shouldRewriteUnchangedPageIfFileIsMissing() throws IOException {
+    FileGenerator generator = incrementalGenerator();
+    generator.generateFiles(people);
+    trace.clear();
+    files.remove(TEST_ONE);
+
+    generator.generateFiles(people);
+
+    assertEquals(trace, Arrays.asList(TEST_ONE, MANIFEST));
+  }
+
+  @Test
+  public void shouldStreamEveryFileIntoArchive() throws IOException {
+    File archive = File.createTempFile("pages", ".zip");
+    try {
+      FileGenerator archiveGenerator = new FileGenerator(directory);
+      archiveGenerator.setArchive(archive);
+
+      archiveGenerator.generateFiles(people, PARALLELISM);
+      archiveGenerator.writeRunReport(new RunMetrics());
+      archiveGenerator.finishOutput();
+
+      verify(directory, never()).mkdir();
+      try (PageArchiveReader reader = new PageArchiveReader(archive)) {
+        assertEquals(new HashSet<>(reader.getFileNames()),
+                new HashSet<>(Arrays.asList(STYLE, TEST_ONE, TEST_TWO, DIRECTORY, REPORT)));
+        assertEquals(read(reader.open(TEST_ONE)), TEST_ONE_PAGE);
+        assertEquals(read(reader.open(DIRECTORY)), DIRECTORY_PAGE);
+      }
+    }
+    finally {
+      archive.delete();
+    }
+  }
+
+  @Test
+  public void shouldLinkStoredImage() throws IOException {
+    testModel.setImageNames(Collections.singletonMap(IMAGE_LINK, "0123abcd.jpg"));
+
+    testModel.generateFiles(people);
+
+    assertEquals(files.get(TEST_ONE).toString(), TEST_ONE_PAGE.replace(IMAGE_LINK, "images/0123abcd.jpg"));
+  }
+
+  @Test
+  public void shouldKeepLinkOfImageThatWasNotStored() throws IOException {
+    testModel.setImageNames(Collections.singletonMap("other.org", "0123abcd.jpg"));
+
+    testModel.generateFiles(people);
+
+    assertEquals(files.get(TEST_ONE).toString(), TEST_ONE_PAGE);
+  }
+
+  @Test
+  public void shouldWriteImageIntoImageFolder() throws IOException {
+    Path outputFolder = Files.createTempDirectory("images");
+    try {
+      FileGenerator imageGenerator = new FileGenerator(new PageTemplates(), outputFolder.toFile());
+      RunMetrics metrics = new RunMetrics();
+      imageGenerator.setMetrics(metrics);
+      byte[] image = {1, 2, 3};
+
+      imageGenerator.writeImage("0123abcd.jpg", image);
+
+      assertTrue(imageGenerator.imageExists("0123abcd.jpg"));
+      assertFalse(imageGenerator.imageExists("0123abcd.png"));
+      assertEquals(Files.readAllBytes(outputFolder.resolve("studentPages/images/0123abcd.jpg")), image);
+      assertEquals(metrics.getFilesWritten(), 1);
+      assertEquals(metrics.getBytesWritten(), image.length);
+    }
+    finally {
+      TestFiles.deleteRecursively(outputFolder.toFile());
+    }
+  }
+
+  @Test
+  public void shouldWriteSameFilesThroughChannels() throws IOException {
+    Path writerFolder = Files.createTempDirectory("writerPages");
+    Path channelFolder = Files.createTempDirectory("channelPages");
+    try {
+      new FileGenerator(new PageTemplates(), writerFolder.toFile()).generateFiles(people, PARALLELISM);
+      FileGenerator channelGenerator = new FileGenerator(new PageTemplates(), channelFolder.toFile());
+      channelGenerator.setChannelWriter(new ChannelPageWriter(Charset.defaultCharset(), SyncPolicy.END));
+
+      channelGenerator.generateFiles(people, PARALLELISM);
+      channelGenerator.finishOutput();
+
+      for (String location : Arrays.asList(STYLE, TEST_ONE, TEST_TWO, DIRECTORY)) {
+        assertEquals(Files.readAllBytes(channelFolder.resolve(location)),
+                Files.readAllBytes(writerFolder.resolve(location)));
+      }
+      assertEquals(new String(Files.readAllBytes(channelFolder.resolve(TEST_ONE)), Charset.defaultCharset()),
+              TEST_ONE_PAGE);
+    }
+    finally {
+      TestFiles.deleteRecursively(writerFolder.toFile());
+      TestFiles.deleteRecursively(channelFolder.toFile());
+    }
+  }
+
+  @Test
+  public void shouldCountBytesOfNonAsciiPages() throws IOException {
+    // Accented responses rather than names, as file names may not allow them
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put(Person.GIVEN_FIRST_NAME_KEY, "Zoe");
+    data.put(Person.LAST_NAME_KEY, "Angstrom");
+    data.put("Hometown:", "Zürich, Île-de-France, Kraków");
+    List<Person> accented = Arrays.asList(new Person(data, IMAGE_LINK), person("Jose", "Nunez"));
+    Path writerFolder = Files.createTempDirectory("writerPages");
+    Path channelFolder = Files.createTempDirectory("channelPages");
+    try {
+      RunMetrics writerMetrics = new RunMetrics();
+      FileGenerator writerGenerator = new FileGenerator(new PageTemplates(), writerFolder.toFile());
+      writerGenerator.setMetrics(writerMetrics);
+      writerGenerator.generateFiles(accented);
+      RunMetrics channelMetrics = new RunMetrics();
+      FileGenerator channelGenerator = new FileGenerator(new PageTemplates(), channelFolder.toFile());
+      channelGenerator.setMetrics(channelMetrics);
+      channelGenerator.setChannelWriter(new ChannelPageWriter(Charset.defaultCharset(), SyncPolicy.NONE));
+      channelGenerator.generateFiles(accented);
+
+      assertEquals(writerMetrics.getBytesWritten(), size(writerFolder));
+      assertEquals(channelMetrics.getBytesWritten(), size(channelFolder));
+    }
+    finally {
+      TestFiles.deleteRecursively(writerFolder.toFile());
+      TestFiles.deleteRecursively(channelFolder.toFile());
+    }
+  }
+
+  @Test
+  public void shouldSplitDirectoryByInitial() throws IOException {
+    FileGenerator generator = shardedGenerator(DirectorySharding.byInitial(Locale.ROOT));
+
+    generator.generateFiles(Arrays.asList(person("Ann", "Adams"), person("Bob", "Avery"), person("Cal", "Brown")));
+
+    assertEquals(files.get(DIRECTORY).toString(), "A;B;");
+    assertEquals(files.get("studentPages/Directory A.html").toString(), "Ann Adams;Bob Avery;");
+    assertEquals(files.get("studentPages/Directory B.html").toString(), "Cal Brown;");
+    assertEquals(files.get("studentPages/Ann Adams.html").toString(),
+            "<h1>Ann Adams</h1>[Bob Avery.html]<Directory A.html>");
+    assertEquals(files.get("studentPages/Cal Brown.html").toString(), "<h1>Cal Brown</h1><Directory B.html>");
+  }
+
+  @Test
+  public void shouldSplitDirectoryBySizeInParallel() throws IOException {
+    FileGenerator generator = shardedGenerator(DirectorySharding.bySize(2));
+
+    generator.generateFiles(Arrays.asList(person("Ann", "Adams"), person("Bob", "Avery"), person("Cal", "Brown")),
+            PARALLELISM);
+
+    assertEquals(files.get(DIRECTORY).toString(), "Adams - Avery;Brown - Brown;");
+    assertEquals(files.get("studentPages/Directory 1.html").toString(), "Ann Adams;Bob Avery;");
+    assertEquals(files.get("studentPages/Directory 2.html").toString(), "Cal Brown;");
+    assertEquals(files.get("studentPages/Bob Avery.html").toString(),
+            "<h1>Bob Avery</h1>[Cal Brown.html]<Directory 1.html>");
+  }
+
+  @Test
+  public void shouldOnlyRewriteShardsOfAddedPeople() throws IOException {
+    FileGenerator generator = shardedGenerator(DirectorySharding.byInitial(Locale.ROOT));
+    Person avery = person("Bob", "Avery");
+    List<Person> shardedPeople = new ArrayList<>(Arrays.asList(person("Ann", "Adams"), person("Cal", "Brown")));
+    generator.generateFiles(shardedPeople);
+    trace.clear();
+    shardedPeople.add(1, avery);
+
+    generator.updateFiles(shardedPeople, Collections.singleton(avery));
+
+    assertEquals(new HashSet<>(trace), new HashSet<>(Arrays.asList("studentPages/Ann Adams.html",
+            "studentPages/Bob Avery.html", "studentPages/Directory A.html", "studentPages/Directory B.html",
+            DIRECTORY)));
+    assertEquals(files.get("studentPages/Directory A.html").toString(), "Ann Adams;Bob Avery;");
+  }
+
+  @Test
+  public void shouldRewritePagesThatMovedToAnotherShard() throws IOException {
+    FileGenerator generator = shardedGenerator(DirectorySharding.bySize(2));
+    Person aaron = person("Abe", "Aaron");
+    List<Person> shardedPeople = new ArrayList<>(Arrays.asList(person("Ann", "Adams"), person("Cal", "Brown"),
+            person("Dan", "Clark")));
+    generator.generateFiles(shardedPeople);
+    shardedPeople.add(0, aaron);
+
+    generator.updateFiles(shardedPeople, Collections.singleton(aaron));
+
+    assertEquals(files.get("studentPages/Ann Adams.html").toString(),
+            "<h1>Ann Adams</h1>[Cal Brown.html]<Directory 1.html>");
+    assertEquals(files.get("studentPages/Cal Brown.html").toString(),
+            "<h1>Cal Brown</h1>[Dan Clark.html]<Directory 2.html>");
+    assertEquals(files.get(DIRECTORY).toString(), "Aaron - Adams;Brown - Clark;");
+  }
+
+  @Test
+  public void shouldLinkSpooledPagesBackToShard() throws IOException {
+    FileGenerator generator = shardedGenerator(DirectorySharding.byInitial(Locale.ROOT));
+    RosterOrder rosterOrder = new RosterOrder();
+    List<PageSpool.Page> pages = new ArrayList<>();
+    try (PageSpool spool = new PageSpool()) {
+      for (Person person : Arrays.asList(person("Cal", "Brown"), person("Ann", "Adams"))) {
+        pages.add(spool.append(person, rosterOrder.getSortKey(person), generator.renderPageParts(person),
+                null));
+      }
+      pages.sort(PageSpool.Page.ORDER);
+
+      generator.generateFiles(pages, spool, null);
+    }
+
+    assertEquals(files.get(DIRECTORY).toString(), "A;B;");
+    assertEquals(files.get("studentPages/Directory B.html").toString(), "Cal Brown;");
+    assertEquals(files.get("studentPages/Ann Adams.html").toString(),
+            "<h1>Ann Adams</h1>[Cal Brown.html]<Directory A.html>");
+  }
+
+  @Test
+  public void shouldWriteSearchIndexNextToPages() throws IOException {
+    Path outputFolder = Files.createTempDirectory("searchPages");
+    try {
+      FileGenerator searchGenerator = new FileGenerator(new PageTemplates(), outputFolder.toFile());
+      RunMetrics metrics = new RunMetrics();
+      searchGenerator.setMetrics(metrics);
+      searchGenerator.setSearchColumns(Collections.singletonList(Person.LAST_NAME_KEY));
+      searchGenerator.setIncremental(true);
+
+      searchGenerator.generateFiles(people, PARALLELISM);
+
+      String shard = new String(Files.readAllBytes(outputFolder.resolve("studentPages/search/t.js")),
+              StandardCharsets.UTF_8);
+      assertEquals(shard, "SearchIndex.load(\"t\",{\"names\":{\"0\":\"Test One\",\"1\":\"Test Two\"}," +
+              "\"terms\":{\"test\":[0,1],\"two\":[1]}});\n");
+      assertTrue(Files.exists(outputFolder.resolve("studentPages/search/o.js")));
+      assertTrue(Files.exists(outputFolder.resolve("studentPages/search/search.js")));
+      assertTrue(new String(Files.readAllBytes(outputFolder.resolve(DIRECTORY)), StandardCharsets.UTF_8)
+              .contains(SearchIndex.SEARCH_BOX));
+      assertEquals(metrics.getStage(Stage.INDEX).getCount(), 2);
+      long shardBytes = Files.size(outputFolder.resolve("studentPages/search/t.js"))
+              + Files.size(outputFolder.resolve("studentPages/search/o.js"));
+      assertEquals(metrics.getSearchIndexBytes(), shardBytes);
+
+      searchGenerator.updateFiles(people, Collections.emptyList());
+
+      assertEquals(metrics.getSearchIndexBytes(), shardBytes);
+    }
+    finally {
+      TestFiles.deleteRecursively(outputFolder.toFile());
+    }
+  }
+
+  @Test
+  public void shouldCountEncodedBytesOfSearchIndex() throws IOException {
+    Path outputFolder = Files.createTempDirectory("searchPages");
+    try {
+      FileGenerator searchGenerator = new FileGenerator(new PageTemplates(), outputFolder.toFile());
+      RunMetrics metrics = new RunMetrics();
+      searchGenerator.setMetrics(metrics);
+      searchGenerator.setSearchColumns(Collections.singletonList("Major:"));
+      Map<String, String> data = new LinkedHashMap<>(people.get(0).getData());
+      data.put("Major:", "Straße");
+
+      searchGenerator.generateFiles(Collections.singletonList(new Person(data, IMAGE_LINK)), PARALLELISM);
+
+      long shardBytes = 0;
+      for (File shard : outputFolder.resolve("studentPages/search").toFile().listFiles()) {
+        if (!shard.getName().equals(SearchIndex.SCRIPT_FILE_NAME)) {
+          shardBytes += shard.length();
+        }
+      }
+      assertEquals(metrics.getSearchIndexBytes(), shardBytes);
+    }
+    finally {
+      TestFiles.deleteRecursively(outputFolder.toFile());
+    }
+  }
+
+  @Test
+  public void shouldIndexSpooledPages() throws IOException {
+    PageTemplates templates = new PageTemplates("<h1>{{name}}</h1>{{next}}", "[{{file}}]", "", "",
+            "{{search}}{{links}}", "{{name}};", "<{{file}}>", "");
+    Path outputFolder = Files.createTempDirectory("searchPages");
+    try {
+      FileGenerator generator = new FileGenerator(templates, outputFolder.toFile());
+      generator.setSearchColumns(Collections.emptyList());
+      RosterOrder rosterOrder = new RosterOrder();
+      List<PageSpool.Page> pages = new ArrayList<>();
+      try (PageSpool spool = new PageSpool()) {
+        for (Person person : Arrays.asList(person("Cal", "Brown"), person("Ann", "Adams"))) {
+          pages.add(spool.append(person, rosterOrder.getSortKey(person), generator.renderPageParts(person),
+                  generator.getSearchTerms(person)));
+        }
+        pages.sort(PageSpool.Page.ORDER);
+
+        generator.generateFiles(pages, spool, null);
+      }
+
+      assertEquals(new String(Files.readAllBytes(outputFolder.resolve("studentPages/search/a.js")),
+              StandardCharsets.UTF_8), "SearchIndex.load(\"a\",{\"names\":{\"0\":\"Ann Adams\"}," +
+              "\"terms\":{\"adams\":[0],\"ann\":[0]}});\n");
+      assertEquals(new String(Files.readAllBytes(outputFolder.resolve(DIRECTORY)), StandardCharsets.UTF_8),
+              SearchIndex.SEARCH_BOX + "Ann Adams;Cal Brown;");
+    }
+    finally {
+      TestFiles.deleteRecursively(outputFolder.toFile());
+    }
+  }
+
+  @Test
+  public void shouldLinkAnswerSummaryFromDirectory() throws IOException {
+    FileGenerator generator = shardedGenerator(null);
+    RunMetrics metrics = new RunMetrics();
+    generator.setMetrics(metrics);
+    generator.setAnswerSummary(true);
+
+    generator.generateFiles(Arrays.asList(person("Ann", "Adams"), person("Cal", "Brown")));
+
+    assertEquals(files.get(DIRECTORY).toString(), "Answer Summary;Ann Adams;Cal Brown;");
+    assertTrue(files.get("studentPages/Answer Summary.html").toString()
+            .contains("<h2>Last Name</h2><p>2 answered, 0 empty, 0 N/A (0.0% not answered), 2 distinct answers</p>"));
+    assertTrue(files.get("studentPages/answer-summary.json").toString().contains("\"rows\" : 2"));
+    assertEquals(metrics.getStage(Stage.SUMMARIZE).getCount(), 1);
+  }
+
+  @Test
+  public void shouldLinkAnswerSummaryFromSplitDirectory() throws IOException {
+    FileGenerator generator = shardedGenerator(DirectorySharding.bySize(2));
+    generator.setAnswerSummary(true);
+
+    generator.generateFiles(Arrays.asList(person("Ann", "Adams"), person("Bob", "Avery"), person("Cal", "Brown")),
+            PARALLELISM);
+
+    assertEquals(files.get(DIRECTORY).toString(), "Answer Summary;Adams - Avery;Brown - Brown;");
+    assertEquals(files.get("studentPages/Directory 1.html").toString(), "Ann Adams;Bob Avery;");
+    assertTrue(files.containsKey("studentPages/Answer Summary.html"));
+  }
+
+  @Test
+  public void shouldNotWriteAnswerSummaryByDefault() throws IOException {
+    FileGenerator generator = shardedGenerator(null);
+
+    generator.generateFiles(Arrays.asList(person("Ann", "Adams"), person("Cal", "Brown")));
+
+    assertEquals(files.get(DIRECTORY).toString(), "Ann Adams;Cal Brown;");
+    assertFalse(files.containsKey("studentPages/Answer Summary.html"));
+    assertNull(generator.newAnswerSummary());
+  }
+
+  @Test
+  public void shouldWriteAnswerSummaryOfSpooledPages() throws IOException {
+    FileGenerator generator = shardedGenerator(null);
+    generator.setAnswerSummary(true);
+    RosterOrder rosterOrder = new RosterOrder();
+    AnswerSummary answerSummary = generator.newAnswerSummary();
+    List<PageSpool.Page> pages = new ArrayList<>();
+    try (PageSpool spool = new PageSpool()) {
+      for (Person person : Arrays.asList(person("Cal", "Brown"), person("Ann", "Adams"))) {
+        pages.add(spool.append(person, rosterOrder.getSortKey(person), generator.renderPageParts(person), null));
+        answerSummary.add(person);
+      }
+      pages.sort(PageSpool.Page.ORDER);
+
+      generator.generateFiles(pages, spool, answerSummary);
+    }
+
+    assertEquals(files.get(DIRECTORY).toString(), "Answer Summary;Ann Adams;Cal Brown;");
+    assertTrue(files.get("studentPages/Answer Summary.html").toString().contains("<p>2 responses</p>"));
+  }
+
+  @Test (expectedExceptions = IllegalStateException.class)
+  public void shouldNotWriteIncrementalRunIntoArchive() throws IOException {
+    FileGenerator archiveGenerator = new FileGenerator(directory);
+    archiveGenerator.setArchive(new File("pages.zip"));
+    archiveGenerator.setIncremental(true);
+
+    archiveGenerator.generateFiles(people);
+  }
+
+  @Test
+  public void shouldStoreEveryFileInPageSnapshot() throws IOException {
+    FileGenerator snapshotGenerator = new FileGenerator(directory);
+    PageStore.Snapshot snapshot = new PageStore.Snapshot();
+    snapshotGenerator.setPageSnapshot(snapshot);
+    PageStore store = new PageStore();
+
+    snapshotGenerator.generateFiles(people, PARALLELISM);
+    snapshotGenerator.writeRunReport(new RunMetrics());
+    store.publish(snapshot);
+
+    verify(directory, never()).mkdir();
+    assertEquals(store.size(), 5);
+    assertEquals(new String(store.get(TEST_ONE).getContent(false), StandardCharsets.UTF_8), TEST_ONE_PAGE);
+    assertEquals(new String(store.get(DIRECTORY).getContent(false), StandardCharsets.UTF_8), DIRECTORY_PAGE);
+    assertTrue(store.get(STYLE).getContentType().startsWith("text/css"));
+    assertTrue(store.get(REPORT).getContentType().startsWith("application/json"));
+  }
+
+  @Test (expectedExceptions = IllegalStateException.class)
+  public void shouldNotWriteIncrementalRunIntoPageSnapshot() throws IOException {
+    FileGenerator snapshotGenerator = new FileGenerator(directory);
+    snapshotGenerator.setPageSnapshot(new PageStore.Snapshot());
+    snapshotGenerator.setIncremental(true);
+
+    snapshotGenerator.generateFiles(people);
+  }
+
+  private long size(Path folder) throws IOException {
+    try (Stream<Path> paths = Files.walk(folder)) {
+      long size = 0;
+      for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        size += Files.size(path);
+      }
+      return size;
+    }
+  }
+
+  private String read(InputStream content) throws IOException {
+    try (InputStream input = content) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int length = input.read(buffer); length != -1; length = input.read(buffer)) {
+        bytes.write(buffer, 0, length);
+      }
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private Person person(String firstName, String lastName) {
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put(Person.GIVEN_FIRST_NAME_KEY, firstName);
+    data.put(Person.LAST_NAME_KEY, lastName);
+    return new Person(data, IMAGE_LINK);
+  }
+
+  private FileGenerator shardedGenerator(DirectorySharding directorySharding) {
+    PageTemplates templates = new PageTemplates("<h1>{{name}}</h1>{{next}}", "[{{file}}]", "", "", "{{links}}",
+            "{{name}};", "<{{file}}>", "");
+    FileGenerator generator = new FileGenerator(directory, templates) {
+      @Override
+      Writer getFileWriter(String fileName) {
+        trace.add(fileName);
+        StringWriter writer = new StringWriter();
+        files.put(fileName, writer);
+        return writer;
+      }
+    };
+    generator.setDirectorySharding(directorySharding);
+    return generator;
+  }
+
+  private FileGenerator incrementalGenerator() {
+    FileGenerator generator = new FileGenerator(directory) {
+      @Override
+      Writer getFileWriter(String fileName) {
+        trace.add(fileName);
+        StringWriter writer = new StringWriter();
+        files.put(fileName, writer);
+        return writer;
+      }
+
+      @Override
+      Reader getFileReader(String fileName) {
+        StringWriter file = files.get(fileName);
+        return file == null ? null : new StringReader(file.toString());
+      }
+
+      @Override
+      boolean fileExists(String fileName) {
+        return files.containsKey(fileName);
+      }
+
+      @Override
+      boolean deleteFile(String fileName) {
+        return files.remove(fileName) != null;
+      }
+    };
+    generator.setIncremental(true);
+    return generator;
   }
 }
@@ -0,0 +1,202 @@
+package service;
+
+import model.Person;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ImagePrefetcherTest {
+
+  private static final int THREADS = 8;
+  private static final int PER_HOST_LIMIT = 2;
+
+  private ImageStandIn standIn;
+  private Path outputFolder;
+  private FileGenerator fileGenerator;
+  private ImagePrefetcher testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    standIn = new ImageStandIn();
+    outputFolder = Files.createTempDirectory("images");
+    fileGenerator = new FileGenerator(new PageTemplates(), outputFolder.toFile());
+    testModel = new ImagePrefetcher(THREADS, PER_HOST_LIMIT);
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    standIn.close();
+    try (Stream<Path> paths = Files.walk(outputFolder)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void shouldDownscaleImageToDisplaySize() throws IOException {
+    String link = standIn.addImage("/large.jpg", ImageStandIn.image(800, 600, Color.RED, "jpg", false));
+
+    Map<String, String> images = testModel.prefetch(people(link), fileGenerator);
+
+    String imageName = images.get(link);
+    assertTrue(imageName.endsWith("." + ImagePrefetcher.JPEG_FORMAT));
+    BufferedImage thumbnail = readImage(imageName);
+    assertEquals(thumbnail.getWidth(), ImagePrefetcher.THUMBNAIL_SIZE);
+    assertEquals(thumbnail.getHeight(), 150);
+  }
+
+  @Test
+  public void shouldKeepSizeOfSmallImage() throws IOException {
+    String link = standIn.addImage("/small.png", ImageStandIn.image(40, 60, Color.BLUE, "png", false));
+
+    Map<String, String> images = testModel.prefetch(people(link), fileGenerator);
+
+    BufferedImage thumbnail = readImage(images.get(link));
+    assertEquals(thumbnail.getWidth(), 40);
+    assertEquals(thumbnail.getHeight(), 60);
+  }
+
+  @Test
+  public void shouldKeepTransparentImageAsPng() throws IOException {
+    String link = standIn.addImage("/avatar.png", ImageStandIn.image(400, 400, Color.GREEN, "png", true));
+
+    Map<String, String> images = testModel.prefetch(people(link), fileGenerator);
+
+    assertTrue(images.get(link).endsWith("." + ImagePrefetcher.PNG_FORMAT));
+    assertTrue(readImage(images.get(link)).getColorModel().hasAlpha());
+  }
+
+  @Test
+  public void shouldFetchSharedLinkOnce() throws IOException {
+    String link = standIn.addImage("/default.png", ImageStandIn.image(300, 300, Color.GRAY, "png", false));
+
+    Map<String, String> images = testModel.prefetch(people(link, link, link), fileGenerator);
+
+    assertEquals(images.size(), 1);
+    assertEquals(standIn.getRequestCount("/default.png"), 1);
+  }
+
+  @Test
+  public void shouldStoreSameContentOnce() throws IOException {
+    byte[] avatar = ImageStandIn.image(300, 300, Color.GRAY, "png", false);
+    String first = standIn.addImage("/first/default.png", avatar);
+    String second = standIn.addImage("/second/default.png", avatar);
+    String other = standIn.addImage("/other.png", ImageStandIn.image(300, 300, Color.ORANGE, "png", false));
+
+    Map<String, String> images = testModel.prefetch(people(first, second, other), fileGenerator);
+
+    assertEquals(images.get(first), images.get(second));
+    assertNotEquals(images.get(first), images.get(other));
+    assertEquals(getImageFolder().list().length, 2);
+  }
+
+  @Test
+  public void shouldNameImageByContentHash() throws IOException {
+    byte[] avatar = ImageStandIn.image(300, 300, Color.GRAY, "png", false);
+    String link = standIn.addImage("/default.png", avatar);
+
+    Map<String, String> images = testModel.prefetch(people(link), fileGenerator);
+
+    assertEquals(images.get(link), PageManifest.hash(avatar) + "." + ImagePrefetcher.JPEG_FORMAT);
+  }
+
+  @Test
+  public void shouldNotRewriteImageOfPreviousRun() throws IOException {
+    String link = standIn.addImage("/default.png", ImageStandIn.image(300, 300, Color.GRAY, "png", false));
+    String imageName = testModel.prefetch(people(link), fileGenerator).get(link);
+    File image = new File(getImageFolder(), imageName);
+    assertTrue(image.setLastModified(0));
+
+    Map<String, String> images = new ImagePrefetcher(THREADS, PER_HOST_LIMIT).prefetch(people(link), fileGenerator);
+
+    assertEquals(images.get(link), imageName);
+    assertEquals(image.lastModified(), 0);
+  }
+
+  @Test
+  public void shouldKeepLinksThatFail() throws IOException {
+    String missing = standIn.getUrl("127.0.0.1", "/missing.png");
+    String notAnImage = standIn.addImage("/notes.txt", "not an image".getBytes());
+    String image = standIn.addImage("/image.png", ImageStandIn.image(10, 10, Color.RED, "png", false));
+
+    Map<String, String> images = testModel.prefetch(people(missing, notAnImage, image), fileGenerator);
+
+    assertEquals(images.keySet(), Collections.singleton(image));
+  }
+
+  @Test
+  public void shouldSkipLinksThatAreNotUrls() throws IOException {
+    Map<String, String> images = testModel.prefetch(people("", "N/A", "images/photo.png"), fileGenerator);
+
+    assertTrue(images.isEmpty());
+    assertFalse(getImageFolder().exists());
+  }
+
+  @Test
+  public void shouldLimitRequestsPerHost() throws IOException {
+    standIn.setLatency(100);
+    List<String> links = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      links.add(standIn.addImage("/" + i + ".png", ImageStandIn.image(10, 10, new Color(i, i, i), "png", false)));
+    }
+
+    Map<String, String> images = testModel.prefetch(people(links.toArray(new String[0])), fileGenerator);
+
+    assertEquals(images.size(), 6);
+    assertEquals(standIn.getMaxInFlight(), PER_HOST_LIMIT);
+  }
+
+  @Test
+  public void shouldFetchFromHostsConcurrently() throws IOException {
+    standIn.setLatency(200);
+    List<String> links = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      String path = "/" + i + ".png";
+      standIn.addImage(path, ImageStandIn.image(10, 10, new Color(i, i, i), "png", false));
+      links.add(standIn.getUrl(i % 2 == 0 ? "127.0.0.1" : "localhost", path));
+    }
+
+    Map<String, String> images = testModel.prefetch(people(links.toArray(new String[0])), fileGenerator);
+
+    assertEquals(images.size(), 8);
+    assertTrue(standIn.getMaxInFlight() > PER_HOST_LIMIT);
+    assertTrue(standIn.getMaxInFlight() <= 2 * PER_HOST_LIMIT);
+  }
+
+  private List<Person> people(String... imageLinks) {
+    List<Person> people = new ArrayList<>();
+    for (String imageLink : imageLinks) {
+      people.add(new Person(Collections.emptyMap(), imageLink));
+    }
+    return people;
+  }
+
+  private File getImageFolder() {
+    return new File(outputFolder.toFile(), FileGenerator.STUDENT_PAGES_FOLDER + "/" + FileGenerator.IMAGE_FOLDER);
+  }
+
+  private BufferedImage readImage(String imageName) throws IOException {
+    return ImageIO.read(new File(getImageFolder(), imageName));
+  }
+}
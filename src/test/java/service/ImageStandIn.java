@@ -0,0 +1,179 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server standing in for the hosts that serve the images of a survey. Every request can be delayed, and the
+ * number of requests for each path and the most requests served at once are counted. The server answers on the
+ * loopback address, which can be reached both as 127.0.0.1 and as localhost, so it can stand in for two hosts.
+ */
+class ImageStandIn implements Closeable {
+
+  private static final int OK = 200;
+  private static final int NOT_FOUND = 404;
+  private static final int THREADS = 16;
+
+  private final Map<String, byte[]> images = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+  private volatile long latencyMillis;
+
+  /**
+   * Draws an image of one color.
+   *
+   * @param width       width of the image
+   * @param height      height of the image
+   * @param color       non-null color of the image
+   * @param format      non-null ImageIO format to encode the image in, such as png or jpg
+   * @param transparent if the image has an alpha channel
+   * @return the encoded image
+   */
+  static byte[] image(int width, int height, Color color, String format, boolean transparent) {
+    BufferedImage image = new BufferedImage(width, height,
+            transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(color);
+    graphics.fillRect(0, 0, width, height);
+    graphics.dispose();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      ImageIO.write(image, format, bytes);
+    }
+    catch (IOException ioException) {
+      throw new UncheckedIOException(ioException);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Starts the server on a free port of the loopback address.
+   *
+   * @throws IOException if the server can't be started
+   */
+  ImageStandIn() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Serves a file.
+   *
+   * @param path    non-null path of the file, starting with a slash
+   * @param content non-null content of the file
+   * @return url of the file on 127.0.0.1
+   */
+  String addImage(String path, byte[] content) {
+    images.put(path, content);
+    return getUrl("127.0.0.1", path);
+  }
+
+  /**
+   * Gets the url of a path on one of the names of the loopback address.
+   *
+   * @param host non-null host name, 127.0.0.1 or localhost
+   * @param path non-null path, starting with a slash
+   * @return url of the path
+   */
+  String getUrl(String host, String path) {
+    return String.format("http://%s:%d%s", host, server.getAddress().getPort(), path);
+  }
+
+  /**
+   * Delays every response.
+   *
+   * @param latencyMillis time to wait before responding to each request
+   */
+  void setLatency(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Gets the number of requests received for a path.
+   *
+   * @param path non-null path, starting with a slash
+   * @return requests received
+   */
+  int getRequestCount(String path) {
+    AtomicInteger count = requests.get(path);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Gets the most requests that were being served at once.
+   *
+   * @return most concurrent requests
+   */
+  int getMaxInFlight() {
+    return maxInFlight.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String path = exchange.getRequestURI().getPath();
+      requests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        sleep();
+      }
+      finally {
+        // Counted before responding, since the client may start its next request as soon as it has the response
+        inFlight.decrementAndGet();
+      }
+      byte[] image = images.get(path);
+      if (image == null) {
+        exchange.sendResponseHeaders(NOT_FOUND, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(OK, image.length);
+      try (OutputStream response = exchange.getResponseBody()) {
+        response.write(image);
+      }
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  private void sleep() throws IOException {
+    if (latencyMillis <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.MILLISECONDS.sleep(latencyMillis);
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while injecting latency", interruptedException);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class PageArchiveReaderTest {
+
+  private static final String PAGE = "studentPages/Amy Alpha.html";
+  private static final String STYLE = "studentPages/style.css";
+
+  private File root;
+  private File file;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    root = Files.createTempDirectory("archive").toFile();
+    file = new File(root, "pages.zip");
+    try (PageArchive archive = new PageArchive(file)) {
+      try (Writer writer = archive.openEntry(PAGE)) {
+        writer.write("<h1>Amy</h1>");
+      }
+      try (Writer writer = archive.openEntry(STYLE)) {
+        writer.write("body {}");
+      }
+    }
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    TestFiles.deleteRecursively(root);
+  }
+
+  @Test
+  public void shouldListFilesInOrderWritten() throws IOException {
+    try (PageArchiveReader testModel = new PageArchiveReader(file)) {
+      assertEquals(testModel.getFileNames(), Arrays.asList(PAGE, STYLE));
+      assertTrue(testModel.contains(STYLE));
+      assertFalse(testModel.contains("studentPages/missing.html"));
+    }
+  }
+
+  @Test
+  public void shouldOpenOneFile() throws IOException {
+    try (PageArchiveReader testModel = new PageArchiveReader(file);
+         InputStream content = testModel.open(PAGE)) {
+      byte[] bytes = new byte[64];
+      int length = content.read(bytes);
+      assertEquals(new String(bytes, 0, length, StandardCharsets.UTF_8), "<h1>Amy</h1>");
+    }
+  }
+
+  @Test (expectedExceptions = FileNotFoundException.class)
+  public void shouldNotOpenMissingFile() throws IOException {
+    try (PageArchiveReader testModel = new PageArchiveReader(file)) {
+      testModel.open("studentPages/missing.html");
+    }
+  }
+
+  @Test
+  public void shouldExtractIntoFolder() throws IOException {
+    File folder = new File(root, "extracted");
+
+    try (PageArchiveReader testModel = new PageArchiveReader(file)) {
+      assertEquals(testModel.extractTo(folder), 2);
+    }
+
+    assertEquals(new String(Files.readAllBytes(new File(folder, PAGE).toPath()), StandardCharsets.UTF_8),
+            "<h1>Amy</h1>");
+    assertTrue(new File(folder, STYLE).isFile());
+  }
+
+  @Test (expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*outside of the folder")
+  public void shouldNotExtractOutsideOfFolder() throws IOException {
+    File unsafe = new File(root, "unsafe.zip");
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(unsafe))) {
+      zip.putNextEntry(new ZipEntry("../escaped.html"));
+      zip.closeEntry();
+    }
+
+    try (PageArchiveReader testModel = new PageArchiveReader(unsafe)) {
+      testModel.extractTo(new File(root, "extracted"));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.testng.Assert.assertEquals;
+
+public class PageArchiveTest {
+
+  private static final int PAGES = 200;
+  private static final int THREADS = 4;
+
+  private File file;
+  private PageArchive testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    file = File.createTempFile("pages", ".zip");
+    testModel = new PageArchive(file);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void shouldWriteOneEntryPerFile() throws IOException {
+    try (Writer writer = testModel.openEntry("studentPages/Zoë Ødegård.html")) {
+      writer.write("<p>Zoë</p>");
+    }
+    try (Writer writer = testModel.openEntry("studentPages/style.css")) {
+      writer.write("body {}");
+    }
+    testModel.close();
+
+    try (ZipFile zipFile = new ZipFile(file)) {
+      assertEquals(zipFile.size(), 2);
+      ZipEntry page = zipFile.getEntry("studentPages/Zoë Ødegård.html");
+      assertEquals(page.getSize(), "<p>Zoë</p>".getBytes("UTF-8").length);
+    }
+    assertEquals(testModel.getEntryCount(), 2);
+  }
+
+  @Test
+  public void shouldWriteEntriesFromSeveralThreads() throws Exception {
+    ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<?>> pages = new ArrayList<>();
+      for (int i = 0; i < PAGES; i++) {
+        String name = "studentPages/" + i + ".html";
+        pages.add(workers.submit(() -> {
+          try (Writer writer = testModel.openEntry(name)) {
+            writer.write(name);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> page : pages) {
+        page.get();
+      }
+    }
+    finally {
+      workers.shutdownNow();
+    }
+    testModel.close();
+
+    try (PageArchiveReader reader = new PageArchiveReader(file)) {
+      assertEquals(new HashSet<>(reader.getFileNames()).size(), PAGES);
+    }
+  }
+
+  @Test
+  public void shouldIgnoreClosingEntryTwice() throws IOException {
+    Writer writer = testModel.openEntry("studentPages/style.css");
+    writer.close();
+    writer.close();
+
+    try (Writer next = testModel.openEntry("studentPages/Student Directory.html")) {
+      next.write("directory");
+    }
+    testModel.close();
+
+    assertEquals(testModel.getEntryCount(), 2);
+  }
+}
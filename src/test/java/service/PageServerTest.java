@@ -0,0 +1,167 @@
+package service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class PageServerTest {
+
+  private static final String PAGE = "Ann Adams.html";
+  private static final String CONTENT = "<html><body>Ann Adams</body></html>";
+  private static final String DIRECTORY_CONTENT = "<html><body>Directory</body></html>";
+  private static final int THREADS = 2;
+
+  private PageStore store;
+  private PageServer testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    store = new PageStore();
+    store.publish(snapshot(CONTENT));
+    testModel = new PageServer(store, 0, THREADS, 0);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    testModel.close();
+  }
+
+  @Test
+  public void shouldServeStoredPage() throws IOException {
+    HttpURLConnection connection = open("/Ann%20Adams.html", null);
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getContentType(), "text/html; charset=utf-8");
+    assertNull(connection.getContentEncoding());
+    assertEquals(connection.getHeaderField("ETag"), page().getEntityTag(false));
+    assertEquals(connection.getHeaderField("Cache-Control"), "no-cache");
+    assertEquals(read(connection), page().getContent(false));
+  }
+
+  @Test
+  public void shouldServeGzipToClientThatAcceptsIt() throws IOException {
+    HttpURLConnection connection = open("/Ann%20Adams.html", null);
+    connection.setRequestProperty("Accept-Encoding", "br, gzip;q=0.8");
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getContentEncoding(), "gzip");
+    assertEquals(connection.getHeaderField("ETag"), page().getEntityTag(true));
+    assertEquals(connection.getHeaderField("Vary"), "Accept-Encoding");
+    assertEquals(read(connection), page().getContent(true));
+  }
+
+  @Test
+  public void shouldNotServeGzipToClientThatRefusesIt() throws IOException {
+    HttpURLConnection connection = open("/Ann%20Adams.html", null);
+    connection.setRequestProperty("Accept-Encoding", "gzip;q=0");
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertNull(connection.getContentEncoding());
+  }
+
+  @Test
+  public void shouldAnswerNotModifiedForKnownEntityTag() throws IOException {
+    HttpURLConnection connection = open("/Ann%20Adams.html", null);
+    connection.setRequestProperty("If-None-Match", "\"other\", W/" + page().getEntityTag(true));
+
+    assertEquals(connection.getResponseCode(), 304);
+    assertEquals(connection.getHeaderField("ETag"), page().getEntityTag(false));
+  }
+
+  @Test
+  public void shouldServeChangedPageForOldEntityTag() throws IOException {
+    String oldEntityTag = page().getEntityTag(false);
+    store.publish(snapshot("<html><body>Ann Adams-Brown</body></html>"));
+
+    HttpURLConnection connection = open("/Ann%20Adams.html", null);
+    connection.setRequestProperty("If-None-Match", oldEntityTag);
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(new String(read(connection), "UTF-8"), "<html><body>Ann Adams-Brown</body></html>");
+  }
+
+  @Test
+  public void shouldServeDirectoryAtRoot() throws IOException {
+    HttpURLConnection connection = open("/", null);
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(new String(read(connection), "UTF-8"), DIRECTORY_CONTENT);
+  }
+
+  @Test
+  public void shouldAnswerHeadWithoutBody() throws IOException {
+    HttpURLConnection connection = open("/Ann%20Adams.html", "HEAD");
+
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getContentLength(), page().getContent(false).length);
+    assertEquals(read(connection).length, 0);
+  }
+
+  @Test
+  public void shouldNotFindUnknownPage() throws IOException {
+    assertEquals(open("/Nobody.html", null).getResponseCode(), 404);
+  }
+
+  @Test
+  public void shouldAllowOnlyGetAndHead() throws IOException {
+    HttpURLConnection connection = open("/Ann%20Adams.html", "DELETE");
+
+    assertEquals(connection.getResponseCode(), 405);
+    assertEquals(connection.getHeaderField("Allow"), "GET, HEAD");
+  }
+
+  @Test
+  public void shouldLetClientsCacheForMaxAge() throws IOException {
+    testModel.close();
+    testModel = new PageServer(store, 0, THREADS, 60);
+
+    assertEquals(open("/", null).getHeaderField("Cache-Control"), "public, max-age=60");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*Must serve on at least one thread.*")
+  public void shouldRejectServingWithoutThreads() throws IOException {
+    new PageServer(store, 0, 0, 0);
+  }
+
+  private PageStore.StoredPage page() {
+    return store.get(FileGenerator.STUDENT_PAGES_FOLDER + "/" + PAGE);
+  }
+
+  private PageStore.Snapshot snapshot(String content) {
+    PageStore.Snapshot snapshot = new PageStore.Snapshot();
+    snapshot.put(FileGenerator.STUDENT_PAGES_FOLDER + "/" + PAGE, content.toCharArray(), content.length());
+    snapshot.put(FileGenerator.STUDENT_PAGES_FOLDER + "/" + FileGenerator.DIRECTORY_FILE_NAME,
+            DIRECTORY_CONTENT.toCharArray(), DIRECTORY_CONTENT.length());
+    return snapshot;
+  }
+
+  private HttpURLConnection open(String path, String method) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + testModel.getPort() + path)
+            .openConnection();
+    if (method != null) {
+      connection.setRequestMethod(method);
+    }
+    return connection;
+  }
+
+  private byte[] read(HttpURLConnection connection) throws IOException {
+    try (InputStream input = connection.getInputStream()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int length = input.read(buffer); length != -1; length = input.read(buffer)) {
+        bytes.write(buffer, 0, length);
+      }
+      return bytes.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package service;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+public class PageStoreTest {
+
+  private static final String PAGE = "studentPages/Ann Adams.html";
+  private static final String CONTENT = "<!DOCTYPE html><html><body>Ann Adams é</body></html>";
+
+  private PageStore testModel;
+  private PageStore.Snapshot snapshot;
+
+  @BeforeMethod
+  public void setUp() {
+    testModel = new PageStore();
+    snapshot = new PageStore.Snapshot();
+  }
+
+  @Test
+  public void shouldStorePageAsUtf8AndGzip() throws IOException {
+    char[] content = (CONTENT + "unused").toCharArray();
+    snapshot.put(PAGE, content, CONTENT.length());
+
+    testModel.publish(snapshot);
+
+    PageStore.StoredPage page = testModel.get(PAGE);
+    assertEquals(page.getContentType(), "text/html; charset=utf-8");
+    assertEquals(new String(page.getContent(false), StandardCharsets.UTF_8), CONTENT);
+    assertEquals(new String(gunzip(page.getContent(true)), StandardCharsets.UTF_8), CONTENT);
+  }
+
+  @Test
+  public void shouldStorePageWhenWriterIsClosed() throws IOException {
+    try (Writer writer = snapshot.openPage("studentPages/run-report.json")) {
+      writer.write("{}");
+    }
+
+    testModel.publish(snapshot);
+
+    PageStore.StoredPage report = testModel.get("studentPages/run-report.json");
+    assertEquals(report.getContentType(), "application/json; charset=utf-8");
+    assertEquals(report.getContent(false), "{}".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldTagEachEncodingByContent() {
+    snapshot.put(PAGE, CONTENT.toCharArray(), CONTENT.length());
+    snapshot.put("studentPages/Copy.html", CONTENT.toCharArray(), CONTENT.length());
+    snapshot.put("studentPages/Other.html", "other".toCharArray(), 5);
+
+    testModel.publish(snapshot);
+
+    PageStore.StoredPage page = testModel.get(PAGE);
+    assertEquals(page.getEntityTag(false), testModel.get("studentPages/Copy.html").getEntityTag(false));
+    assertNotEquals(page.getEntityTag(false), page.getEntityTag(true));
+    assertNotEquals(page.getEntityTag(false), testModel.get("studentPages/Other.html").getEntityTag(false));
+  }
+
+  @Test
+  public void shouldServePreviousFilesUntilPublished() {
+    snapshot.put(PAGE, CONTENT.toCharArray(), CONTENT.length());
+    testModel.publish(snapshot);
+    PageStore.Snapshot next = new PageStore.Snapshot();
+    next.put("studentPages/style.css", "body{}".toCharArray(), 6);
+
+    assertEquals(testModel.size(), 1);
+    assertNull(testModel.get("studentPages/style.css"));
+    testModel.publish(next);
+    snapshot.put("studentPages/Late.html", "late".toCharArray(), 4);
+
+    assertEquals(testModel.size(), 1);
+    assertNull(testModel.get(PAGE));
+    assertNull(testModel.get("studentPages/Late.html"));
+    assertEquals(testModel.get("studentPages/style.css").getContentType(), "text/css; charset=utf-8");
+  }
+
+  @Test
+  public void shouldStoreUnknownFilesAsBytes() {
+    snapshot.put("studentPages/manifest.tsv", "a\tb".toCharArray(), 3);
+
+    testModel.publish(snapshot);
+
+    assertEquals(testModel.get("studentPages/manifest.tsv").getContentType(), "application/octet-stream");
+  }
+
+  private byte[] gunzip(byte[] compressed) throws IOException {
+    try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int length = input.read(buffer); length != -1; length = input.read(buffer)) {
+        bytes.write(buffer, 0, length);
+      }
+      return bytes.toByteArray();
+    }
+  }
+}
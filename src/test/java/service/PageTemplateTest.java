@@ -0,0 +1,60 @@
+package service;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class PageTemplateTest {
+
+  @Test
+  public void shouldFillSlotsInOrderOfSlotNames() {
+    PageTemplate template = PageTemplate.compile("<a href=\"{{file}}\">{{name}}</a>", "name", "file");
+    StringBuilder result = new StringBuilder();
+
+    template.render(result, "Test One", "Test One.html");
+
+    assertEquals(result.toString(), "<a href=\"Test One.html\">Test One</a>");
+  }
+
+  @Test
+  public void shouldAllowSlotToBeUsedMoreThanOnceOrNotAtAll() {
+    PageTemplate template = PageTemplate.compile("{{ name }}-{{name}}", "name", "unused");
+    StringBuilder result = new StringBuilder();
+
+    template.render(result, "x", "y");
+
+    assertEquals(result.toString(), "x-x");
+  }
+
+  @Test
+  public void shouldReportWhereMarkedSlotStarts() {
+    PageTemplate template = PageTemplate.compile("<h1>{{name}}</h1>{{next}}<p>", "name", "next");
+    StringBuilder result = new StringBuilder();
+
+    int mark = template.render(result, 1, "Test", "");
+
+    assertEquals(result.substring(0, mark), "<h1>Test</h1>");
+  }
+
+  @Test
+  public void shouldRenderDefaultTemplatesLikeOriginalPages() {
+    PageTemplates templates = new PageTemplates();
+    StringBuilder result = new StringBuilder();
+
+    templates.getProfile().render(result, "Test One", "style.css", "image.org", "", "<b>Test: </b>Test<br>");
+
+    assertEquals(result.toString(), "<!DOCTYPE html><html><head><title>Test One Profile</title>" +
+            "<link rel=\"stylesheet\"type=\"text/css\" href=\"style.css\"></head><body><table><tr><td>" +
+            "<img src=\"image.org\"></td><td><h1>Test One</h1></td></tr></table><b>Test: </b>Test<br></body></html>");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*unknown slot.*")
+  public void shouldRejectUnknownSlot() {
+    PageTemplate.compile("{{missing}}", "name");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*unclosed slot.*")
+  public void shouldRejectUnclosedSlot() {
+    PageTemplate.compile("{{name", "name");
+  }
+}
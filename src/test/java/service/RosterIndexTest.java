@@ -0,0 +1,149 @@
+package service;
+
+import model.Person;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RosterIndexTest {
+
+  private RosterIndex testModel;
+
+  @BeforeMethod
+  public void setUp() {
+    testModel = new RosterIndex(Arrays.asList(
+            person("Ann", "Fall", "0-3"),
+            person("Bob", "Spring", "0-3"),
+            person("Cal", "Fall", "4+"),
+            person("Dan", "Fall", null),
+            person("Eve", "Summer", "0-3")));
+  }
+
+  @Test
+  public void shouldFindExactResponse() {
+    assertEquals(names(testModel.find(RosterQuery.equalTo("Attending", "Fall"))), Arrays.asList("Ann", "Cal", "Dan"));
+  }
+
+  @Test
+  public void shouldNotMatchResponseOfOtherCaseOrUnknownResponse() {
+    assertEquals(testModel.count(RosterQuery.equalTo("Attending", "fall")), 0);
+    assertEquals(testModel.count(RosterQuery.equalTo("Attending", "Winter")), 0);
+  }
+
+  @Test
+  public void shouldCombineWithAnd() {
+    RosterQuery query = RosterQuery.and(RosterQuery.equalTo("Attending", "Fall"),
+            RosterQuery.equalTo("Siblings", "0-3"));
+
+    assertEquals(names(testModel.find(query)), Arrays.asList("Ann"));
+  }
+
+  @Test
+  public void shouldCombineWithOr() {
+    RosterQuery query = RosterQuery.or(RosterQuery.equalTo("Attending", "Spring"),
+            RosterQuery.equalTo("Siblings", "4+"));
+
+    assertEquals(names(testModel.find(query)), Arrays.asList("Bob", "Cal"));
+  }
+
+  @Test
+  public void shouldNegateIncludingMissingResponses() {
+    RosterQuery query = RosterQuery.not(RosterQuery.equalTo("Siblings", "0-3"));
+
+    assertEquals(names(testModel.find(query)), Arrays.asList("Cal", "Dan"));
+  }
+
+  @Test
+  public void shouldFindWithParsedQuery() {
+    assertEquals(names(testModel.find("Attending=Fall AND NOT Siblings=4+")), Arrays.asList("Ann", "Dan"));
+  }
+
+  @Test
+  public void shouldNotChangeIndexWhenResultIsChanged() {
+    BitSet matches = testModel.match(RosterQuery.equalTo("Attending", "Fall"));
+    matches.clear();
+
+    assertEquals(testModel.count(RosterQuery.equalTo("Attending", "Fall")), 3);
+  }
+
+  @Test
+  public void shouldKeepFewDistinctResponsesAsBitmaps() {
+    assertTrue(testModel.isBitmapIndexed("Attending"));
+    assertEquals(testModel.getValues("Attending"), new HashSet<>(Arrays.asList("Fall", "Spring", "Summer")));
+  }
+
+  @Test
+  public void shouldHashManyDistinctResponses() {
+    List<Person> people = new ArrayList<>();
+    for (int i = 0; i <= RosterIndex.BITMAP_CARDINALITY_LIMIT; i++) {
+      people.add(person("Person " + i, i % 2 == 0 ? "Fall" : "Spring", null));
+    }
+    RosterIndex index = new RosterIndex(people);
+
+    assertFalse(index.isBitmapIndexed(Person.GIVEN_FIRST_NAME_KEY));
+    assertTrue(index.isBitmapIndexed("Attending"));
+    assertEquals(names(index.find("\"Given First Name\"=\"Person 7\" OR \"Given First Name\"=\"Person 3\"")),
+            Arrays.asList("Person 3", "Person 7"));
+    assertEquals(index.count(RosterQuery.and(RosterQuery.equalTo("Attending", "Fall"),
+            RosterQuery.not(RosterQuery.equalTo(Person.GIVEN_FIRST_NAME_KEY, "Person 0")))), 32);
+  }
+
+  @Test
+  public void shouldIndexEmptyRoster() {
+    RosterIndex index = new RosterIndex(new ArrayList<>());
+
+    assertEquals(index.size(), 0);
+    assertTrue(index.getColumns().isEmpty());
+  }
+
+  @Test
+  public void shouldMatchNobodyForUnansweredColumn() {
+    RosterIndex index = new RosterIndex(Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, "Attending", "Major"),
+            Collections.singletonList(person("Ann", "Fall", null)));
+
+    assertTrue(index.getColumns().contains("Major"));
+    assertEquals(index.count(RosterQuery.equalTo("Major", "Math")), 0);
+    assertEquals(names(index.find(RosterQuery.not(RosterQuery.equalTo("Major", "Math")))),
+            Collections.singletonList("Ann"));
+  }
+
+  @Test
+  public void shouldIndexEveryColumnOfEmptyRoster() {
+    RosterIndex index = new RosterIndex(Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, "Attending"), new ArrayList<>());
+
+    assertEquals(index.count(RosterQuery.equalTo("Attending", "Fall")), 0);
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotQueryUnknownColumn() {
+    testModel.find(RosterQuery.equalTo("Major", "Math"));
+  }
+
+  private Person person(String firstName, String attending, String siblings) {
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put(Person.GIVEN_FIRST_NAME_KEY, firstName);
+    data.put("Attending", attending);
+    if (siblings != null) {
+      data.put("Siblings", siblings);
+    }
+    return new Person(data, "");
+  }
+
+  private List<String> names(List<Person> people) {
+    return people.stream().map(person -> person.getData().get(Person.GIVEN_FIRST_NAME_KEY))
+            .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,173 @@
+package service;
+
+import model.Person;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class RosterOrderTest {
+
+  private final RosterOrder testModel = new RosterOrder();
+
+  @Test
+  public void shouldIgnoreCaseOfLastName() {
+    List<Person> people = people(person("Ann", "Smith"), person("Bob", "de Vries"), person("Cal", "Brown"));
+
+    testModel.sort(people);
+
+    assertEquals(lastNames(people), Arrays.asList("Brown", "de Vries", "Smith"));
+  }
+
+  @Test
+  public void shouldBreakTiesOnFirstName() {
+    List<Person> people = people(person("Zoe", "Smith"), person("Amy", "Smith"), person("Max", "Smith"));
+
+    testModel.sort(people);
+
+    assertEquals(firstNames(people), Arrays.asList("Amy", "Max", "Zoe"));
+  }
+
+  @Test
+  public void shouldOrderByPreferredFirstName() {
+    Person preferred = person("Robert", "Smith");
+    preferred.getData().put("Preferred First Name", "Bob");
+    List<Person> people = people(person("Alice", "Smith"), person("Carl", "Smith"), preferred);
+
+    testModel.sort(people);
+
+    assertEquals(people.get(1), preferred);
+  }
+
+  @Test
+  public void shouldPlaceMissingLastNameLast() {
+    List<Person> people = people(person("Ann", null), person("Bob", "Young"), person("Cal", ""),
+            person("Dan", "Adams"));
+
+    testModel.sort(people);
+
+    assertEquals(firstNames(people), Arrays.asList("Dan", "Bob", "Ann", "Cal"));
+  }
+
+  @Test
+  public void shouldKeepRowOrderOfEqualPeople() {
+    Person first = person("Amy", "Smith");
+    Person second = person("Amy", "Smith");
+    List<Person> people = people(person("Zed", "Smith"), first, second);
+
+    testModel.sort(people);
+
+    assertSame(people.get(0), first);
+    assertSame(people.get(1), second);
+  }
+
+  @Test
+  public void shouldFollowCollationOfLocale() {
+    List<Person> people = people(person("Ann", "Özil"), person("Bob", "Zane"), person("Cal", "Olsen"));
+
+    testModel.sort(people);
+    List<String> rootOrder = lastNames(people);
+    new RosterOrder(Locale.forLanguageTag("sv-SE"), RosterOrder.DEFAULT_KEYS).sort(people);
+
+    assertEquals(rootOrder, Arrays.asList("Olsen", "Özil", "Zane"));
+    assertEquals(lastNames(people), Arrays.asList("Olsen", "Zane", "Özil"));
+  }
+
+  @Test
+  public void shouldOrderByTimestamp() {
+    RosterOrder byTimestamp = new RosterOrder(Locale.ROOT, Collections.singletonList(SortKey.TIMESTAMP));
+    List<Person> people = people(timestamped("Ann", "10/1/2018 9:00:00"), timestamped("Bob", "9/30/2018 17:45:12"),
+            timestamped("Cal", "not a time"), timestamped("Dan", null), timestamped("Eve", "2018-09-30 08:00:00"));
+
+    byTimestamp.sort(people);
+
+    assertEquals(firstNames(people), Arrays.asList("Eve", "Bob", "Ann", "Cal", "Dan"));
+  }
+
+  @Test
+  public void shouldOrderByKeysInTheGivenOrder() {
+    RosterOrder byFirstName = new RosterOrder(Locale.ROOT, Arrays.asList(SortKey.FIRST_NAME, SortKey.LAST_NAME));
+    List<Person> people = people(person("Bob", "Adams"), person("Amy", "Young"), person("Amy", "Brown"));
+
+    byFirstName.sort(people);
+
+    assertEquals(lastNames(people), Arrays.asList("Brown", "Young", "Adams"));
+  }
+
+  @Test
+  public void shouldSortLargeRosterLikeComparator() {
+    Random random = new Random(1);
+    List<Person> people = new ArrayList<>();
+    for (int i = 0; i < RosterOrder.PARALLEL_THRESHOLD * 2; i++) {
+      people.add(person(name(random), random.nextInt(20) == 0 ? null : name(random)));
+    }
+    List<Person> expected = new ArrayList<>(people);
+    expected.sort(testModel.comparator());
+
+    testModel.sort(people);
+
+    assertEquals(people.size(), expected.size());
+    for (int i = 0; i < people.size(); i++) {
+      assertSame(people.get(i), expected.get(i));
+    }
+  }
+
+  @Test
+  public void shouldCompareKeysConsistentlyWithComparator() {
+    Person amy = person("Amy", "Smith");
+    Person bob = person("Bob", "Smith");
+
+    assertTrue(RosterOrder.compare(testModel.getSortKey(amy), testModel.getSortKey(bob)) < 0);
+    assertTrue(testModel.comparator().compare(bob, amy) > 0);
+    assertEquals(testModel.comparator().compare(amy, person("Amy", "Smith")), 0);
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotOrderWithoutKeys() {
+    new RosterOrder(Locale.ROOT, Collections.emptyList());
+  }
+
+  private Person person(String firstName, String lastName) {
+    Map<String, String> data = new HashMap<>();
+    data.put(Person.GIVEN_FIRST_NAME_KEY, firstName);
+    data.put(Person.LAST_NAME_KEY, lastName);
+    return new Person(data, "");
+  }
+
+  private Person timestamped(String firstName, String timestamp) {
+    Person person = person(firstName, "Smith");
+    person.getData().put(RosterOrder.TIMESTAMP_KEY, timestamp);
+    return person;
+  }
+
+  private List<Person> people(Person... people) {
+    return new ArrayList<>(Arrays.asList(people));
+  }
+
+  private String name(Random random) {
+    char[] name = new char[1 + random.nextInt(3)];
+    for (int i = 0; i < name.length; i++) {
+      name[i] = (char) ((i == 0 && random.nextBoolean() ? 'A' : 'a') + random.nextInt(4));
+    }
+    return new String(name);
+  }
+
+  private List<String> lastNames(List<Person> people) {
+    return people.stream().map(Person::getLastName).collect(Collectors.toList());
+  }
+
+  private List<String> firstNames(List<Person> people) {
+    return people.stream().map(Person::getFirstName).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,69 @@
+package service;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class RosterQueryTest {
+
+  @Test
+  public void shouldParseComparison() {
+    assertEquals(RosterQuery.parse("Siblings=0-3").toString(), "Siblings=0-3");
+  }
+
+  @Test
+  public void shouldBindNotTighterThanAndTighterThanOr() {
+    RosterQuery query = RosterQuery.parse("a=1 OR NOT b=2 AND c=3");
+
+    assertEquals(query.toString(), "(a=1 OR (NOT b=2 AND c=3))");
+  }
+
+  @Test
+  public void shouldParseParenthesesAndKeywordsInAnyCase() {
+    RosterQuery query = RosterQuery.parse("(a=1 or b=2) and not(c=3)");
+
+    assertEquals(query.toString(), "((a=1 OR b=2) AND NOT c=3)");
+  }
+
+  @Test
+  public void shouldParseQuotedHeadersAndResponses() {
+    RosterQuery query = RosterQuery.parse("\"Home State\" = \"New York\" AND Quote=\"She said \"\"hi\"\"\"");
+
+    assertEquals(query.toString(), "(\"Home State\"=\"New York\" AND Quote=\"She said \"\"hi\"\"\")");
+  }
+
+  @Test
+  public void shouldParseNotEqual() {
+    assertEquals(RosterQuery.parse("Attending!=Fall").toString(), "NOT Attending=Fall");
+  }
+
+  @Test
+  public void shouldNotTakeWordsStartingWithKeywordAsKeyword() {
+    assertEquals(RosterQuery.parse("Notes=x AND ORDER=y").toString(), "(Notes=x AND ORDER=y)");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotParseMissingOperator() {
+    RosterQuery.parse("Attending Fall");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotParseUnclosedParenthesis() {
+    RosterQuery.parse("(a=1 OR b=2");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotParseUnterminatedQuote() {
+    RosterQuery.parse("a=\"open");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotParseTrailingText() {
+    RosterQuery.parse("a=1 b=2");
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class)
+  public void shouldNotCombineNothing() {
+    RosterQuery.and();
+  }
+}
@@ -0,0 +1,98 @@
+package service;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RunMetricsTest {
+
+  private RunMetrics testModel;
+
+  @BeforeMethod
+  public void setUp() {
+    testModel = new RunMetrics();
+  }
+
+  @Test
+  public void shouldCountRowsAndFilesFromStages() {
+    long start = System.nanoTime();
+    testModel.record(Stage.PARSE_ROW, start);
+    testModel.record(Stage.PARSE_ROW, start);
+    testModel.record(Stage.WRITE, start);
+    testModel.addBytesWritten(100);
+
+    assertEquals(testModel.getRows(), 2);
+    assertEquals(testModel.getFilesWritten(), 1);
+    assertEquals(testModel.getBytesWritten(), 100);
+    assertTrue(testModel.getRowsPerSecond() > 0);
+  }
+
+  @Test
+  public void shouldReportSearchIndexSizePerPerson() {
+    testModel.setSearchIndexSize(300, 4);
+
+    assertEquals(testModel.getSearchIndexBytes(), 300);
+    assertEquals(testModel.getSearchIndexBytesPerPerson(), 75.0);
+  }
+
+  @Test
+  public void shouldReplaceSearchIndexSizeWhenIndexIsWrittenAgain() {
+    testModel.setSearchIndexSize(300, 4);
+    testModel.setSearchIndexSize(350, 5);
+
+    assertEquals(testModel.getSearchIndexBytes(), 350);
+    assertEquals(testModel.getSearchIndexBytesPerPerson(), 70.0);
+  }
+
+  @Test
+  public void shouldStopElapsedTimeWhenFinished() throws InterruptedException {
+    assertFalse(testModel.isFinished());
+
+    testModel.finish();
+    long elapsed = testModel.getElapsedMillis();
+    Thread.sleep(5);
+
+    assertTrue(testModel.isFinished());
+    assertEquals(testModel.getElapsedMillis(), elapsed);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldWriteReportAsJson() throws IOException {
+    testModel.record(Stage.RENDER, System.nanoTime());
+    testModel.addBytesWritten(42);
+    StringWriter report = new StringWriter();
+
+    testModel.writeReport(report);
+
+    Map<String, Object> result = JacksonFactory.getDefaultInstance().fromString(report.toString(), Map.class);
+    assertEquals(result.get("bytesWritten"), new BigDecimal(42));
+    Map<String, Object> stages = (Map<String, Object>) result.get("stages");
+    assertEquals(stages.size(), Stage.values().length);
+    assertEquals(((Map<String, Object>) stages.get("render")).get("count"), new BigDecimal(1));
+  }
+
+  @Test
+  public void shouldReplacePreviousRunInJmx() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    new RunMetrics().register();
+    testModel.addBytesWritten(7);
+
+    testModel.register();
+
+    assertEquals(server.getAttribute(new ObjectName("surveyParser:type=Run"), "BytesWritten"), 7L);
+    assertEquals(server.getAttribute(new ObjectName("surveyParser:type=Stage,name=write"), "Count"), 0L);
+  }
+}
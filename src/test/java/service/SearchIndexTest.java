@@ -0,0 +1,109 @@
+package service;
+
+import model.Person;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SearchIndexTest {
+
+  private SearchIndex testModel;
+
+  @BeforeMethod
+  public void setUp() {
+    testModel = new SearchIndex();
+  }
+
+  @Test
+  public void shouldFindTermsOfNameAndColumns() {
+    Person person = person("Ann", "Adams", "Computer Science");
+
+    String[] terms = SearchIndex.getTerms(person, Collections.singletonList("Major"));
+
+    assertEquals(terms, new String[]{"ann", "adams", "computer", "science"});
+  }
+
+  @Test
+  public void shouldOnlyFindTermsOfNameWithoutColumns() {
+    assertEquals(SearchIndex.getTerms(person("Ann", "Adams", "Math"), Collections.emptyList()),
+            new String[]{"ann", "adams"});
+  }
+
+  @Test
+  public void shouldFoldAccentsAndCaseOfTerms() {
+    String[] terms = SearchIndex.getTerms(person("Zoë", "O'Brien-Núñez", "Art, ART & art"),
+            Collections.singletonList("Major"));
+
+    assertEquals(terms, new String[]{"zoe", "o", "brien", "nunez", "art"});
+  }
+
+  @Test
+  public void shouldSkipMissingColumns() {
+    assertEquals(SearchIndex.getTerms(person("Ann", "Adams", null), Arrays.asList("Major", "Hometown")),
+            new String[]{"ann", "adams"});
+  }
+
+  @Test
+  public void shouldShardTermsByFirstCharacter() {
+    assertEquals(SearchIndex.getShard("adams"), "a");
+    assertEquals(SearchIndex.getShard("2020"), "2");
+    assertEquals(SearchIndex.getShard("ßeta"), SearchIndex.OTHER_SHARD);
+  }
+
+  @Test
+  public void shouldRenderShardWithNamesOfItsPeople() {
+    testModel.add("Ann Adams", new String[]{"ann", "adams"});
+    testModel.add("Bob Brown", new String[]{"bob", "brown", "art"});
+    testModel.add("Al Cole", new String[]{"al", "cole"});
+    StringBuilder shard = new StringBuilder();
+
+    testModel.renderShard("a", shard);
+
+    assertEquals(testModel.getShards(), new TreeSet<>(Arrays.asList("a", "b", "c")));
+    assertEquals(shard.toString(), "SearchIndex.load(\"a\",{\"names\":{\"0\":\"Ann Adams\",\"1\":\"Bob Brown\"," +
+            "\"2\":\"Al Cole\"},\"terms\":{\"adams\":[0],\"al\":[2],\"ann\":[0],\"art\":[1]}});\n");
+  }
+
+  @Test
+  public void shouldListEachPersonOnceForTerm() {
+    testModel.add("Ann Ann", new String[]{"ann", "ann"});
+    testModel.add("Ann Bell", new String[]{"ann", "bell"});
+    StringBuilder shard = new StringBuilder();
+
+    testModel.renderShard("a", shard);
+
+    assertTrue(shard.toString().contains("\"ann\":[0,1]"));
+    assertEquals(testModel.size(), 2);
+  }
+
+  @Test
+  public void shouldEscapeNames() {
+    testModel.add("Ann \"Annie\" Adams\\", new String[]{"ann"});
+    StringBuilder shard = new StringBuilder();
+
+    testModel.renderShard("a", shard);
+
+    assertTrue(shard.toString().contains("\"0\":\"Ann \\\"Annie\\\" Adams\\\\\""));
+  }
+
+  @Test
+  public void shouldLoadSearchScript() {
+    assertTrue(SearchIndex.getScript().contains("var SearchIndex"));
+  }
+
+  private Person person(String firstName, String lastName, String major) {
+    Map<String, String> data = new LinkedHashMap<>();
+    data.put(Person.GIVEN_FIRST_NAME_KEY, firstName);
+    data.put(Person.LAST_NAME_KEY, lastName);
+    data.put("Major", major);
+    return new Person(data, "");
+  }
+}
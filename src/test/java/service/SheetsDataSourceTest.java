@@ -0,0 +1,400 @@
+package service;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.store.FileDataStoreFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import model.Person;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+public class SheetsDataSourceTest {
+
+  private static final String SPREADSHEET_ID = "test";
+  private static final String URL = "https://docs.google.com/spreadsheets/d/" + SPREADSHEET_ID;
+  private static final String EDIT_URL = URL + "/edit#gid1234";
+  private static final String DATA_RANGE = "A1:C3";
+  private static final String LONG_DATA_RANGE = "A1:C6";
+  private static final String FIRST_PAGE = "A1:C2";
+  private static final String SECOND_PAGE = "A3:C4";
+  private static final String THIRD_PAGE = "A5:C6";
+  private static final String PROBE_RANGE = "A1:A3";
+  private static final String NAMED_RANGE = "Responses";
+  private static final int PAGE_SIZE = 2;
+  private static final int LARGE_PAGE_SIZE = 10;
+  private static final int MAX_CONCURRENT_REQUESTS = 2;
+  private static final String IMAGE_LINK = "picture";
+  private static final int STAND_IN_BACK_OFF_MILLIS = 10;
+  private static final int STAND_IN_MAX_BACK_OFF_ELAPSED_MILLIS = 200;
+
+  @Mock
+  private Sheets retriever;
+  @Mock
+  private Sheets.Spreadsheets spreadsheets;
+  @Mock
+  private Sheets.Spreadsheets.Values values;
+  @Mock
+  private Sheets.Spreadsheets.Values.Get get;
+  @Mock
+  private Sheets.Spreadsheets.Values.Get firstPageGet;
+  @Mock
+  private Sheets.Spreadsheets.Values.Get secondPageGet;
+  @Mock
+  private Sheets.Spreadsheets.Values.Get thirdPageGet;
+  @Mock
+  private Sheets.Spreadsheets.Values.Get probeGet;
+  @Mock
+  private HttpTransport httpTransport;
+  @Mock
+  private JsonFactory jsonFactory;
+  @Mock
+  private FileDataStoreFactory dataStoreFactory;
+
+  private List<List<Object>> data;
+  private List<Object> innerData1;
+  private List<Object> innerData2;
+
+  private File cacheDirectory;
+
+  private SheetsDataSource testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    MockitoAnnotations.initMocks(this);
+
+    data = new ArrayList<>();
+
+    List<Object> headers = new ArrayList<>();
+    headers.add(Person.GIVEN_FIRST_NAME_KEY);
+    headers.add(Person.LAST_NAME_KEY);
+    headers.add("Link to Picture");
+
+    innerData1 = new ArrayList<>();
+    innerData1.add("First");
+    innerData1.add("Last");
+    innerData1.add(IMAGE_LINK);
+
+    innerData2 = new ArrayList<>();
+    innerData2.add("Second");
+    innerData2.add("Second to Last");
+    innerData2.add(IMAGE_LINK);
+
+    data.add(headers);
+    data.add(innerData1);
+    data.add(innerData2);
+
+    ValueRange valueRange = new ValueRange();
+    valueRange.setValues(data);
+    when(retriever.spreadsheets()).thenReturn(spreadsheets);
+    when(spreadsheets.values()).thenReturn(values);
+    when(values.get(SPREADSHEET_ID, DATA_RANGE)).thenReturn(get);
+    when(get.execute()).thenReturn(valueRange);
+
+
+    testModel = new SheetsDataSource(httpTransport, jsonFactory, dataStoreFactory) {
+      @Override
+      Sheets getSheets(HttpTransport httpTransport, JsonFactory jsonFactory, FileDataStoreFactory dataStoreFactory) {
+        return retriever;
+      }
+    };
+    cacheDirectory = Files.createTempDirectory("cache").toFile();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    TestFiles.deleteRecursively(cacheDirectory);
+  }
+
+  @Test
+  public void shouldRetrieveDataProperly() throws IOException {
+    retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+    verify(values).get(SPREADSHEET_ID, DATA_RANGE);
+  }
+
+  @Test
+  public void shouldReturnCorrectData() throws IOException {
+    List<List<Object>> result = retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+    assertEquals(result, data);
+  }
+
+  @Test
+  public void shouldHandleEditUrlCorrectly() throws IOException {
+    testModel.retrieveData(EDIT_URL, DATA_RANGE, RunOptions.SINGLE_REQUEST, MAX_CONCURRENT_REQUESTS, rows -> {
+    });
+
+    verify(values).get(SPREADSHEET_ID, DATA_RANGE);
+  }
+
+  @Test
+  public void shouldRetrieveRangeInPages() throws IOException {
+    stubPages(data.subList(0, 2), data.subList(2, 3), null);
+
+    retrieve(testModel, LONG_DATA_RANGE, PAGE_SIZE);
+
+    verify(values).get(SPREADSHEET_ID, FIRST_PAGE);
+    verify(values).get(SPREADSHEET_ID, SECOND_PAGE);
+    verify(values).get(SPREADSHEET_ID, THIRD_PAGE);
+  }
+
+  @Test
+  public void shouldReturnSameDataForPagesAsSingleRequest() throws IOException {
+    stubPages(data.subList(0, 2), data.subList(2, 3), null);
+
+    List<List<Object>> result = retrieve(testModel, LONG_DATA_RANGE, PAGE_SIZE);
+
+    assertEquals(result, data);
+  }
+
+  @Test
+  public void shouldKeepEmptyRowsBetweenPages() throws IOException {
+    List<Object> emptyRow = new ArrayList<>();
+    stubPages(data.subList(0, 1), null, Collections.singletonList(innerData2));
+
+    List<List<Object>> result = retrieve(testModel, LONG_DATA_RANGE, PAGE_SIZE);
+
+    List<List<Object>> expected = new ArrayList<>();
+    expected.add(data.get(0));
+    expected.add(emptyRow);
+    expected.add(emptyRow);
+    expected.add(emptyRow);
+    expected.add(innerData2);
+    assertEquals(result, expected);
+  }
+
+  @Test
+  public void shouldReturnNullForEmptyPagedRange() throws IOException {
+    stubPages(null, null, null);
+
+    List<List<Object>> result = retrieve(testModel, LONG_DATA_RANGE, PAGE_SIZE);
+
+    assertNull(result);
+  }
+
+  @Test
+  public void shouldUseSingleRequestIfRangeFitsInOnePage() throws IOException {
+    List<List<Object>> result = retrieve(testModel, DATA_RANGE, LARGE_PAGE_SIZE);
+
+    verify(values).get(SPREADSHEET_ID, DATA_RANGE);
+    assertEquals(result, data);
+  }
+
+  @Test (expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*page failed.*")
+  public void shouldPropagatePageFailure() throws IOException {
+    stubPages(data.subList(0, 2), data.subList(2, 3), null);
+    when(secondPageGet.execute()).thenThrow(new IOException("page failed"));
+
+    retrieve(testModel, LONG_DATA_RANGE, PAGE_SIZE);
+  }
+
+  @Test
+  public void shouldServeUnchangedRangeFromCache() throws IOException {
+    stubPage(PROBE_RANGE, probeGet, Arrays.asList(Collections.singletonList("First"),
+            Collections.singletonList("Second")));
+    testModel.setCache(new SpreadsheetCache(cacheDirectory));
+    testModel.setProbe(true);
+
+    retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+    List<List<Object>> result = retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+    verify(values, times(2)).get(SPREADSHEET_ID, PROBE_RANGE);
+    verify(values, times(1)).get(SPREADSHEET_ID, DATA_RANGE);
+    assertEquals(result, data);
+  }
+
+  @Test
+  public void shouldDownloadRangeAgainWhenProbeChanges() throws IOException {
+    stubPage(PROBE_RANGE, probeGet, Collections.singletonList(Collections.singletonList("First")));
+    testModel.setCache(new SpreadsheetCache(cacheDirectory));
+    testModel.setProbe(true);
+    retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+    stubPage(PROBE_RANGE, probeGet, Arrays.asList(Collections.singletonList("First"),
+            Collections.singletonList("Second")));
+    List<List<Object>> result = retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+    verify(values, times(2)).get(SPREADSHEET_ID, DATA_RANGE);
+    assertEquals(result, data);
+  }
+
+  @Test
+  public void shouldCachePagedRange() throws IOException {
+    stubPages(data.subList(0, 2), data.subList(2, 3), null);
+    stubPage("A1:A6", probeGet, Collections.singletonList(Collections.singletonList("First")));
+    testModel.setCache(new SpreadsheetCache(cacheDirectory));
+    testModel.setProbe(true);
+
+    retrieve(testModel, LONG_DATA_RANGE, PAGE_SIZE);
+    List<List<Object>> result = retrieve(testModel, LONG_DATA_RANGE, PAGE_SIZE);
+
+    verify(values, times(1)).get(SPREADSHEET_ID, SECOND_PAGE);
+    assertEquals(result, data);
+  }
+
+  @Test
+  public void shouldDownloadCachedRangeAgainWithoutProbe() throws IOException {
+    testModel.setCache(new SpreadsheetCache(cacheDirectory));
+
+    retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+    List<List<Object>> result = retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+    verify(values, never()).get(SPREADSHEET_ID, PROBE_RANGE);
+    verify(values, times(2)).get(SPREADSHEET_ID, DATA_RANGE);
+    assertEquals(result, data);
+  }
+
+  @Test
+  public void shouldNotProbeRangeWhoseColumnsAreUnknown() throws IOException {
+    when(values.get(SPREADSHEET_ID, NAMED_RANGE)).thenReturn(get);
+    testModel.setCache(new SpreadsheetCache(cacheDirectory));
+    testModel.setProbe(true);
+
+    retrieve(testModel, NAMED_RANGE, RunOptions.SINGLE_REQUEST);
+    retrieve(testModel, NAMED_RANGE, RunOptions.SINGLE_REQUEST);
+
+    verify(values, times(2)).get(SPREADSHEET_ID, NAMED_RANGE);
+  }
+
+  @Test
+  public void shouldServeCachedRangeOfflineWithoutContactingSpreadsheet() throws IOException {
+    stubPage(PROBE_RANGE, probeGet, Collections.singletonList(Collections.singletonList("First")));
+    testModel.setCache(new SpreadsheetCache(cacheDirectory));
+    retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+    SheetsDataSource offlineSource = new SheetsDataSource(httpTransport, jsonFactory, dataStoreFactory) {
+      @Override
+      Sheets getSheets(HttpTransport httpTransport, JsonFactory jsonFactory, FileDataStoreFactory dataStoreFactory) {
+        throw new AssertionError("Offline mode must not build a Sheets client");
+      }
+    };
+    offlineSource.setCache(new SpreadsheetCache(cacheDirectory));
+    offlineSource.setOffline(true);
+
+    assertEquals(retrieve(offlineSource, DATA_RANGE, RunOptions.SINGLE_REQUEST), data);
+  }
+
+  @Test (expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*offline mode.*")
+  public void shouldFailOfflineWithoutCachedRange() throws IOException {
+    testModel.setCache(new SpreadsheetCache(cacheDirectory));
+    testModel.setOffline(true);
+
+    retrieve(testModel, DATA_RANGE, RunOptions.SINGLE_REQUEST);
+  }
+
+  @Test
+  public void shouldRetrieveRangeFromStandIn() throws IOException {
+    try (SheetsStandIn standIn = new SheetsStandIn()) {
+      standIn.addSpreadsheet(SPREADSHEET_ID, data);
+
+      List<List<Object>> result = retrieve(getStandInSource(standIn), LONG_DATA_RANGE, PAGE_SIZE);
+
+      assertEquals(result, data);
+      assertEquals(standIn.getRequestCount(), 3);
+    }
+  }
+
+  @Test
+  public void shouldRetryRequestRejectedForQuota() throws IOException {
+    try (SheetsStandIn standIn = new SheetsStandIn()) {
+      standIn.addSpreadsheet(SPREADSHEET_ID, data);
+      standIn.failNextRequests(2, SheetsStandIn.TOO_MANY_REQUESTS);
+
+      List<List<Object>> result = retrieve(getStandInSource(standIn), DATA_RANGE, RunOptions.SINGLE_REQUEST);
+
+      assertEquals(result, data);
+      assertEquals(standIn.getRequestCount(), 3);
+    }
+  }
+
+  @Test
+  public void shouldRetryOnlyFailedPage() throws IOException {
+    try (SheetsStandIn standIn = new SheetsStandIn()) {
+      standIn.addSpreadsheet(SPREADSHEET_ID, data);
+      standIn.failRange(SECOND_PAGE, 1, SheetsStandIn.SERVICE_UNAVAILABLE);
+
+      List<List<Object>> result = retrieve(getStandInSource(standIn), LONG_DATA_RANGE, PAGE_SIZE);
+
+      assertEquals(result, data);
+      assertEquals(standIn.getRequestCount(), 4);
+      assertEquals(standIn.getFailedRequestCount(), 1);
+    }
+  }
+
+  @Test (expectedExceptions = GoogleJsonResponseException.class, expectedExceptionsMessageRegExp = "503.*")
+  public void shouldFailOnceRetriesRunOut() throws IOException {
+    try (SheetsStandIn standIn = new SheetsStandIn()) {
+      standIn.addSpreadsheet(SPREADSHEET_ID, data);
+      standIn.failNextRequests(Integer.MAX_VALUE, SheetsStandIn.SERVICE_UNAVAILABLE);
+
+      retrieve(getStandInSource(standIn), DATA_RANGE, RunOptions.SINGLE_REQUEST);
+    }
+  }
+
+  @Test
+  public void shouldNotRetryMissingSpreadsheet() throws IOException {
+    try (SheetsStandIn standIn = new SheetsStandIn()) {
+      try {
+        retrieve(getStandInSource(standIn), DATA_RANGE, RunOptions.SINGLE_REQUEST);
+        fail("Expected the missing spreadsheet to fail");
+      }
+      catch (GoogleJsonResponseException notFound) {
+        assertEquals(notFound.getStatusCode(), 404);
+      }
+      assertEquals(standIn.getRequestCount(), 1);
+    }
+  }
+
+  private SheetsDataSource getStandInSource(SheetsStandIn standIn) {
+    SheetsDataSource source = new SheetsDataSource(new NetHttpTransport(), JacksonFactory.getDefaultInstance(),
+            standIn.getRootUrl());
+    source.setBackOff(STAND_IN_BACK_OFF_MILLIS, STAND_IN_MAX_BACK_OFF_ELAPSED_MILLIS);
+    return source;
+  }
+
+  private List<List<Object>> retrieve(SheetsDataSource source, String range, int pageSize) throws IOException {
+    List<List<Object>> result = new ArrayList<>();
+    source.retrieveData(URL, range, pageSize, MAX_CONCURRENT_REQUESTS, result::addAll);
+    return result.isEmpty() ? null : result;
+  }
+
+  private void stubPages(List<List<Object>> first, List<List<Object>> second, List<List<Object>> third)
+          throws IOException {
+    stubPage(FIRST_PAGE, firstPageGet, first);
+    stubPage(SECOND_PAGE, secondPageGet, second);
+    stubPage(THIRD_PAGE, thirdPageGet, third);
+  }
+
+  private void stubPage(String range, Sheets.Spreadsheets.Values.Get pageGet, List<List<Object>> rows)
+          throws IOException {
+    ValueRange valueRange = new ValueRange();
+    if (rows != null) {
+      valueRange.setValues(new ArrayList<>(rows));
+    }
+    when(values.get(SPREADSHEET_ID, range)).thenReturn(pageGet);
+    when(pageGet.execute()).thenReturn(valueRange);
+  }
+}
@@ -0,0 +1,333 @@
+package service;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.sheets.v4.model.BatchGetValuesResponse;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server standing in for the values.get and values.batchGet endpoints of the Sheets API, serving
+ * spreadsheets from fixture data. Latency and failures can be injected: every request can be delayed, the next
+ * requests can be rejected with a status such as 429 (quota exceeded) or 503, a single range can fail while the others
+ * succeed, and a random fraction of requests can fail. Like the real API, trailing empty cells and rows are left out of
+ * responses. Point a SheetsDataSource at it with the root url.
+ */
+class SheetsStandIn implements Closeable {
+
+  static final int TOO_MANY_REQUESTS = 429;
+  static final int SERVICE_UNAVAILABLE = 503;
+
+  private static final String VALUES_PATH = "/v4/spreadsheets/";
+  private static final String VALUES_SEGMENT = "/values/";
+  private static final String BATCH_GET_SEGMENT = "/values:batchGet";
+  private static final String RANGES_PARAMETER = "ranges=";
+  private static final String MAJOR_DIMENSION = "ROWS";
+  private static final String ERROR_FORMAT = "{\"error\": {\"code\": %d, \"message\": \"Injected failure\"}}";
+  private static final int OK = 200;
+  private static final int BAD_REQUEST = 400;
+  private static final int NOT_FOUND = 404;
+  private static final int THREADS = 16;
+
+  private final JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+  private final Map<String, List<List<Object>>> spreadsheets = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> rangeFailures = new ConcurrentHashMap<>();
+  private final Map<String, Integer> rangeFailureStatuses = new ConcurrentHashMap<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger failedRequests = new AtomicInteger();
+  private final AtomicInteger nextFailures = new AtomicInteger();
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+  private volatile int nextFailureStatus;
+  private volatile long latencyMillis;
+  private volatile double failureRate;
+  private volatile int failureRateStatus;
+  private Random random = new Random();
+
+  /**
+   * Builds fixture data of a given payload size: a header row followed by rows of cells of the given length.
+   *
+   * @param rows       number of rows after the header row
+   * @param columns    number of cells in each row
+   * @param cellLength number of characters in each cell
+   * @return rows of the spreadsheet, starting at cell A1
+   */
+  static List<List<Object>> fixture(int rows, int columns, int cellLength) {
+    List<List<Object>> values = new ArrayList<>(rows + 1);
+    for (int row = 0; row <= rows; row++) {
+      List<Object> cells = new ArrayList<>(columns);
+      for (int column = 0; column < columns; column++) {
+        StringBuilder cell = new StringBuilder(row == 0 ? "Header " : "Cell ").append(row).append('-').append(column);
+        while (cell.length() < cellLength) {
+          cell.append('x');
+        }
+        cells.add(cell.toString());
+      }
+      values.add(cells);
+    }
+    return values;
+  }
+
+  /**
+   * Starts the server on a free port of the loopback address.
+   *
+   * @throws IOException if the server can't be started
+   */
+  SheetsStandIn() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(VALUES_PATH, this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Gets the root url to build a SheetsDataSource with.
+   *
+   * @return root url of the server, ending with a slash
+   */
+  String getRootUrl() {
+    return String.format("http://%s:%d/", server.getAddress().getHostString(), server.getAddress().getPort());
+  }
+
+  /**
+   * Serves a spreadsheet. Sheet names in requested ranges are ignored.
+   *
+   * @param spreadsheetId non-null id of the spreadsheet
+   * @param values        non-null rows of the spreadsheet, starting at cell A1
+   */
+  void addSpreadsheet(String spreadsheetId, List<List<Object>> values) {
+    spreadsheets.put(spreadsheetId, values);
+  }
+
+  /**
+   * Delays every response.
+   *
+   * @param latencyMillis time to wait before responding to each request
+   */
+  void setLatency(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Rejects the next requests, whatever they ask for.
+   *
+   * @param count  number of requests to reject
+   * @param status HTTP status to reject them with
+   */
+  void failNextRequests(int count, int status) {
+    nextFailureStatus = status;
+    nextFailures.set(count);
+  }
+
+  /**
+   * Rejects the next requests for one range, while requests for other ranges succeed.
+   *
+   * @param range  non-null range, exactly as requested
+   * @param count  number of requests for the range to reject
+   * @param status HTTP status to reject them with
+   */
+  void failRange(String range, int count, int status) {
+    rangeFailureStatuses.put(range, status);
+    rangeFailures.put(range, new AtomicInteger(count));
+  }
+
+  /**
+   * Rejects a random fraction of requests.
+   *
+   * @param failureRate fraction of requests to reject, between 0 and 1
+   * @param status      HTTP status to reject them with
+   * @param seed        seed of the choice of requests to reject
+   */
+  void setFailureRate(double failureRate, int status, long seed) {
+    this.failureRateStatus = status;
+    this.random = new Random(seed);
+    this.failureRate = failureRate;
+  }
+
+  /**
+   * Gets the number of requests received, including rejected ones.
+   *
+   * @return requests received
+   */
+  int getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * Gets the number of requests rejected with an injected failure.
+   *
+   * @return requests rejected
+   */
+  int getFailedRequestCount() {
+    return failedRequests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      requests.incrementAndGet();
+      sleep();
+      String path = exchange.getRequestURI().getPath().substring(VALUES_PATH.length());
+      if (path.endsWith(BATCH_GET_SEGMENT)) {
+        String spreadsheetId = path.substring(0, path.length() - BATCH_GET_SEGMENT.length());
+        batchGet(exchange, spreadsheetId, getRanges(exchange.getRequestURI().getRawQuery()));
+        return;
+      }
+      int valuesIndex = path.indexOf(VALUES_SEGMENT);
+      if (valuesIndex == -1) {
+        respond(exchange, NOT_FOUND, String.format(ERROR_FORMAT, NOT_FOUND));
+        return;
+      }
+      get(exchange, path.substring(0, valuesIndex), path.substring(valuesIndex + VALUES_SEGMENT.length()));
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  private void get(HttpExchange exchange, String spreadsheetId, String range) throws IOException {
+    int failure = getInjectedFailure(range);
+    if (failure != 0) {
+      respond(exchange, failure, String.format(ERROR_FORMAT, failure));
+      return;
+    }
+    List<List<Object>> values = spreadsheets.get(spreadsheetId);
+    CellRange cellRange = CellRange.parse(range);
+    if (values == null || cellRange == null) {
+      int status = values == null ? NOT_FOUND : BAD_REQUEST;
+      respond(exchange, status, String.format(ERROR_FORMAT, status));
+      return;
+    }
+    respond(exchange, OK, jsonFactory.toString(getValueRange(values, range, cellRange)));
+  }
+
+  private void batchGet(HttpExchange exchange, String spreadsheetId, List<String> ranges) throws IOException {
+    List<ValueRange> valueRanges = new ArrayList<>();
+    List<List<Object>> values = spreadsheets.get(spreadsheetId);
+    for (String range : ranges) {
+      int failure = getInjectedFailure(range);
+      if (failure != 0) {
+        respond(exchange, failure, String.format(ERROR_FORMAT, failure));
+        return;
+      }
+      CellRange cellRange = CellRange.parse(range);
+      if (values == null || cellRange == null) {
+        int status = values == null ? NOT_FOUND : BAD_REQUEST;
+        respond(exchange, status, String.format(ERROR_FORMAT, status));
+        return;
+      }
+      valueRanges.add(getValueRange(values, range, cellRange));
+    }
+    BatchGetValuesResponse response = new BatchGetValuesResponse().setSpreadsheetId(spreadsheetId)
+            .setValueRanges(valueRanges);
+    respond(exchange, OK, jsonFactory.toString(response));
+  }
+
+  private int getInjectedFailure(String range) {
+    int status = 0;
+    AtomicInteger failures = rangeFailures.get(range);
+    if (failures != null && takeOne(failures)) {
+      status = rangeFailureStatuses.get(range);
+    }
+    else if (takeOne(nextFailures)) {
+      status = nextFailureStatus;
+    }
+    else if (failureRate > 0 && nextRandom() < failureRate) {
+      status = failureRateStatus;
+    }
+    if (status != 0) {
+      failedRequests.incrementAndGet();
+    }
+    return status;
+  }
+
+  private boolean takeOne(AtomicInteger remaining) {
+    return remaining.getAndUpdate(count -> count > 0 ? count - 1 : 0) > 0;
+  }
+
+  private synchronized double nextRandom() {
+    return random.nextDouble();
+  }
+
+  private ValueRange getValueRange(List<List<Object>> values, String range, CellRange cellRange) {
+    List<List<Object>> rows = new ArrayList<>();
+    int lastRow = Math.min(cellRange.getLastRow(), values.size());
+    for (int row = cellRange.getFirstRow(); row <= lastRow; row++) {
+      List<Object> cells = values.get(row - 1);
+      int lastColumn = Math.min(cellRange.getLastColumnIndex(), cells.size() - 1);
+      List<Object> result = new ArrayList<>();
+      for (int column = cellRange.getFirstColumnIndex(); column <= lastColumn; column++) {
+        result.add(cells.get(column));
+      }
+      while (!result.isEmpty() && result.get(result.size() - 1).toString().isEmpty()) {
+        result.remove(result.size() - 1);
+      }
+      rows.add(result);
+    }
+    while (!rows.isEmpty() && rows.get(rows.size() - 1).isEmpty()) {
+      rows.remove(rows.size() - 1);
+    }
+    ValueRange valueRange = new ValueRange().setRange(range).setMajorDimension(MAJOR_DIMENSION);
+    // Like the real API, a range without any values has no values field at all
+    return rows.isEmpty() ? valueRange : valueRange.setValues(rows);
+  }
+
+  private List<String> getRanges(String query) throws UnsupportedEncodingException {
+    List<String> ranges = new ArrayList<>();
+    if (query == null) {
+      return ranges;
+    }
+    for (String parameter : query.split("&")) {
+      if (parameter.startsWith(RANGES_PARAMETER)) {
+        ranges.add(URLDecoder.decode(parameter.substring(RANGES_PARAMETER.length()), StandardCharsets.UTF_8.name()));
+      }
+    }
+    return ranges;
+  }
+
+  private void sleep() throws IOException {
+    if (latencyMillis <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.MILLISECONDS.sleep(latencyMillis);
+    }
+    catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while injecting latency", interruptedException);
+    }
+  }
+
+  private void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream response = exchange.getResponseBody()) {
+      response.write(bytes);
+    }
+  }
+}
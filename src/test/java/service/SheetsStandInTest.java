@@ -0,0 +1,78 @@
+package service;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.BatchGetValuesResponse;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class SheetsStandInTest {
+
+  private static final String SPREADSHEET_ID = "test";
+
+  private SheetsStandIn testModel;
+  private Sheets sheets;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    testModel = new SheetsStandIn();
+    testModel.addSpreadsheet(SPREADSHEET_ID, Arrays.asList(
+            Arrays.asList("Header 1", "Header 2", "Header 3"),
+            Arrays.asList("A", "", ""),
+            Arrays.asList("", "", ""),
+            Arrays.asList("B", "C", "D")));
+    sheets = new Sheets.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(), null)
+            .setRootUrl(testModel.getRootUrl()).build();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    testModel.close();
+  }
+
+  @Test
+  public void shouldLeaveOutTrailingEmptyCellsAndRows() throws IOException {
+    ValueRange result = sheets.spreadsheets().values().get(SPREADSHEET_ID, "Responses!A2:C3").execute();
+
+    assertEquals(result.getValues(), Collections.singletonList(Collections.singletonList("A")));
+  }
+
+  @Test
+  public void shouldOmitValuesOfEmptyRange() throws IOException {
+    ValueRange result = sheets.spreadsheets().values().get(SPREADSHEET_ID, "A3:C3").execute();
+
+    assertNull(result.getValues());
+  }
+
+  @Test
+  public void shouldServeEveryRangeOfBatchGet() throws IOException {
+    BatchGetValuesResponse result = sheets.spreadsheets().values().batchGet(SPREADSHEET_ID)
+            .setRanges(Arrays.asList("A1:A2", "B4:C4")).execute();
+
+    List<ValueRange> ranges = result.getValueRanges();
+    assertEquals(ranges.size(), 2);
+    assertEquals(ranges.get(0).getValues(), Arrays.asList(Collections.singletonList("Header 1"),
+            Collections.singletonList("A")));
+    assertEquals(ranges.get(1).getValues(), Collections.singletonList(Arrays.asList("C", "D")));
+  }
+
+  @Test
+  public void shouldBuildFixtureOfGivenSize() {
+    List<List<Object>> result = SheetsStandIn.fixture(10, 4, 20);
+
+    assertEquals(result.size(), 11);
+    assertEquals(result.get(10).size(), 4);
+    assertEquals(result.get(10).get(3).toString().length(), 20);
+  }
+}
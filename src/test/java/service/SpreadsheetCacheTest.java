@@ -0,0 +1,138 @@
+package service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SpreadsheetCacheTest {
+
+  private static final String SPREADSHEET_ID = "test";
+  private static final String RANGE = "'Form Responses 1'!A1:C4";
+  private static final String FINGERPRINT = "fingerprint";
+
+  private File directory;
+  private List<List<Object>> rows;
+
+  private SpreadsheetCache testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("cache").toFile();
+    rows = new ArrayList<>();
+    rows.add(Arrays.asList("First Name", "Last Name", "Link to Picture"));
+    rows.add(Arrays.asList("José", "\"Quoted\" Last", "picture"));
+    rows.add(new ArrayList<>());
+    rows.add(Arrays.asList("Second", "Second to Last"));
+
+    testModel = new SpreadsheetCache(directory);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    TestFiles.deleteRecursively(directory);
+  }
+
+  @Test
+  public void shouldReadBackCommittedSnapshotInBlocks() throws IOException {
+    store(FINGERPRINT);
+    List<List<List<Object>>> blocks = new ArrayList<>();
+
+    boolean result = testModel.read(SPREADSHEET_ID, RANGE, FINGERPRINT, 3, blocks::add);
+
+    assertTrue(result);
+    assertEquals(blocks.size(), 2);
+    assertEquals(blocks.get(0), rows.subList(0, 3));
+    assertEquals(blocks.get(1), rows.subList(3, 4));
+  }
+
+  @Test
+  public void shouldNotReadSnapshotWithDifferentFingerprint() throws IOException {
+    store(FINGERPRINT);
+
+    assertFalse(testModel.read(SPREADSHEET_ID, RANGE, "changed", 3, blocks -> {
+      throw new AssertionError("Stale rows must not be handed out");
+    }));
+  }
+
+  @Test
+  public void shouldReadAnySnapshotWithoutFingerprint() throws IOException {
+    store(FINGERPRINT);
+    List<List<Object>> result = new ArrayList<>();
+
+    assertTrue(testModel.read(SPREADSHEET_ID, RANGE, null, 10, result::addAll));
+    assertEquals(result, rows);
+  }
+
+  @Test
+  public void shouldOnlyReadUnprobedSnapshotWithoutFingerprint() throws IOException {
+    store(null);
+    List<List<Object>> result = new ArrayList<>();
+
+    assertFalse(testModel.read(SPREADSHEET_ID, RANGE, FINGERPRINT, 10, result::addAll));
+    assertTrue(testModel.read(SPREADSHEET_ID, RANGE, null, 10, result::addAll));
+    assertEquals(result, rows);
+  }
+
+  @Test
+  public void shouldDiscardUncommittedSnapshot() throws IOException {
+    store(FINGERPRINT);
+    try (SpreadsheetCache.Snapshot snapshot = testModel.write(SPREADSHEET_ID, RANGE, "changed")) {
+      snapshot.handleRows(Collections.singletonList(Collections.singletonList("partial")));
+    }
+    List<List<Object>> result = new ArrayList<>();
+
+    assertTrue(testModel.read(SPREADSHEET_ID, RANGE, FINGERPRINT, 10, result::addAll));
+    assertEquals(result, rows);
+  }
+
+  @Test
+  public void shouldWriteConcurrentSnapshotsOfSameRangeToSeparateFiles() throws IOException {
+    List<List<Object>> result = new ArrayList<>();
+    try (SpreadsheetCache.Snapshot first = testModel.write(SPREADSHEET_ID, RANGE, FINGERPRINT);
+         SpreadsheetCache.Snapshot second = testModel.write(SPREADSHEET_ID, RANGE, FINGERPRINT)) {
+      first.handleRows(rows.subList(0, 2));
+      second.handleRows(rows);
+      first.handleRows(rows.subList(2, 4));
+      second.commit();
+      first.commit();
+    }
+
+    assertTrue(testModel.read(SPREADSHEET_ID, RANGE, FINGERPRINT, 10, result::addAll));
+    assertEquals(result, rows);
+  }
+
+  @Test
+  public void shouldNotReadMissingSnapshot() throws IOException {
+    assertFalse(testModel.read(SPREADSHEET_ID, RANGE, null, 10, blocks -> {
+    }));
+  }
+
+  @Test
+  public void shouldFingerprintProbeContent() throws IOException {
+    String fingerprint = testModel.fingerprint(rows);
+
+    assertEquals(testModel.fingerprint(new ArrayList<>(rows)), fingerprint);
+    assertNotEquals(testModel.fingerprint(rows.subList(0, 2)), fingerprint);
+  }
+
+  private void store(String fingerprint) throws IOException {
+    try (SpreadsheetCache.Snapshot snapshot = testModel.write(SPREADSHEET_ID, RANGE, fingerprint)) {
+      snapshot.handleRows(rows.subList(0, 2));
+      snapshot.handleRows(rows.subList(2, 4));
+      snapshot.commit();
+    }
+  }
+}
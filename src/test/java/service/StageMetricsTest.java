@@ -0,0 +1,58 @@
+package service;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class StageMetricsTest {
+
+  private StageMetrics testModel;
+
+  @BeforeMethod
+  public void setUp() {
+    testModel = new StageMetrics();
+  }
+
+  @Test
+  public void shouldReportNothingBeforeFirstLatency() {
+    assertEquals(testModel.getCount(), 0);
+    assertEquals(testModel.getMeanMicros(), 0.0);
+    assertEquals(testModel.getP99Micros(), 0.0);
+  }
+
+  @Test
+  public void shouldSumLatencies() {
+    testModel.record(TimeUnit.MICROSECONDS.toNanos(10));
+    testModel.record(TimeUnit.MICROSECONDS.toNanos(30));
+
+    assertEquals(testModel.getCount(), 2);
+    assertEquals(testModel.getTotalMillis(), 0.04);
+    assertEquals(testModel.getMeanMicros(), 20.0);
+    assertEquals(testModel.getMaxMicros(), 30.0);
+  }
+
+  @Test
+  public void shouldBoundPercentilesWithinFactorOfTwo() {
+    for (int i = 1; i <= 100; i++) {
+      testModel.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+
+    double median = testModel.getP50Micros();
+    double p95 = testModel.getP95Micros();
+    assertTrue(median >= 50 && median < 100, String.valueOf(median));
+    assertTrue(p95 >= 95 && p95 <= 100, String.valueOf(p95));
+    assertEquals(testModel.getP99Micros(), 100.0);
+  }
+
+  @Test
+  public void shouldCountNegativeLatencyAsZero() {
+    testModel.record(-5);
+
+    assertEquals(testModel.getCount(), 1);
+    assertEquals(testModel.getMaxMicros(), 0.0);
+  }
+}
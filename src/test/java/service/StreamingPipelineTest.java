@@ -0,0 +1,100 @@
+package service;
+
+import model.Person;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class StreamingPipelineTest {
+
+  private static final String URL = "https://docs.google.com/spreadsheets/d/test";
+  private static final String DATA_RANGE = "A1:D4";
+  private static final int IMAGE_COLUMN = 2;
+  private static final int PAGE_SIZE = 2;
+  private static final int MAX_CONCURRENT_REQUESTS = 2;
+  private static final int QUEUE_CAPACITY = 1;
+
+  private List<List<Object>> data;
+  private File sequentialRoot;
+  private File streamingRoot;
+  private DataParser dataParser;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    data = new ArrayList<>();
+    data.add(Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, Person.LAST_NAME_KEY, "Link to Picture", "Major:"));
+    data.add(Arrays.asList("Zed", "Zulu", "zed.png", "Biology"));
+    data.add(Arrays.asList("Amy", "Alpha", "amy.png", "N/A"));
+    data.add(Arrays.asList("Mo", "Mike", "mo.png", "Physics"));
+
+    sequentialRoot = Files.createTempDirectory("sequential").toFile();
+    streamingRoot = Files.createTempDirectory("streaming").toFile();
+
+    dataParser = new DataParser(new DataSource() {
+      @Override
+      public boolean supports(String location) {
+        return true;
+      }
+
+      @Override
+      public void retrieveData(String location, String range, int pageSize, int maxConcurrentRequests,
+                               RowHandler handler) throws IOException {
+        for (int i = 0; i < data.size(); i += pageSize) {
+          handler.handleRows(data.subList(i, Math.min(i + pageSize, data.size())));
+        }
+      }
+    });
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    TestFiles.deleteRecursively(sequentialRoot);
+    TestFiles.deleteRecursively(streamingRoot);
+  }
+
+  @Test
+  public void shouldWriteSameFilesAsSequentialRun() throws IOException {
+    new FileGenerator(new PageTemplates(), sequentialRoot).generateFiles(dataParser.parseData(data, IMAGE_COLUMN));
+
+    new StreamingPipeline(dataParser, new FileGenerator(new PageTemplates(), streamingRoot), QUEUE_CAPACITY)
+            .run(URL, DATA_RANGE, IMAGE_COLUMN, PAGE_SIZE, MAX_CONCURRENT_REQUESTS);
+
+    File sequentialPages = new File(sequentialRoot, "studentPages");
+    File streamingPages = new File(streamingRoot, "studentPages");
+    String[] fileNames = sequentialPages.list();
+    assertEquals(streamingPages.list().length, fileNames.length);
+    for (String fileName : fileNames) {
+      assertEquals(TestFiles.read(new File(streamingPages, fileName)),
+              TestFiles.read(new File(sequentialPages, fileName)), fileName);
+    }
+  }
+
+  @Test (expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*retrieval failed.*")
+  public void shouldPropagateRetrievalFailure() throws IOException {
+    DataParser failingParser = new DataParser(new DataSource() {
+      @Override
+      public boolean supports(String location) {
+        return true;
+      }
+
+      @Override
+      public void retrieveData(String location, String range, int pageSize, int maxConcurrentRequests,
+                               RowHandler handler) throws IOException {
+        handler.handleRows(data.subList(0, 2));
+        throw new IOException("retrieval failed");
+      }
+    });
+
+    new StreamingPipeline(failingParser, new FileGenerator(new PageTemplates(), streamingRoot), QUEUE_CAPACITY)
+            .run(URL, DATA_RANGE, IMAGE_COLUMN, PAGE_SIZE, MAX_CONCURRENT_REQUESTS);
+  }
+}
@@ -1,16 +1,24 @@
 package service;
 
 import model.Person;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.assertEquals;
 
 public class SurveyParserTest {
 
@@ -24,6 +32,9 @@ public class SurveyParserTest {
   private static final String INVALID_ROW_RANGE = "A2:B1";
   private static final String INVALID_IMAGE_COLUMN = "E";
   private static final String LARGE_DATA_RANGE = "C1:BB2";
+  private static final int PAGE_SIZE = 500;
+  private static final int MAX_CONCURRENT_REQUESTS = 3;
+  private static final int PARALLELISM = 4;
 
   @Mock
   private DataParser dataParser;
@@ -54,6 +65,32 @@ public class SurveyParserTest {
     verify(dataParser).retrieveData(URL, DATA_RANGE);
   }
 
+  @Test
+  public void shouldRecordRunInMetricsAndWriteReport() throws IOException {
+    testModel.run(URL, DATA_RANGE, IMAGE_COLUMN);
+
+    verify(dataParser).setMetrics(any(RunMetrics.class));
+    verify(fileGenerator).setMetrics(any(RunMetrics.class));
+    verify(fileGenerator).writeRunReport(argThat(new ArgumentMatcher<RunMetrics>() {
+      @Override
+      public boolean matches(Object metrics) {
+        return ((RunMetrics) metrics).isFinished();
+      }
+    }));
+  }
+
+  @Test
+  public void shouldIndexParsedPeopleWithoutWritingFiles() throws IOException {
+    Map<String, String> response = new HashMap<>();
+    response.put("Attending", "Fall");
+    people.add(new Person(response, ""));
+
+    RosterIndex rosterIndex = testModel.index(URL, DATA_RANGE, IMAGE_COLUMN);
+
+    assertEquals(rosterIndex.count(RosterQuery.equalTo("Attending", "Fall")), 1);
+    verifyZeroInteractions(fileGenerator);
+  }
+
   @Test
   public void shouldParseRetrievedData() throws IOException {
     testModel.run(URL, DATA_RANGE, IMAGE_COLUMN);
@@ -61,6 +98,46 @@ public class SurveyParserTest {
     verify(dataParser).parseData(data, IMAGE_INDEX);
   }
 
+  @Test
+  public void shouldRetrieveAndParseInPagesIfPageSizeGiven() throws IOException {
+    RunOptions options = new RunOptions();
+    options.setPageSize(PAGE_SIZE);
+    options.setMaxConcurrentRequests(MAX_CONCURRENT_REQUESTS);
+    when(dataParser.retrieveAndParseData(URL, DATA_RANGE, IMAGE_INDEX, PAGE_SIZE, MAX_CONCURRENT_REQUESTS))
+            .thenReturn(people);
+    testModel = new SurveyParser(dataParser, fileGenerator, options);
+
+    testModel.run(URL, DATA_RANGE, IMAGE_COLUMN);
+
+    verify(dataParser).retrieveAndParseData(URL, DATA_RANGE, IMAGE_INDEX, PAGE_SIZE, MAX_CONCURRENT_REQUESTS);
+    verify(fileGenerator).generateFiles(people);
+  }
+
+  @Test
+  public void shouldStreamDataIntoFilesIfStreamingGiven() throws IOException {
+    RunOptions options = new RunOptions();
+    options.setStreaming(true);
+    testModel = new SurveyParser(dataParser, fileGenerator, options);
+
+    testModel.run(URL, DATA_RANGE, IMAGE_COLUMN);
+
+    verify(dataParser).retrieveData(eq(URL), eq(DATA_RANGE), eq(RunOptions.SINGLE_REQUEST),
+            eq(options.getMaxConcurrentRequests()), any(RowHandler.class));
+    verify(fileGenerator).generateFiles(anyListOf(PageSpool.Page.class), any(PageSpool.class),
+            any(AnswerSummary.class));
+  }
+
+  @Test
+  public void shouldGenerateFilesInParallelIfParallelismGiven() throws IOException {
+    RunOptions options = new RunOptions();
+    options.setParallelism(PARALLELISM);
+    testModel = new SurveyParser(dataParser, fileGenerator, options);
+
+    testModel.run(URL, DATA_RANGE, IMAGE_COLUMN);
+
+    verify(fileGenerator).generateFiles(people, PARALLELISM);
+  }
+
   @Test (expectedExceptions = RuntimeException.class)
   public void shouldGenerateFilesFromParsedData() throws IOException {
     doThrow(new RuntimeException()).when(fileGenerator).generateFiles(people);
@@ -89,6 +166,26 @@ public class SurveyParserTest {
     testModel.run(URL, DATA_RANGE, INVALID_IMAGE_COLUMN);
   }
 
+  @Test (expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*Pages can't be served by.*")
+  public void shouldRejectServingIncrementalRun() {
+    RunOptions options = new RunOptions();
+    options.setServePort(0);
+    options.setIncremental(true);
+
+    SurveyParser.createFileGenerator(options, new PageTemplates(), null);
+  }
+
+  @Test (expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*can't be watched with a cache or offline.*")
+  public void shouldRejectWatchingOffline() throws IOException, GeneralSecurityException {
+    RunOptions options = new RunOptions();
+    options.setWatch(true);
+    options.setOffline(true);
+
+    SurveyParser.createSheetsDataSource(options);
+  }
+
   @Test
   public void shouldAllowEditUrl() throws IOException {
     testModel.run(EDIT_URL, DATA_RANGE, IMAGE_COLUMN);
@@ -0,0 +1,186 @@
+package service;
+
+import model.Person;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class SurveyWatcherTest {
+
+  private static final String URL = "https://docs.google.com/spreadsheets/d/test";
+  private static final String DATA_RANGE = "A1:C3";
+  private static final int IMAGE_COLUMN = 2;
+  private static final long MIN_INTERVAL_MILLIS = 100;
+  private static final long MAX_INTERVAL_MILLIS = 350;
+
+  private List<List<Object>> data;
+  private List<String> requestedRanges;
+  private Set<String> writtenFiles;
+  private File watchedRoot;
+  private File fullRoot;
+  private DataParser dataParser;
+  private SurveyWatcher testModel;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    data = new ArrayList<>();
+    data.add(Arrays.asList(Person.GIVEN_FIRST_NAME_KEY, Person.LAST_NAME_KEY, "Link to Picture"));
+    data.add(Arrays.asList("Amy", "Alpha", "amy.png"));
+    data.add(Arrays.asList("Zed", "Zulu", "zed.png"));
+    requestedRanges = new ArrayList<>();
+    writtenFiles = new TreeSet<>();
+    watchedRoot = Files.createTempDirectory("watched").toFile();
+    fullRoot = Files.createTempDirectory("full").toFile();
+
+    dataParser = new DataParser(new DataSource() {
+      @Override
+      public boolean supports(String location) {
+        return true;
+      }
+
+      @Override
+      public void retrieveData(String location, String range, int pageSize, int maxConcurrentRequests,
+                               RowHandler handler) throws IOException {
+        requestedRanges.add(range);
+        CellRange cellRange = CellRange.parse(range);
+        int lastRow = Math.min(cellRange.getLastRow(), data.size());
+        if (cellRange.getFirstRow() <= lastRow) {
+          handler.handleRows(new ArrayList<>(data.subList(cellRange.getFirstRow() - 1, lastRow)));
+        }
+      }
+    });
+    FileGenerator fileGenerator = TestFiles.recordingFileGenerator(watchedRoot, writtenFiles);
+    RunMetrics metrics = new RunMetrics();
+    testModel = new SurveyWatcher(dataParser, fileGenerator, metrics, MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    TestFiles.deleteRecursively(watchedRoot);
+    TestFiles.deleteRecursively(fullRoot);
+  }
+
+  @Test
+  public void shouldOnlyRequestRowsAfterLastRow() throws IOException {
+    testModel.start(URL, DATA_RANGE, IMAGE_COLUMN);
+    testModel.poll();
+    data.add(Arrays.asList("Mo", "Mike", "mo.png"));
+    testModel.poll();
+    testModel.poll();
+
+    assertEquals(requestedRanges, Arrays.asList(DATA_RANGE, "A4:C", "A4:C", "A5:C"));
+  }
+
+  @Test
+  public void shouldOnlyWritePagesAffectedByNewRows() throws IOException {
+    data.add(Arrays.asList("Bo", "Bravo", "bo.png"));
+    testModel.start(URL, "A1:C4", IMAGE_COLUMN);
+    writtenFiles.clear();
+
+    data.add(Arrays.asList("Mo", "Mike", "mo.png"));
+    assertTrue(testModel.poll());
+
+    Set<String> expected = new TreeSet<>(Arrays.asList("studentPages/Bo Bravo.html", "studentPages/Mo Mike.html",
+            "studentPages/Student Directory.html", FileGenerator.REPORT_LOCATION));
+    assertEquals(writtenFiles, expected);
+  }
+
+  @Test
+  public void shouldWritePagesOfFailedUpdateOnNextPoll() throws IOException {
+    boolean[] failing = {false};
+    FileGenerator fileGenerator = new FileGenerator(new PageTemplates(), watchedRoot) {
+      @Override
+      Writer getFileWriter(String fileName) throws IOException {
+        if (failing[0]) {
+          throw new IOException("disk full");
+        }
+        writtenFiles.add(fileName);
+        return super.getFileWriter(fileName);
+      }
+    };
+    testModel = new SurveyWatcher(dataParser, fileGenerator, new RunMetrics(), MIN_INTERVAL_MILLIS,
+            MAX_INTERVAL_MILLIS);
+    testModel.start(URL, DATA_RANGE, IMAGE_COLUMN);
+    writtenFiles.clear();
+
+    data.add(Arrays.asList("Mo", "Mike", "mo.png"));
+    failing[0] = true;
+    try {
+      testModel.poll();
+      fail("Expected the update to fail");
+    }
+    catch (IOException updateFailure) {
+      assertEquals(updateFailure.getMessage(), "disk full");
+    }
+    failing[0] = false;
+
+    assertTrue(testModel.poll());
+    assertTrue(writtenFiles.contains("studentPages/Mo Mike.html"));
+    assertTrue(writtenFiles.contains("studentPages/Amy Alpha.html"));
+    assertFalse(testModel.poll());
+  }
+
+  @Test
+  public void shouldWriteSameFilesAsFullRun() throws IOException {
+    testModel.start(URL, DATA_RANGE, IMAGE_COLUMN);
+    data.add(Arrays.asList("Mo", "Mike", "mo.png"));
+    data.add(Arrays.asList("Al", "Alpha", "al.png"));
+    testModel.poll();
+    data.add(Arrays.asList("Yu", "Zulu", "yu.png"));
+    testModel.poll();
+
+    DataParser fullParser = new DataParser(new DataSource() {
+      @Override
+      public boolean supports(String location) {
+        return true;
+      }
+
+      @Override
+      public void retrieveData(String location, String range, int pageSize, int maxConcurrentRequests,
+                               RowHandler handler) throws IOException {
+        handler.handleRows(data);
+      }
+    });
+    List<Person> people = fullParser.parseData(fullParser.retrieveData(URL, DATA_RANGE), IMAGE_COLUMN);
+    TestFiles.recordingFileGenerator(fullRoot, writtenFiles).generateFiles(people);
+
+    assertEquals(testModel.getPeople(), people);
+    File watchedPages = new File(watchedRoot, "studentPages");
+    File fullPages = new File(fullRoot, "studentPages");
+    for (String fileName : fullPages.list()) {
+      assertEquals(TestFiles.read(new File(watchedPages, fileName)), TestFiles.read(new File(fullPages, fileName)),
+              fileName);
+    }
+  }
+
+  @Test
+  public void shouldBackOffWhileNothingChanges() throws IOException {
+    testModel.start(URL, DATA_RANGE, IMAGE_COLUMN);
+
+    assertFalse(testModel.poll());
+    assertEquals(testModel.getIntervalMillis(), 200);
+    testModel.poll();
+    assertEquals(testModel.getIntervalMillis(), MAX_INTERVAL_MILLIS);
+    testModel.poll();
+    assertEquals(testModel.getIntervalMillis(), MAX_INTERVAL_MILLIS);
+
+    data.add(Arrays.asList("Mo", "Mike", "mo.png"));
+    testModel.poll();
+    assertEquals(testModel.getIntervalMillis(), MIN_INTERVAL_MILLIS);
+  }
+}
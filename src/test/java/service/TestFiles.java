@@ -0,0 +1,61 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+
+/**
+ * Helpers for tests that write files into temporary folders.
+ */
+final class TestFiles {
+
+  private TestFiles() {
+  }
+
+  /**
+   * Creates a FileGenerator that writes its studentPages folder inside the given folder and records the name of every
+   * text file it opens.
+   *
+   * @param root         non-null folder to write the studentPages folder in
+   * @param writtenFiles non-null collection the name of each file is added to as it is opened
+   * @return the FileGenerator
+   */
+  static FileGenerator recordingFileGenerator(File root, Collection<String> writtenFiles) {
+    return new FileGenerator(new PageTemplates(), root) {
+      @Override
+      Writer getFileWriter(String fileName) throws IOException {
+        writtenFiles.add(fileName);
+        return super.getFileWriter(fileName);
+      }
+    };
+  }
+
+  /**
+   * Reads a text file written as UTF-8.
+   *
+   * @param file non-null File to read
+   * @return content of the file
+   * @throws IOException if the file can't be read
+   */
+  static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Deletes a file, or a folder and everything in it. Files that can't be deleted are left behind.
+   *
+   * @param file non-null File to delete
+   */
+  static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
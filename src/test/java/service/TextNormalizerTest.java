@@ -0,0 +1,53 @@
+package service;
+
+import org.testng.annotations.Test;
+
+import java.text.Normalizer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class TextNormalizerTest {
+
+  private final TextNormalizer strip = new TextNormalizer(NormalizationPolicy.STRIP);
+  private final TextNormalizer transliterate = new TextNormalizer(NormalizationPolicy.TRANSLITERATE);
+
+  @Test
+  public void shouldReturnAsciiInputItself() {
+    String input = "Plain ASCII answer, with punctuation!";
+
+    assertSame(strip.normalize(input), input);
+    assertSame(transliterate.normalize(input), input);
+  }
+
+  @Test
+  public void shouldMatchRegexNormalizationForEveryCharacter() {
+    for (char c = 0; c < Character.MAX_VALUE; c++) {
+      String input = "a" + c + "b";
+      assertEquals(strip.normalize(input), regexNormalize(input), Integer.toHexString(c));
+    }
+  }
+
+  @Test
+  public void shouldMatchRegexNormalizationForMixedText() {
+    String input = "José Ñúñez-Ødegård, ß, “quoted”, 한국어, 😀 and é";
+
+    assertEquals(strip.normalize(input), regexNormalize(input));
+  }
+
+  @Test
+  public void shouldTransliterateCharactersWithoutAccents() {
+    assertEquals(transliterate.normalize("Straße Ødegård – “Æsir” …"), "Strasse Odegard - \"AEsir\" ...");
+  }
+
+  @Test
+  public void shouldKeepInputUnchanged() {
+    String input = "José 한국어";
+
+    assertSame(new TextNormalizer(NormalizationPolicy.KEEP).normalize(input), input);
+  }
+
+  private String regexNormalize(String input) {
+    return Normalizer.normalize(input, Normalizer.Form.NFD).replaceAll("[^\\p{ASCII}]", "");
+  }
+}